@@ -0,0 +1,52 @@
+package org.poker.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.poker.CFR.History.LeducHistory;
+import org.poker.CFR.InfoSetTable;
+import org.poker.CFR.Solver;
+import org.poker.CFR.SolverType;
+import org.poker.GameSim.LeducGameSim;
+
+/**
+ * One steady-state iteration on Leduc Hold'em per operation, for reading the GC profiler's
+ * gc.alloc.rate.norm: once every infoset exists it should be 0 for every engine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AllocationBenchmark {
+    @Param({"VANILLA", "COMPILED", "VECTORIZED", "CHANCE_SAMPLING", "EXTERNAL_SAMPLING", "OUTCOME_SAMPLING"})
+    public String engine;
+
+    private Solver solver;
+    private LeducHistory root;
+
+    @Setup
+    public void setup() {
+        LeducGameSim game = new LeducGameSim();
+        root = new LeducHistory();
+        solver = SolverType.valueOf(engine).create(game, new InfoSetTable(), 42);
+        // Sampling engines need many iterations to reach every infoset
+        solver.train(engine.endsWith("SAMPLING") ? 100000 : 1, root, null, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public int iteration() {
+        solver.train(1, root, null, Integer.MAX_VALUE);
+        return solver.getIteration();
+    }
+}
@@ -0,0 +1,30 @@
+package org.poker.benchmark.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH suites with the GC profiler attached, so every result carries its
+ * allocation rate (gc.alloc.rate.norm is bytes per operation) next to the throughput.
+ *
+ * Usage: java -jar target/benchmarks.jar [includeRegex] [results.json]
+ *
+ * The JSON file can be diffed against a stored baseline to gate regressions.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "org\\.poker\\.benchmark\\.jmh\\..*";
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class);
+        if (args.length > 1) {
+            options.resultFormat(ResultFormatType.JSON).result(args[1]);
+        }
+        new Runner(options.build()).run();
+    }
+}
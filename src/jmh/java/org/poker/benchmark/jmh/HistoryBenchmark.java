@@ -0,0 +1,66 @@
+package org.poker.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.CFR.History.KuhnPokerHistory;
+import org.poker.Card;
+
+/**
+ * History operations hit at every node of a traversal.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HistoryBenchmark {
+    private KuhnPokerHistory history;
+
+    @Setup
+    public void setup() {
+        history = new KuhnPokerHistory();
+        history.deal(0, new Card(2, 'H'));
+        history.deal(1, new Card(3, 'H'));
+        history.addAction("P0:Check");
+        history.addAction("P1:Bet");
+    }
+
+    @Benchmark
+    public String infoSetKey() {
+        return history.infoSetKey(0);
+    }
+
+    @Benchmark
+    public long infoSetHash() {
+        return history.infoSetHash(0);
+    }
+
+    @Benchmark
+    public AbstractHistory copy() {
+        return history.copy();
+    }
+
+    @Benchmark
+    public boolean isTerminal() {
+        return history.isTerminal();
+    }
+
+    @Benchmark
+    public int addAndUndo() {
+        history.addAction(0, KuhnPokerHistory.CALL);
+        int length = history.length();
+        history.undoAction();
+        return length;
+    }
+}
@@ -0,0 +1,87 @@
+package org.poker.benchmark.jmh;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.poker.CFR.CFR;
+import org.poker.CFR.History.KuhnPokerHistory;
+import org.poker.CFR.InfoSet;
+import org.poker.CFR.InfoSetLabels;
+import org.poker.CFR.InfoSetTable;
+import org.poker.Card;
+import org.poker.GameSim.KuhnPokerGameSim;
+
+/**
+ * Infoset lookup and strategy computation, through the table and through the map view.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InfoSetBenchmark {
+    private InfoSetTable table;
+    private InfoSetLabels labels;
+    private KuhnPokerHistory history;
+    private int[] actions;
+    private int numActions;
+    private double[] strategy;
+    private int next;
+
+    @Setup
+    public void setup() {
+        KuhnPokerGameSim game = new KuhnPokerGameSim();
+        KuhnPokerHistory root = new KuhnPokerHistory();
+        CFR trainer = new CFR(game);
+        trainer.train(1000, root, null, Integer.MAX_VALUE);
+        table = trainer.getInfoSetTable();
+        labels = InfoSetLabels.replay(game, root, table);
+
+        history = new KuhnPokerHistory();
+        history.deal(0, new Card(3, 'H'));
+        history.deal(1, new Card(1, 'H'));
+        history.addAction("P0:Check");
+        history.addAction("P1:Bet");
+        actions = new int[game.maxActions()];
+        numActions = game.legalActions(history, actions);
+        strategy = new double[2];
+    }
+
+    private int nextId() {
+        next = next + 1 == table.size() ? 0 : next + 1;
+        return next;
+    }
+
+    @Benchmark
+    public void tableStrategy(Blackhole bh) {
+        table.getStrategy(nextId(), strategy);
+        bh.consume(strategy);
+    }
+
+    @Benchmark
+    public void tableAverageStrategy(Blackhole bh) {
+        table.getAverageStrategy(nextId(), strategy);
+        bh.consume(strategy);
+    }
+
+    @Benchmark
+    public Map<String, Double> viewStrategy() {
+        return new InfoSet(table, nextId(), labels).getStrategy();
+    }
+
+    @Benchmark
+    public int lookup() {
+        return table.getOrCreate(history, 0, actions, numActions);
+    }
+}
@@ -0,0 +1,111 @@
+package org.poker.benchmark.jmh;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.poker.CFR.History.KuhnPokerHistory;
+import org.poker.Card;
+import org.poker.HandEval.BitmaskHandEval;
+import org.poker.HandEval.KuhnPokerHandEval;
+
+/**
+ * Terminal utilities and hand evaluation. Bitmask results are in hands per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShowdownBenchmark {
+    private static final int HANDS = 1024;
+
+    private KuhnPokerHandEval kuhnEval;
+    private KuhnPokerHistory showdown;
+
+    private BitmaskHandEval bitmaskEval;
+    private long[] sevenCardHands;
+    private long board;
+    private long[] holeCards;
+    private int[] strengths;
+    private ArrayList<Card> handA;
+    private ArrayList<Card> handB;
+
+    @Setup
+    public void setup() {
+        kuhnEval = new KuhnPokerHandEval();
+        showdown = new KuhnPokerHistory();
+        showdown.deal(0, new Card(3, 'H'));
+        showdown.deal(1, new Card(1, 'H'));
+        showdown.addAction("P0:Bet");
+        showdown.addAction("P1:Call");
+
+        bitmaskEval = new BitmaskHandEval();
+        SplittableRandom random = new SplittableRandom(7);
+        sevenCardHands = new long[HANDS];
+        for (int i = 0; i < HANDS; i++) sevenCardHands[i] = randomCards(random, 0L, 7);
+
+        board = randomCards(random, 0L, 5);
+        holeCards = new long[HANDS];
+        for (int i = 0; i < HANDS; i++) holeCards[i] = randomCards(random, board, 2);
+        strengths = new int[HANDS];
+
+        handA = new ArrayList<>();
+        handB = new ArrayList<>();
+        char[] suits = {'S', 'H', 'D', 'C'};
+        for (int i = 0; i < 7; i++) {
+            handA.add(new Card(2 + i * 2 % 13, suits[i % 4]));
+            handB.add(new Card(14 - i, suits[(i + 1) % 4]));
+        }
+    }
+
+    private static long randomCards(SplittableRandom random, long used, int count) {
+        long cards = 0L;
+        while (Long.bitCount(cards) < count) {
+            long card = 1L << random.nextInt(52);
+            if ((used & card) == 0) cards |= card;
+        }
+        return cards;
+    }
+
+    @Benchmark
+    public ArrayList<Double> kuhnUtilityFromHistory() {
+        return kuhnEval.utilityFromHistory(showdown);
+    }
+
+    @Benchmark
+    public double kuhnUtility() {
+        return kuhnEval.utility(showdown, 0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HANDS)
+    public int bitmaskEvaluate() {
+        int sum = 0;
+        for (long hand : sevenCardHands) sum += bitmaskEval.evaluate(hand);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HANDS)
+    public int[] bitmaskEvaluateAll() {
+        bitmaskEval.evaluateAll(board, holeCards, strengths);
+        return strengths;
+    }
+
+    @Benchmark
+    public int bitmaskCompareHands() {
+        return bitmaskEval.compareHands(handA, handB);
+    }
+}
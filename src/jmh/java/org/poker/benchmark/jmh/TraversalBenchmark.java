@@ -0,0 +1,56 @@
+package org.poker.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.poker.CFR.History.KuhnPokerHistory;
+import org.poker.CFR.InfoSetTable;
+import org.poker.CFR.Solver;
+import org.poker.CFR.SolverType;
+import org.poker.GameSim.KuhnPokerGameSim;
+
+/**
+ * Full CFR iterations per second on Kuhn poker for every engine.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TraversalBenchmark {
+    // Iterations per call of train, so its per-call bookkeeping is amortized
+    private static final int BATCH = 100;
+
+    @Param({"VANILLA", "COMPILED", "VECTORIZED", "CHANCE_SAMPLING", "EXTERNAL_SAMPLING", "OUTCOME_SAMPLING"})
+    public String engine;
+
+    private Solver solver;
+    private KuhnPokerHistory root;
+
+    @Setup
+    public void setup() {
+        KuhnPokerGameSim game = new KuhnPokerGameSim();
+        root = new KuhnPokerHistory();
+        solver = SolverType.valueOf(engine).create(game, new InfoSetTable(), 42);
+        // Create every infoset up front so the measurement sees the steady state
+        solver.train(1000, root, null, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int iterations() {
+        solver.train(BATCH, root, null, Integer.MAX_VALUE);
+        return solver.getIteration();
+    }
+}
@@ -0,0 +1,161 @@
+package org.poker.Abstraction;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A read-only, memory-mapped table from canonical hands of one street to buckets.
+ *
+ * Keys are the sorted {@link CanonicalHands} keys of the street and buckets are one byte
+ * each, so the turn table of about 14 million hands takes 126 MB, shared through the page
+ * cache by every process using it. A lookup canonicalizes the hand and binary searches the
+ * mapped keys sharing its hole cards, found through a small index built when the table is
+ * opened.
+ *
+ * Layout (little endian):
+ * <pre>
+ * header  int magic 'CFRA', int version, int street, int boardCards, int numBuckets,
+ *         int numKeys, long fingerprint of the build parameters, long crc32(payload)
+ * payload long[numKeys] sorted keys, byte[numKeys] buckets
+ * </pre>
+ */
+public class BucketTable {
+    public static final int MAGIC = 0x41524643;
+    public static final int VERSION = 1;
+    static final int HEADER_SIZE = 6 * Integer.BYTES + 2 * Long.BYTES;
+    // Two packed 6-bit card ids
+    private static final int HOLE_PREFIXES = 1 << 12;
+
+    private final MappedByteBuffer buffer;
+    private final int street;
+    private final int boardCards;
+    private final int numBuckets;
+    private final int numKeys;
+    private final long fingerprint;
+    private final int bucketStart;
+    // First key index per packed hole-card prefix of the keys, so searches stay within one hole
+    private final int[] holeStart;
+
+    private BucketTable(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.street = buffer.getInt(8);
+        this.boardCards = buffer.getInt(12);
+        this.numBuckets = buffer.getInt(16);
+        this.numKeys = buffer.getInt(20);
+        this.fingerprint = buffer.getLong(24);
+        this.bucketStart = HEADER_SIZE + numKeys * Long.BYTES;
+
+        holeStart = new int[HOLE_PREFIXES + 1];
+        int prefix = 0;
+        for (int i = 0; i < numKeys; i++) {
+            int hole = holePrefix(buffer.getLong(HEADER_SIZE + i * Long.BYTES));
+            while (prefix <= hole) holeStart[prefix++] = i;
+        }
+        while (prefix <= HOLE_PREFIXES) holeStart[prefix++] = numKeys;
+    }
+
+    private int holePrefix(long key) {
+        return (int) (key >>> (6 * boardCards));
+    }
+
+    /**
+     * Writes a table to path, replacing any previous file atomically.
+     */
+    public static void write(Path path, int street, int boardCards, int numBuckets, long fingerprint,
+                             long[] keys, byte[] buckets) throws IOException {
+        long payloadLength = (long) keys.length * (Long.BYTES + 1);
+        if (HEADER_SIZE + payloadLength > Integer.MAX_VALUE) {
+            throw new IOException("Bucket table of " + payloadLength + " bytes is too large for one mapping");
+        }
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+
+        // A temporary file of its own, since worker processes sharing the directory may build the same table
+        Path temp = path.resolveSibling(path.getFileName() + "." + ProcessHandle.current().pid() + "."
+                + Thread.currentThread().getId() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + payloadLength);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+
+            out.position(HEADER_SIZE);
+            out.asLongBuffer().put(keys);
+            out.position(HEADER_SIZE + keys.length * Long.BYTES);
+            out.put(buckets);
+
+            CRC32 crc = new CRC32();
+            crc.update(out.slice(HEADER_SIZE, (int) payloadLength));
+            out.position(0);
+            out.putInt(MAGIC).putInt(VERSION).putInt(street).putInt(boardCards).putInt(numBuckets);
+            out.putInt(keys.length).putLong(fingerprint).putLong(crc.getValue());
+            out.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a table read-only and checks its header and CRC.
+     */
+    public static BucketTable open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) throw new IOException(path + " is too short to be a bucket table");
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt(0) != MAGIC) throw new IOException(path + " is not a bucket table");
+            int version = buffer.getInt(4);
+            if (version != VERSION) throw new IOException("Unsupported bucket table version " + version);
+            long payloadLength = (long) buffer.getInt(20) * (Long.BYTES + 1);
+            if (HEADER_SIZE + payloadLength != channel.size()) {
+                throw new IOException(path + " has an inconsistent header");
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(HEADER_SIZE, (int) payloadLength));
+            if (crc.getValue() != buffer.getLong(32)) throw new IOException(path + " failed its CRC check");
+
+            return new BucketTable(buffer);
+        }
+    }
+
+    /**
+     * Bucket of the hole cards on a board of this table's street.
+     */
+    public int bucket(long hole, long board) {
+        long key = CanonicalHands.canonicalKey(hole, board);
+        int prefix = holePrefix(key);
+        int low = holeStart[prefix];
+        int high = holeStart[prefix + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long k = buffer.getLong(HEADER_SIZE + middle * Long.BYTES);
+            if (k < key) low = middle + 1;
+            else if (k > key) high = middle - 1;
+            else return buffer.get(bucketStart + middle) & 0xFF;
+        }
+        throw new IllegalArgumentException("Hand is not a " + boardCards + "-card board hand");
+    }
+
+    public int getStreet() {
+        return street;
+    }
+
+    public int getNumBuckets() {
+        return numBuckets;
+    }
+
+    public int size() {
+        return numKeys;
+    }
+
+    long getFingerprint() {
+        return fingerprint;
+    }
+}
@@ -0,0 +1,207 @@
+package org.poker.Abstraction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.poker.HandEval.BitmaskHandEval;
+
+/**
+ * Builds the {@link BucketTable} of a postflop street before the river.
+ *
+ * For every canonical hand of the street, the builder deals a number of runouts of the next
+ * street's card and estimates the hand's equity against a random opponent after each by
+ * Monte Carlo rollouts to the river. The equities form a histogram, the hand's feature
+ * vector, so hands are told apart by how their strength may develop and not only by its
+ * mean. The histograms are computed by a fork-join task over the canonical hands and then
+ * clustered with k-means; buckets are numbered by increasing expected equity.
+ *
+ * Every random choice is seeded from the hand's key, so a build is reproducible regardless
+ * of how the work is split between threads.
+ */
+public class BucketTableBuilder {
+    // Hands per fork-join leaf task
+    private static final int LEAF_SIZE = 1024;
+    private static final BitmaskHandEval EVAL = new BitmaskHandEval();
+
+    private final int street;
+    private final int numBuckets;
+    private final int runouts;
+    private final int samplesPerRunout;
+    private final int bins;
+    private final int iterations;
+    private final long seed;
+
+    /**
+     * @param street           {@link HandAbstraction#FLOP} or {@link HandAbstraction#TURN}
+     * @param runouts          next-street cards dealt per hand, at most 255
+     * @param samplesPerRunout rollouts estimating the equity after each runout
+     * @param bins             histogram bins over [0, 1] equity
+     * @param iterations       maximum k-means iterations
+     */
+    public BucketTableBuilder(int street, int numBuckets, int runouts, int samplesPerRunout, int bins,
+                              int iterations, long seed) {
+        if (street != HandAbstraction.FLOP && street != HandAbstraction.TURN) {
+            throw new IllegalArgumentException("Bucket tables cover the flop and turn only");
+        }
+        if (numBuckets > 256 || runouts > 255) {
+            throw new IllegalArgumentException("At most 256 buckets and 255 runouts");
+        }
+        this.street = street;
+        this.numBuckets = numBuckets;
+        this.runouts = runouts;
+        this.samplesPerRunout = samplesPerRunout;
+        this.bins = bins;
+        this.iterations = iterations;
+        this.seed = seed;
+    }
+
+    /**
+     * Opens the table at path if it was built with these parameters, otherwise builds it and
+     * writes it there first.
+     */
+    public BucketTable loadOrBuild(Path path) throws IOException {
+        if (Files.exists(path)) {
+            BucketTable table = BucketTable.open(path);
+            if (table.getFingerprint() == fingerprint()) return table;
+        }
+        long[] keys = CanonicalHands.enumerate(boardCards());
+        write(path, keys, cluster(histograms(keys)));
+        return BucketTable.open(path);
+    }
+
+    /**
+     * Writes the buckets of the given canonical hands as a table tagged with these parameters.
+     */
+    public void write(Path path, long[] keys, byte[] buckets) throws IOException {
+        BucketTable.write(path, street, boardCards(), numBuckets, fingerprint(), keys, buckets);
+    }
+
+    /**
+     * Equity histograms of the given canonical hands, bins counts per hand. The counts are
+     * unsigned bytes, read as count & 0xFF.
+     */
+    public byte[] histograms(long[] keys) {
+        byte[] features = new byte[keys.length * bins];
+        ForkJoinPool.commonPool().invoke(new HistogramTask(this, keys, features, 0, keys.length));
+        return features;
+    }
+
+    /**
+     * Bucket of every hand, numbered by increasing expected equity.
+     */
+    public byte[] cluster(byte[] features) {
+        KMeans kMeans = new KMeans(features, bins, numBuckets);
+        int[] assignment = kMeans.cluster(iterations, seed);
+
+        // Rank clusters by the mean bin of their centroid
+        double[] mean = new double[numBuckets];
+        Integer[] order = new Integer[numBuckets];
+        for (int c = 0; c < numBuckets; c++) {
+            double total = 0, weighted = 0;
+            for (int b = 0; b < bins; b++) {
+                total += kMeans.centroids[c * bins + b];
+                weighted += b * kMeans.centroids[c * bins + b];
+            }
+            mean[c] = weighted / total;
+            order[c] = c;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(mean[a], mean[b]));
+        int[] rank = new int[numBuckets];
+        for (int i = 0; i < numBuckets; i++) rank[order[i]] = i;
+
+        byte[] buckets = new byte[assignment.length];
+        for (int p = 0; p < assignment.length; p++) buckets[p] = (byte) rank[assignment[p]];
+        return buckets;
+    }
+
+    private static final class HistogramTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BucketTableBuilder builder;
+        private final long[] keys;
+        private final byte[] features;
+        private final int from;
+        private final int to;
+
+        HistogramTask(BucketTableBuilder builder, long[] keys, byte[] features, int from, int to) {
+            this.builder = builder;
+            this.keys = keys;
+            this.features = features;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) builder.histogram(keys[i], features, i * builder.bins);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new HistogramTask(builder, keys, features, from, middle),
+                    new HistogramTask(builder, keys, features, middle, to));
+        }
+    }
+
+    private void histogram(long key, byte[] features, int offset) {
+        long hole = CanonicalHands.holeOf(key, boardCards());
+        long board = CanonicalHands.boardOf(key, boardCards());
+        SplittableRandom random = new SplittableRandom(seed ^ key * 0x9E3779B97F4A7C15L);
+
+        for (int r = 0; r < runouts; r++) {
+            long next = board | randomCard(random, hole | board);
+            int won = 0;
+            for (int s = 0; s < samplesPerRunout; s++) {
+                long used = hole | next;
+                long fullBoard = next;
+                for (int c = Long.bitCount(next); c < 5; c++) {
+                    long card = randomCard(random, used);
+                    fullBoard |= card;
+                    used |= card;
+                }
+                long opponent = randomCard(random, used);
+                opponent |= randomCard(random, used | opponent);
+
+                int comparison = Integer.compare(EVAL.evaluate(hole | fullBoard), EVAL.evaluate(opponent | fullBoard));
+                // Counted in halves so ties stay integral
+                won += comparison > 0 ? 2 : comparison == 0 ? 1 : 0;
+            }
+            double equity = won / (2.0 * samplesPerRunout);
+            features[offset + Math.min(bins - 1, (int) (equity * bins))]++;
+        }
+    }
+
+    private static long randomCard(SplittableRandom random, long used) {
+        while (true) {
+            long card = 1L << random.nextInt(52);
+            if ((used & card) == 0) return card;
+        }
+    }
+
+    private int boardCards() {
+        return street + 2;
+    }
+
+    /**
+     * Identifies the parameters a table was built with.
+     */
+    long fingerprint() {
+        long h = street;
+        for (long value : new long[] { numBuckets, runouts, samplesPerRunout, bins, iterations, seed }) {
+            h = h * 0x9E3779B97F4A7C15L + value;
+        }
+        return h;
+    }
+
+    public int getStreet() {
+        return street;
+    }
+
+    public int getNumBuckets() {
+        return numBuckets;
+    }
+}
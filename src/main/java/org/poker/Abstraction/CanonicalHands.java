@@ -0,0 +1,149 @@
+package org.poker.Abstraction;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Suit-isomorphic canonical forms of hold'em hands (hole cards plus an unordered board).
+ *
+ * Hands that differ only by a permutation of suits play identically. The canonical form
+ * relabels suits in descending order of their (hole ranks, board ranks) pattern, which maps
+ * every member of an isomorphism class to the same masks. Canonical forms are packed into
+ * a long key of 6-bit card ids, hole cards first, each group in ascending order, so keys
+ * of one board size sort and compare as plain longs.
+ */
+public final class CanonicalHands {
+    private static final int RANK_MASK = 0x1FFF;
+
+    private CanonicalHands() {
+    }
+
+    /**
+     * Key of the canonical form of hole cards and board, both 52-bit masks.
+     */
+    public static long canonicalKey(long hole, long board) {
+        long a = pattern(hole, board, 0);
+        long b = pattern(hole, board, 1);
+        long c = pattern(hole, board, 2);
+        long d = pattern(hole, board, 3);
+        // Sorting network, descending
+        long t;
+        if (a < b) { t = a; a = b; b = t; }
+        if (c < d) { t = c; c = d; d = t; }
+        if (a < c) { t = a; a = c; c = t; }
+        if (b < d) { t = b; b = d; d = t; }
+        if (b < c) { t = b; b = c; c = t; }
+
+        long canonicalHole = (a >>> 13) | (b >>> 13) << 13 | (c >>> 13) << 26 | (d >>> 13) << 39;
+        long canonicalBoard = (a & RANK_MASK) | (b & RANK_MASK) << 13 | (c & RANK_MASK) << 26 | (d & RANK_MASK) << 39;
+        return pack(canonicalBoard, pack(canonicalHole, 0));
+    }
+
+    private static long pattern(long hole, long board, int suit) {
+        return ((hole >>> (13 * suit)) & RANK_MASK) << 13 | ((board >>> (13 * suit)) & RANK_MASK);
+    }
+
+    private static long pack(long cards, long key) {
+        while (cards != 0) {
+            key = key << 6 | Long.numberOfTrailingZeros(cards);
+            cards &= cards - 1;
+        }
+        return key;
+    }
+
+    public static long holeOf(long key, int boardCards) {
+        return unpack(key >>> (6 * boardCards), 2);
+    }
+
+    public static long boardOf(long key, int boardCards) {
+        return unpack(key, boardCards);
+    }
+
+    private static long unpack(long key, int count) {
+        long cards = 0;
+        for (int i = 0; i < count; i++) {
+            cards |= 1L << (key & 63);
+            key >>>= 6;
+        }
+        return cards;
+    }
+
+    /**
+     * Sorted keys of every canonical hand with the given number of board cards. Boards are
+     * enumerated for one representative of each of the 169 hole classes, in parallel.
+     */
+    public static long[] enumerate(int boardCards) {
+        long[] holes = canonicalHoles();
+        long[][] perHole = new long[holes.length][];
+        IntStream.range(0, holes.length).parallel().forEach(h -> perHole[h] = boardsFor(holes[h], boardCards));
+
+        int total = 0;
+        for (long[] keys : perHole) total += keys.length;
+        long[] result = new long[total];
+        int n = 0;
+        for (long[] keys : perHole) {
+            System.arraycopy(keys, 0, result, n, keys.length);
+            n += keys.length;
+        }
+        // Hole classes never share keys, so sorting the concatenation is enough
+        Arrays.parallelSort(result);
+        return result;
+    }
+
+    /**
+     * Canonical hole masks, one per preflop class.
+     */
+    static long[] canonicalHoles() {
+        long[] keys = new long[1326];
+        int n = 0;
+        for (int i = 0; i < 52; i++) {
+            for (int j = i + 1; j < 52; j++) {
+                keys[n++] = canonicalKey(1L << i | 1L << j, 0);
+            }
+        }
+        long[] unique = distinct(keys, n);
+        for (int i = 0; i < unique.length; i++) unique[i] = holeOf(unique[i], 0);
+        return unique;
+    }
+
+    private static long[] boardsFor(long hole, int boardCards) {
+        int[] cards = new int[50];
+        int n = 0;
+        for (int c = 0; c < 52; c++) {
+            if ((hole & 1L << c) == 0) cards[n++] = c;
+        }
+
+        long[] keys = new long[binomial(n, boardCards)];
+        int[] index = new int[boardCards];
+        for (int i = 0; i < boardCards; i++) index[i] = i;
+        int count = 0;
+        while (true) {
+            long board = 0;
+            for (int i : index) board |= 1L << cards[i];
+            keys[count++] = canonicalKey(hole, board);
+
+            // Next combination in lexicographic order
+            int i = boardCards - 1;
+            while (i >= 0 && index[i] == n - boardCards + i) i--;
+            if (i < 0) break;
+            index[i]++;
+            for (int j = i + 1; j < boardCards; j++) index[j] = index[j - 1] + 1;
+        }
+        return distinct(keys, count);
+    }
+
+    private static long[] distinct(long[] keys, int count) {
+        Arrays.sort(keys, 0, count);
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) keys[n++] = keys[i];
+        }
+        return Arrays.copyOf(keys, n);
+    }
+
+    private static int binomial(int n, int k) {
+        long result = 1;
+        for (int i = 0; i < k; i++) result = result * (n - i) / (i + 1);
+        return (int) result;
+    }
+}
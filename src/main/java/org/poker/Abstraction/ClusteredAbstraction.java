@@ -0,0 +1,52 @@
+package org.poker.Abstraction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@link EquityAbstraction} with precomputed, clustered buckets on the flop and turn.
+ *
+ * The flop and turn buckets come from {@link BucketTable} files in a directory. A table is
+ * mapped the first time its street is bucketed, and built first if the file is missing or
+ * was built with other parameters, so a training run only pays for the streets it reaches
+ * and later runs start straight from the cached files. Preflop and river bucketing is
+ * inherited.
+ */
+public class ClusteredAbstraction extends EquityAbstraction {
+    private final Path directory;
+    private final BucketTableBuilder[] builders;
+    private final AtomicReferenceArray<BucketTable> tables;
+
+    public ClusteredAbstraction(PreflopEquityTable preflop, int preflopBuckets, BucketTableBuilder flop,
+                                BucketTableBuilder turn, int riverBuckets, Path directory) {
+        super(preflop, new int[] { preflopBuckets, flop.getNumBuckets(), turn.getNumBuckets(), riverBuckets });
+        if (flop.getStreet() != FLOP || turn.getStreet() != TURN) {
+            throw new IllegalArgumentException("Builders must be for the flop and the turn");
+        }
+        this.directory = directory;
+        this.builders = new BucketTableBuilder[] { null, flop, turn, null };
+        this.tables = new AtomicReferenceArray<>(4);
+    }
+
+    @Override
+    public int bucket(int street, long hole, long board) {
+        if (street != FLOP && street != TURN) return super.bucket(street, hole, board);
+        BucketTable table = tables.get(street);
+        if (table == null) table = load(street);
+        return table.bucket(hole, board);
+    }
+
+    private synchronized BucketTable load(int street) {
+        BucketTable table = tables.get(street);
+        if (table != null) return table;
+        try {
+            table = builders[street].loadOrBuild(directory.resolve(street == FLOP ? "flop.bin" : "turn.bin"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        tables.set(street, table);
+        return table;
+    }
+}
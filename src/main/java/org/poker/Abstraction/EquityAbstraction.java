@@ -0,0 +1,131 @@
+package org.poker.Abstraction;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import org.poker.HandEval.BitmaskHandEval;
+
+/**
+ * Buckets hands by strength.
+ *
+ * Preflop, the 169 hand classes are sorted by their equity in a {@link PreflopEquityTable}
+ * and split into equal-sized buckets. After the flop a hand is bucketed by its hand
+ * strength: the share of opponent holdings it beats or ties (counted as half) on the
+ * current board, found by enumerating every opponent holding and split into equal-width
+ * buckets.
+ *
+ * Enumerating means evaluating about a thousand holdings, which dominates hold'em traversal
+ * time, while the holdings' values only depend on the board. A new street's board is
+ * bucketed for both players in a row, so each thread keeps the values on the last board it
+ * saw, and every further hand on that board evaluates only itself.
+ */
+public class EquityAbstraction extends HandAbstraction {
+    private static final BitmaskHandEval EVAL = new BitmaskHandEval();
+    private static final ThreadLocal<BoardValues> LAST_BOARD = ThreadLocal.withInitial(BoardValues::new);
+
+    private final int[] numBuckets;
+    private final int[] preflopBucket;
+    private final boolean reuseBoards;
+
+    /**
+     * @param numBuckets buckets per street, preflop first; 169 preflop buckets is lossless
+     */
+    public EquityAbstraction(PreflopEquityTable preflop, int[] numBuckets) {
+        this(preflop, numBuckets, true);
+    }
+
+    /**
+     * @param reuseBoards keep each thread's last board's holding values; false enumerates every hand
+     */
+    public EquityAbstraction(PreflopEquityTable preflop, int[] numBuckets, boolean reuseBoards) {
+        if (numBuckets.length != 4 || numBuckets[PREFLOP] > PreflopEquityTable.NUM_CLASSES) {
+            throw new IllegalArgumentException("Need bucket counts for 4 streets, at most 169 preflop");
+        }
+        this.numBuckets = numBuckets.clone();
+        this.reuseBoards = reuseBoards;
+
+        Integer[] order = new Integer[PreflopEquityTable.NUM_CLASSES];
+        for (int c = 0; c < order.length; c++) order[c] = c;
+        Arrays.sort(order, Comparator.comparingDouble(preflop::equity));
+        preflopBucket = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            preflopBucket[order[i]] = i * numBuckets[PREFLOP] / order.length;
+        }
+    }
+
+    @Override
+    public int numBuckets(int street) {
+        return numBuckets[street];
+    }
+
+    @Override
+    public int bucket(int street, long hole, long board) {
+        if (street == PREFLOP) return preflopBucket[PreflopEquityTable.classOf(hole)];
+        int n = numBuckets[street];
+        double strength;
+        if (reuseBoards) {
+            BoardValues values = LAST_BOARD.get();
+            if (values.board != board) values.fill(board);
+            strength = values.strength(hole);
+        } else {
+            strength = handStrength(hole, board);
+        }
+        return Math.min(n - 1, (int) (strength * n));
+    }
+
+    /**
+     * Share of opponent holdings the hole cards beat on the board, ties counting half.
+     */
+    public static double handStrength(long hole, long board) {
+        int strength = EVAL.evaluate(hole | board);
+        long used = hole | board;
+        int won = 0;
+        int total = 0;
+        for (int i = 0; i < 52; i++) {
+            if ((used & 1L << i) != 0) continue;
+            for (int j = i + 1; j < 52; j++) {
+                if ((used & 1L << j) != 0) continue;
+                int opponent = EVAL.evaluate(1L << i | 1L << j | board);
+                // Counted in halves so ties stay integral
+                won += strength > opponent ? 2 : strength == opponent ? 1 : 0;
+                total += 2;
+            }
+        }
+        return (double) won / total;
+    }
+
+    /**
+     * The value of every two-card holding on one board, counted like {@link #handStrength}.
+     */
+    private static final class BoardValues {
+        // No real board has bits above the 52 cards
+        long board = -1;
+        final long[] holdings = new long[52 * 51 / 2];
+        final int[] values = new int[52 * 51 / 2];
+        int count;
+
+        void fill(long board) {
+            this.board = board;
+            count = 0;
+            for (int i = 0; i < 52; i++) {
+                if ((board & 1L << i) != 0) continue;
+                for (int j = i + 1; j < 52; j++) {
+                    if ((board & 1L << j) != 0) continue;
+                    holdings[count] = 1L << i | 1L << j;
+                    values[count++] = EVAL.evaluate(1L << i | 1L << j | board);
+                }
+            }
+        }
+
+        double strength(long hole) {
+            int strength = EVAL.evaluate(hole | board);
+            int won = 0;
+            int total = 0;
+            for (int k = 0; k < count; k++) {
+                if ((holdings[k] & hole) != 0) continue;
+                won += strength > values[k] ? 2 : strength == values[k] ? 1 : 0;
+                total += 2;
+            }
+            return (double) won / total;
+        }
+    }
+}
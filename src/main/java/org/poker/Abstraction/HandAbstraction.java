@@ -0,0 +1,22 @@
+package org.poker.Abstraction;
+
+/**
+ * Card abstraction: maps a player's hole cards and the board to a bucket, so strategically
+ * similar hands share infosets. Cards are 52-bit masks in the layout of
+ * {@link org.poker.HandEval.BitmaskHandEval}.
+ *
+ * Implementations must be safe to call from several threads.
+ */
+public abstract class HandAbstraction {
+    public static final int PREFLOP = 0;
+    public static final int FLOP = 1;
+    public static final int TURN = 2;
+    public static final int RIVER = 3;
+
+    public abstract int numBuckets(int street);
+
+    /**
+     * Bucket in [0, numBuckets(street)) of the hole cards given the board of that street.
+     */
+    public abstract int bucket(int street, long hole, long board);
+}
@@ -0,0 +1,114 @@
+package org.poker.Abstraction;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Lloyd's k-means over feature vectors of unsigned bytes (0..255) with squared Euclidean
+ * distance.
+ *
+ * Centroids are seeded by k-means++ on a random sample of the points. The assignment step,
+ * which dominates the cost, runs in parallel on the common fork-join pool.
+ */
+final class KMeans {
+    private static final int SEED_SAMPLE = 50000;
+
+    private final byte[] points;
+    private final int dims;
+    private final int numPoints;
+    private final int k;
+    final double[] centroids;
+
+    KMeans(byte[] points, int dims, int k) {
+        this.points = points;
+        this.dims = dims;
+        this.numPoints = points.length / dims;
+        this.k = k;
+        this.centroids = new double[k * dims];
+    }
+
+    /**
+     * Returns the cluster of every point after at most the given number of iterations.
+     */
+    int[] cluster(int iterations, long seed) {
+        seed(new SplittableRandom(seed));
+        int[] assignment = new int[numPoints];
+        Arrays.fill(assignment, -1);
+
+        for (int it = 0; it < iterations; it++) {
+            long changed = IntStream.range(0, numPoints).parallel().filter(p -> {
+                int nearest = nearest(p);
+                if (nearest == assignment[p]) return false;
+                assignment[p] = nearest;
+                return true;
+            }).count();
+            if (changed == 0) break;
+            update(assignment);
+        }
+        return assignment;
+    }
+
+    private void seed(SplittableRandom random) {
+        int sampleSize = Math.min(numPoints, SEED_SAMPLE);
+        int[] sample = new int[sampleSize];
+        for (int i = 0; i < sampleSize; i++) sample[i] = random.nextInt(numPoints);
+
+        double[] distance = new double[sampleSize];
+        Arrays.fill(distance, Double.MAX_VALUE);
+        setCentroid(0, sample[random.nextInt(sampleSize)]);
+        for (int c = 1; c < k; c++) {
+            double total = 0;
+            for (int i = 0; i < sampleSize; i++) {
+                distance[i] = Math.min(distance[i], distance(sample[i], c - 1));
+                total += distance[i];
+            }
+            // Each point is picked with probability proportional to its squared distance
+            double target = random.nextDouble() * total;
+            int pick = 0;
+            while (pick < sampleSize - 1 && (target -= distance[pick]) > 0) pick++;
+            setCentroid(c, sample[pick]);
+        }
+    }
+
+    private void setCentroid(int c, int point) {
+        for (int d = 0; d < dims; d++) centroids[c * dims + d] = points[point * dims + d] & 0xFF;
+    }
+
+    private void update(int[] assignment) {
+        double[] sums = new double[k * dims];
+        int[] counts = new int[k];
+        for (int p = 0; p < numPoints; p++) {
+            int c = assignment[p];
+            counts[c]++;
+            for (int d = 0; d < dims; d++) sums[c * dims + d] += points[p * dims + d] & 0xFF;
+        }
+        for (int c = 0; c < k; c++) {
+            // An empty cluster keeps its previous centroid
+            if (counts[c] == 0) continue;
+            for (int d = 0; d < dims; d++) centroids[c * dims + d] = sums[c * dims + d] / counts[c];
+        }
+    }
+
+    private int nearest(int point) {
+        int best = 0;
+        double bestDistance = Double.MAX_VALUE;
+        for (int c = 0; c < k; c++) {
+            double d = distance(point, c);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private double distance(int point, int c) {
+        double sum = 0;
+        for (int d = 0; d < dims; d++) {
+            double diff = (points[point * dims + d] & 0xFF) - centroids[c * dims + d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,152 @@
+package org.poker.Abstraction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import org.poker.HandEval.BitmaskHandEval;
+
+/**
+ * All-in equity of each of the 169 preflop hand classes against a random hand.
+ *
+ * Classes index a 13x13 grid of rank indices (0 = deuce ... 12 = ace): pairs on the
+ * diagonal, suited hands at [high][low] and offsuit hands at [low][high]. Equities are
+ * estimated by Monte Carlo rollouts, one class per fork-join task, and cached on disk
+ * so later runs only read 169 floats.
+ *
+ * File layout (big endian): int magic 'PFEQ', int version, int samples, long seed,
+ * int numClasses, float[numClasses] equities.
+ */
+public class PreflopEquityTable {
+    public static final int NUM_CLASSES = 169;
+    public static final int MAGIC = 0x50464551;
+    public static final int VERSION = 1;
+
+    private static final BitmaskHandEval EVAL = new BitmaskHandEval();
+
+    private final float[] equity;
+
+    private PreflopEquityTable(float[] equity) {
+        this.equity = equity;
+    }
+
+    /**
+     * Runs samples rollouts per class in parallel on the common fork-join pool.
+     */
+    public static PreflopEquityTable compute(int samples, long seed) {
+        float[] equity = new float[NUM_CLASSES];
+        IntStream.range(0, NUM_CLASSES).parallel()
+                .forEach(c -> equity[c] = (float) rollout(representative(c), samples, seed + c));
+        return new PreflopEquityTable(equity);
+    }
+
+    /**
+     * Reads the table from path if it was computed with the same parameters, otherwise
+     * computes it and writes it there.
+     */
+    public static PreflopEquityTable loadOrCompute(Path path, int samples, long seed) throws IOException {
+        if (Files.exists(path)) {
+            PreflopEquityTable table = read(path, samples, seed);
+            if (table != null) return table;
+        }
+        PreflopEquityTable table = compute(samples, seed);
+        table.write(path, samples, seed);
+        return table;
+    }
+
+    /**
+     * Returns null if the file holds a table computed with other parameters.
+     */
+    private static PreflopEquityTable read(Path path, int samples, long seed) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) throw new IOException(path + " is not a preflop equity table");
+            if (in.readInt() != VERSION || in.readInt() != samples || in.readLong() != seed
+                    || in.readInt() != NUM_CLASSES) {
+                return null;
+            }
+            float[] equity = new float[NUM_CLASSES];
+            for (int c = 0; c < NUM_CLASSES; c++) equity[c] = in.readFloat();
+            return new PreflopEquityTable(equity);
+        }
+    }
+
+    private void write(Path path, int samples, long seed) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(samples);
+            out.writeLong(seed);
+            out.writeInt(NUM_CLASSES);
+            for (float e : equity) out.writeFloat(e);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static double rollout(long hole, int samples, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double won = 0;
+        for (int s = 0; s < samples; s++) {
+            long used = hole;
+            long opponent = 0;
+            for (int i = 0; i < 2; i++) {
+                long card = randomCard(random, used);
+                opponent |= card;
+                used |= card;
+            }
+            long board = 0;
+            for (int i = 0; i < 5; i++) {
+                long card = randomCard(random, used);
+                board |= card;
+                used |= card;
+            }
+            int comparison = Integer.compare(EVAL.evaluate(hole | board), EVAL.evaluate(opponent | board));
+            won += comparison > 0 ? 1.0 : comparison == 0 ? 0.5 : 0.0;
+        }
+        return won / samples;
+    }
+
+    private static long randomCard(SplittableRandom random, long used) {
+        while (true) {
+            long card = 1L << random.nextInt(52);
+            if ((used & card) == 0) return card;
+        }
+    }
+
+    /**
+     * Class of a two-card hole mask.
+     */
+    public static int classOf(long hole) {
+        int first = Long.numberOfTrailingZeros(hole);
+        int second = Long.numberOfTrailingZeros(hole & (hole - 1));
+        int rank1 = first % 13, rank2 = second % 13;
+        int high = Math.max(rank1, rank2), low = Math.min(rank1, rank2);
+        boolean suited = first / 13 == second / 13;
+        return suited ? high * 13 + low : low * 13 + high;
+    }
+
+    /**
+     * Some hole mask of the class: spades, plus hearts for the second card when offsuit.
+     */
+    private static long representative(int c) {
+        int row = c / 13, column = c % 13;
+        if (row == column) return 1L << row | 1L << (13 + row);
+        if (row > column) return 1L << row | 1L << column;
+        return 1L << row | 1L << (13 + column);
+    }
+
+    public double equity(int c) {
+        return equity[c];
+    }
+
+    public double equityOf(long hole) {
+        return equity[classOf(hole)];
+    }
+}
@@ -0,0 +1,175 @@
+package org.poker.CFR;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import org.poker.CFR.History.AbstractHistory;
+
+/**
+ * A read-only, memory-mapped average strategy for serving.
+ *
+ * {@link #export} writes the normalized average strategy of every infoset of a table into
+ * an open-addressing hash table keyed by {@link AbstractHistory#infoSetHash}. Opening a
+ * blueprint maps the file read-only, so every process serving the same file shares one
+ * copy in the page cache, and a lookup is a few absolute reads from the mapping with no
+ * allocation. Probabilities are stored as floats in the order of the game's action list.
+ * The file is mapped in chunks addressed by long offsets (see {@link MappedFile}), so its
+ * size is not limited to what one mapping can hold.
+ *
+ * Layout (little endian):
+ * <pre>
+ * header  int magic 'CFRB', int version, int numInfoSets, long capacity, long payloadLength,
+ *         long crc32(payload)
+ * payload capacity slots of (long hash, int probabilityIndex, int numActions), where
+ *         numActions 0 marks an empty slot; then float[] probabilities
+ * </pre>
+ */
+public class Blueprint {
+    public static final int MAGIC = 0x42524643;
+    public static final int VERSION = 2;
+    static final int HEADER_SIZE = 3 * Integer.BYTES + 3 * Long.BYTES;
+    private static final int SLOT_SIZE = Long.BYTES + 2 * Integer.BYTES;
+
+    private final MappedFile file;
+    private final int size;
+    private final long mask;
+    private final long probabilityStart;
+
+    private Blueprint(MappedFile file, int size, long capacity) {
+        this.file = file;
+        this.size = size;
+        this.mask = capacity - 1;
+        this.probabilityStart = HEADER_SIZE + capacity * SLOT_SIZE;
+    }
+
+    /**
+     * Writes the average strategy of every infoset in the table to path, replacing any
+     * previous file atomically. Must not run concurrently with updates to the table.
+     */
+    public static void export(InfoSetTable table, Path path) throws IOException {
+        export(table, path, MappedFile.DEFAULT_CHUNK_BITS);
+    }
+
+    /**
+     * Same as {@link #export(InfoSetTable, Path)}, mapping the file in chunks of 2^chunkBits
+     * bytes. Small chunks are only useful to exercise the chunk boundaries with a small table.
+     */
+    public static void export(InfoSetTable table, Path path, int chunkBits) throws IOException {
+        int size = table.size();
+        // At most half full, so probes stay short
+        long capacity = Long.highestOneBit(Math.max(1L, size) * 2 - 1) << 1;
+        long payloadLength = capacity * SLOT_SIZE + (long) table.dataSize() * Float.BYTES;
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedFile out = MappedFile.map(channel, FileChannel.MapMode.READ_WRITE, HEADER_SIZE + payloadLength,
+                    chunkBits);
+
+            long probabilityStart = HEADER_SIZE + capacity * SLOT_SIZE;
+            double[] strategy = new double[0];
+            int probabilityIndex = 0;
+            for (int id = 0; id < size; id++) {
+                int numActions = table.getNumActions(id);
+                if (strategy.length < numActions) strategy = new double[numActions];
+                table.getAverageStrategy(id, strategy);
+
+                long hash = table.getHash(id);
+                long slot = slotOf(hash, capacity - 1);
+                while (out.getInt(HEADER_SIZE + slot * SLOT_SIZE + Long.BYTES + Integer.BYTES) != 0) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                long position = HEADER_SIZE + slot * SLOT_SIZE;
+                out.putLong(position, hash);
+                out.putInt(position + Long.BYTES, probabilityIndex);
+                out.putInt(position + Long.BYTES + Integer.BYTES, numActions);
+
+                for (int a = 0; a < numActions; a++) {
+                    out.putFloat(probabilityStart + ((long) probabilityIndex + a) * Float.BYTES, (float) strategy[a]);
+                }
+                probabilityIndex += numActions;
+            }
+
+            out.putInt(0, MAGIC);
+            out.putInt(4, VERSION);
+            out.putInt(8, size);
+            out.putLong(12, capacity);
+            out.putLong(20, payloadLength);
+            out.putLong(28, out.crc(HEADER_SIZE, payloadLength));
+            out.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a blueprint file read-only and checks its header and CRC.
+     */
+    public static Blueprint open(Path path) throws IOException {
+        return open(path, MappedFile.DEFAULT_CHUNK_BITS);
+    }
+
+    /**
+     * Same as {@link #open(Path)}, mapping the file in chunks of 2^chunkBits bytes.
+     */
+    public static Blueprint open(Path path, int chunkBits) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) throw new IOException(path + " is too short to be a blueprint");
+            MappedFile file = MappedFile.map(channel, FileChannel.MapMode.READ_ONLY, channel.size(), chunkBits);
+
+            if (file.getInt(0) != MAGIC) throw new IOException(path + " is not a blueprint");
+            int version = file.getInt(4);
+            if (version != VERSION) throw new IOException("Unsupported blueprint version " + version);
+            int size = file.getInt(8);
+            long capacity = file.getLong(12);
+            long payloadLength = file.getLong(20);
+            if (HEADER_SIZE + payloadLength != channel.size() || Long.bitCount(capacity) != 1) {
+                throw new IOException(path + " has an inconsistent header");
+            }
+            if (file.crc(HEADER_SIZE, payloadLength) != file.getLong(28)) {
+                throw new IOException(path + " failed its CRC check");
+            }
+
+            return new Blueprint(file, size, capacity);
+        }
+    }
+
+    /**
+     * Writes the strategy of the infoset with the given hash into out and returns its number
+     * of actions, or returns -1 if the blueprint does not contain it.
+     */
+    public int getStrategy(long hash, double[] out) {
+        long slot = slotOf(hash, mask);
+        while (true) {
+            long position = HEADER_SIZE + slot * SLOT_SIZE;
+            int numActions = file.getInt(position + Long.BYTES + Integer.BYTES);
+            if (numActions == 0) return -1;
+            if (file.getLong(position) == hash) {
+                long start = probabilityStart + (long) file.getInt(position + Long.BYTES) * Float.BYTES;
+                for (int a = 0; a < numActions; a++) {
+                    out[a] = file.getFloat(start + a * Float.BYTES);
+                }
+                return numActions;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Strategy of the given player at the history, as {@link #getStrategy(long, double[])}.
+     */
+    public int getStrategy(AbstractHistory history, int player, double[] out) {
+        return getStrategy(history.infoSetHash(player), out);
+    }
+
+    private static long slotOf(long hash, long mask) {
+        // infoSetHash is already well mixed, so the low bits spread evenly
+        return hash & mask;
+    }
+
+    public int size() {
+        return size;
+    }
+}
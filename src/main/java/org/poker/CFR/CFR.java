@@ -1,128 +1,174 @@
 package org.poker.CFR;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import org.poker.GameSim.GameSim;
 import org.poker.CFR.History.AbstractHistory;
-import org.poker.logging.WandBLogger;
 
-public class CFR {
-    private final GameSim game;
-    private final int numPlayers;
-    private final Map<String, InfoSet> infoSets;
+/**
+ * Vanilla CFR: every iteration walks the full tree, enumerating every chance
+ * outcome and every action, once per player.
+ */
+public class CFR extends Solver {
+    // Reach of everyone but the traverser, chance multiplicities included, kept up to date
+    // along the current path so regret updates need no product over the players
+    protected double counterfactualReach = 1.0;
+    private final double[] rootReach;
 
     public CFR(GameSim game) {
-        this.game = game;
-        this.numPlayers = game.numPlayers();
-        this.infoSets = new HashMap<>();
+        this(game, false);
     }
 
-    private InfoSet getInfoSet(AbstractHistory history, int player, ArrayList<String> actions) {
-        String key = history.infoSetKey(player);
-        infoSets.putIfAbsent(key, new InfoSet(key, actions));
-        return infoSets.get(key);
+    /**
+     * @param checkCollisions verify every infoset hash hit against the string key (debug only)
+     */
+    public CFR(GameSim game, boolean checkCollisions) {
+        this(game, new InfoSetTable(checkCollisions));
+    }
+
+    /**
+     * Creates a trainer over an existing table, e.g. one shared with another engine.
+     */
+    public CFR(GameSim game, InfoSetTable infoSets) {
+        super(game, infoSets);
+        this.rootReach = new double[numPlayers];
     }
 
     public double traverse(AbstractHistory history, double[] reach, int targetPlayer) {
+        counterfactualReach = 1.0;
+        for (int i = 0; i < numPlayers; i++) {
+            if (i != targetPlayer) counterfactualReach *= reach[i];
+        }
+        return traverse(history, reach, targetPlayer, 0);
+    }
+
+    /**
+     * Walks the subtree below history. Edges update reach and {@link #counterfactualReach}
+     * in place and restore them on the way back.
+     */
+
+    protected double traverse(AbstractHistory history, double[] reach, int targetPlayer, int depth) {
+        if (stats != null) stats.nodeVisited();
+
         // Terminal
         if (game.isTerminal(history)) {
-            double[] util = game.terminalUtility(history);
-            return util[targetPlayer];
+            if (stats != null) stats.terminalEvaluated();
+            return game.terminalUtility(history, targetPlayer);
         }
 
-        // Chance node (dealing cards) - check if cards have been dealt yet
-        // Cards have been dealt if there are Deal actions in the history
-        boolean hasDealActions = false;
-        for (String action : history.getActions()) {
-            if (action.startsWith("Deal")) {
-                hasDealActions = true;
-                break;
-            }
-        }
-        
-        if (!hasDealActions) {
-            // Need to deal cards first (no Deal actions yet)
-            double nodeValue = 0.0;
-            ArrayList<AbstractHistory> deals = game.generateAllDeals(history);
-            double prob = 1.0 / deals.size();
-
-            for (AbstractHistory h : deals) {
-                nodeValue += prob * traverse(h, reach, targetPlayer);
-            }
-            return nodeValue;
+        // Chance node (dealing cards)
+        if (game.isChanceNode(history)) {
+            return traverseChance(history, reach, targetPlayer, depth);
         }
 
         int currentPlayer = game.currentPlayer(history);
 
         // Player decision
-        ArrayList<String> actions = game.getAvailableActions(history);
-        if (actions.isEmpty()) return 0.0;
+        ensureBuffers(depth, maxActions);
+        int[] actions = actionBuffers[depth];
+        int numActions = game.legalActions(history, actions);
+        if (numActions == 0) return 0.0;
+        double[] strategy = strategyBuffers[depth];
+        double[] actionVals = valueBuffers[depth];
 
-        InfoSet infoSet = getInfoSet(history, currentPlayer, actions);
-        Map<String, Double> strategy = infoSet.getStrategy();
+        int infoSet = getInfoSet(history, currentPlayer, actions, numActions);
+        infoSets.getStrategy(infoSet, strategy);
 
-        Map<String, Double> actionVals = new HashMap<>();
         double nodeValue = 0.0;
+        double playerReach = reach[currentPlayer];
+        double parentCounterfactualReach = counterfactualReach;
+        boolean traverser = currentPlayer == targetPlayer;
+        int summedPlayer = strategySumPlayer(targetPlayer);
+
+        for (int a = 0; a < numActions; a++) {
+            double childCounterfactualReach = traverser ? parentCounterfactualReach
+                    : parentCounterfactualReach * strategy[a];
+            if (skipsAction(infoSet, a, strategy, currentPlayer, targetPlayer, reach, playerReach,
+                    childCounterfactualReach)) {
+                if (stats != null) stats.subtreePruned();
+                actionVals[a] = 0.0;
+                continue;
+            }
+            history.addAction(currentPlayer, actions[a]);
 
-        for (String a : actions) {
-            AbstractHistory next = history.copy();
-            next.addAction("P" + currentPlayer + ":" + a);
-
-            double[] newReach = reach.clone();
-            newReach[currentPlayer] *= strategy.get(a);
+            reach[currentPlayer] = playerReach * strategy[a];
+            counterfactualReach = childCounterfactualReach;
 
-            double v = traverse(next, newReach, targetPlayer);
-            actionVals.put(a, v);
-            nodeValue += strategy.get(a) * v;
+            double v = traverse(history, reach, targetPlayer, depth + 1);
+            history.undoAction();
+            actionVals[a] = v;
+            nodeValue += strategy[a] * v;
         }
+        reach[currentPlayer] = playerReach;
+        counterfactualReach = parentCounterfactualReach;
 
-        // Update strategy sum
-        for (String a : actions) {
-            infoSet.addToStrategySum(a, reach[currentPlayer] * strategy.get(a));
+        // Update strategy sum; with pruning only on one pass per player
+        if (!pruning.isEnabled() || currentPlayer == summedPlayer) {
+            for (int a = 0; a < numActions; a++) {
+                addToStrategySum(infoSet, a, strategyWeight * reach[currentPlayer] * strategy[a]);
+            }
         }
 
         // Regret update
-        if (currentPlayer == targetPlayer) {
-            double cfReach = 1.0;
-            for (int i = 0; i < numPlayers; i++) {
-                if (i != currentPlayer) cfReach *= reach[i];
-            }
-
-            for (String a : actions) {
-                double regret = actionVals.get(a) - nodeValue;
-                infoSet.addToRegretSum(a, cfReach * regret);
+        if (traverser) {
+            for (int a = 0; a < numActions; a++) {
+                // Skipped while pruning by regret, caught up on the full traversals
+                double weight = regretWeight(infoSet, a, strategy);
+                if (weight == 0.0) continue;
+                double regret = actionVals[a] - nodeValue;
+                addToRegretSum(infoSet, a, weight * counterfactualReach * regret);
             }
         }
 
         return nodeValue;
     }
 
-    public void train(int iterations, AbstractHistory initialHistory, WandBLogger logger, int logFrequency) {
-        HashMap<String,Double> metrics = new HashMap<String,Double>();
+    /**
+     * Expands every chance outcome in place and undoes it afterwards.
+     *
+     * Regrets leave out the chance reach, which is the same for every node of an infoset as
+     * long as outcomes are equally likely. An outcome merging several isomorphic ones is
+     * that many times as likely, so regrets below it are scaled by its multiplicity.
+     */
+    protected double traverseChance(AbstractHistory history, double[] reach, int targetPlayer, int depth) {
+        double nodeValue = 0.0;
+        int outcomes = game.numChanceOutcomes(history);
+        int mark = history.length();
+        double parentCounterfactualReach = counterfactualReach;
+
+        for (int i = 0; i < outcomes; i++) {
+            double prob = game.chanceProbability(history, i);
+            counterfactualReach = parentCounterfactualReach * game.chanceMultiplicity(history, i);
+            game.applyChanceOutcome(history, i);
+            nodeValue += prob * traverse(history, reach, targetPlayer, depth);
+            history.undoTo(mark);
+        }
+        counterfactualReach = parentCounterfactualReach;
+        return nodeValue;
+    }
 
-        double totalRegret;
+    @Override
+    protected boolean supportsPruning() {
+        return true;
+    }
 
-        for (int i = 0; i < iterations; i++) {
-            for (int p = 0; p < numPlayers; p++) {
-                double[] reach = new double[numPlayers];
-                for (int j = 0; j < numPlayers; j++) reach[j] = 1.0;
-                traverse(initialHistory.copy(), reach, p);
-            }
-            if (i % logFrequency == 0) {
-                // Log the regrets
-                totalRegret = 0;
-                for (InfoSet iset : infoSets.values()) {
-                    totalRegret += iset.getTotalRegret();
-                }
-                metrics.put("Cumulative Regret", totalRegret);
-
-                logger.log(metrics,i);
-            }
-        }
+    protected void addToRegretSum(int infoSet, int action, double value) {
+        infoSets.addToRegretSum(infoSet, action, value);
     }
 
-    public Map<String, InfoSet> getInfoSets() {
-        return infoSets;
+    protected void addToStrategySum(int infoSet, int action, double value) {
+        infoSets.addToStrategySum(infoSet, action, value);
+    }
+
+    /**
+     * Runs one CFR iteration: a full traversal for each player in turn.
+     */
+    @Override
+    protected void iterate(AbstractHistory initialHistory) {
+        pruneByRegret = pruning.prunesByRegret(iteration);
+        for (int p = 0; p < numPlayers; p++) {
+            Arrays.fill(rootReach, 1.0);
+            traverse(workingCopy(initialHistory), rootReach, p);
+            endPass();
+        }
     }
 }
@@ -0,0 +1,33 @@
+package org.poker.CFR;
+
+import java.util.SplittableRandom;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.GameSim.GameSim;
+
+/**
+ * Chance-sampled CFR: identical to vanilla CFR at decision nodes, but each chance
+ * node follows a single sampled outcome instead of enumerating all of them.
+ * Outcomes are sampled with their probabilities, so the sampled value is already unbiased.
+ */
+public class ChanceSamplingCFR extends CFR {
+    private final SplittableRandom random;
+
+    public ChanceSamplingCFR(GameSim game, InfoSetTable infoSets, long seed) {
+        super(game, infoSets);
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    protected double traverseChance(AbstractHistory history, double[] reach, int targetPlayer, int depth) {
+        int mark = history.length();
+        game.applyChanceOutcome(history, game.sampleChanceOutcome(history, random));
+        double value = traverse(history, reach, targetPlayer, depth);
+        history.undoTo(mark);
+        return value;
+    }
+
+    @Override
+    protected boolean defersScaling() {
+        return true;
+    }
+}
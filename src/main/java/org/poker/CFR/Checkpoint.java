@@ -0,0 +1,228 @@
+package org.poker.CFR;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An immutable copy of an {@link InfoSetTable} and the iteration it was taken at, with a
+ * compact binary file format.
+ *
+ * {@link #capture} only copies the table's arrays, so it is cheap enough to call between
+ * iterations; {@link #write} can then run on another thread while training continues.
+ * Files are written through a memory-mapped temporary file that is forced to disk and
+ * atomically moved over the target, so a crash never leaves a torn checkpoint behind.
+ * The file is mapped in chunks addressed by long offsets (see {@link MappedFile}), so
+ * its size is only limited by the table's arrays.
+ *
+ * Layout (little endian):
+ * <pre>
+ * header   int magic 'CFRC', int version, int iteration, int shard, int numShards,
+ *          int numInfoSets, int dataSize, long payloadLength, long crc32(payload)
+ * payload  per infoset: long hash, int numActions
+ *          double[dataSize] regret sums, double[dataSize] strategy sums
+ * </pre>
+ *
+ * A distributed run checkpoints each shard of its table separately; the file records
+ * which shard it holds and out of how many. Other checkpoints are shard 0 of 1.
+ */
+public class Checkpoint {
+    public static final int MAGIC = 0x43524643;
+    public static final int VERSION = 3;
+    static final int HEADER_SIZE = 7 * Integer.BYTES + 2 * Long.BYTES;
+
+    private final int iteration;
+    private final int shard;
+    private final int numShards;
+    private final long[] hashes;
+    private final int[] numActions;
+    private final double[] regretSum;
+    private final double[] strategySum;
+
+    private Checkpoint(int iteration, int shard, int numShards, long[] hashes, int[] numActions,
+                       double[] regretSum, double[] strategySum) {
+        this.iteration = iteration;
+        this.shard = shard;
+        this.numShards = numShards;
+        this.hashes = hashes;
+        this.numActions = numActions;
+        this.regretSum = regretSum;
+        this.strategySum = strategySum;
+    }
+
+    /**
+     * Copies the table. Must not run concurrently with updates to the table.
+     */
+    public static Checkpoint capture(InfoSetTable table, int iteration) {
+        return capture(table, iteration, 0, 1);
+    }
+
+    /**
+     * Copies the table as the given shard of a table split into numShards.
+     */
+    public static Checkpoint capture(InfoSetTable table, int iteration, int shard, int numShards) {
+        int size = table.size();
+        long[] hashes = new long[size];
+        int[] numActions = new int[size];
+        for (int id = 0; id < size; id++) {
+            hashes[id] = table.getHash(id);
+            numActions[id] = table.getNumActions(id);
+        }
+
+        double[] regretSum = new double[table.dataSize()];
+        double[] strategySum = new double[table.dataSize()];
+        table.copySums(regretSum, strategySum);
+        return new Checkpoint(iteration, shard, numShards, hashes, numActions, regretSum, strategySum);
+    }
+
+    public static Checkpoint capture(Solver solver) {
+        return capture(solver.getInfoSetTable(), solver.getIteration());
+    }
+
+    /**
+     * Writes the checkpoint to path, replacing any previous file atomically.
+     */
+    public void write(Path path) throws IOException {
+        write(path, MappedFile.DEFAULT_CHUNK_BITS);
+    }
+
+    /**
+     * Same as {@link #write(Path)}, mapping the file in chunks of 2^chunkBits bytes. Small
+     * chunks are only useful to exercise the chunk boundaries with a small table.
+     */
+    public void write(Path path, int chunkBits) throws IOException {
+        long payloadLength = (long) hashes.length * (Long.BYTES + Integer.BYTES)
+                + 2L * regretSum.length * Double.BYTES;
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedFile file = MappedFile.map(channel, FileChannel.MapMode.READ_WRITE, HEADER_SIZE + payloadLength,
+                    chunkBits);
+
+            long position = HEADER_SIZE;
+            for (int id = 0; id < hashes.length; id++) {
+                file.putLong(position, hashes[id]);
+                file.putInt(position + Long.BYTES, numActions[id]);
+                position += Long.BYTES + Integer.BYTES;
+            }
+            file.putDoubles(position, regretSum, regretSum.length);
+            file.putDoubles(position + (long) regretSum.length * Double.BYTES, strategySum, strategySum.length);
+
+            file.putInt(0, MAGIC);
+            file.putInt(4, VERSION);
+            file.putInt(8, iteration);
+            file.putInt(12, shard);
+            file.putInt(16, numShards);
+            file.putInt(20, hashes.length);
+            file.putInt(24, regretSum.length);
+            file.putLong(28, payloadLength);
+            file.putLong(36, file.crc(HEADER_SIZE, payloadLength));
+            file.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a checkpoint file and checks its header and CRC.
+     *
+     * @throws IOException if the file is not a checkpoint, has another version, or is corrupt
+     */
+    public static Checkpoint read(Path path) throws IOException {
+        return read(path, MappedFile.DEFAULT_CHUNK_BITS);
+    }
+
+    /**
+     * Same as {@link #read(Path)}, mapping the file in chunks of 2^chunkBits bytes.
+     */
+    public static Checkpoint read(Path path, int chunkBits) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) throw new IOException(path + " is too short to be a checkpoint");
+            MappedFile file = MappedFile.map(channel, FileChannel.MapMode.READ_ONLY, channel.size(), chunkBits);
+
+            if (file.getInt(0) != MAGIC) throw new IOException(path + " is not a checkpoint");
+            int version = file.getInt(4);
+            if (version != VERSION) throw new IOException("Unsupported checkpoint version " + version);
+            int iteration = file.getInt(8);
+            int shard = file.getInt(12);
+            int numShards = file.getInt(16);
+            int size = file.getInt(20);
+            int dataSize = file.getInt(24);
+            long payloadLength = file.getLong(28);
+            if (HEADER_SIZE + payloadLength != channel.size()) {
+                throw new IOException(path + " is truncated: expected " + payloadLength + " payload bytes");
+            }
+            if (file.crc(HEADER_SIZE, payloadLength) != file.getLong(36)) {
+                throw new IOException(path + " failed its CRC check");
+            }
+
+            long[] hashes = new long[size];
+            int[] numActions = new int[size];
+            long position = HEADER_SIZE;
+            for (int id = 0; id < size; id++) {
+                hashes[id] = file.getLong(position);
+                numActions[id] = file.getInt(position + Long.BYTES);
+                position += Long.BYTES + Integer.BYTES;
+            }
+
+            double[] regretSum = new double[dataSize];
+            double[] strategySum = new double[dataSize];
+            file.getDoubles(position, regretSum, dataSize);
+            file.getDoubles(position + (long) dataSize * Double.BYTES, strategySum, dataSize);
+            return new Checkpoint(iteration, shard, numShards, hashes, numActions, regretSum, strategySum);
+        }
+    }
+
+    /**
+     * Builds a new table holding the checkpointed infosets, with the same ids.
+     */
+    public InfoSetTable toTable() {
+        InfoSetTable table = new InfoSetTable();
+        restoreInto(table);
+        return table;
+    }
+
+    /**
+     * Loads the checkpoint into an empty table, e.g. one already handed to a solver.
+     */
+    public void restoreInto(InfoSetTable table) {
+        if (table.size() != 0) throw new IllegalArgumentException("Can only restore into an empty table");
+        for (int id = 0; id < hashes.length; id++) {
+            table.insert(hashes[id], numActions[id]);
+        }
+        table.setSums(regretSum, strategySum, regretSum.length);
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public int getNumShards() {
+        return numShards;
+    }
+
+    public int size() {
+        return hashes.length;
+    }
+
+    /**
+     * True if both checkpoints hold the same infosets and bit-identical sums.
+     */
+    public boolean sameContents(Checkpoint other) {
+        return iteration == other.iteration
+                && shard == other.shard
+                && numShards == other.numShards
+                && Arrays.equals(hashes, other.hashes)
+                && Arrays.equals(numActions, other.numActions)
+                && Arrays.equals(regretSum, other.regretSum)
+                && Arrays.equals(strategySum, other.strategySum);
+    }
+}
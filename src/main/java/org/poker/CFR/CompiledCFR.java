@@ -0,0 +1,158 @@
+package org.poker.CFR;
+
+import java.util.Arrays;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.GameSim.GameSim;
+
+/**
+ * Vanilla CFR over a {@link GameTree} compiled once from the game.
+ *
+ * The first iteration expands the game into flat arrays and resolves every infoset's
+ * table id; every iteration from the same root after that walks the arrays only, with no history copies,
+ * action lists, hashing or utility calls. The walk visits nodes in the same order as
+ * {@link CFR}, so both engines produce the same strategies from the same table. Training
+ * from a different root compiles its tree afresh.
+ *
+ * Works for any {@link GameSim} small enough to enumerate.
+ */
+public class CompiledCFR extends Solver {
+    private GameTree tree;
+    // Copy of the root the tree was compiled from
+    private AbstractHistory compiledRoot;
+    // Reach of everyone but the traverser, as in CFR
+    private double counterfactualReach = 1.0;
+    private final double[] reach;
+
+    public CompiledCFR(GameSim game) {
+        this(game, new InfoSetTable());
+    }
+
+    public CompiledCFR(GameSim game, InfoSetTable infoSets) {
+        super(game, infoSets);
+        this.reach = new double[numPlayers];
+    }
+
+    /**
+     * Compiles the tree below the given root now rather than on the first iteration.
+     */
+    public GameTree compile(AbstractHistory initialHistory) {
+        tree = GameTree.build(game, initialHistory, infoSets);
+        compiledRoot = initialHistory.copy();
+        return tree;
+    }
+
+    @Override
+    protected void iterate(AbstractHistory initialHistory) {
+        if (tree == null || !isCompiledRoot(initialHistory)) compile(initialHistory);
+
+        pruneByRegret = pruning.prunesByRegret(iteration);
+        for (int p = 0; p < numPlayers; p++) {
+            for (int j = 0; j < numPlayers; j++) reach[j] = 1.0;
+            counterfactualReach = 1.0;
+            traverse(0, reach, p, 0);
+            endPass();
+        }
+    }
+
+    /**
+     * Whether the history is the position the tree was compiled from: the same events, bets
+     * and private cards.
+     */
+    private boolean isCompiledRoot(AbstractHistory history) {
+        if (history.length() != compiledRoot.length()
+                || history.getCurrentPlayer() != compiledRoot.getCurrentPlayer()
+                || !Arrays.equals(history.getContributions(), compiledRoot.getContributions())) {
+            return false;
+        }
+        for (int i = 0; i < history.length(); i++) {
+            if (history.actionAt(i) != compiledRoot.actionAt(i)) return false;
+        }
+        // Deal events record ranks only
+        for (int p = 0; p < numPlayers; p++) {
+            if (history.infoSetHash(p) != compiledRoot.infoSetHash(p)) return false;
+        }
+        return true;
+    }
+
+    private double traverse(int node, double[] reach, int targetPlayer, int depth) {
+        if (stats != null) stats.nodeVisited();
+        byte type = tree.type[node];
+        if (type == GameTree.TERMINAL) {
+            if (stats != null) stats.terminalEvaluated();
+            return tree.payoff(node, targetPlayer);
+        }
+
+        int first = tree.firstChild[node];
+        int numActions = tree.numChildren[node];
+        if (type == GameTree.CHANCE) {
+            // Weighted like CFR.traverseChance
+            int total = tree.rawOutcomes(node);
+            double parentCounterfactualReach = counterfactualReach;
+            double nodeValue = 0.0;
+            for (int c = 0; c < numActions; c++) {
+                int multiplicity = tree.multiplicity[first + c];
+                counterfactualReach = parentCounterfactualReach * multiplicity;
+                nodeValue += (double) multiplicity / total * traverse(first + c, reach, targetPlayer, depth);
+            }
+            counterfactualReach = parentCounterfactualReach;
+            return nodeValue;
+        }
+
+        int currentPlayer = tree.player[node];
+        ensureBuffers(depth, numActions);
+        double[] strategy = strategyBuffers[depth];
+        double[] actionVals = valueBuffers[depth];
+
+        int infoSet = tree.infoSetTableIds[tree.infoSet[node]];
+        infoSets.getStrategy(infoSet, strategy);
+
+        double nodeValue = 0.0;
+        double playerReach = reach[currentPlayer];
+        double parentCounterfactualReach = counterfactualReach;
+        boolean traverser = currentPlayer == targetPlayer;
+        int summedPlayer = strategySumPlayer(targetPlayer);
+        for (int a = 0; a < numActions; a++) {
+            double childCounterfactualReach = traverser ? parentCounterfactualReach
+                    : parentCounterfactualReach * strategy[a];
+            if (skipsAction(infoSet, a, strategy, currentPlayer, targetPlayer, reach, playerReach,
+                    childCounterfactualReach)) {
+                if (stats != null) stats.subtreePruned();
+                actionVals[a] = 0.0;
+                continue;
+            }
+            reach[currentPlayer] = playerReach * strategy[a];
+            counterfactualReach = childCounterfactualReach;
+
+            double v = traverse(first + a, reach, targetPlayer, depth + 1);
+            actionVals[a] = v;
+            nodeValue += strategy[a] * v;
+        }
+        reach[currentPlayer] = playerReach;
+        counterfactualReach = parentCounterfactualReach;
+
+        if (!pruning.isEnabled() || currentPlayer == summedPlayer) {
+            for (int a = 0; a < numActions; a++) {
+                infoSets.addToStrategySum(infoSet, a, strategyWeight * reach[currentPlayer] * strategy[a]);
+            }
+        }
+
+        if (traverser) {
+            for (int a = 0; a < numActions; a++) {
+                double weight = regretWeight(infoSet, a, strategy);
+                if (weight == 0.0) continue;
+                infoSets.addToRegretSum(infoSet, a, weight * counterfactualReach * (actionVals[a] - nodeValue));
+            }
+        }
+
+        return nodeValue;
+    }
+
+    @Override
+    protected boolean supportsPruning() {
+        return true;
+    }
+
+    public GameTree getTree() {
+        return tree;
+    }
+}
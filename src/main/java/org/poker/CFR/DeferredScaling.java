@@ -0,0 +1,101 @@
+package org.poker.CFR;
+
+import java.util.Arrays;
+
+/**
+ * The scaling an {@link UpdateRule} applies to the whole table after passes and iterations,
+ * deferred per infoset until an engine next reaches it, for the sampling engines, which
+ * reach a small part of the table per pass.
+ *
+ * Regrets only change sign when they are added to, so the factors an infoset missed can be
+ * applied at once: the product of the positive factors to its positive regrets, of the
+ * negative factors to its negative regrets (or zero once a pass has floored them), and of
+ * the strategy factors to its strategy sums. Running products of the factors are kept, and
+ * each infoset remembers the products it was last brought up to, so catching up costs a
+ * division and one multiplication per entry however many iterations were missed. Before a
+ * product gets small enough to lose precision, every infoset is brought up to date and the
+ * products start over. The result is that of scaling the table eagerly, up to rounding.
+ */
+final class DeferredScaling {
+    private static final double RESTART_BELOW = 1e-100;
+
+    private final InfoSetTable infoSets;
+    private double positive = 1.0;
+    private double negative = 1.0;
+    private double strategy = 1.0;
+    private long floors;
+
+    // Products each infoset was last brought up to, for the first known ids
+    private int known;
+    private double[] seenPositive = new double[0];
+    private double[] seenNegative = new double[0];
+    private double[] seenStrategy = new double[0];
+    private long[] seenFloors = new long[0];
+
+    DeferredScaling(InfoSetTable infoSets) {
+        this.infoSets = infoSets;
+    }
+
+    void floorRegrets() {
+        floors++;
+    }
+
+    void scale(double positiveFactor, double negativeFactor, double strategyFactor) {
+        if (Math.min(positive * positiveFactor, Math.min(negative * negativeFactor, strategy * strategyFactor))
+                < RESTART_BELOW) {
+            catchUpAll();
+            positive = 1.0;
+            negative = 1.0;
+            strategy = 1.0;
+            Arrays.fill(seenPositive, 0, known, 1.0);
+            Arrays.fill(seenNegative, 0, known, 1.0);
+            Arrays.fill(seenStrategy, 0, known, 1.0);
+        }
+        positive *= positiveFactor;
+        negative *= negativeFactor;
+        strategy *= strategyFactor;
+    }
+
+    /**
+     * Applies the scaling the infoset has missed since it was last brought up to date.
+     */
+    void catchUp(int id) {
+        if (id >= known) add(id + 1);
+        if (seenFloors[id] == floors && seenPositive[id] == positive
+                && seenNegative[id] == negative && seenStrategy[id] == strategy) {
+            return;
+        }
+        double negativeFactor = seenFloors[id] != floors ? 0.0 : negative / seenNegative[id];
+        infoSets.scale(id, positive / seenPositive[id], negativeFactor, strategy / seenStrategy[id]);
+        seenPositive[id] = positive;
+        seenNegative[id] = negative;
+        seenStrategy[id] = strategy;
+        seenFloors[id] = floors;
+    }
+
+    /**
+     * Brings every infoset up to date, before the table is read from outside the engine.
+     */
+    void catchUpAll() {
+        for (int id = 0; id < infoSets.size(); id++) catchUp(id);
+    }
+
+    /**
+     * Starts tracking the ids up to size. Infosets first seen now, possibly created by another
+     * engine sharing the table, have missed nothing.
+     */
+    private void add(int size) {
+        if (size > seenFloors.length) {
+            int capacity = Math.max(size, seenFloors.length * 2);
+            seenPositive = Arrays.copyOf(seenPositive, capacity);
+            seenNegative = Arrays.copyOf(seenNegative, capacity);
+            seenStrategy = Arrays.copyOf(seenStrategy, capacity);
+            seenFloors = Arrays.copyOf(seenFloors, capacity);
+        }
+        Arrays.fill(seenPositive, known, size, positive);
+        Arrays.fill(seenNegative, known, size, negative);
+        Arrays.fill(seenStrategy, known, size, strategy);
+        Arrays.fill(seenFloors, known, size, floors);
+        known = size;
+    }
+}
@@ -0,0 +1,375 @@
+package org.poker.CFR.Distributed;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.poker.CFR.ExploitabilityEvaluator;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.CFR.InfoSetTable;
+import org.poker.GameSim.GameSim;
+import org.poker.GameSim.HoldemGameSim;
+import org.poker.Runner.RunConfig;
+import org.poker.Runner.TrainingRun;
+
+/**
+ * Drives a distributed external-sampling run over a number of {@link ShardWorker} processes,
+ * each owning the infosets of one hash shard.
+ *
+ * Training goes in epochs. The coordinator tells every worker to run a number of sampled
+ * traversals, waits until all of them have sent their deltas to the owning shards, and
+ * then has every worker commit, which adds the deltas to its table and applies the update
+ * rule with the epoch as the iteration. Every few epochs it can have each worker write its
+ * shard as a {@link org.poker.CFR.Checkpoint} next to a base path, and a later run with the
+ * same number of workers resumes from those files; resuming with another number of workers,
+ * or with a shard missing, fails. At the end it collects the shards into one table for
+ * evaluation.
+ *
+ * Workers connect to the coordinator's port and then to each other over TCP, so they can
+ * run on several machines, or as several JVMs on one box, which {@link #spawnLocalWorkers}
+ * starts.
+ *
+ * Keys, on top of the {@link RunConfig} game settings, which every worker gets as well:
+ *   workers          number of shards and worker processes (2)
+ *   port             coordinator port, 0 for any free one (7077)
+ *   spawn            start the workers as local JVMs (true)
+ *   connectTimeoutMillis  how long to wait for each worker to connect (60000)
+ *   jvmArgs          space-separated JVM options of spawned workers (none)
+ *   epochs           epochs to train (100)
+ *   traversals       traversals per worker and epoch, each one pass per player (1000)
+ *   rule             update rule, applied per epoch (vanilla)
+ *   seed             base seed; each worker samples with its own derived from it (0)
+ *   cacheSize        remote infosets a worker keeps between epochs (1048576)
+ *   checkpoint       base path of the shard checkpoints (none)
+ *   checkpointEvery  epochs between checkpoints (10)
+ *   resume           base path of shard checkpoints to start from (none)
+ *   evaluate         collect the shards and report exploitability; not for hold'em (true)
+ *
+ * Usage: Coordinator [file.properties] [key=value ...]
+ */
+public class Coordinator implements Closeable {
+    public static final int DEFAULT_PORT = 7077;
+
+    private final RunConfig config;
+    private final int numWorkers;
+    private final ServerSocket server;
+    private final Socket[] sockets;
+    private final DataInputStream[] in;
+    private final DataOutputStream[] out;
+    private final List<Process> processes;
+    private final int[] shardSizes;
+
+    private int epoch;
+    private long traversals;
+    private long nodes;
+    private long remoteReads;
+    private long batchedReads;
+    private long deltasSent;
+    private long nanos;
+
+    public Coordinator(RunConfig config) throws IOException {
+        this.config = config;
+        this.numWorkers = config.getInt("workers", 2);
+        if (numWorkers < 1) throw new IllegalArgumentException("Need at least one worker");
+        this.server = new ServerSocket(config.getInt("port", DEFAULT_PORT));
+        this.sockets = new Socket[numWorkers];
+        this.in = new DataInputStream[numWorkers];
+        this.out = new DataOutputStream[numWorkers];
+        this.processes = new ArrayList<>();
+        this.shardSizes = new int[numWorkers];
+    }
+
+    public static void main(String[] args) throws IOException {
+        RunConfig config = RunConfig.fromArgs(args);
+        GameSim game = TrainingRun.createGame(config.get("game", "leduc"), config);
+        try (Coordinator coordinator = new Coordinator(config)) {
+            if (config.getBoolean("spawn", true)) {
+                coordinator.spawnLocalWorkers();
+            } else {
+                System.out.printf("Waiting for %d workers on port %d%n", coordinator.numWorkers, coordinator.getPort());
+            }
+            coordinator.awaitWorkers();
+            coordinator.train(config.getInt("epochs", 100), config.getInt("traversals", 1000));
+            System.out.println(coordinator.report());
+
+            if (config.getBoolean("evaluate", true) && !(game instanceof HoldemGameSim)) {
+                AbstractHistory root = TrainingRun.initialHistory(game);
+                ExploitabilityEvaluator evaluator = new ExploitabilityEvaluator(game, root);
+                System.out.printf("exploitability %.6f%n", evaluator.exploitability(coordinator.collect()));
+            }
+        }
+    }
+
+    /**
+     * Starts every worker as a JVM on this machine, with this JVM's class path.
+     */
+    public void spawnLocalWorkers() throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        for (int i = 0; i < numWorkers; i++) {
+            List<String> command = new ArrayList<>();
+            command.add(java);
+            String jvmArgs = config.get("jvmArgs", "").trim();
+            if (!jvmArgs.isEmpty()) command.addAll(List.of(jvmArgs.split("\\s+")));
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(ShardWorker.class.getName());
+            command.add(InetAddress.getLoopbackAddress().getHostAddress());
+            command.add(String.valueOf(getPort()));
+            processes.add(new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start());
+        }
+    }
+
+    /**
+     * Accepts every worker, gives each its rank, the settings and the addresses of the
+     * others, and waits until all of them are connected to each other.
+     *
+     * @throws IOException when resuming and a shard checkpoint is missing, was written by a
+     *                     run with another number of workers, or is at another epoch
+     */
+    public void awaitWorkers() throws IOException {
+        // Spawned workers that fail to start would otherwise leave this waiting forever
+        server.setSoTimeout(config.getInt("connectTimeoutMillis", 60000));
+        List<String> hosts = new ArrayList<>();
+        int[] ports = new int[numWorkers];
+        for (int rank = 0; rank < numWorkers; rank++) {
+            sockets[rank] = Protocol.configure(server.accept());
+            in[rank] = Protocol.input(sockets[rank]);
+            out[rank] = Protocol.output(sockets[rank]);
+            Protocol.expect(in[rank], Protocol.HELLO);
+            hosts.add(sockets[rank].getInetAddress().getHostAddress());
+            ports[rank] = in[rank].readInt();
+        }
+
+        List<String> settings = new ArrayList<>();
+        for (Map.Entry<String, String> entry : config.asMap().entrySet()) {
+            settings.add(entry.getKey() + "=" + entry.getValue());
+        }
+        for (int rank = 0; rank < numWorkers; rank++) {
+            out[rank].writeByte(Protocol.INIT);
+            out[rank].writeInt(rank);
+            out[rank].writeInt(numWorkers);
+            Protocol.writeStrings(out[rank], settings);
+            Protocol.writeStrings(out[rank], hosts);
+            for (int port : ports) out[rank].writeInt(port);
+            out[rank].flush();
+        }
+        String resume = config.get("resume", null);
+        for (int rank = 0; rank < numWorkers; rank++) {
+            Protocol.expect(in[rank], Protocol.READY);
+            int restoredEpoch = in[rank].readInt();
+            boolean restored = in[rank].readBoolean();
+            int savedShard = in[rank].readInt();
+            int savedShards = in[rank].readInt();
+            if (resume != null && !restored) {
+                throw new IOException("No checkpoint of shard " + rank + " at " + shardPath(Path.of(resume), rank));
+            }
+            if (savedShard != rank || savedShards != numWorkers) {
+                throw new IOException("Checkpoint " + shardPath(Path.of(resume), rank) + " holds shard " + savedShard
+                        + " of " + savedShards + ", but the run has " + numWorkers + " workers");
+            }
+            if (rank > 0 && restoredEpoch != epoch) {
+                throw new IOException("Shards were restored at different epochs: " + epoch + " and " + restoredEpoch);
+            }
+            epoch = restoredEpoch;
+        }
+    }
+
+    /**
+     * Trains the given number of epochs, checkpointing as configured.
+     */
+    public void train(int epochs, int traversalsPerWorker) throws IOException {
+        Path checkpoint = config.has("checkpoint") ? Path.of(config.get("checkpoint", "")) : null;
+        int checkpointEvery = config.getInt("checkpointEvery", 10);
+        for (int i = 0; i < epochs; i++) {
+            trainEpoch(traversalsPerWorker);
+            if (checkpoint != null && epoch % checkpointEvery == 0) checkpoint(checkpoint);
+        }
+    }
+
+    /**
+     * Runs one epoch: every worker traverses and sends its deltas, then, once all are
+     * done, every worker commits.
+     */
+    public void trainEpoch(int traversalsPerWorker) throws IOException {
+        long start = System.nanoTime();
+        epoch++;
+        for (DataOutputStream o : out) {
+            o.writeByte(Protocol.ITERATE);
+            o.writeInt(epoch);
+            o.writeInt(traversalsPerWorker);
+            o.flush();
+        }
+        for (DataInputStream i : in) {
+            Protocol.expect(i, Protocol.DONE);
+            nodes += i.readLong();
+            remoteReads += i.readLong();
+            batchedReads += i.readLong();
+            deltasSent += i.readLong();
+            i.readLong();
+        }
+
+        for (DataOutputStream o : out) {
+            o.writeByte(Protocol.COMMIT);
+            o.writeInt(epoch);
+            o.flush();
+        }
+        awaitCommitted();
+        traversals += (long) traversalsPerWorker * numWorkers;
+        nanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Has every worker write its shard to {@link #shardPath}(base, rank).
+     */
+    public void checkpoint(Path base) throws IOException {
+        for (DataOutputStream o : out) {
+            o.writeByte(Protocol.CHECKPOINT);
+            o.writeInt(epoch);
+            o.writeUTF(base.toString());
+            o.flush();
+        }
+        awaitCommitted();
+    }
+
+    private void awaitCommitted() throws IOException {
+        for (int rank = 0; rank < numWorkers; rank++) {
+            Protocol.expect(in[rank], Protocol.COMMITTED);
+            shardSizes[rank] = in[rank].readInt();
+        }
+    }
+
+    /**
+     * Copies every shard into one table, e.g. for evaluation. The whole game has to fit
+     * into this process.
+     */
+    public InfoSetTable collect() throws IOException {
+        InfoSetTable table = new InfoSetTable();
+        for (DataOutputStream o : out) {
+            o.writeByte(Protocol.COLLECT);
+            o.flush();
+        }
+        for (DataInputStream i : in) {
+            int size = i.readInt();
+            for (int k = 0; k < size; k++) {
+                long hash = i.readLong();
+                int n = i.readInt();
+                int id = table.getOrCreate(hash, n);
+                for (int a = 0; a < n; a++) table.addToRegretSum(id, a, i.readDouble());
+                for (int a = 0; a < n; a++) table.addToStrategySum(id, a, i.readDouble());
+            }
+        }
+        return table;
+    }
+
+    /**
+     * The file a worker writes its shard to for the given base path.
+     */
+    public static Path shardPath(Path base, int rank) {
+        return base.resolveSibling(base.getFileName() + ".shard" + rank);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public int getNumWorkers() {
+        return numWorkers;
+    }
+
+    public int getEpoch() {
+        return epoch;
+    }
+
+    public long getTraversals() {
+        return traversals;
+    }
+
+    public long getNodesVisited() {
+        return nodes;
+    }
+
+    /**
+     * Infosets fetched from their owner the first time a worker met them.
+     */
+    public long getRemoteReads() {
+        return remoteReads;
+    }
+
+    /**
+     * Cached infosets whose strategies were refreshed in batches at the start of an epoch.
+     */
+    public long getBatchedReads() {
+        return batchedReads;
+    }
+
+    public long getDeltasSent() {
+        return deltasSent;
+    }
+
+    public double getSeconds() {
+        return nanos / 1e9;
+    }
+
+    public double getTraversalsPerSecond() {
+        return traversals / getSeconds();
+    }
+
+    /**
+     * Infosets in each shard after the last commit or checkpoint.
+     */
+    public int[] getShardSizes() {
+        return shardSizes.clone();
+    }
+
+    public String report() {
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (int size : shardSizes) {
+            min = Math.min(min, size);
+            max = Math.max(max, size);
+        }
+        return String.format("workers=%d epochs=%d traversals=%d %.0f traversals/s %.0f nodes/s "
+                        + "shards %d..%d infosets, %d remote reads, %d batched reads, %d deltas sent",
+                numWorkers, epoch, traversals, getTraversalsPerSecond(), nodes / getSeconds(),
+                min, max, remoteReads, batchedReads, deltasSent);
+    }
+
+    /**
+     * Shuts the workers down and waits for the ones this coordinator started.
+     */
+    @Override
+    public void close() throws IOException {
+        for (DataOutputStream o : out) {
+            if (o == null) continue;
+            try {
+                o.writeByte(Protocol.SHUTDOWN);
+                o.flush();
+            } catch (IOException e) {
+                // Already gone
+            }
+        }
+        for (Socket socket : sockets) {
+            if (socket != null) socket.close();
+        }
+        server.close();
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(10, TimeUnit.SECONDS)) process.destroyForcibly();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.poker.CFR.Distributed;
+
+import java.util.Arrays;
+
+/**
+ * A worker's view of the infosets that are not in its own shard's table during an epoch:
+ * those owned by other workers, and its own that do not exist yet.
+ *
+ * Each slot holds the strategy read from the owner at the start of the epoch (or uniform for
+ * an infoset nobody has created) and the regret and strategy-sum deltas the worker has
+ * accumulated for it since, in slabs laid out like {@link org.poker.CFR.InfoSetTable}'s.
+ * Remote slots survive into the next epoch and have their strategies refreshed in one batch
+ * per owner.
+ */
+final class InfoSetCache {
+    private static final int INITIAL_SLOTS = 64;
+    private static final int EMPTY = 0;
+
+    // Open-addressing index: indexHashes[i] -> indexSlots[i] - 1, EMPTY marks a free entry
+    private long[] indexHashes;
+    private int[] indexSlots;
+    private int mask;
+
+    private long[] hashes;
+    private int[] owners;
+    private int[] offsets;
+    private int[] numActions;
+    private boolean[] touched;
+    private int size;
+
+    private double[] strategy;
+    private double[] regretDelta;
+    private double[] strategyDelta;
+    private int dataSize;
+
+    InfoSetCache() {
+        clear();
+    }
+
+    void clear() {
+        indexHashes = new long[INITIAL_SLOTS * 2];
+        indexSlots = new int[INITIAL_SLOTS * 2];
+        mask = indexSlots.length - 1;
+        hashes = new long[INITIAL_SLOTS];
+        owners = new int[INITIAL_SLOTS];
+        offsets = new int[INITIAL_SLOTS];
+        numActions = new int[INITIAL_SLOTS];
+        touched = new boolean[INITIAL_SLOTS];
+        strategy = new double[INITIAL_SLOTS * 2];
+        regretDelta = new double[INITIAL_SLOTS * 2];
+        strategyDelta = new double[INITIAL_SLOTS * 2];
+        size = 0;
+        dataSize = 0;
+    }
+
+    /**
+     * The slot of the infoset with the given hash, or -1.
+     */
+    int find(long hash) {
+        int index = (int) hash & mask;
+        while (indexSlots[index] != EMPTY) {
+            if (indexHashes[index] == hash) return indexSlots[index] - 1;
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a slot for an infoset not in the cache, with a uniform strategy and no deltas.
+     */
+    int add(long hash, int owner, int n) {
+        int slot = size;
+        ensureSlotCapacity(slot + 1);
+        ensureDataCapacity(dataSize + n);
+        hashes[slot] = hash;
+        owners[slot] = owner;
+        offsets[slot] = dataSize;
+        numActions[slot] = n;
+        Arrays.fill(strategy, dataSize, dataSize + n, 1.0 / n);
+        dataSize += n;
+        size++;
+
+        int index = (int) hash & mask;
+        while (indexSlots[index] != EMPTY) index = (index + 1) & mask;
+        indexHashes[index] = hash;
+        indexSlots[index] = slot + 1;
+        if (size * 2 > indexSlots.length) rehash(indexSlots.length * 2);
+        return slot;
+    }
+
+    /**
+     * Drops the slots of the given owner, i.e. the worker's own infosets, which the last
+     * commit created in its table, and clears every delta. The remote slots keep their
+     * strategies until they are refreshed.
+     */
+    void retainRemote(int rank) {
+        int kept = 0;
+        int keptData = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (owners[slot] == rank) continue;
+            int n = numActions[slot];
+            System.arraycopy(strategy, offsets[slot], strategy, keptData, n);
+            hashes[kept] = hashes[slot];
+            owners[kept] = owners[slot];
+            offsets[kept] = keptData;
+            numActions[kept] = n;
+            kept++;
+            keptData += n;
+        }
+        Arrays.fill(touched, 0, size, false);
+        Arrays.fill(regretDelta, 0, dataSize, 0.0);
+        Arrays.fill(strategyDelta, 0, dataSize, 0.0);
+        size = kept;
+        dataSize = keptData;
+        rehash(indexSlots.length);
+    }
+
+    void getStrategy(int slot, double[] out) {
+        System.arraycopy(strategy, offsets[slot], out, 0, numActions[slot]);
+    }
+
+    void setStrategy(int slot, int action, double value) {
+        strategy[offsets[slot] + action] = value;
+    }
+
+    void addToRegretSum(int slot, int action, double value) {
+        regretDelta[offsets[slot] + action] += value;
+    }
+
+    void addToStrategySum(int slot, int action, double value) {
+        strategyDelta[offsets[slot] + action] += value;
+    }
+
+    double getRegretDelta(int slot, int action) {
+        return regretDelta[offsets[slot] + action];
+    }
+
+    double getStrategyDelta(int slot, int action) {
+        return strategyDelta[offsets[slot] + action];
+    }
+
+    void touch(int slot) {
+        touched[slot] = true;
+    }
+
+    boolean isTouched(int slot) {
+        return touched[slot];
+    }
+
+    long getHash(int slot) {
+        return hashes[slot];
+    }
+
+    int getOwner(int slot) {
+        return owners[slot];
+    }
+
+    int getNumActions(int slot) {
+        return numActions[slot];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void rehash(int capacity) {
+        indexHashes = new long[capacity];
+        indexSlots = new int[capacity];
+        mask = capacity - 1;
+        for (int slot = 0; slot < size; slot++) {
+            int index = (int) hashes[slot] & mask;
+            while (indexSlots[index] != EMPTY) index = (index + 1) & mask;
+            indexHashes[index] = hashes[slot];
+            indexSlots[index] = slot + 1;
+        }
+    }
+
+    private void ensureSlotCapacity(int capacity) {
+        if (capacity <= hashes.length) return;
+        int newCapacity = Math.max(capacity, hashes.length * 2);
+        hashes = Arrays.copyOf(hashes, newCapacity);
+        owners = Arrays.copyOf(owners, newCapacity);
+        offsets = Arrays.copyOf(offsets, newCapacity);
+        numActions = Arrays.copyOf(numActions, newCapacity);
+        touched = Arrays.copyOf(touched, newCapacity);
+    }
+
+    private void ensureDataCapacity(int capacity) {
+        if (capacity <= strategy.length) return;
+        int newCapacity = Math.max(capacity, strategy.length * 2);
+        strategy = Arrays.copyOf(strategy, newCapacity);
+        regretDelta = Arrays.copyOf(regretDelta, newCapacity);
+        strategyDelta = Arrays.copyOf(strategyDelta, newCapacity);
+    }
+}
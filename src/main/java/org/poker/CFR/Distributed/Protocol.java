@@ -0,0 +1,100 @@
+package org.poker.CFR.Distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Message codes and helpers shared by the {@link Coordinator} and the {@link ShardWorker}s.
+ *
+ * Every connection is a plain TCP socket carrying big-endian {@link DataOutputStream}
+ * messages, each starting with a one-byte code and answered in order on the same socket.
+ *
+ * Coordinator to worker:
+ * <pre>
+ * HELLO      worker -> coordinator: int peerPort
+ * INIT       int rank, int numShards, config as int n + n key=value strings, peer hosts as
+ *            int n + n strings, then n peer ports; answered by READY with int epoch, the
+ *            epoch the worker's shard was restored at (0 for a fresh shard), boolean
+ *            restored, and the int shard and int numShards its checkpoint was written as
+ * ITERATE    int epoch, int traversals; answered by DONE with long nodes, long remoteReads
+ *            (infosets fetched on a miss), long batchedReads, long deltasSent, long nanos
+ * COMMIT     int epoch; answered by COMMITTED with int infoSets
+ * CHECKPOINT int epoch, path; answered by COMMITTED with int infoSets
+ * COLLECT    answered by int n + n (long hash, int numActions, numActions regret sums,
+ *            numActions strategy sums)
+ * SHUTDOWN   answered by nothing; the worker exits
+ * </pre>
+ * Worker to owning worker:
+ * <pre>
+ * READ       int n + n (long hash, int numActions); answered by n times numActions doubles
+ *            of the current strategy, uniform for a missing infoset
+ * APPLY      int rank, int n + n (long hash, int numActions, numActions regret deltas,
+ *            numActions strategy deltas), creating missing infosets; answered by ACK
+ * </pre>
+ */
+final class Protocol {
+    static final byte HELLO = 1;
+    static final byte INIT = 2;
+    static final byte READY = 3;
+    static final byte ITERATE = 4;
+    static final byte DONE = 5;
+    static final byte COMMIT = 6;
+    static final byte COMMITTED = 7;
+    static final byte CHECKPOINT = 8;
+    static final byte COLLECT = 9;
+    static final byte SHUTDOWN = 10;
+    static final byte READ = 11;
+    static final byte APPLY = 12;
+    static final byte ACK = 13;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private Protocol() {
+    }
+
+    /**
+     * The shard, out of numShards, that owns the infoset with the given 64-bit key. The key
+     * is mixed first, since the low bits of history hashes are not spread evenly.
+     */
+    static int ownerOf(long hash, int numShards) {
+        long mixed = hash * 0x9E3779B97F4A7C15L;
+        return (int) Long.remainderUnsigned(mixed ^ (mixed >>> 32), numShards);
+    }
+
+    static Socket configure(Socket socket) throws IOException {
+        // Requests are small and answered synchronously, so batching by Nagle only adds latency
+        socket.setTcpNoDelay(true);
+        return socket;
+    }
+
+    static DataInputStream input(Socket socket) throws IOException {
+        return new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+    }
+
+    static DataOutputStream output(Socket socket) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+    }
+
+    static void expect(DataInputStream in, byte code) throws IOException {
+        byte received = in.readByte();
+        if (received != code) throw new IOException("Expected message " + code + " but got " + received);
+    }
+
+    static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String s : strings) out.writeUTF(s);
+    }
+
+    static ArrayList<String> readStrings(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        ArrayList<String> strings = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) strings.add(in.readUTF());
+        return strings;
+    }
+}
@@ -0,0 +1,491 @@
+package org.poker.CFR.Distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.poker.CFR.Checkpoint;
+import org.poker.CFR.ExternalSamplingCFR;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.CFR.InfoSetTable;
+import org.poker.CFR.SolverStats;
+import org.poker.CFR.UpdateRule;
+import org.poker.GameSim.GameSim;
+import org.poker.Runner.RunConfig;
+import org.poker.Runner.TrainingRun;
+
+/**
+ * One process of a distributed run: owns the infosets whose hash falls in its shard (see
+ * {@link Protocol#ownerOf}) and runs external-sampling traversals over the whole game.
+ *
+ * Within an epoch nothing a traversal reads changes. Strategies of the worker's own
+ * infosets come from its table, those of other shards from an {@link InfoSetCache} that is
+ * refreshed from the owners in one READ per owner when the epoch starts; an infoset met
+ * for the first time is fetched from its owner on the spot. Regret and strategy-sum updates
+ * go into deltas, which are sent to the owners in one APPLY each once the traversals are
+ * done, and added to the tables when the coordinator commits the epoch. Every table adds
+ * its own deltas first and then the received ones by sender, so a run is reproducible for a
+ * given seed and number of workers.
+ *
+ * The worker answers other workers' READ and APPLY requests on one thread per connection
+ * while its own traversals run; requests never arrive while it commits, since the
+ * coordinator only commits once every worker has finished the epoch.
+ *
+ * Usage: ShardWorker [coordinatorHost] [coordinatorPort]
+ */
+public class ShardWorker {
+    // Remote infosets kept between epochs; past this the cache starts over empty
+    private static final int DEFAULT_CACHE_SIZE = 1 << 20;
+
+    private final int rank;
+    private final int numShards;
+    private final GameSim game;
+    private final AbstractHistory root;
+    private final InfoSetTable table;
+    private final UpdateRule updateRule;
+    private final Traverser traverser;
+    private final SolverStats stats;
+    private final InfoSetCache cache;
+    private final int cacheSize;
+    // The shard checkpoint resumed from, or null
+    private final Checkpoint restored;
+
+    // Deltas of this shard's existing infosets, laid out like the table's slabs
+    private double[] regretDelta;
+    private double[] strategyDelta;
+
+    private final ServerSocket peerServer;
+    private final DataInputStream[] peerIn;
+    private final DataOutputStream[] peerOut;
+    // APPLY requests received this epoch, by sending rank
+    private final ArrayList<List<Delta>> received;
+
+    private long remoteReads;
+    private long batchedReads;
+    private long deltasSent;
+
+    /**
+     * The updates another worker sent for one infoset of this shard, which creates it if
+     * this is the first time it is seen here.
+     */
+    private static final class Delta {
+        long hash;
+        double[] regret;
+        double[] strategy;
+    }
+
+    private final class Traverser extends ExternalSamplingCFR {
+        Traverser(GameSim game, InfoSetTable table, long seed) {
+            super(game, table, seed);
+        }
+
+        void run(int traversals, double weight) {
+            strategyWeight = weight;
+            for (int i = 0; i < traversals; i++) iterate(root);
+        }
+
+        @Override
+        protected void endPass() {
+            // The update rule applies to the shard's table when the epoch is committed
+        }
+
+        @Override
+        protected int getInfoSet(AbstractHistory history, int player, int[] actions, int numActions) {
+            return lookup(history, player, numActions);
+        }
+
+        @Override
+        protected void getStrategy(int infoSet, double[] out) {
+            if (infoSet >= 0) table.getStrategy(infoSet, out);
+            else cache.getStrategy(-1 - infoSet, out);
+        }
+
+        @Override
+        protected void addToRegretSum(int infoSet, int action, double value) {
+            if (infoSet >= 0) regretDelta[table.getOffset(infoSet) + action] += value;
+            else cache.addToRegretSum(-1 - infoSet, action, value);
+        }
+
+        @Override
+        protected void addToStrategySum(int infoSet, int action, double value) {
+            if (infoSet >= 0) strategyDelta[table.getOffset(infoSet) + action] += value;
+            else cache.addToStrategySum(-1 - infoSet, action, value);
+        }
+    }
+
+    private ShardWorker(int rank, int numShards, RunConfig config, ServerSocket peerServer) throws IOException {
+        this.rank = rank;
+        this.numShards = numShards;
+        this.game = TrainingRun.createGame(config.get("game", "leduc"), config);
+        this.root = TrainingRun.initialHistory(game);
+        this.updateRule = UpdateRule.parse(config.get("rule", "vanilla"));
+        this.cacheSize = config.getInt("cacheSize", DEFAULT_CACHE_SIZE);
+        this.peerServer = peerServer;
+        this.peerIn = new DataInputStream[numShards];
+        this.peerOut = new DataOutputStream[numShards];
+        this.received = new ArrayList<>();
+        for (int r = 0; r < numShards; r++) received.add(new ArrayList<>());
+
+        // A missing shard is reported to the coordinator, which refuses to resume without it
+        Path shard = config.has("resume") ? Coordinator.shardPath(Path.of(config.get("resume", "")), rank) : null;
+        this.restored = shard != null && Files.exists(shard) ? Checkpoint.read(shard) : null;
+        this.table = restored != null ? restored.toTable() : new InfoSetTable();
+        this.regretDelta = new double[table.dataSize()];
+        this.strategyDelta = new double[table.dataSize()];
+        this.cache = new InfoSetCache();
+
+        // Every worker samples its own stream of deals and opponent actions
+        this.traverser = new Traverser(game, table, config.getLong("seed", 0) + rank * 0x9E3779B97F4A7C15L);
+        this.stats = new SolverStats();
+        traverser.setStats(stats);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : Coordinator.DEFAULT_PORT;
+        run(host, port);
+    }
+
+    /**
+     * Joins the coordinator at host:port and serves it until it sends SHUTDOWN.
+     */
+    public static void run(String host, int port) throws IOException {
+        try (ServerSocket peerServer = new ServerSocket(0);
+             Socket control = Protocol.configure(new Socket(host, port))) {
+            DataInputStream in = Protocol.input(control);
+            DataOutputStream out = Protocol.output(control);
+            out.writeByte(Protocol.HELLO);
+            out.writeInt(peerServer.getLocalPort());
+            out.flush();
+
+            Protocol.expect(in, Protocol.INIT);
+            int rank = in.readInt();
+            int numShards = in.readInt();
+            RunConfig config = RunConfig.fromArgs(Protocol.readStrings(in).toArray(new String[0]));
+            ArrayList<String> hosts = Protocol.readStrings(in);
+            int[] ports = new int[numShards];
+            for (int r = 0; r < numShards; r++) ports[r] = in.readInt();
+
+            ShardWorker worker = new ShardWorker(rank, numShards, config, peerServer);
+            worker.connect(hosts, ports);
+            out.writeByte(Protocol.READY);
+            Checkpoint restored = worker.restored;
+            out.writeInt(restored != null ? restored.getIteration() : 0);
+            out.writeBoolean(restored != null);
+            out.writeInt(restored != null ? restored.getShard() : rank);
+            out.writeInt(restored != null ? restored.getNumShards() : numShards);
+            out.flush();
+            worker.serve(in, out);
+        }
+    }
+
+    /**
+     * Accepts a connection from every other worker and opens one to each of them.
+     */
+    private void connect(List<String> hosts, int[] ports) throws IOException {
+        Thread acceptor = new Thread(() -> {
+            try {
+                for (int i = 0; i < numShards - 1; i++) {
+                    Socket socket = Protocol.configure(peerServer.accept());
+                    Thread handler = new Thread(() -> servePeer(socket), "shard-" + rank + "-peer");
+                    handler.setDaemon(true);
+                    handler.start();
+                }
+            } catch (IOException e) {
+                // A worker shut down before all its peers connected has closed the server
+                if (!peerServer.isClosed()) throw new UncheckedIOException(e);
+            }
+        }, "shard-" + rank + "-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        for (int r = 0; r < numShards; r++) {
+            if (r == rank) continue;
+            Socket socket = Protocol.configure(new Socket(hosts.get(r), ports[r]));
+            peerIn[r] = Protocol.input(socket);
+            peerOut[r] = Protocol.output(socket);
+        }
+    }
+
+    private void serve(DataInputStream in, DataOutputStream out) throws IOException {
+        while (true) {
+            byte code = in.readByte();
+            switch (code) {
+                case Protocol.ITERATE -> iterate(in.readInt(), in.readInt(), out);
+                case Protocol.COMMIT -> commit(in.readInt(), out);
+                case Protocol.CHECKPOINT -> checkpoint(in.readInt(), Path.of(in.readUTF()), out);
+                case Protocol.COLLECT -> collect(out);
+                case Protocol.SHUTDOWN -> {
+                    return;
+                }
+                default -> throw new IOException("Unexpected message " + code);
+            }
+            out.flush();
+        }
+    }
+
+    private void iterate(int epoch, int traversals, DataOutputStream out) throws IOException {
+        long start = System.nanoTime();
+        long nodesBefore = stats.getNodesVisited();
+        remoteReads = 0;
+        batchedReads = 0;
+        deltasSent = 0;
+
+        refreshCache();
+        if (regretDelta.length < table.dataSize()) {
+            regretDelta = new double[table.dataSize()];
+            strategyDelta = new double[table.dataSize()];
+        }
+        try {
+            traverser.run(traversals, updateRule.strategyWeight(epoch));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        sendDeltas();
+
+        out.writeByte(Protocol.DONE);
+        out.writeLong(stats.getNodesVisited() - nodesBefore);
+        out.writeLong(remoteReads);
+        out.writeLong(batchedReads);
+        out.writeLong(deltasSent);
+        out.writeLong(System.nanoTime() - start);
+    }
+
+    private int lookup(AbstractHistory history, int player, int numActions) {
+        long hash = history.infoSetHash(player);
+        int owner = Protocol.ownerOf(hash, numShards);
+        if (owner == rank) {
+            int id = table.find(hash);
+            if (id >= 0) return id;
+        }
+
+        int slot = cache.find(hash);
+        if (slot < 0) {
+            slot = cache.add(hash, owner, numActions);
+            if (owner != rank) {
+                try {
+                    read(owner, new int[] { slot });
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                remoteReads++;
+            }
+        }
+        cache.touch(slot);
+        return -1 - slot;
+    }
+
+    /**
+     * Drops the cache's slots of this shard, which the last commit created, and reads the
+     * current strategies of the remote ones, all owners' requests being in flight at once.
+     */
+    private void refreshCache() throws IOException {
+        if (cache.size() > cacheSize) {
+            cache.clear();
+            return;
+        }
+        cache.retainRemote(rank);
+
+        int[][] slots = new int[numShards][];
+        int[] counts = new int[numShards];
+        for (int slot = 0; slot < cache.size(); slot++) counts[cache.getOwner(slot)]++;
+        for (int r = 0; r < numShards; r++) slots[r] = new int[counts[r]];
+        Arrays.fill(counts, 0);
+        for (int slot = 0; slot < cache.size(); slot++) {
+            int owner = cache.getOwner(slot);
+            slots[owner][counts[owner]++] = slot;
+        }
+
+        for (int r = 0; r < numShards; r++) {
+            if (slots[r].length > 0) sendRead(r, slots[r]);
+        }
+        for (int r = 0; r < numShards; r++) {
+            if (slots[r].length > 0) receiveRead(r, slots[r]);
+        }
+        batchedReads += cache.size();
+    }
+
+    private void read(int owner, int[] slots) throws IOException {
+        sendRead(owner, slots);
+        receiveRead(owner, slots);
+    }
+
+    private void sendRead(int owner, int[] slots) throws IOException {
+        DataOutputStream out = peerOut[owner];
+        out.writeByte(Protocol.READ);
+        out.writeInt(slots.length);
+        for (int slot : slots) {
+            out.writeLong(cache.getHash(slot));
+            out.writeInt(cache.getNumActions(slot));
+        }
+        out.flush();
+    }
+
+    private void receiveRead(int owner, int[] slots) throws IOException {
+        DataInputStream in = peerIn[owner];
+        for (int slot : slots) {
+            for (int a = 0; a < cache.getNumActions(slot); a++) cache.setStrategy(slot, a, in.readDouble());
+        }
+    }
+
+    /**
+     * Sends every owner the deltas of its infosets this worker touched, one APPLY per owner,
+     * and waits until all of them have been received.
+     */
+    private void sendDeltas() throws IOException {
+        int[] counts = new int[numShards];
+        for (int slot = 0; slot < cache.size(); slot++) {
+            if (cache.isTouched(slot)) counts[cache.getOwner(slot)]++;
+        }
+
+        for (int r = 0; r < numShards; r++) {
+            if (r == rank) continue;
+            DataOutputStream out = peerOut[r];
+            out.writeByte(Protocol.APPLY);
+            out.writeInt(rank);
+            out.writeInt(counts[r]);
+            for (int slot = 0; slot < cache.size(); slot++) {
+                if (!cache.isTouched(slot) || cache.getOwner(slot) != r) continue;
+                int n = cache.getNumActions(slot);
+                out.writeLong(cache.getHash(slot));
+                out.writeInt(n);
+                for (int a = 0; a < n; a++) out.writeDouble(cache.getRegretDelta(slot, a));
+                for (int a = 0; a < n; a++) out.writeDouble(cache.getStrategyDelta(slot, a));
+            }
+            out.flush();
+            deltasSent += counts[r];
+        }
+        for (int r = 0; r < numShards; r++) {
+            if (r != rank) Protocol.expect(peerIn[r], Protocol.ACK);
+        }
+    }
+
+    private void servePeer(Socket socket) {
+        try (socket) {
+            DataInputStream in = Protocol.input(socket);
+            DataOutputStream out = Protocol.output(socket);
+            double[] strategy = new double[game.maxActions()];
+            while (true) {
+                byte code;
+                try {
+                    code = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (code == Protocol.READ) {
+                    strategy = answerRead(in, out, strategy);
+                } else if (code == Protocol.APPLY) {
+                    receiveDeltas(in);
+                    out.writeByte(Protocol.ACK);
+                } else {
+                    throw new IOException("Unexpected message " + code);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The coordinator sees the worker that lost its peer fail the epoch
+            System.err.println("shard " + rank + ": peer connection failed: " + e);
+        }
+    }
+
+    private double[] answerRead(DataInputStream in, DataOutputStream out, double[] strategy) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long hash = in.readLong();
+            int n = in.readInt();
+            if (strategy.length < n) strategy = new double[n];
+            int id;
+            synchronized (table) {
+                id = table.find(hash);
+                if (id >= 0) table.getStrategy(id, strategy);
+            }
+            for (int a = 0; a < n; a++) out.writeDouble(id >= 0 ? strategy[a] : 1.0 / n);
+        }
+        return strategy;
+    }
+
+    private void receiveDeltas(DataInputStream in) throws IOException {
+        int sender = in.readInt();
+        int count = in.readInt();
+        ArrayList<Delta> deltas = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Delta delta = new Delta();
+            delta.hash = in.readLong();
+            int n = in.readInt();
+            delta.regret = new double[n];
+            delta.strategy = new double[n];
+            for (int a = 0; a < n; a++) delta.regret[a] = in.readDouble();
+            for (int a = 0; a < n; a++) delta.strategy[a] = in.readDouble();
+            deltas.add(delta);
+        }
+        synchronized (received) {
+            received.get(sender).addAll(deltas);
+        }
+    }
+
+    /**
+     * Adds this worker's deltas, then every other worker's by rank, to the shard's table,
+     * creating the infosets first seen this epoch, and applies the update rule.
+     */
+    private void commit(int epoch, DataOutputStream out) throws IOException {
+        synchronized (table) {
+            int dataSize = table.dataSize();
+            table.addDeltas(regretDelta, strategyDelta, dataSize);
+            Arrays.fill(regretDelta, 0, dataSize, 0.0);
+            Arrays.fill(strategyDelta, 0, dataSize, 0.0);
+
+            for (int slot = 0; slot < cache.size(); slot++) {
+                if (cache.getOwner(slot) != rank || !cache.isTouched(slot)) continue;
+                int id = table.getOrCreate(cache.getHash(slot), cache.getNumActions(slot));
+                for (int a = 0; a < cache.getNumActions(slot); a++) {
+                    table.addToRegretSum(id, a, cache.getRegretDelta(slot, a));
+                    table.addToStrategySum(id, a, cache.getStrategyDelta(slot, a));
+                }
+            }
+
+            synchronized (received) {
+                for (List<Delta> deltas : received) {
+                    for (Delta delta : deltas) apply(delta);
+                    deltas.clear();
+                }
+            }
+
+            updateRule.afterPass(table);
+            updateRule.afterIteration(table, epoch);
+        }
+        out.writeByte(Protocol.COMMITTED);
+        out.writeInt(table.size());
+    }
+
+    private void apply(Delta delta) {
+        int id = table.getOrCreate(delta.hash, delta.regret.length);
+        for (int a = 0; a < delta.regret.length; a++) {
+            table.addToRegretSum(id, a, delta.regret[a]);
+            table.addToStrategySum(id, a, delta.strategy[a]);
+        }
+    }
+
+    private void checkpoint(int epoch, Path base, DataOutputStream out) throws IOException {
+        Checkpoint.capture(table, epoch, rank, numShards).write(Coordinator.shardPath(base, rank));
+        out.writeByte(Protocol.COMMITTED);
+        out.writeInt(table.size());
+    }
+
+    private void collect(DataOutputStream out) throws IOException {
+        out.writeInt(table.size());
+        for (int id = 0; id < table.size(); id++) {
+            out.writeLong(table.getHash(id));
+            out.writeInt(table.getNumActions(id));
+            for (int a = 0; a < table.getNumActions(id); a++) out.writeDouble(table.getRegret(id, a));
+            for (int a = 0; a < table.getNumActions(id); a++) out.writeDouble(table.getStrategySum(id, a));
+        }
+    }
+}
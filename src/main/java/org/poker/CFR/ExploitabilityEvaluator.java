@@ -0,0 +1,224 @@
+package org.poker.CFR;
+
+import java.util.Arrays;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.GameSim.GameSim;
+
+/**
+ * Computes best responses and exploitability of the average strategy stored in an
+ * {@link InfoSetTable}.
+ *
+ * The game is expanded once into a {@link GameTree}; every evaluation is then a few
+ * sweeps over flat arrays with no allocation. A best response for player i is found by
+ * a forward sweep computing everyone else's reach (chance included), followed by a
+ * backward sweep over depths in which each of i's infosets picks the action maximizing
+ * the reach-weighted sum of child values over all of its nodes. This assumes all nodes
+ * of an infoset sit at the same depth, which holds for perfect-recall poker games whose
+ * chance events happen at fixed points in the betting.
+ *
+ * Infosets missing from the table are treated as playing uniformly at random.
+ */
+public class ExploitabilityEvaluator {
+    private final GameTree tree;
+    private final double bigBlind;
+
+    // Per infoset: table id (resolved lazily, -1 while missing) and slab offset
+    private final int[] tableIds;
+    private InfoSetTable resolvedAgainst;
+    private final int[] strategyOffset;
+    private final double[] averageStrategy;
+    private final double[] actionValues;
+    private double[] strategyBuffer;
+
+    // Per node
+    private final double[] reach;
+    private final double[] value;
+
+    public ExploitabilityEvaluator(GameSim game, AbstractHistory root) {
+        this.tree = GameTree.build(game, root);
+        this.bigBlind = game.bigBlind();
+
+        int numInfoSets = tree.numInfoSets();
+        tableIds = new int[numInfoSets];
+        Arrays.fill(tableIds, -1);
+        strategyOffset = new int[numInfoSets + 1];
+        for (int i = 0; i < numInfoSets; i++) {
+            strategyOffset[i + 1] = strategyOffset[i] + tree.infoSetNumActions[i];
+        }
+        averageStrategy = new double[strategyOffset[numInfoSets]];
+        actionValues = new double[strategyOffset[numInfoSets]];
+        strategyBuffer = new double[0];
+
+        reach = new double[tree.size()];
+        value = new double[tree.size()];
+    }
+
+    /**
+     * Exploitability in chips per hand: the average over players of how much a best
+     * response gains against the others' average strategies (NashConv / numPlayers).
+     */
+    public double exploitability(InfoSetTable infoSets) {
+        loadAverageStrategy(infoSets);
+        double nashConv = 0;
+        for (int p = 0; p < tree.numPlayers(); p++) {
+            nashConv += bestResponse(p) - onPolicyValue(p);
+        }
+        return nashConv / tree.numPlayers();
+    }
+
+    /**
+     * Exploitability in milli-big-blinds per hand.
+     */
+    public double exploitabilityMbb(InfoSetTable infoSets) {
+        return exploitability(infoSets) / bigBlind * 1000.0;
+    }
+
+    /**
+     * Value for the given player of a best response against everyone else's average strategy.
+     */
+    public double bestResponseValue(InfoSetTable infoSets, int player) {
+        loadAverageStrategy(infoSets);
+        return bestResponse(player);
+    }
+
+    /**
+     * Value for the given player when everyone plays their average strategy.
+     */
+    public double gameValue(InfoSetTable infoSets, int player) {
+        loadAverageStrategy(infoSets);
+        return onPolicyValue(player);
+    }
+
+    private void loadAverageStrategy(InfoSetTable infoSets) {
+        // Ids are only meaningful within one table
+        if (infoSets != resolvedAgainst) {
+            Arrays.fill(tableIds, -1);
+            resolvedAgainst = infoSets;
+        }
+        for (int i = 0; i < tableIds.length; i++) {
+            int base = strategyOffset[i];
+            int n = strategyOffset[i + 1] - base;
+            if (tableIds[i] < 0) tableIds[i] = infoSets.find(tree.infoSetHashes[i]);
+
+            if (tableIds[i] < 0) {
+                Arrays.fill(averageStrategy, base, base + n, 1.0 / n);
+            } else {
+                if (strategyBuffer.length < n) strategyBuffer = new double[n];
+                infoSets.getAverageStrategy(tableIds[i], strategyBuffer);
+                System.arraycopy(strategyBuffer, 0, averageStrategy, base, n);
+            }
+        }
+    }
+
+    /**
+     * Probability with which the parent of a child reaches it, from player's point of view:
+     * chance and everyone else play their strategies, player's own actions count as 1.
+     */
+    private void computeOpponentReach(int player) {
+        reach[0] = 1.0;
+        for (int node = 0; node < tree.size; node++) {
+            byte type = tree.type[node];
+            if (type == GameTree.TERMINAL) continue;
+
+            int first = tree.firstChild[node];
+            int n = tree.numChildren[node];
+            if (type == GameTree.CHANCE) {
+                int total = tree.rawOutcomes(node);
+                for (int c = 0; c < n; c++) reach[first + c] = reach[node] * tree.multiplicity[first + c] / total;
+            } else if (tree.player[node] == player) {
+                for (int c = 0; c < n; c++) reach[first + c] = reach[node];
+            } else {
+                int base = strategyOffset[tree.infoSet[node]];
+                for (int c = 0; c < n; c++) reach[first + c] = reach[node] * averageStrategy[base + c];
+            }
+        }
+    }
+
+    private double bestResponse(int player) {
+        computeOpponentReach(player);
+        Arrays.fill(actionValues, 0.0);
+
+        for (int d = tree.maxDepth; d >= 0; d--) {
+            int start = tree.depthStart[d];
+            int end = tree.depthStart[d + 1];
+
+            // Evaluate everything except the player's own decisions, and aggregate
+            // the player's action values over each infoset
+            for (int k = start; k < end; k++) {
+                int node = tree.nodesByDepth[k];
+                byte type = tree.type[node];
+                if (type == GameTree.TERMINAL) {
+                    value[node] = tree.payoff(node, player);
+                } else if (type == GameTree.CHANCE) {
+                    value[node] = averageChildValue(node);
+                } else if (tree.player[node] != player) {
+                    value[node] = strategyChildValue(node);
+                } else {
+                    int first = tree.firstChild[node];
+                    int base = strategyOffset[tree.infoSet[node]];
+                    for (int c = 0; c < tree.numChildren[node]; c++) {
+                        actionValues[base + c] += reach[node] * value[first + c];
+                    }
+                }
+            }
+
+            // Each of the player's infosets at this depth commits to its best action
+            for (int k = start; k < end; k++) {
+                int node = tree.nodesByDepth[k];
+                if (tree.type[node] != GameTree.DECISION || tree.player[node] != player) continue;
+
+                int infoSet = tree.infoSet[node];
+                int base = strategyOffset[infoSet];
+                int n = tree.numChildren[node];
+                int best = 0;
+                for (int c = 1; c < n; c++) {
+                    if (actionValues[base + c] > actionValues[base + best]) best = c;
+                }
+                value[node] = value[tree.firstChild[node] + best];
+            }
+        }
+        return value[0];
+    }
+
+    /**
+     * Expected value for the player when everyone plays their average strategy.
+     */
+    private double onPolicyValue(int player) {
+        for (int d = tree.maxDepth; d >= 0; d--) {
+            for (int k = tree.depthStart[d]; k < tree.depthStart[d + 1]; k++) {
+                int node = tree.nodesByDepth[k];
+                byte type = tree.type[node];
+                if (type == GameTree.TERMINAL) {
+                    value[node] = tree.payoff(node, player);
+                } else if (type == GameTree.CHANCE) {
+                    value[node] = averageChildValue(node);
+                } else {
+                    value[node] = strategyChildValue(node);
+                }
+            }
+        }
+        return value[0];
+    }
+
+    private double averageChildValue(int node) {
+        int first = tree.firstChild[node];
+        int n = tree.numChildren[node];
+        double sum = 0;
+        for (int c = 0; c < n; c++) sum += tree.multiplicity[first + c] * value[first + c];
+        return sum / tree.rawOutcomes(node);
+    }
+
+    private double strategyChildValue(int node) {
+        int first = tree.firstChild[node];
+        int base = strategyOffset[tree.infoSet[node]];
+        double sum = 0;
+        for (int c = 0; c < tree.numChildren[node]; c++) {
+            sum += averageStrategy[base + c] * value[first + c];
+        }
+        return sum;
+    }
+
+    public GameTree getTree() {
+        return tree;
+    }
+}
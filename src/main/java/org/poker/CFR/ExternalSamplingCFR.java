@@ -0,0 +1,99 @@
+package org.poker.CFR;
+
+import java.util.SplittableRandom;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.GameSim.GameSim;
+
+/**
+ * External-sampling MCCFR (Lanctot et al. 2009).
+ *
+ * Chance outcomes and opponent actions are sampled, while every action of the
+ * traversing player is explored. Sampling the opponents according to their own
+ * strategy already weights regrets by counterfactual reach, so regrets are added
+ * without reach factors. The average strategy is accumulated at opponent nodes.
+ */
+public class ExternalSamplingCFR extends Solver {
+    private final SplittableRandom random;
+
+    public ExternalSamplingCFR(GameSim game, InfoSetTable infoSets, long seed) {
+        super(game, infoSets);
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    protected void iterate(AbstractHistory initialHistory) {
+        for (int p = 0; p < numPlayers; p++) {
+            traverse(workingCopy(initialHistory), p, 0);
+            endPass();
+        }
+    }
+
+    @Override
+    protected boolean defersScaling() {
+        return true;
+    }
+
+    private double traverse(AbstractHistory history, int targetPlayer, int depth) {
+        if (stats != null) stats.nodeVisited();
+        if (game.isTerminal(history)) {
+            if (stats != null) stats.terminalEvaluated();
+            return game.terminalUtility(history, targetPlayer);
+        }
+
+        if (game.isChanceNode(history)) {
+            int mark = history.length();
+            game.applyChanceOutcome(history, game.sampleChanceOutcome(history, random));
+            double value = traverse(history, targetPlayer, depth);
+            history.undoTo(mark);
+            return value;
+        }
+
+        int currentPlayer = game.currentPlayer(history);
+        ensureBuffers(depth, maxActions);
+        int[] actions = actionBuffers[depth];
+        int numActions = game.legalActions(history, actions);
+        if (numActions == 0) return 0.0;
+        double[] strategy = strategyBuffers[depth];
+        double[] actionVals = valueBuffers[depth];
+
+        int infoSet = getInfoSet(history, currentPlayer, actions, numActions);
+        getStrategy(infoSet, strategy);
+
+        if (currentPlayer != targetPlayer) {
+            // Opponent node: accumulate the average strategy and follow one sampled action
+            for (int a = 0; a < numActions; a++) {
+                addToStrategySum(infoSet, a, strategyWeight * strategy[a]);
+            }
+            int a = sample(strategy, numActions, random);
+            history.addAction(currentPlayer, actions[a]);
+            double value = traverse(history, targetPlayer, depth + 1);
+            history.undoAction();
+            return value;
+        }
+
+        double nodeValue = 0.0;
+        for (int a = 0; a < numActions; a++) {
+            history.addAction(currentPlayer, actions[a]);
+            actionVals[a] = traverse(history, targetPlayer, depth + 1);
+            history.undoAction();
+            nodeValue += strategy[a] * actionVals[a];
+        }
+
+        for (int a = 0; a < numActions; a++) {
+            addToRegretSum(infoSet, a, actionVals[a] - nodeValue);
+        }
+        return nodeValue;
+    }
+
+    protected void getStrategy(int infoSet, double[] out) {
+        infoSets.getStrategy(infoSet, out);
+    }
+
+    protected void addToRegretSum(int infoSet, int action, double value) {
+        infoSets.addToRegretSum(infoSet, action, value);
+    }
+
+    protected void addToStrategySum(int infoSet, int action, double value) {
+        infoSets.addToStrategySum(infoSet, action, value);
+    }
+}
@@ -0,0 +1,236 @@
+package org.poker.CFR;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.GameSim.GameSim;
+
+/**
+ * The full game tree of a {@link GameSim}, expanded once into flat arrays.
+ *
+ * Nodes are numbered so that the children of a node occupy a contiguous block
+ * [firstChild, firstChild + numChildren) and always come after their parent, so a
+ * forward sweep over node ids visits parents before children. Decision nodes carry
+ * a dense infoset index (shared by all nodes of the same infoset) and terminal nodes
+ * carry precomputed payoffs for every player. When built against an {@link InfoSetTable}
+ * every infoset also records its table id, so engines can run without hashing.
+ *
+ * Only meant for games small enough to enumerate, such as Kuhn and Leduc.
+ */
+public class GameTree {
+    public static final byte TERMINAL = 0;
+    public static final byte CHANCE = 1;
+    public static final byte DECISION = 2;
+
+    private static final int INITIAL_NODES = 256;
+
+    final int numPlayers;
+    int size;
+
+    byte[] type;
+    int[] player;
+    int[] depth;
+    int[] firstChild;
+    int[] numChildren;
+    int[] infoSet;
+    // Raw outcomes a child of a chance node stands for, see GameSim.chanceMultiplicity
+    int[] multiplicity;
+    int[] payoffIndex;
+    double[] payoffs;
+    int numTerminals;
+    int maxDepth;
+
+    // Dense infoset index -> 64-bit key, number of actions and the player it belongs to
+    long[] infoSetHashes;
+    int[] infoSetNumActions;
+    int[] infoSetPlayer;
+    // Dense infoset index -> id in the table the tree was built against, or null
+    int[] infoSetTableIds;
+    int numInfoSets;
+
+    // Node ids grouped by depth: nodesByDepth[depthStart[d] .. depthStart[d + 1])
+    int[] nodesByDepth;
+    int[] depthStart;
+
+    private final Map<Long, Integer> infoSetIndex;
+    private final InfoSetTable table;
+
+    private GameTree(int numPlayers, InfoSetTable table) {
+        this.numPlayers = numPlayers;
+        type = new byte[INITIAL_NODES];
+        player = new int[INITIAL_NODES];
+        depth = new int[INITIAL_NODES];
+        firstChild = new int[INITIAL_NODES];
+        numChildren = new int[INITIAL_NODES];
+        infoSet = new int[INITIAL_NODES];
+        multiplicity = new int[INITIAL_NODES];
+        payoffIndex = new int[INITIAL_NODES];
+        payoffs = new double[INITIAL_NODES * numPlayers];
+        infoSetHashes = new long[INITIAL_NODES];
+        infoSetNumActions = new int[INITIAL_NODES];
+        infoSetPlayer = new int[INITIAL_NODES];
+        infoSetIndex = new HashMap<>();
+        this.table = table;
+        if (table != null) infoSetTableIds = new int[INITIAL_NODES];
+    }
+
+    /**
+     * Expands the whole tree below the given root. The root history is left unchanged.
+     */
+    public static GameTree build(GameSim game, AbstractHistory root) {
+        return build(game, root, null);
+    }
+
+    /**
+     * Expands the whole tree and creates every infoset in the given table, in the order
+     * a depth-first traversal from the root first reaches them.
+     */
+    public static GameTree build(GameSim game, AbstractHistory root, InfoSetTable table) {
+        GameTree tree = new GameTree(game.numPlayers(), table);
+        AbstractHistory history = root.copy();
+        tree.allocate(1);
+        tree.expand(game, history, 0, 0);
+        tree.groupByDepth();
+        return tree;
+    }
+
+    private void expand(GameSim game, AbstractHistory history, int node, int nodeDepth) {
+        depth[node] = nodeDepth;
+        maxDepth = Math.max(maxDepth, nodeDepth);
+
+        if (game.isTerminal(history)) {
+            type[node] = TERMINAL;
+            payoffIndex[node] = numTerminals;
+            ensurePayoffCapacity((numTerminals + 1) * numPlayers);
+            for (int p = 0; p < numPlayers; p++) {
+                payoffs[numTerminals * numPlayers + p] = game.terminalUtility(history, p);
+            }
+            numTerminals++;
+            return;
+        }
+
+        if (game.isChanceNode(history)) {
+            type[node] = CHANCE;
+            int outcomes = game.numChanceOutcomes(history);
+            int first = allocate(outcomes);
+            firstChild[node] = first;
+            numChildren[node] = outcomes;
+
+            int mark = history.length();
+            for (int i = 0; i < outcomes; i++) {
+                multiplicity[first + i] = game.chanceMultiplicity(history, i);
+                game.applyChanceOutcome(history, i);
+                expand(game, history, first + i, nodeDepth + 1);
+                history.undoTo(mark);
+            }
+            return;
+        }
+
+        int currentPlayer = game.currentPlayer(history);
+        // The tree is built once, so a buffer per node is cheap enough
+        int[] actions = new int[game.maxActions()];
+        int numActions = game.legalActions(history, actions);
+        type[node] = numActions == 0 ? TERMINAL : DECISION;
+        if (numActions == 0) {
+            // Mirrors the engines, which score a decision node without actions as 0
+            payoffIndex[node] = numTerminals;
+            ensurePayoffCapacity((numTerminals + 1) * numPlayers);
+            numTerminals++;
+            return;
+        }
+
+        player[node] = currentPlayer;
+        infoSet[node] = infoSetIndexOf(history, currentPlayer, actions, numActions);
+
+        int first = allocate(numActions);
+        firstChild[node] = first;
+        numChildren[node] = numActions;
+        for (int a = 0; a < numActions; a++) {
+            history.addAction(currentPlayer, actions[a]);
+            expand(game, history, first + a, nodeDepth + 1);
+            history.undoAction();
+        }
+    }
+
+    private int infoSetIndexOf(AbstractHistory history, int currentPlayer, int[] actions, int numActions) {
+        long hash = history.infoSetHash(currentPlayer);
+        Integer index = infoSetIndex.get(hash);
+        if (index != null) return index;
+
+        if (numInfoSets == infoSetHashes.length) {
+            infoSetHashes = Arrays.copyOf(infoSetHashes, numInfoSets * 2);
+            infoSetNumActions = Arrays.copyOf(infoSetNumActions, numInfoSets * 2);
+            infoSetPlayer = Arrays.copyOf(infoSetPlayer, numInfoSets * 2);
+            if (table != null) infoSetTableIds = Arrays.copyOf(infoSetTableIds, numInfoSets * 2);
+        }
+        if (table != null) infoSetTableIds[numInfoSets] = table.getOrCreate(history, currentPlayer, actions, numActions);
+        infoSetHashes[numInfoSets] = hash;
+        infoSetPlayer[numInfoSets] = currentPlayer;
+        infoSetNumActions[numInfoSets] = numActions;
+        infoSetIndex.put(hash, numInfoSets);
+        return numInfoSets++;
+    }
+
+    /**
+     * Reserves a contiguous block of node ids and returns the first one.
+     */
+    private int allocate(int count) {
+        int first = size;
+        size += count;
+        if (size > type.length) {
+            int newCapacity = Math.max(size, type.length * 2);
+            type = Arrays.copyOf(type, newCapacity);
+            player = Arrays.copyOf(player, newCapacity);
+            depth = Arrays.copyOf(depth, newCapacity);
+            firstChild = Arrays.copyOf(firstChild, newCapacity);
+            numChildren = Arrays.copyOf(numChildren, newCapacity);
+            infoSet = Arrays.copyOf(infoSet, newCapacity);
+            multiplicity = Arrays.copyOf(multiplicity, newCapacity);
+            payoffIndex = Arrays.copyOf(payoffIndex, newCapacity);
+        }
+        return first;
+    }
+
+    private void ensurePayoffCapacity(int capacity) {
+        if (capacity > payoffs.length) {
+            payoffs = Arrays.copyOf(payoffs, Math.max(capacity, payoffs.length * 2));
+        }
+    }
+
+    private void groupByDepth() {
+        depthStart = new int[maxDepth + 2];
+        for (int n = 0; n < size; n++) depthStart[depth[n] + 1]++;
+        for (int d = 0; d <= maxDepth; d++) depthStart[d + 1] += depthStart[d];
+
+        nodesByDepth = new int[size];
+        int[] next = Arrays.copyOf(depthStart, maxDepth + 1);
+        for (int n = 0; n < size; n++) nodesByDepth[next[depth[n]]++] = n;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int numInfoSets() {
+        return numInfoSets;
+    }
+
+    public int numPlayers() {
+        return numPlayers;
+    }
+
+    /**
+     * Number of raw outcomes below a chance node, the sum of its children's multiplicities.
+     */
+    int rawOutcomes(int node) {
+        int first = firstChild[node];
+        int total = 0;
+        for (int c = 0; c < numChildren[node]; c++) total += multiplicity[first + c];
+        return total;
+    }
+
+    public double payoff(int node, int p) {
+        return payoffs[payoffIndex[node] * numPlayers + p];
+    }
+}
@@ -3,38 +3,279 @@ package org.poker.CFR.History;
 import org.poker.Card;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
+/**
+ * Game history stored as a stack of encoded int actions.
+ *
+ * Player actions are encoded as (player << 8 | action id), private deals as
+ * (DEAL | player << 8 | card rank) and public board cards as (DEAL | BOARD << 8 | card rank).
+ * Actions are appended and undone in place, and
+ * every push records enough state to restore the previous node, so traversal can
+ * walk the tree without copying the history on each edge.
+ *
+ * Alongside the raw actions the history keeps incremental state: chip contributions,
+ * the players who have folded, the last player action, the terminal flag, a running hash
+ * of the public actions and a running hash of each player's private cards. Together the two hashes give a 64-bit
+ * infoset key without building the string form. Subclasses can keep further per-node
+ * state in {@link #state}, which is saved and restored with every push and undo.
+ */
 public abstract class AbstractHistory {
+    protected static final int DEAL = 1 << 16;
+    protected static final int NO_ACTION = -1;
+    // Seat used in the encoding of public board cards
+    protected static final int BOARD = 0xFF;
 
-    protected ArrayList<String> actions;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final long PRIVATE_HASH_MULTIPLIER = 0xC2B2AE3D27D4EB4FL;
+
+    protected final int numPlayers;
+
+    protected int[] actions;
+    protected int length;
     protected int currentPlayer;
 
-    public AbstractHistory() {
-        actions = new ArrayList<>();
+    protected int[] contributions;
+    // Bit p is set once player p has folded
+    protected int folded;
+    protected int lastAction;
+    protected boolean terminal;
+    protected long publicHash;
+    protected long[] privateHash;
+    // Game-specific state packed into an int, e.g. betting round and raise count
+    protected int state;
+
+    // Undo stacks, one entry per pushed action
+    private int[] previousPlayer;
+    private int[] previousLastAction;
+    private int[] previousFolded;
+    private boolean[] previousTerminal;
+    private long[] previousHash;
+    private long[] previousPrivateHash;
+    private int[] previousState;
+    private int[] addedChips;
+
+    public AbstractHistory(int numPlayers, int ante) {
+        this.numPlayers = numPlayers;
+        actions = new int[INITIAL_CAPACITY];
+        previousPlayer = new int[INITIAL_CAPACITY];
+        previousLastAction = new int[INITIAL_CAPACITY];
+        previousFolded = new int[INITIAL_CAPACITY];
+        previousTerminal = new boolean[INITIAL_CAPACITY];
+        previousHash = new long[INITIAL_CAPACITY];
+        previousPrivateHash = new long[INITIAL_CAPACITY];
+        previousState = new int[INITIAL_CAPACITY];
+        addedChips = new int[INITIAL_CAPACITY];
+        contributions = new int[numPlayers];
+        privateHash = new long[numPlayers];
+        Arrays.fill(contributions, ante);
         currentPlayer = 0;
+        lastAction = NO_ACTION;
+    }
+
+    /**
+     * Adds a player action given in the legacy "P0:Bet" form.
+     */
+    public void addAction(String action) {
+        int separator = action.indexOf(':');
+        int player = Integer.parseInt(action.substring(1, separator));
+        addAction(player, encodeAction(action.substring(separator + 1)));
     }
 
-    public AbstractHistory(ArrayList<String> actions, int currentPlayer) {
-        this.actions = new ArrayList<>(actions);
-        this.currentPlayer = currentPlayer;
+    /**
+     * Appends a player action and passes the turn to {@link #nextPlayer}.
+     */
+    public void addAction(int player, int action) {
+        int code = (player << 8) | action;
+        push(code);
+
+        int chips = applyAction(player, action);
+        contributions[player] += chips;
+        addedChips[length - 1] = chips;
+        if (isFold(action)) folded |= 1 << player;
+
+        lastAction = action;
+        publicHash = (publicHash + code + 1) * HASH_MULTIPLIER;
+        currentPlayer = nextPlayer(player);
     }
 
     /**
-     * Adds an action to the history.
-     * Automatically switches players only if it's a player action.
-     * (Does NOT switch after "Deal" or other chance actions.)
+     * Player to act after the given one: the next seat clockwise that has not folded.
+     * Games can override it, e.g. to also skip players who are all-in.
      */
-    public void addAction(String action) {
-        actions.add(action);
+    protected int nextPlayer(int player) {
+        int next = player;
+        do {
+            next = next + 1 == numPlayers ? 0 : next + 1;
+        } while ((folded & (1 << next)) != 0 && next != player);
+        return next;
+    }
+
+    /**
+     * Deals a private card to a player. Does not switch the current player.
+     */
+    public void deal(int player, Card card) {
+        push(DEAL | (player << 8) | card.getRank());
+        previousPrivateHash[length - 1] = privateHash[player];
+        privateHash[player] = (privateHash[player] + cardCode(card) + 1) * PRIVATE_HASH_MULTIPLIER;
+        addCard(player, card);
+    }
+
+    /**
+     * Deals a public card visible to every player. Does not switch the current player.
+     */
+    public void dealBoard(Card card) {
+        push(DEAL | (BOARD << 8) | card.getRank());
+        // The card enters the hash only through its code, so games can hide or merge cards
+        publicHash = (publicHash + (DEAL | (BOARD << 8)) + cardCode(card) + 1) * HASH_MULTIPLIER;
+        addBoardCard(card);
+    }
+
+    /**
+     * Value a card contributes to the infoset hashes. Cards with equal codes are treated as
+     * the same card by every player, e.g. cards differing only in a suit the game ignores.
+     */
+    protected long cardCode(Card card) {
+        return card.getRank() * 31L + card.getSuite();
+    }
 
-        // Only alternate if this is not a chance ("Deal") action
-        if (!action.startsWith("Deal")) {
-            currentPlayer = 1 - currentPlayer;
+    /**
+     * Reverts the most recently added action.
+     */
+    public void undoAction() {
+        length--;
+        int code = actions[length];
+
+        if ((code & DEAL) != 0) {
+            int player = (code >> 8) & 0xFF;
+            if (player == BOARD) {
+                removeBoardCard();
+            } else {
+                privateHash[player] = previousPrivateHash[length];
+                removeCard(player);
+            }
+        } else {
+            contributions[(code >> 8) & 0xFF] -= addedChips[length];
         }
+
+        currentPlayer = previousPlayer[length];
+        lastAction = previousLastAction[length];
+        folded = previousFolded[length];
+        terminal = previousTerminal[length];
+        publicHash = previousHash[length];
+        state = previousState[length];
+    }
+
+    /**
+     * Reverts actions until the history has the given length.
+     */
+    public void undoTo(int targetLength) {
+        while (length > targetLength) undoAction();
+    }
+
+    private void push(int code) {
+        if (length == actions.length) grow();
+        actions[length] = code;
+        previousPlayer[length] = currentPlayer;
+        previousLastAction[length] = lastAction;
+        previousFolded[length] = folded;
+        previousTerminal[length] = terminal;
+        previousHash[length] = publicHash;
+        previousState[length] = state;
+        addedChips[length] = 0;
+        length++;
+    }
+
+    private void grow() {
+        int newCapacity = actions.length * 2;
+        actions = Arrays.copyOf(actions, newCapacity);
+        previousPlayer = Arrays.copyOf(previousPlayer, newCapacity);
+        previousLastAction = Arrays.copyOf(previousLastAction, newCapacity);
+        previousFolded = Arrays.copyOf(previousFolded, newCapacity);
+        previousTerminal = Arrays.copyOf(previousTerminal, newCapacity);
+        previousHash = Arrays.copyOf(previousHash, newCapacity);
+        previousPrivateHash = Arrays.copyOf(previousPrivateHash, newCapacity);
+        previousState = Arrays.copyOf(previousState, newCapacity);
+        addedChips = Arrays.copyOf(addedChips, newCapacity);
+    }
+
+    /**
+     * Copies the encoded state of this history into another instance.
+     */
+    protected void copyInto(AbstractHistory other) {
+        other.actions = Arrays.copyOf(actions, actions.length);
+        other.previousPlayer = Arrays.copyOf(previousPlayer, previousPlayer.length);
+        other.previousLastAction = Arrays.copyOf(previousLastAction, previousLastAction.length);
+        other.previousFolded = Arrays.copyOf(previousFolded, previousFolded.length);
+        other.previousTerminal = Arrays.copyOf(previousTerminal, previousTerminal.length);
+        other.previousHash = Arrays.copyOf(previousHash, previousHash.length);
+        other.previousPrivateHash = Arrays.copyOf(previousPrivateHash, previousPrivateHash.length);
+        other.previousState = Arrays.copyOf(previousState, previousState.length);
+        other.addedChips = Arrays.copyOf(addedChips, addedChips.length);
+        other.contributions = Arrays.copyOf(contributions, contributions.length);
+        other.length = length;
+        other.currentPlayer = currentPlayer;
+        other.lastAction = lastAction;
+        other.folded = folded;
+        other.terminal = terminal;
+        other.publicHash = publicHash;
+        other.privateHash = Arrays.copyOf(privateHash, privateHash.length);
+        other.state = state;
     }
 
+    /**
+     * Materializes the history as readable strings such as "Deal P0:3" and "P1:Bet".
+     * Only meant for printing and debugging.
+     */
     public ArrayList<String> getActions() {
-        return actions;
+        ArrayList<String> result = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            result.add(formatAction(actions[i]));
+        }
+        return result;
+    }
+
+    protected String formatAction(int code) {
+        int player = (code >> 8) & 0xFF;
+        if ((code & DEAL) != 0) {
+            if (player == BOARD) return "Board:" + (code & 0xFF);
+            return "Deal P" + player + ":" + (code & 0xFF);
+        }
+        return "P" + player + ":" + actionName(code & 0xFF);
+    }
+
+    /**
+     * The encoded event at the given position, index 0 being the first.
+     */
+    public int actionAt(int index) {
+        return actions[index];
+    }
+
+    /**
+     * Whether an encoded event deals a card, private or public.
+     */
+    public static boolean isDeal(int code) {
+        return (code & DEAL) != 0;
+    }
+
+    /**
+     * Whether an encoded event deals a public board card.
+     */
+    public static boolean isBoardDeal(int code) {
+        return isDeal(code) && playerOf(code) == BOARD;
+    }
+
+    public static int actionOf(int code) {
+        return code & 0xFF;
+    }
+
+    public static int playerOf(int code) {
+        return (code >> 8) & 0xFF;
+    }
+
+    public int length() {
+        return length;
     }
 
     public int getCurrentPlayer() {
@@ -49,11 +290,95 @@ public abstract class AbstractHistory {
         this.currentPlayer = player;
     }
 
+    public int getLastAction() {
+        return lastAction;
+    }
+
+    public int[] getContributions() {
+        return contributions;
+    }
+
+    public int getContribution(int player) {
+        return contributions[player];
+    }
+
+    public long getPublicHash() {
+        return publicHash;
+    }
+
+    /**
+     * 64-bit key of the infoset the given player is in: their private cards, the public
+     * actions and their seat. Equal infosets always give equal keys; distinct infosets
+     * collide with negligible probability (see {@link org.poker.CFR.InfoSetTable}).
+     */
+    public long infoSetHash(int player) {
+        return mix(publicHash ^ (privateHash[player] * PRIVATE_HASH_MULTIPLIER) ^ player);
+    }
+
+    /**
+     * murmur3 finalizer, so the low bits used for table indexing are well mixed.
+     */
+    protected static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public int numPlayers() {
+        return numPlayers;
+    }
+
+    public boolean isTerminal() {
+        return terminal;
+    }
+
+    /**
+     * Bit mask of the players who have folded.
+     */
+    public int getFolded() {
+        return folded;
+    }
+
+    public boolean hasFolded(int player) {
+        return (folded & (1 << player)) != 0;
+    }
+
+    /**
+     * Returns the player whose last action ended the hand by folding, or -1.
+     */
+    public int getFoldedPlayer() {
+        if (!terminal || length == 0 || isDeal(actions[length - 1])) return -1;
+        return isFold(lastAction) ? playerOf(actions[length - 1]) : -1;
+    }
+
     // Abstract methods for game-specific logic
-    public abstract boolean isTerminal();
+
+    /**
+     * Updates game-specific state for a player action and returns the chips it adds
+     * to the pot. Implementations set {@link #terminal} when the action ends the hand.
+     */
+    protected abstract int applyAction(int player, int action);
+    protected abstract boolean isFold(int action);
+    public abstract int encodeAction(String name);
+    public abstract String actionName(int action);
     public abstract double terminalUtility(int player);
     public abstract String infoSetKey(int player);
     public abstract AbstractHistory copy();
     public abstract void addCard(int player, Card card);
+    protected abstract void removeCard(int player);
     public abstract ArrayList<Card> getHand(int player);
+
+    /**
+     * Board card hooks for games with public cards.
+     */
+    protected void addBoardCard(Card card) {
+        throw new UnsupportedOperationException("Game has no board cards");
+    }
+
+    protected void removeBoardCard() {
+        throw new UnsupportedOperationException("Game has no board cards");
+    }
 }
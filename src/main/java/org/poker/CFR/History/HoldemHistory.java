@@ -0,0 +1,297 @@
+package org.poker.CFR.History;
+
+import java.util.ArrayList;
+import org.poker.Abstraction.HandAbstraction;
+import org.poker.Card;
+import org.poker.GameSim.HoldemRules;
+import org.poker.HandEval.BitmaskHandEval;
+import org.poker.HandEval.HoldemHandEval;
+
+/**
+ * Heads-up hold'em under a card and action abstraction, see {@link HoldemRules}.
+ *
+ * Cards are tracked both as lists and as 52-bit masks. Whenever a player's hole cards or a
+ * street's board cards are complete, the hand's bucket for that street is looked up once
+ * and stored, so infosets are keyed by the sequence of buckets and the public betting
+ * rather than by the cards themselves.
+ *
+ * Action ids: {@link #FOLD}, {@link #CHECK}, {@link #CALL}, {@link #ALL_IN}, and
+ * {@link #BET} + i for a bet or raise of the rules' i-th size.
+ */
+public class HoldemHistory extends AbstractHistory {
+    public static final int FOLD = 0;
+    public static final int CHECK = 1;
+    public static final int CALL = 2;
+    public static final int ALL_IN = 3;
+    public static final int BET = 4;
+
+    private static final HoldemHandEval HAND_EVAL = new HoldemHandEval();
+    private static final long BUCKET_MULTIPLIER = 0xD6E8FEB86659FD93L;
+
+    // Layout of the inherited state word
+    private static final int STREET = 3;
+    private static final int ACTED = 1 << 2;
+    private static final int AWAITING_BOARD = 1 << 3;
+    private static final int BET_SHIFT = 4;
+
+    private final HoldemRules rules;
+    private final HandAbstraction abstraction;
+
+    private final ArrayList<ArrayList<Card>> hands;
+    private final ArrayList<Card> board;
+    private final long[] holeMask;
+    private long boardMask;
+    // buckets[player][street], valid up to the current street
+    private final int[][] buckets;
+
+    public HoldemHistory(HoldemRules rules, HandAbstraction abstraction) {
+        super(2, 0);
+        this.rules = rules;
+        this.abstraction = abstraction;
+        contributions[0] = rules.getSmallBlind();
+        contributions[1] = rules.getBigBlind();
+        // The big blind is the first preflop bet
+        state = 1 << BET_SHIFT;
+
+        hands = new ArrayList<>();
+        hands.add(new ArrayList<>()); // Player 0
+        hands.add(new ArrayList<>()); // Player 1
+        board = new ArrayList<>();
+        holeMask = new long[2];
+        buckets = new int[2][4];
+    }
+
+    @Override
+    public void addCard(int player, Card card) {
+        hands.get(player).add(card);
+        holeMask[player] |= BitmaskHandEval.cardToBitmask(card);
+        if (hands.get(player).size() == 2) {
+            buckets[player][HandAbstraction.PREFLOP] = abstraction.bucket(HandAbstraction.PREFLOP, holeMask[player], 0);
+        }
+    }
+
+    @Override
+    protected void removeCard(int player) {
+        ArrayList<Card> hand = hands.get(player);
+        holeMask[player] &= ~BitmaskHandEval.cardToBitmask(hand.remove(hand.size() - 1));
+    }
+
+    @Override
+    protected void addBoardCard(Card card) {
+        board.add(card);
+        boardMask |= BitmaskHandEval.cardToBitmask(card);
+        if (board.size() < 3) return;
+
+        // The street's board is complete
+        int street = board.size() - 2;
+        for (int p = 0; p < 2; p++) {
+            buckets[p][street] = abstraction.bucket(street, holeMask[p], boardMask);
+        }
+        state = street;
+        if (isAllIn()) {
+            // Nobody can act any more: run out the remaining streets
+            if (street == HandAbstraction.RIVER) terminal = true;
+            else state |= AWAITING_BOARD;
+        }
+    }
+
+    @Override
+    protected void removeBoardCard() {
+        boardMask &= ~BitmaskHandEval.cardToBitmask(board.remove(board.size() - 1));
+    }
+
+    @Override
+    public ArrayList<Card> getHand(int player) {
+        return hands.get(player);
+    }
+
+    public ArrayList<Card> getBoard() {
+        return board;
+    }
+
+    public long getHoleMask(int player) {
+        return holeMask[player];
+    }
+
+    public long getBoardMask() {
+        return boardMask;
+    }
+
+    @Override
+    protected long cardCode(Card card) {
+        // Cards reach the infoset hash only through their buckets
+        return 0;
+    }
+
+    @Override
+    protected int applyAction(int player, int action) {
+        switch (action) {
+            case FOLD:
+                terminal = true;
+                return 0;
+            case CHECK:
+            case CALL:
+                // Closes the street unless it is the first action on it (a check, or a preflop limp)
+                if ((state & ACTED) != 0) endStreet();
+                else state |= ACTED;
+                return toCall(player);
+            default:
+                int chips = chipsFor(player, action);
+                state = (state | ACTED) + (1 << BET_SHIFT);
+                return chips;
+        }
+    }
+
+    private void endStreet() {
+        if (getStreet() == HandAbstraction.RIVER) terminal = true;
+        else state |= AWAITING_BOARD;
+    }
+
+    /**
+     * Chips the player puts in with the given action.
+     */
+    public int chipsFor(int player, int action) {
+        int toCall = toCall(player);
+        switch (action) {
+            case FOLD:
+            case CHECK:
+                return 0;
+            case CALL:
+                return toCall;
+            case ALL_IN:
+                return remaining(player);
+            default:
+                int bigBlind = rules.getBigBlind();
+                if (rules.isLimit()) {
+                    return toCall + (getStreet() < HandAbstraction.TURN ? bigBlind : 2 * bigBlind);
+                }
+                int pot = contributions[0] + contributions[1] + toCall;
+                return toCall + Math.max(bigBlind, (int) Math.round(rules.getBetSize(action - BET) * pot));
+        }
+    }
+
+    public int toCall(int player) {
+        return contributions[1 - player] - contributions[player];
+    }
+
+    public int remaining(int player) {
+        return rules.getStack() - contributions[player];
+    }
+
+    private boolean isAllIn() {
+        return remaining(0) == 0 || remaining(1) == 0;
+    }
+
+    public int getStreet() {
+        return state & STREET;
+    }
+
+    /**
+     * Bets and raises made on the current street, counting the big blind preflop.
+     */
+    public int getBets() {
+        return state >>> BET_SHIFT;
+    }
+
+    /**
+     * True while the next board cards are due, including the run-out after an all-in.
+     */
+    public boolean isAwaitingBoard() {
+        return (state & AWAITING_BOARD) != 0;
+    }
+
+    public HoldemRules getRules() {
+        return rules;
+    }
+
+    @Override
+    protected boolean isFold(int action) {
+        return action == FOLD;
+    }
+
+    @Override
+    public int encodeAction(String name) {
+        for (int i = 0; i < BET + rules.numBetSizes(); i++) {
+            if (actionName(i).equals(name)) return i;
+        }
+        throw new IllegalArgumentException("Invalid hold'em action: " + name);
+    }
+
+    @Override
+    public String actionName(int action) {
+        switch (action) {
+            case FOLD:
+                return "Fold";
+            case CHECK:
+                return "Check";
+            case CALL:
+                return "Call";
+            case ALL_IN:
+                return "AllIn";
+            default:
+                if (rules.isLimit()) return "Bet";
+                return "Bet" + Math.round(rules.getBetSize(action - BET) * 100);
+        }
+    }
+
+    @Override
+    public double terminalUtility(int player) {
+        return HAND_EVAL.utility(this, player);
+    }
+
+    @Override
+    public long infoSetHash(int player) {
+        long h = publicHash ^ player;
+        for (int street = 0; street <= getStreet(); street++) {
+            h = (h + buckets[player][street] + 1) * BUCKET_MULTIPLIER;
+        }
+        return mix(h);
+    }
+
+    @Override
+    public String infoSetKey(int player) {
+        StringBuilder sb = new StringBuilder();
+
+        // Player label and their bucket on every street so far
+        sb.append("P").append(player).append(":");
+        for (int street = 0; street <= getStreet(); street++) {
+            if (street > 0) sb.append("/");
+            sb.append(buckets[player][street]);
+        }
+
+        // Public actions, one segment per street
+        sb.append("|");
+        boolean first = true;
+        int boardCards = 0;
+        for (int i = 0; i < length; i++) {
+            if (isDeal(actions[i])) {
+                if (playerOf(actions[i]) == BOARD && ++boardCards >= 3) {
+                    sb.append("|");
+                    first = true;
+                }
+                continue;
+            }
+            if (!first) sb.append(",");
+            sb.append(actionName(actionOf(actions[i])));
+            first = false;
+        }
+
+        return sb.toString();
+    }
+
+    @Override
+    public AbstractHistory copy() {
+        HoldemHistory newHist = new HoldemHistory(rules, abstraction);
+        copyInto(newHist);
+
+        for (int i = 0; i < hands.size(); i++) {
+            newHist.hands.get(i).addAll(this.hands.get(i));
+            newHist.holeMask[i] = holeMask[i];
+            System.arraycopy(buckets[i], 0, newHist.buckets[i], 0, buckets[i].length);
+        }
+        newHist.board.addAll(board);
+        newHist.boardMask = boardMask;
+
+        return newHist;
+    }
+}
@@ -4,14 +4,36 @@ import java.util.ArrayList;
 import org.poker.Card;
 import org.poker.HandEval.KuhnPokerHandEval;
 
+/**
+ * Kuhn poker for two or more players, each anteing one chip and holding one card.
+ *
+ * Players check or bet one chip in turn. Once someone bets, every other player in turn
+ * calls or folds, and the hand ends when all of them have answered; if nobody bets it
+ * ends after everyone has checked. With two players these are the usual rules.
+ */
 public class KuhnPokerHistory extends AbstractHistory {
+    public static final int CHECK = 0;
+    public static final int BET = 1;
+    public static final int CALL = 2;
+    public static final int FOLD = 3;
+
+    private static final String[] ACTION_NAMES = { "Check", "Bet", "Call", "Fold" };
+    private static final KuhnPokerHandEval HAND_EVAL = new KuhnPokerHandEval();
+
+    // State bits: whether someone has bet, then checks before it or answers after it
+    private static final int BET_MADE = 1;
+    private static final int COUNT_SHIFT = 1;
+
     private final ArrayList<ArrayList<Card>> hands;
 
     public KuhnPokerHistory() {
-        super();
+        this(2);
+    }
+
+    public KuhnPokerHistory(int numPlayers) {
+        super(numPlayers, 1);
         hands = new ArrayList<>();
-        hands.add(new ArrayList<>()); // Player 0
-        hands.add(new ArrayList<>()); // Player 1
+        for (int p = 0; p < numPlayers; p++) hands.add(new ArrayList<>());
     }
 
     @Override
@@ -19,55 +41,68 @@ public class KuhnPokerHistory extends AbstractHistory {
         hands.get(player).add(card);
     }
 
+    @Override
+    protected void removeCard(int player) {
+        ArrayList<Card> hand = hands.get(player);
+        hand.remove(hand.size() - 1);
+    }
+
     @Override
     public ArrayList<Card> getHand(int player) {
         return hands.get(player);
     }
 
+    /**
+     * Whether someone has bet, so the player to act must call or fold.
+     */
+    public boolean facingBet() {
+        return (state & BET_MADE) != 0;
+    }
+
     @Override
-    public boolean isTerminal() {
-        // Check for fold or call
-        for (String action : actions) {
-            if (action.endsWith("Fold") || action.endsWith("Call")) {
-                return true;
-            }
-        }
-        
-        // Check if both players have checked consecutively (after dealing)
-        // This means we need at least 2 non-Deal actions, and they should both be Check
-        int playerActionCount = 0;
-        for (String action : actions) {
-            if (!action.startsWith("Deal")) {
-                playerActionCount++;
-            }
+    protected int applyAction(int player, int action) {
+        int count = (state >> COUNT_SHIFT) + 1;
+        switch (action) {
+            case CHECK:
+                // Everyone checking ends the hand in a showdown
+                if (count == numPlayers) terminal = true;
+                state = count << COUNT_SHIFT;
+                return 0;
+            case BET:
+                state = BET_MADE;
+                return 1;
+            case CALL:
+            case FOLD:
+                // The hand ends once everyone but the bettor has answered the bet
+                if (count == numPlayers - 1) terminal = true;
+                state = count << COUNT_SHIFT | BET_MADE;
+                return action == CALL ? 1 : 0;
+            default:
+                throw new IllegalArgumentException("Invalid Kuhn action: " + action);
         }
-        // If both players have acted (checked), game ends in showdown
-        if (playerActionCount >= 2) {
-            // Check if last two non-deal actions are both checks
-            int checkCount = 0;
-            for (int i = actions.size() - 1; i >= 0; i--) {
-                String action = actions.get(i);
-                if (!action.startsWith("Deal")) {
-                    if (action.endsWith("Check")) {
-                        checkCount++;
-                        if (checkCount == 2) {
-                            return true; // Both players checked, showdown
-                        }
-                    } else {
-                        break; // Found a non-check action, not terminal from checks
-                    }
-                }
-            }
+    }
+
+    @Override
+    protected boolean isFold(int action) {
+        return action == FOLD;
+    }
+
+    @Override
+    public int encodeAction(String name) {
+        for (int i = 0; i < ACTION_NAMES.length; i++) {
+            if (ACTION_NAMES[i].equals(name)) return i;
         }
-        
-        return false;
+        throw new IllegalArgumentException("Invalid Kuhn action: " + name);
+    }
+
+    @Override
+    public String actionName(int action) {
+        return ACTION_NAMES[action];
     }
 
     @Override
     public double terminalUtility(int player) {
-        KuhnPokerHandEval eval = new KuhnPokerHandEval();
-        ArrayList<Double> utils = eval.utilityFromHistory(this);
-        return utils.get(player);
+        return HAND_EVAL.utility(this, player);
     }
 
     @Override
@@ -82,14 +117,12 @@ public class KuhnPokerHistory extends AbstractHistory {
 
         // Add only public actions (no deals)
         sb.append("|");
-        for (String action : actions) {
-            if (action.startsWith("Deal")) continue; // hide private info
-            sb.append(action.replace("P0:", "").replace("P1:", "")).append(",");
-        }
-
-        // Remove trailing comma if any
-        if (sb.charAt(sb.length() - 1) == ',') {
-            sb.deleteCharAt(sb.length() - 1);
+        boolean first = true;
+        for (int i = 0; i < length; i++) {
+            if (isDeal(actions[i])) continue; // hide private info
+            if (!first) sb.append(",");
+            sb.append(actionName(actionOf(actions[i])));
+            first = false;
         }
 
         return sb.toString();
@@ -97,9 +130,8 @@ public class KuhnPokerHistory extends AbstractHistory {
 
     @Override
     public AbstractHistory copy() {
-        KuhnPokerHistory newHist = new KuhnPokerHistory();
-        newHist.actions = new ArrayList<>(this.actions);
-        newHist.currentPlayer = this.currentPlayer;
+        KuhnPokerHistory newHist = new KuhnPokerHistory(numPlayers);
+        copyInto(newHist);
 
         for (int i = 0; i < hands.size(); i++) {
             newHist.hands.get(i).addAll(this.hands.get(i));
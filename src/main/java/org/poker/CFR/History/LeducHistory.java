@@ -0,0 +1,196 @@
+package org.poker.CFR.History;
+
+import java.util.ArrayList;
+import org.poker.Card;
+import org.poker.HandEval.LeducHandEval;
+
+/**
+ * Leduc Hold'em: one private card each from a six-card deck (two suits of three ranks),
+ * a betting round, one public board card and a second betting round.
+ *
+ * Both players ante 1. Bets and raises are 2 chips in the first round and 4 in the second,
+ * with at most two per round (the opening bet counts). Suits never matter, so they are
+ * left out of the infoset keys and hashes.
+ */
+public class LeducHistory extends AbstractHistory {
+    public static final int CHECK = 0;
+    public static final int BET = 1;
+    public static final int CALL = 2;
+    public static final int RAISE = 3;
+    public static final int FOLD = 4;
+
+    public static final int MAX_RAISES = 2;
+
+    private static final String[] ACTION_NAMES = { "Check", "Bet", "Call", "Raise", "Fold" };
+    private static final int[] BET_SIZE = { 2, 4 };
+    private static final LeducHandEval HAND_EVAL = new LeducHandEval();
+
+    // Layout of the inherited state word
+    private static final int ROUND = 1;
+    private static final int CHECKED = 1 << 1;
+    private static final int AWAITING_BOARD = 1 << 2;
+    private static final int RAISE_SHIFT = 3;
+
+    private final ArrayList<ArrayList<Card>> hands;
+    private final ArrayList<Card> board;
+
+    public LeducHistory() {
+        super(2, 1);
+        hands = new ArrayList<>();
+        hands.add(new ArrayList<>()); // Player 0
+        hands.add(new ArrayList<>()); // Player 1
+        board = new ArrayList<>();
+    }
+
+    @Override
+    public void addCard(int player, Card card) {
+        hands.get(player).add(card);
+    }
+
+    @Override
+    protected void removeCard(int player) {
+        ArrayList<Card> hand = hands.get(player);
+        hand.remove(hand.size() - 1);
+    }
+
+    @Override
+    protected void addBoardCard(Card card) {
+        board.add(card);
+        // Second round starts with fresh betting counters
+        state = ROUND;
+    }
+
+    @Override
+    protected void removeBoardCard() {
+        board.remove(board.size() - 1);
+    }
+
+    @Override
+    public ArrayList<Card> getHand(int player) {
+        return hands.get(player);
+    }
+
+    public ArrayList<Card> getBoard() {
+        return board;
+    }
+
+    @Override
+    protected long cardCode(Card card) {
+        return card.getRank();
+    }
+
+    @Override
+    protected int applyAction(int player, int action) {
+        int toCall = contributions[1 - player] - contributions[player];
+        switch (action) {
+            case CHECK:
+                // Two checks close the round
+                if ((state & CHECKED) != 0) endRound();
+                else state |= CHECKED;
+                return 0;
+            case BET:
+            case RAISE:
+                state += 1 << RAISE_SHIFT;
+                return toCall + BET_SIZE[getRound()];
+            case CALL:
+                endRound();
+                return toCall;
+            case FOLD:
+                terminal = true;
+                return 0;
+            default:
+                throw new IllegalArgumentException("Invalid Leduc action: " + action);
+        }
+    }
+
+    private void endRound() {
+        if (getRound() == 0) state |= AWAITING_BOARD;
+        else terminal = true;
+    }
+
+    public int getRound() {
+        return state & ROUND;
+    }
+
+    public int getRaises() {
+        return state >>> RAISE_SHIFT;
+    }
+
+    /**
+     * True between the end of the first betting round and the board card.
+     */
+    public boolean isAwaitingBoard() {
+        return (state & AWAITING_BOARD) != 0;
+    }
+
+    /**
+     * True if the player to act has a bet or raise to answer.
+     */
+    public boolean facingBet() {
+        return lastAction == BET || lastAction == RAISE;
+    }
+
+    @Override
+    protected boolean isFold(int action) {
+        return action == FOLD;
+    }
+
+    @Override
+    public int encodeAction(String name) {
+        for (int i = 0; i < ACTION_NAMES.length; i++) {
+            if (ACTION_NAMES[i].equals(name)) return i;
+        }
+        throw new IllegalArgumentException("Invalid Leduc action: " + name);
+    }
+
+    @Override
+    public String actionName(int action) {
+        return ACTION_NAMES[action];
+    }
+
+    @Override
+    public double terminalUtility(int player) {
+        return HAND_EVAL.utility(this, player);
+    }
+
+    @Override
+    public String infoSetKey(int player) {
+        StringBuilder sb = new StringBuilder();
+
+        // Player label and their private card
+        sb.append("P").append(player).append(":");
+        if (!hands.get(player).isEmpty()) {
+            sb.append(hands.get(player).get(0).getRank());
+        }
+
+        // Public actions, with the board rank between the two rounds
+        sb.append("|");
+        boolean first = true;
+        for (int i = 0; i < length; i++) {
+            if (isDeal(actions[i])) {
+                if (playerOf(actions[i]) != BOARD) continue; // hide private info
+                sb.append("|").append(actionOf(actions[i])).append("|");
+                first = true;
+                continue;
+            }
+            if (!first) sb.append(",");
+            sb.append(actionName(actionOf(actions[i])));
+            first = false;
+        }
+
+        return sb.toString();
+    }
+
+    @Override
+    public AbstractHistory copy() {
+        LeducHistory newHist = new LeducHistory();
+        copyInto(newHist);
+
+        for (int i = 0; i < hands.size(); i++) {
+            newHist.hands.get(i).addAll(this.hands.get(i));
+        }
+        newHist.board.addAll(board);
+
+        return newHist;
+    }
+}
@@ -1,68 +1,55 @@
 package org.poker.CFR;
 
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Read-only view of a single infoset stored in an {@link InfoSetTable}, named by
+ * {@link InfoSetLabels}. Holds no data of its own, so it is only created for printing
+ * and export.
+ */
 public class InfoSet {
-    private final String key;
-    private final ArrayList<String> actions;
-    private final Map<String, Double> regretSum;
-    private final Map<String, Double> strategySum;
-
-    public InfoSet(String key, ArrayList<String> actions) {
-        this.key = key;
-        this.actions = new ArrayList<>(actions);
-        this.regretSum = new HashMap<>();
-        this.strategySum = new HashMap<>();
-        for (String a : actions) {
-            regretSum.put(a, 0.0);
-            strategySum.put(a, 0.0);
-        }
+    private final InfoSetTable table;
+    private final int id;
+    private final InfoSetLabels labels;
+
+    public InfoSet(InfoSetTable table, int id, InfoSetLabels labels) {
+        this.table = table;
+        this.id = id;
+        this.labels = labels;
     }
 
     public Map<String, Double> getStrategy() {
-        Map<String, Double> strategy = new HashMap<>();
-        double sumPositive = 0.0;
-
-        for (String a : actions) {
-            double r = regretSum.getOrDefault(a, 0.0);
-            if (r > 0) sumPositive += r;
-        }
-
-        for (String a : actions) {
-            double r = regretSum.getOrDefault(a, 0.0);
-            strategy.put(a, sumPositive > 0 ? Math.max(r, 0.0) / sumPositive : 1.0 / actions.size());
-        }
-        return strategy;
+        double[] strategy = new double[table.getNumActions(id)];
+        table.getStrategy(id, strategy);
+        return toMap(strategy);
     }
 
-    public void addToRegretSum(String action, double value) {
-        regretSum.put(action, regretSum.getOrDefault(action, 0.0) + value);
+    public Map<String, Double> getAverageStrategy() {
+        double[] avg = new double[table.getNumActions(id)];
+        table.getAverageStrategy(id, avg);
+        return toMap(avg);
     }
 
-    public void addToStrategySum(String action, double value) {
-        strategySum.put(action, strategySum.getOrDefault(action, 0.0) + value);
+    public double getTotalRegret() {
+        return table.getTotalRegret(id);
     }
 
-    public Map<String, Double> getAverageStrategy() {
-        Map<String, Double> avg = new HashMap<>();
-        double total = 0.0;
-        for (String a : actions) total += strategySum.getOrDefault(a, 0.0);
-        for (String a : actions)
-            avg.put(a, total > 0 ? strategySum.get(a) / total : 1.0 / actions.size());
-        return avg;
+    public List<String> getActions() {
+        return labels.getActions(id);
     }
 
-    public double getTotalRegret() {
-        double total = 0;
-        for (String a : actions) {
-            if (regretSum.get(a) > 0) {
-                total += regretSum.get(a);
-            }
+    public String getKey() { return labels.getKey(id); }
+
+    public int getId() { return id; }
+
+    private Map<String, Double> toMap(double[] values) {
+        List<String> actions = labels.getActions(id);
+        Map<String, Double> result = new HashMap<>();
+        for (int a = 0; a < actions.size(); a++) {
+            result.put(actions.get(a), values[a]);
         }
-        return total;
+        return result;
     }
-
-    public String getKey() { return key; }
 }
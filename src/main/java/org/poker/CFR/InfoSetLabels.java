@@ -0,0 +1,85 @@
+package org.poker.CFR;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.GameSim.GameSim;
+
+/**
+ * The readable string key and action names of the infosets of an {@link InfoSetTable},
+ * which the table itself does not keep.
+ *
+ * They are recovered by replaying the game from a root and naming every table infoset a
+ * decision node maps to, so this is only meant for printing and export on games small
+ * enough to enumerate, such as Kuhn and Leduc. Infosets the replay does not reach have
+ * no label.
+ */
+public final class InfoSetLabels {
+    private final String[] keys;
+    private final List<String>[] actions;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private InfoSetLabels(int size) {
+        keys = new String[size];
+        actions = new List[size];
+    }
+
+    /**
+     * Walks the whole tree below root and labels every infoset of the table it reaches.
+     * The root history is left unchanged.
+     */
+    public static InfoSetLabels replay(GameSim game, AbstractHistory root, InfoSetTable table) {
+        InfoSetLabels labels = new InfoSetLabels(table.size());
+        labels.walk(game, root.copy(), table);
+        return labels;
+    }
+
+    private void walk(GameSim game, AbstractHistory history, InfoSetTable table) {
+        if (game.isTerminal(history)) return;
+
+        if (game.isChanceNode(history)) {
+            int mark = history.length();
+            for (int i = 0; i < game.numChanceOutcomes(history); i++) {
+                game.applyChanceOutcome(history, i);
+                walk(game, history, table);
+                history.undoTo(mark);
+            }
+            return;
+        }
+
+        int player = game.currentPlayer(history);
+        // Replays are rare, so a buffer per node is cheap enough
+        int[] codes = new int[game.maxActions()];
+        int n = game.legalActions(history, codes);
+        int id = table.find(history.infoSetHash(player));
+        if (id >= 0 && id < keys.length && keys[id] == null) {
+            keys[id] = history.infoSetKey(player);
+            List<String> names = new ArrayList<>(n);
+            for (int a = 0; a < n; a++) names.add(history.actionName(codes[a]));
+            actions[id] = names;
+        }
+        for (int a = 0; a < n; a++) {
+            history.addAction(player, codes[a]);
+            walk(game, history, table);
+            history.undoAction();
+        }
+    }
+
+    /**
+     * The string key of the infoset, or null if the replay did not reach it.
+     */
+    public String getKey(int id) {
+        return keys[id];
+    }
+
+    /**
+     * The names of the infoset's actions in table order, or null if the replay did not reach it.
+     */
+    public List<String> getActions(int id) {
+        return actions[id];
+    }
+
+    public int size() {
+        return keys.length;
+    }
+}
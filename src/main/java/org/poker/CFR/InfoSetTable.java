@@ -0,0 +1,369 @@
+package org.poker.CFR;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import org.poker.CFR.History.AbstractHistory;
+
+/**
+ * Primitive-backed storage for every information set seen during training.
+ *
+ * Each infoset gets an integer id when it is first created. Its regret and
+ * strategy sums live in two contiguous double slabs, starting at
+ * offset(id) and running for numActions(id) entries, so the value for
+ * action a of infoset id is at offset(id) + a.
+ *
+ * Infosets are looked up by the 64-bit key from {@link AbstractHistory#infoSetHash(int)}
+ * through an open-addressing long-to-id table with linear probing, and the table keeps
+ * nothing else per infoset: readable keys and action names are produced on demand by
+ * {@link InfoSetLabels}. Only with collision checking enabled does it build and keep the
+ * string key of every infoset, and compare it on every hit.
+ *
+ * Lookups are safe to call from several threads: hits go through an optimistic
+ * read of a {@link StampedLock} and creating an infoset takes the write lock.
+ * The add methods are not synchronized; parallel trainers accumulate into
+ * per-thread deltas and merge them with {@link #addDeltas} between passes.
+ */
+public class InfoSetTable {
+    private static final int INITIAL_INFOSETS = 64;
+    private static final int EMPTY = 0;
+
+    private final boolean checkCollisions;
+    private final StampedLock lock;
+
+    // Open-addressing index: hashes[i] -> slotIds[i] - 1, EMPTY marks a free slot
+    private long[] hashes;
+    private int[] slotIds;
+    private int mask;
+
+    private long[] infoSetHashes;
+    private int[] offsets;
+    private int[] numActions;
+    private int size;
+    // String key of every infoset, only kept to check collisions; null otherwise
+    private String[] keys;
+
+    private double[] regretSum;
+    private double[] strategySum;
+    private int dataSize;
+
+    public InfoSetTable() {
+        this(false);
+    }
+
+    public InfoSetTable(boolean checkCollisions) {
+        this.checkCollisions = checkCollisions;
+        this.lock = new StampedLock();
+        hashes = new long[INITIAL_INFOSETS * 2];
+        slotIds = new int[INITIAL_INFOSETS * 2];
+        mask = slotIds.length - 1;
+        infoSetHashes = new long[INITIAL_INFOSETS];
+        offsets = new int[INITIAL_INFOSETS];
+        numActions = new int[INITIAL_INFOSETS];
+        if (checkCollisions) keys = new String[INITIAL_INFOSETS];
+        regretSum = new double[INITIAL_INFOSETS * 2];
+        strategySum = new double[INITIAL_INFOSETS * 2];
+    }
+
+    /**
+     * Returns the id of the infoset the player is in at this history, creating it with n
+     * actions on a miss. The action codes themselves are not stored.
+     */
+    public int getOrCreate(AbstractHistory history, int player, int[] actionCodes, int n) {
+        return getOrCreate(history, player, actionCodes, n, null);
+    }
+
+    /**
+     * Same as {@link #getOrCreate(AbstractHistory, int, int[], int)}, recording the lookup as a
+     * hit or a creation in stats unless it is null. Which one it was is decided under the
+     * lock, so the counts hold when several threads miss on the same infoset at once.
+     */
+    public int getOrCreate(AbstractHistory history, int player, int[] actionCodes, int n, SolverStats stats) {
+        long hash = history.infoSetHash(player);
+
+        // Fast path: optimistic lock-free probe, valid if no infoset was created meanwhile
+        long stamp = lock.tryOptimisticRead();
+        int id = find(hash);
+        if (id >= 0 && lock.validate(stamp)) {
+            if (checkCollisions) checkCollision(id, history.infoSetKey(player));
+            if (stats != null) stats.infoSetLookup(false);
+            return id;
+        }
+
+        return insert(hash, checkCollisions ? history.infoSetKey(player) : null, n, stats);
+    }
+
+    /**
+     * Returns the id of the infoset with the given hash, creating it with n actions
+     * on a miss, for infosets first seen somewhere other than a local history.
+     */
+    public int getOrCreate(long hash, int n) {
+        long stamp = lock.tryOptimisticRead();
+        int id = find(hash);
+        if (id >= 0 && lock.validate(stamp)) return id;
+        return insert(hash, null, n, null);
+    }
+
+    /**
+     * Returns the id of the infoset with the given hash, creating it with n actions on a
+     * miss. Used directly when restoring a table from a checkpoint.
+     */
+    int insert(long hash, int n) {
+        return insert(hash, null, n, null);
+    }
+
+    /**
+     * Same as {@link #insert(long, int)} with the infoset's string key, or null if it is not
+     * known, recording in stats, unless it is null, whether this call found the infoset or
+     * created it.
+     */
+    private int insert(long hash, String key, int n, SolverStats stats) {
+        long stamp = lock.writeLock();
+        try {
+            int index = indexOf(hash);
+            if (slotIds[index] != EMPTY) {
+                int id = slotIds[index] - 1;
+                if (checkCollisions) checkCollision(id, key);
+                if (stats != null) stats.infoSetLookup(false);
+                return id;
+            }
+
+            int newId = size;
+            ensureInfoSetCapacity(newId + 1);
+            ensureDataCapacity(dataSize + n);
+
+            infoSetHashes[newId] = hash;
+            if (checkCollisions) keys[newId] = key;
+            offsets[newId] = dataSize;
+            numActions[newId] = n;
+            dataSize += n;
+            size++;
+
+            hashes[index] = hash;
+            slotIds[index] = newId + 1;
+            if (size * 2 > slotIds.length) rehash();
+            if (stats != null) stats.infoSetLookup(true);
+            return newId;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the id of the infoset with the given 64-bit key, or -1 if it has not been created.
+     * Works on a snapshot of the index arrays so it can run concurrently with a rehash;
+     * callers that need a consistent answer validate it against the lock.
+     */
+    public int find(long hash) {
+        long[] h = hashes;
+        int[] ids = slotIds;
+        if (h.length != ids.length) return -1;
+
+        int m = ids.length - 1;
+        int index = (int) hash & m;
+        while (ids[index] != EMPTY) {
+            if (h[index] == hash) return ids[index] - 1;
+            index = (index + 1) & m;
+        }
+        return -1;
+    }
+
+    private int indexOf(long hash) {
+        int index = (int) hash & mask;
+        while (slotIds[index] != EMPTY && hashes[index] != hash) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Infosets created from a hash alone, e.g. restored from a checkpoint, take the key
+     * of the first history that reaches them.
+     */
+    private void checkCollision(int id, String key) {
+        if (key == null) return;
+        if (keys[id] == null) {
+            keys[id] = key;
+        } else if (!keys[id].equals(key)) {
+            throw new IllegalStateException("Infoset hash collision between " + keys[id] + " and " + key);
+        }
+    }
+
+    private void rehash() {
+        long[] newHashes = new long[slotIds.length * 2];
+        int[] newSlotIds = new int[newHashes.length];
+        int newMask = newSlotIds.length - 1;
+        for (int id = 0; id < size; id++) {
+            int index = (int) infoSetHashes[id] & newMask;
+            while (newSlotIds[index] != EMPTY) index = (index + 1) & newMask;
+            newHashes[index] = infoSetHashes[id];
+            newSlotIds[index] = id + 1;
+        }
+        hashes = newHashes;
+        slotIds = newSlotIds;
+        mask = newMask;
+    }
+
+    /**
+     * Writes the current regret-matching strategy of an infoset into out[0..numActions).
+     */
+    public void getStrategy(int id, double[] out) {
+        int base = offsets[id];
+        int n = numActions[id];
+        double sumPositive = 0.0;
+
+        for (int a = 0; a < n; a++) {
+            double r = regretSum[base + a];
+            if (r > 0) sumPositive += r;
+        }
+
+        for (int a = 0; a < n; a++) {
+            double r = regretSum[base + a];
+            out[a] = sumPositive > 0 ? Math.max(r, 0.0) / sumPositive : 1.0 / n;
+        }
+    }
+
+    /**
+     * Writes the normalized average strategy of an infoset into out[0..numActions).
+     */
+    public void getAverageStrategy(int id, double[] out) {
+        int base = offsets[id];
+        int n = numActions[id];
+        double total = 0.0;
+
+        for (int a = 0; a < n; a++) total += strategySum[base + a];
+        for (int a = 0; a < n; a++) {
+            out[a] = total > 0 ? strategySum[base + a] / total : 1.0 / n;
+        }
+    }
+
+    public double getRegret(int id, int action) {
+        return regretSum[offsets[id] + action];
+    }
+
+    public double getStrategySum(int id, int action) {
+        return strategySum[offsets[id] + action];
+    }
+
+    public void addToRegretSum(int id, int action, double value) {
+        regretSum[offsets[id] + action] += value;
+    }
+
+    public void addToStrategySum(int id, int action, double value) {
+        strategySum[offsets[id] + action] += value;
+    }
+
+    /**
+     * Multiplies every positive cumulative regret by positiveFactor and every negative
+     * one by negativeFactor. Used for CFR+ flooring and DCFR discounting.
+     */
+    public void scaleRegrets(double positiveFactor, double negativeFactor) {
+        for (int i = 0; i < dataSize; i++) {
+            regretSum[i] *= regretSum[i] > 0 ? positiveFactor : negativeFactor;
+        }
+    }
+
+    public void scaleStrategySums(double factor) {
+        for (int i = 0; i < dataSize; i++) {
+            strategySum[i] *= factor;
+        }
+    }
+
+    /**
+     * Scales one infoset's regrets like {@link #scaleRegrets} and its strategy sums like
+     * {@link #scaleStrategySums}.
+     */
+    void scale(int id, double positiveFactor, double negativeFactor, double strategyFactor) {
+        int base = offsets[id];
+        for (int i = base; i < base + numActions[id]; i++) {
+            regretSum[i] *= regretSum[i] > 0 ? positiveFactor : negativeFactor;
+            strategySum[i] *= strategyFactor;
+        }
+    }
+
+    /**
+     * Adds per-thread regret and strategy deltas, laid out like the table's own slabs,
+     * into the table. Only called between parallel passes, never concurrently.
+     */
+    public void addDeltas(double[] regretDelta, double[] strategyDelta, int length) {
+        for (int i = 0; i < length; i++) {
+            regretSum[i] += regretDelta[i];
+            strategySum[i] += strategyDelta[i];
+        }
+    }
+
+    /**
+     * Copies the first dataSize() regret and strategy sums into the given arrays.
+     */
+    void copySums(double[] regretOut, double[] strategyOut) {
+        System.arraycopy(regretSum, 0, regretOut, 0, dataSize);
+        System.arraycopy(strategySum, 0, strategyOut, 0, dataSize);
+    }
+
+    /**
+     * Overwrites the first length regret and strategy sums.
+     */
+    void setSums(double[] regrets, double[] strategies, int length) {
+        System.arraycopy(regrets, 0, regretSum, 0, length);
+        System.arraycopy(strategies, 0, strategySum, 0, length);
+    }
+
+    /**
+     * Sum of positive regrets of a single infoset.
+     */
+    public double getTotalRegret(int id) {
+        int base = offsets[id];
+        double total = 0;
+        for (int a = 0; a < numActions[id]; a++) {
+            if (regretSum[base + a] > 0) total += regretSum[base + a];
+        }
+        return total;
+    }
+
+    /**
+     * Sum of positive regrets over every infoset.
+     */
+    public double getTotalRegret() {
+        double total = 0;
+        for (int id = 0; id < size; id++) total += getTotalRegret(id);
+        return total;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of slab entries in use, i.e. the total action count over every infoset.
+     */
+    public int dataSize() {
+        return dataSize;
+    }
+
+    public int getOffset(int id) {
+        return offsets[id];
+    }
+
+    public int getNumActions(int id) {
+        return numActions[id];
+    }
+
+    public long getHash(int id) {
+        return infoSetHashes[id];
+    }
+
+    private void ensureInfoSetCapacity(int capacity) {
+        if (capacity <= infoSetHashes.length) return;
+        int newCapacity = Math.max(capacity, infoSetHashes.length * 2);
+        infoSetHashes = Arrays.copyOf(infoSetHashes, newCapacity);
+        if (checkCollisions) keys = Arrays.copyOf(keys, newCapacity);
+        offsets = Arrays.copyOf(offsets, newCapacity);
+        numActions = Arrays.copyOf(numActions, newCapacity);
+    }
+
+    private void ensureDataCapacity(int capacity) {
+        if (capacity <= regretSum.length) return;
+        int newCapacity = Math.max(capacity, regretSum.length * 2);
+        regretSum = Arrays.copyOf(regretSum, newCapacity);
+        strategySum = Arrays.copyOf(strategySum, newCapacity);
+    }
+}
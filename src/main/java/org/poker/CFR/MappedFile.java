@@ -0,0 +1,130 @@
+package org.poker.CFR;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * A file mapped as consecutive chunks of 2^chunkBits bytes, addressed by long offsets, so
+ * files are not limited to the 2 GB one {@link MappedByteBuffer} can hold.
+ *
+ * Every chunk maps a few bytes past its end, so a primitive starting anywhere in a chunk
+ * is read or written through that chunk alone. The mappings stay valid after the channel
+ * is closed. Little endian throughout.
+ */
+final class MappedFile {
+    static final int DEFAULT_CHUNK_BITS = 30;
+    // Longest primitive, so one that starts in a chunk always ends in its mapping
+    private static final int OVERLAP = Long.BYTES;
+
+    private final MappedByteBuffer[] chunks;
+    private final int shift;
+    private final long mask;
+    private final long size;
+
+    private MappedFile(MappedByteBuffer[] chunks, int chunkBits, long size) {
+        this.chunks = chunks;
+        this.shift = chunkBits;
+        this.mask = (1L << chunkBits) - 1;
+        this.size = size;
+    }
+
+    /**
+     * Maps the first size bytes of the channel's file, growing it to size in read-write mode.
+     */
+    static MappedFile map(FileChannel channel, FileChannel.MapMode mode, long size, int chunkBits)
+            throws IOException {
+        if (chunkBits < 4 || chunkBits > 30) throw new IllegalArgumentException("Chunks of 2^" + chunkBits + " bytes");
+        long chunkSize = 1L << chunkBits;
+        MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + chunkSize - 1) >>> chunkBits)];
+        for (int c = 0; c < chunks.length; c++) {
+            long start = (long) c << chunkBits;
+            chunks[c] = channel.map(mode, start, Math.min(size - start, chunkSize + OVERLAP));
+            chunks[c].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new MappedFile(chunks, chunkBits, size);
+    }
+
+    long size() {
+        return size;
+    }
+
+    int getInt(long offset) {
+        return chunks[(int) (offset >>> shift)].getInt((int) (offset & mask));
+    }
+
+    long getLong(long offset) {
+        return chunks[(int) (offset >>> shift)].getLong((int) (offset & mask));
+    }
+
+    float getFloat(long offset) {
+        return chunks[(int) (offset >>> shift)].getFloat((int) (offset & mask));
+    }
+
+    void putInt(long offset, int value) {
+        chunks[(int) (offset >>> shift)].putInt((int) (offset & mask), value);
+    }
+
+    void putLong(long offset, long value) {
+        chunks[(int) (offset >>> shift)].putLong((int) (offset & mask), value);
+    }
+
+    void putFloat(long offset, float value) {
+        chunks[(int) (offset >>> shift)].putFloat((int) (offset & mask), value);
+    }
+
+    /**
+     * Writes values[0..length) as consecutive doubles from offset, in bulk per chunk.
+     */
+    void putDoubles(long offset, double[] values, int length) {
+        int i = 0;
+        while (i < length) {
+            MappedByteBuffer chunk = chunks[(int) (offset >>> shift)];
+            int position = (int) (offset & mask);
+            int n = Math.min(length - i, (chunk.limit() - position) / Double.BYTES);
+            chunk.slice(position, n * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().put(values, i, n);
+            i += n;
+            offset += (long) n * Double.BYTES;
+        }
+    }
+
+    /**
+     * Reads length consecutive doubles from offset into values[0..length), in bulk per chunk.
+     */
+    void getDoubles(long offset, double[] values, int length) {
+        int i = 0;
+        while (i < length) {
+            MappedByteBuffer chunk = chunks[(int) (offset >>> shift)];
+            int position = (int) (offset & mask);
+            int n = Math.min(length - i, (chunk.limit() - position) / Double.BYTES);
+            chunk.slice(position, n * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values, i, n);
+            i += n;
+            offset += (long) n * Double.BYTES;
+        }
+    }
+
+    /**
+     * CRC-32 of the bytes [start, start + length).
+     */
+    long crc(long start, long length) {
+        CRC32 crc = new CRC32();
+        long end = start + length;
+        while (start < end) {
+            int c = (int) (start >>> shift);
+            long chunkEnd = Math.min(end, (long) (c + 1) << shift);
+            int position = (int) (start & mask);
+            crc.update(chunks[c].slice(position, (int) (chunkEnd - start)));
+            start = chunkEnd;
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Forces every chunk's changes to the storage device.
+     */
+    void force() {
+        for (MappedByteBuffer chunk : chunks) chunk.force();
+    }
+}
@@ -0,0 +1,128 @@
+package org.poker.CFR;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.GameSim.GameSim;
+
+/**
+ * Outcome-sampling MCCFR (Lanctot et al. 2009, Algorithm 3 of Lanctot's thesis).
+ *
+ * Each traversal samples a single terminal history. The traversing player samples
+ * from an epsilon-exploratory mix of their strategy and uniform, everyone else from
+ * their strategy. Regrets are importance weighted by the sampling probability of the
+ * whole trajectory, and the average strategy uses stochastically weighted averaging
+ * at opponent nodes.
+ */
+public class OutcomeSamplingCFR extends Solver {
+    public static final double DEFAULT_EXPLORATION = 0.6;
+
+    private final SplittableRandom random;
+    private final double exploration;
+
+    // Probability of the sampled tail below the node returned by the last traverse call
+    private double tailProbability;
+    // Each player's own reach along the sampled trajectory, for the average strategy
+    private final double[] reach;
+
+    public OutcomeSamplingCFR(GameSim game, InfoSetTable infoSets, long seed) {
+        this(game, infoSets, seed, DEFAULT_EXPLORATION);
+    }
+
+    public OutcomeSamplingCFR(GameSim game, InfoSetTable infoSets, long seed, double exploration) {
+        super(game, infoSets);
+        this.random = new SplittableRandom(seed);
+        this.exploration = exploration;
+        this.reach = new double[numPlayers];
+    }
+
+    @Override
+    protected void iterate(AbstractHistory initialHistory) {
+        for (int p = 0; p < numPlayers; p++) {
+            Arrays.fill(reach, 1.0);
+            traverse(workingCopy(initialHistory), p, 1.0, 1.0, 0);
+            endPass();
+        }
+    }
+
+    @Override
+    protected boolean defersScaling() {
+        return true;
+    }
+
+    /**
+     * @param opponentReach reach probability of everyone but the traversing player
+     * @param sampleProb    probability of sampling the trajectory so far
+     * @return sampled utility of the traversing player divided by the full sample probability;
+     *         the tail probability is left in {@link #tailProbability}
+     */
+    private double traverse(AbstractHistory history, int targetPlayer,
+                            double opponentReach, double sampleProb, int depth) {
+        if (stats != null) stats.nodeVisited();
+        if (game.isTerminal(history)) {
+            if (stats != null) stats.terminalEvaluated();
+            tailProbability = 1.0;
+            return game.terminalUtility(history, targetPlayer) / sampleProb;
+        }
+
+        if (game.isChanceNode(history)) {
+            // Chance is sampled from its own distribution, so it cancels out of the weights
+            int mark = history.length();
+            game.applyChanceOutcome(history, game.sampleChanceOutcome(history, random));
+            double value = traverse(history, targetPlayer, opponentReach, sampleProb, depth);
+            history.undoTo(mark);
+            return value;
+        }
+
+        int currentPlayer = game.currentPlayer(history);
+        ensureBuffers(depth, maxActions);
+        int[] actions = actionBuffers[depth];
+        int numActions = game.legalActions(history, actions);
+        if (numActions == 0) {
+            tailProbability = 1.0;
+            return 0.0;
+        }
+        double[] strategy = strategyBuffers[depth];
+        double[] samplingProbs = valueBuffers[depth];
+
+        int infoSet = getInfoSet(history, currentPlayer, actions, numActions);
+        infoSets.getStrategy(infoSet, strategy);
+
+        boolean traverser = currentPlayer == targetPlayer;
+        for (int a = 0; a < numActions; a++) {
+            samplingProbs[a] = traverser
+                    ? exploration / numActions + (1.0 - exploration) * strategy[a]
+                    : strategy[a];
+        }
+
+        int sampled = sample(samplingProbs, numActions, random);
+        double sampledProb = samplingProbs[sampled];
+        double sampledStrategy = strategy[sampled];
+
+        history.addAction(currentPlayer, actions[sampled]);
+        double playerReach = reach[currentPlayer];
+        reach[currentPlayer] = playerReach * sampledStrategy;
+        double nextOpponentReach = traverser ? opponentReach : opponentReach * sampledStrategy;
+        double utility = traverse(history, targetPlayer, nextOpponentReach, sampleProb * sampledProb, depth + 1);
+        reach[currentPlayer] = playerReach;
+        history.undoAction();
+
+        double tail = tailProbability;
+        if (traverser) {
+            double w = utility * opponentReach;
+            for (int a = 0; a < numActions; a++) {
+                double regret = a == sampled
+                        ? w * tail * (1.0 - sampledStrategy)
+                        : -w * tail * sampledStrategy;
+                infoSets.addToRegretSum(infoSet, a, regret);
+            }
+        } else {
+            for (int a = 0; a < numActions; a++) {
+                infoSets.addToStrategySum(infoSet, a, strategyWeight * playerReach * strategy[a] / sampleProb);
+            }
+        }
+
+        tailProbability = tail * sampledStrategy;
+        return utility;
+    }
+}
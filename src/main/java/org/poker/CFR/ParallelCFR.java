@@ -0,0 +1,260 @@
+package org.poker.CFR;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.GameSim.GameSim;
+
+/**
+ * Vanilla CFR with each traverser's pass split across a ForkJoinPool by root chance outcome.
+ *
+ * Workers share the infoset table for lookups but never write to it during a pass.
+ * Each worker accumulates regret and strategy updates into its own delta slabs, and
+ * the deltas are merged into the table in worker order once every outcome of the
+ * pass has been traversed. All workers therefore see the same regrets within a pass.
+ *
+ * In deterministic mode every infoset below the root is created up front by a sequential
+ * walk, so table ids do not depend on thread scheduling, and a pass runs in rounds of one
+ * outcome per worker whose deltas are summed in outcome order, so the floating point sums
+ * are the same for any thread count. Otherwise workers pull outcomes from a shared
+ * counter, which balances load better.
+ */
+public class ParallelCFR extends CFR {
+    private final int threads;
+    private final boolean deterministic;
+    private final ForkJoinPool pool;
+    private final Worker[] workers;
+    // Deterministic mode: root whose infosets are created, and the pass's summed deltas
+    private AbstractHistory registeredRoot;
+    private double[] passRegret = new double[0];
+    private double[] passStrategy = new double[0];
+
+    public ParallelCFR(GameSim game, int threads, boolean deterministic) {
+        super(game);
+        this.threads = threads;
+        this.deterministic = deterministic;
+        this.pool = new ForkJoinPool(threads);
+        this.workers = new Worker[threads];
+        for (int w = 0; w < threads; w++) {
+            workers[w] = new Worker(game, infoSets);
+        }
+    }
+
+    @Override
+    protected void iterate(AbstractHistory initialHistory) {
+        if (!game.isChanceNode(initialHistory)) {
+            // Nothing to split on, fall back to the sequential traversal
+            super.iterate(initialHistory);
+            return;
+        }
+
+        if (deterministic && registeredRoot != initialHistory) {
+            createInfoSets(initialHistory.copy());
+            registeredRoot = initialHistory;
+        }
+
+        int outcomes = game.numChanceOutcomes(initialHistory);
+        boolean pruneByRegret = pruning.prunesByRegret(iteration);
+        for (Worker worker : workers) {
+            worker.strategyWeight = strategyWeight;
+            worker.pruneByRegret = pruneByRegret;
+        }
+        for (int p = 0; p < numPlayers; p++) {
+            if (deterministic) {
+                runRounds(initialHistory, outcomes, p);
+            } else {
+                runPass(initialHistory, outcomes, p);
+                for (Worker worker : workers) worker.merge();
+            }
+            endPass();
+        }
+    }
+
+    /**
+     * Creates the infoset of every decision node below the history, in depth-first order.
+     */
+    private void createInfoSets(AbstractHistory history) {
+        if (game.isTerminal(history)) return;
+
+        if (game.isChanceNode(history)) {
+            int mark = history.length();
+            for (int i = 0; i < game.numChanceOutcomes(history); i++) {
+                game.applyChanceOutcome(history, i);
+                createInfoSets(history);
+                history.undoTo(mark);
+            }
+            return;
+        }
+
+        int player = game.currentPlayer(history);
+        // Only walked once per root, so a buffer per node is cheap enough
+        int[] codes = new int[game.maxActions()];
+        int n = game.legalActions(history, codes);
+        if (n == 0) return;
+        infoSets.getOrCreate(history, player, codes, n);
+        for (int a = 0; a < n; a++) {
+            history.addAction(player, codes[a]);
+            createInfoSets(history);
+            history.undoAction();
+        }
+    }
+
+    /**
+     * One deterministic pass: round r has worker w traverse outcome r * threads + w, then
+     * the workers' deltas are added to the pass sums in worker, and so outcome, order.
+     */
+    private void runRounds(AbstractHistory initialHistory, int outcomes, int targetPlayer) {
+        for (int round = 0; round < outcomes; round += threads) {
+            int count = Math.min(threads, outcomes - round);
+            List<Callable<Void>> tasks = new ArrayList<>(count);
+            for (int w = 0; w < count; w++) {
+                Worker worker = workers[w];
+                int outcome = round + w;
+                tasks.add(() -> {
+                    worker.traverseOutcome(worker.workingCopy(initialHistory), outcome, targetPlayer);
+                    return null;
+                });
+            }
+            invoke(tasks);
+
+            int length = infoSets.dataSize();
+            if (passRegret.length < length) {
+                passRegret = Arrays.copyOf(passRegret, length);
+                passStrategy = Arrays.copyOf(passStrategy, length);
+            }
+            for (int w = 0; w < count; w++) workers[w].mergeInto(passRegret, passStrategy, length);
+        }
+
+        int length = infoSets.dataSize();
+        infoSets.addDeltas(passRegret, passStrategy, length);
+        Arrays.fill(passRegret, 0, length, 0.0);
+        Arrays.fill(passStrategy, 0, length, 0.0);
+    }
+
+    private void runPass(AbstractHistory initialHistory, int outcomes, int targetPlayer) {
+        AtomicInteger nextOutcome = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>(threads);
+
+        for (int w = 0; w < threads; w++) {
+            Worker worker = workers[w];
+            tasks.add(() -> {
+                AbstractHistory history = worker.workingCopy(initialHistory);
+                int i;
+                while ((i = nextOutcome.getAndIncrement()) < outcomes) {
+                    worker.traverseOutcome(history, i, targetPlayer);
+                }
+                return null;
+            });
+        }
+        invoke(tasks);
+    }
+
+    private void invoke(List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Parallel CFR pass interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Parallel CFR pass failed", e.getCause());
+        }
+    }
+
+    /**
+     * Shares the counters with every worker; LongAdder keeps concurrent increments cheap.
+     */
+    @Override
+    public void setStats(SolverStats stats) {
+        super.setStats(stats);
+        for (Worker worker : workers) worker.setStats(stats);
+    }
+
+    @Override
+    public void setPruning(Pruning pruning) {
+        super.setPruning(pruning);
+        for (Worker worker : workers) worker.setPruning(pruning);
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Per-thread traversal state: scratch buffers inherited from CFR plus delta slabs
+     * laid out exactly like the shared table's regret and strategy slabs.
+     */
+    private static class Worker extends CFR {
+        private final double[] reach;
+        private double[] regretDelta;
+        private double[] strategyDelta;
+
+        Worker(GameSim game, InfoSetTable infoSets) {
+            super(game, infoSets);
+            this.reach = new double[numPlayers];
+            this.regretDelta = new double[0];
+            this.strategyDelta = new double[0];
+        }
+
+        void traverseOutcome(AbstractHistory history, int outcome, int targetPlayer) {
+            int mark = history.length();
+            Arrays.fill(reach, 1.0);
+            counterfactualReach = game.chanceMultiplicity(history, outcome);
+            game.applyChanceOutcome(history, outcome);
+            traverse(history, reach, targetPlayer, 0);
+            history.undoTo(mark);
+        }
+
+        @Override
+        protected void addToRegretSum(int infoSet, int action, double value) {
+            int index = infoSets.getOffset(infoSet) + action;
+            ensureCapacity(index + 1);
+            regretDelta[index] += value;
+        }
+
+        @Override
+        protected void addToStrategySum(int infoSet, int action, double value) {
+            int index = infoSets.getOffset(infoSet) + action;
+            ensureCapacity(index + 1);
+            strategyDelta[index] += value;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= regretDelta.length) return;
+            int newCapacity = Math.max(capacity, Math.max(infoSets.dataSize(), regretDelta.length * 2));
+            regretDelta = Arrays.copyOf(regretDelta, newCapacity);
+            strategyDelta = Arrays.copyOf(strategyDelta, newCapacity);
+        }
+
+        void merge() {
+            int length = Math.min(regretDelta.length, infoSets.dataSize());
+            infoSets.addDeltas(regretDelta, strategyDelta, length);
+            Arrays.fill(regretDelta, 0, length, 0.0);
+            Arrays.fill(strategyDelta, 0, length, 0.0);
+        }
+
+        /**
+         * Adds the deltas into the given sums instead of the table, and clears them.
+         */
+        void mergeInto(double[] regrets, double[] strategies, int length) {
+            length = Math.min(regretDelta.length, length);
+            for (int i = 0; i < length; i++) {
+                regrets[i] += regretDelta[i];
+                strategies[i] += strategyDelta[i];
+            }
+            Arrays.fill(regretDelta, 0, length, 0.0);
+            Arrays.fill(strategyDelta, 0, length, 0.0);
+        }
+    }
+}
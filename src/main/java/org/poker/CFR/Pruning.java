@@ -0,0 +1,92 @@
+package org.poker.CFR;
+
+/**
+ * Which subtrees the full-traversal engines ({@link CFR} and its subclasses, {@link CompiledCFR})
+ * may skip. Off by default.
+ *
+ * Zero-reach pruning skips an action when the players other than the traverser reach it
+ * with probability zero: every regret update below it is multiplied by that reach. So that
+ * the average strategies are unaffected as well, an engine that prunes accumulates each
+ * player's strategy sums on one other player's pass only, and skips a subtree only when
+ * that player's own reach, which weights them, is zero there too. With two players the
+ * second condition follows from the first; with more, fewer subtrees are skipped.
+ *
+ * Regret-based pruning also skips the traverser's actions that have probability zero and a
+ * cumulative regret below a threshold, leaving their regret as it is. Every
+ * fullTraversalInterval-th iteration traverses them anyway and adds their regret that many
+ * times over, standing in for the iterations that skipped them, so an action whose regret
+ * would recover gets it back. This part is approximate: convergence per iteration is
+ * somewhat slower, per node visited faster. The threshold is in the game's utility units;
+ * under CFR+ and DCFR regrets never get far below zero, so it rarely applies.
+ */
+public class Pruning {
+    public static final Pruning NONE = new Pruning("none", false, Double.NEGATIVE_INFINITY, 0);
+    public static final Pruning ZERO_REACH = new Pruning("zero-reach", true, Double.NEGATIVE_INFINITY, 0);
+
+    private final String name;
+    private final boolean zeroReach;
+    private final double regretThreshold;
+    private final int fullTraversalInterval;
+
+    private Pruning(String name, boolean zeroReach, double regretThreshold, int fullTraversalInterval) {
+        this.name = name;
+        this.zeroReach = zeroReach;
+        this.regretThreshold = regretThreshold;
+        this.fullTraversalInterval = fullTraversalInterval;
+    }
+
+    /**
+     * Zero-reach pruning plus regret-based pruning below the given (negative) threshold, with
+     * nothing pruned by regret on every fullTraversalInterval-th iteration.
+     */
+    public static Pruning regretBased(double regretThreshold, int fullTraversalInterval) {
+        if (regretThreshold >= 0 || fullTraversalInterval < 1) {
+            throw new IllegalArgumentException("Need a negative threshold and a positive interval");
+        }
+        return new Pruning("regret:" + regretThreshold + "," + fullTraversalInterval,
+                true, regretThreshold, fullTraversalInterval);
+    }
+
+    /**
+     * Parses "none", "zero-reach" or "regret:threshold,fullTraversalInterval".
+     */
+    public static Pruning parse(String spec) {
+        String lower = spec.trim().toLowerCase();
+        if (lower.equals("none")) return NONE;
+        if (lower.equals("zero-reach")) return ZERO_REACH;
+        if (lower.startsWith("regret:")) {
+            String[] parts = lower.substring(7).split(",");
+            if (parts.length != 2) throw new IllegalArgumentException("Expected regret:threshold,interval but got " + spec);
+            return regretBased(Double.parseDouble(parts[0]), Integer.parseInt(parts[1]));
+        }
+        throw new IllegalArgumentException("Unknown pruning: " + spec);
+    }
+
+    public boolean isEnabled() {
+        return zeroReach;
+    }
+
+    public boolean usesRegret() {
+        return fullTraversalInterval > 0;
+    }
+
+    /**
+     * Whether iteration t (1-based) may skip actions by their regret.
+     */
+    public boolean prunesByRegret(int t) {
+        return usesRegret() && t % fullTraversalInterval != 0;
+    }
+
+    public double getRegretThreshold() {
+        return regretThreshold;
+    }
+
+    public int getFullTraversalInterval() {
+        return fullTraversalInterval;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,442 @@
+package org.poker.CFR;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.ToDoubleFunction;
+import org.poker.Card;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.GameSim.RangeGameSim;
+import org.poker.HandEval.HandEval;
+
+/**
+ * The public tree of a {@link RangeGameSim}: betting actions and public cards only,
+ * with private hands factored out into per-hand vectors.
+ *
+ * Nodes are stored in flat arrays with contiguous child blocks, like {@link GameTree}.
+ * Every decision node holds the infoset table id of the acting player for each private
+ * hand (-1 when the hand conflicts with the board), every public chance child holds the
+ * card it dealt, and every showdown holds the hands sorted by strength against its board
+ * so payoffs can be computed with linear sweeps.
+ *
+ * A tree can also be rooted partway through a hand and cut off at a depth limit, for
+ * re-solving a subgame: nodes at the limit become leaves that hold the value of every pair
+ * of hands from a given evaluator. Such a build can be given a time limit, and is abandoned
+ * once it runs out.
+ */
+class PublicTree {
+    static final byte FOLD = 0;
+    static final byte SHOWDOWN = 1;
+    static final byte CHANCE = 2;
+    static final byte DECISION = 3;
+    static final byte LEAF = 4;
+
+    private static final int INITIAL_NODES = 64;
+    private static final int INITIAL_PATH = 16;
+
+    /**
+     * Unwinds an abandoned build. Thrown routinely, so it is shared and has no stack trace.
+     */
+    private static final class OutOfTime extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        OutOfTime() {
+            super("Out of time", null, false, false);
+        }
+    }
+
+    private static final OutOfTime OUT_OF_TIME = new OutOfTime();
+
+    final int numHands;
+    final int numCards;
+    // Card indices of each private hand
+    final int[][] handCards;
+
+    int size;
+    int maxDepth;
+    int maxActions;
+
+    byte[] type;
+    int[] player;
+    int[] depth;
+    int[] firstChild;
+    int[] numChildren;
+
+    // DECISION: handInfoSets[node][hand] -> table id or -1
+    int[][] handInfoSets;
+    // Child of a CHANCE node: index of the card it dealt, otherwise -1
+    int[] dealtCard;
+    // CHANCE: probability of each public card given both private hands
+    double[] chanceWeight;
+    // FOLD / SHOWDOWN: contributions of players 0 and 1, and the folding player
+    int[] contribution0;
+    int[] contribution1;
+    int[] foldingPlayer;
+    // SHOWDOWN: hands sorted by ascending strength, and each hand's strength rank
+    int[][] showdownOrder;
+    int[][] showdownRank;
+    // LEAF: value for player 0 of each pair of hands [hand0 * numHands + hand1], 0 where they conflict
+    double[][] leafValues;
+
+    private final RangeGameSim game;
+    private final InfoSetTable infoSets;
+    private final AbstractHistory root;
+    private final Card[][] hands;
+    private final int depthLimit;
+    private final ToDoubleFunction<AbstractHistory> leafEvaluator;
+    private final Map<Long, double[]> leafCache;
+    private final BooleanSupplier outOfTime;
+
+    // Public events from the root to the node being built, see publicCard and applyEvent
+    private int[] path;
+    private int pathLength;
+
+    private PublicTree(RangeGameSim game, InfoSetTable infoSets, AbstractHistory root, int[] prefix,
+                       int depthLimit, ToDoubleFunction<AbstractHistory> leafEvaluator,
+                       Map<Long, double[]> leafCache, BooleanSupplier outOfTime) {
+        this.game = game;
+        this.infoSets = infoSets;
+        this.root = root;
+        this.hands = game.privateHands();
+        this.numHands = hands.length;
+        this.numCards = game.numCards();
+        this.path = Arrays.copyOf(prefix, prefix.length + INITIAL_PATH);
+        this.pathLength = prefix.length;
+        this.depthLimit = depthLimit;
+        this.leafEvaluator = leafEvaluator;
+        this.leafCache = leafCache;
+        this.outOfTime = outOfTime;
+
+        handCards = new int[numHands][];
+        for (int h = 0; h < numHands; h++) {
+            handCards[h] = new int[hands[h].length];
+            for (int c = 0; c < hands[h].length; c++) {
+                handCards[h][c] = game.cardIndex(hands[h][c]);
+            }
+        }
+
+        type = new byte[INITIAL_NODES];
+        player = new int[INITIAL_NODES];
+        depth = new int[INITIAL_NODES];
+        firstChild = new int[INITIAL_NODES];
+        numChildren = new int[INITIAL_NODES];
+        handInfoSets = new int[INITIAL_NODES][];
+        dealtCard = new int[INITIAL_NODES];
+        chanceWeight = new double[INITIAL_NODES];
+        contribution0 = new int[INITIAL_NODES];
+        contribution1 = new int[INITIAL_NODES];
+        foldingPlayer = new int[INITIAL_NODES];
+        showdownOrder = new int[INITIAL_NODES][];
+        showdownRank = new int[INITIAL_NODES][];
+        leafValues = new double[INITIAL_NODES][];
+    }
+
+    /**
+     * Builds the public tree below a root whose first chance node deals the private hands.
+     * Infosets are created in the given table as they are discovered.
+     */
+    static PublicTree build(RangeGameSim game, InfoSetTable infoSets, AbstractHistory root) {
+        return build(game, infoSets, root, new int[0], Integer.MAX_VALUE, null, null, () -> false);
+    }
+
+    /**
+     * The path event for the i-th card of {@link RangeGameSim#publicChanceCards}. Player
+     * actions are path events as they are, in the encoding of {@link AbstractHistory}.
+     */
+    static int publicCard(int i) {
+        return -1 - i;
+    }
+
+    /**
+     * Applies a path event to the history.
+     */
+    static void applyEvent(RangeGameSim game, AbstractHistory history, int event) {
+        if (event < 0) {
+            game.dealPublicCard(history, game.publicChanceCards(history).get(-1 - event));
+        } else {
+            history.addAction(AbstractHistory.playerOf(event), AbstractHistory.actionOf(event));
+        }
+    }
+
+    /**
+     * Builds the public tree below the node reached from root by the given path events (see
+     * {@link #publicCard}). Nodes depthLimit events below that node are leaves valued by the
+     * evaluator, which gets a history holding both hands and returns player 0's value. Leaf
+     * values are looked up in, and added to, the cache keyed by a 64-bit hash of the leaf's
+     * path, so trees built with the same evaluator can share them.
+     *
+     * outOfTime is polled at every node and after every leaf value; once it returns true, or
+     * the evaluator returns NaN, the build stops and returns null. Leaves that were complete
+     * by then stay in the cache, and infosets already created stay in the table.
+     */
+    static PublicTree build(RangeGameSim game, InfoSetTable infoSets, AbstractHistory root, int[] prefix,
+                            int depthLimit, ToDoubleFunction<AbstractHistory> leafEvaluator,
+                            Map<Long, double[]> leafCache, BooleanSupplier outOfTime) {
+        if (game.numPlayers() != 2) {
+            throw new IllegalArgumentException("Range-vectorized CFR supports two players only");
+        }
+        PublicTree tree = new PublicTree(game, infoSets, root, prefix, depthLimit, leafEvaluator, leafCache, outOfTime);
+
+        // Any two compatible hands will do to walk the public actions
+        AbstractHistory history = null;
+        for (int h = 0; h < tree.numHands && history == null; h++) history = tree.replay(0, h);
+        if (history == null) throw new IllegalArgumentException("No hand is compatible with the board");
+        tree.allocate(1);
+        Arrays.fill(tree.dealtCard, -1);
+        try {
+            tree.expand(history, 0, 0);
+        } catch (OutOfTime e) {
+            return null;
+        }
+        return tree;
+    }
+
+    private void expand(AbstractHistory history, int node, int nodeDepth) {
+        if (outOfTime.getAsBoolean()) throw OUT_OF_TIME;
+        depth[node] = nodeDepth;
+        maxDepth = Math.max(maxDepth, nodeDepth);
+
+        if (game.isTerminal(history)) {
+            int folder = history.getFoldedPlayer();
+            type[node] = folder >= 0 ? FOLD : SHOWDOWN;
+            foldingPlayer[node] = folder;
+            contribution0[node] = history.getContribution(0);
+            contribution1[node] = history.getContribution(1);
+            if (folder < 0) rankHands(history, node);
+            return;
+        }
+
+        if (nodeDepth == depthLimit) {
+            type[node] = LEAF;
+            evaluateLeaf(node);
+            return;
+        }
+
+        if (game.isChanceNode(history)) {
+            type[node] = CHANCE;
+            ArrayList<Card> cards = game.publicChanceCards(history);
+            int first = allocate(cards.size());
+            firstChild[node] = first;
+            numChildren[node] = cards.size();
+
+            // Cards already held: one hand per player plus the board so far
+            int held = hands[0].length * 2 + game.getBoard(history).size();
+            chanceWeight[node] = 1.0 / (cards.size() - held);
+
+            int mark = history.length();
+            for (int i = 0; i < cards.size(); i++) {
+                dealtCard[first + i] = game.cardIndex(cards.get(i));
+                game.dealPublicCard(history, cards.get(i));
+                pushEvent(publicCard(i));
+                expand(history, first + i, nodeDepth + 1);
+                pathLength--;
+                history.undoTo(mark);
+            }
+            return;
+        }
+
+        int currentPlayer = game.currentPlayer(history);
+        int[] actions = new int[game.maxActions()];
+        int numActions = game.legalActions(history, actions);
+        type[node] = DECISION;
+        player[node] = currentPlayer;
+        maxActions = Math.max(maxActions, numActions);
+
+        handInfoSets[node] = new int[numHands];
+        for (int h = 0; h < numHands; h++) {
+            handInfoSets[node][h] = infoSetFor(currentPlayer, h, actions, numActions);
+        }
+
+        int first = allocate(numActions);
+        firstChild[node] = first;
+        numChildren[node] = numActions;
+        for (int a = 0; a < numActions; a++) {
+            history.addAction(currentPlayer, actions[a]);
+            pushEvent(history.actionAt(history.length() - 1));
+            expand(history, first + a, nodeDepth + 1);
+            pathLength--;
+            history.undoAction();
+        }
+    }
+
+    private void pushEvent(int event) {
+        if (pathLength == path.length) path = Arrays.copyOf(path, path.length * 2);
+        path[pathLength++] = event;
+    }
+
+    /**
+     * Table id of the infoset of a player holding the given hand at the current public node.
+     */
+    private int infoSetFor(int currentPlayer, int hand, int[] actions, int numActions) {
+        AbstractHistory history = replay(currentPlayer, hand);
+        return history == null ? -1 : infoSets.getOrCreate(history, currentPlayer, actions, numActions);
+    }
+
+    /**
+     * Rebuilds the current public path on a fresh history where the player holds the given
+     * hand and the opponent some compatible hand. Returns null if the hand meets the board.
+     */
+    private AbstractHistory replay(int currentPlayer, int hand) {
+        int[] blocked = pathCards(hand);
+        if (conflicts(hand, blocked)) return null;
+
+        int opponentHand = compatibleHand(hand, -1);
+        while (opponentHand >= 0 && conflicts(opponentHand, blocked)) {
+            opponentHand = compatibleHand(hand, opponentHand);
+        }
+        if (opponentHand < 0) return null;
+
+        Card[][] dealt = new Card[2][];
+        dealt[currentPlayer] = hands[hand];
+        dealt[1 - currentPlayer] = hands[opponentHand];
+        return replayDeal(dealt);
+    }
+
+    /**
+     * Card indices of the public cards on the current path, found on a probe history where
+     * player 0 holds the given hand.
+     */
+    private int[] pathCards(int hand) {
+        AbstractHistory probe = root.copy();
+        Card[][] probeHands = new Card[2][];
+        probeHands[0] = hands[hand];
+        probeHands[1] = hands[compatibleHand(hand, -1)];
+        game.dealHands(probe, probeHands);
+
+        ArrayList<Card> publicCards = new ArrayList<>();
+        for (int i = 0; i < pathLength; i++) {
+            if (path[i] < 0) publicCards.add(game.publicChanceCards(probe).get(-1 - path[i]));
+            applyEvent(game, probe, path[i]);
+        }
+        int[] cards = new int[publicCards.size()];
+        for (int i = 0; i < cards.length; i++) cards[i] = game.cardIndex(publicCards.get(i));
+        return cards;
+    }
+
+    /**
+     * Rebuilds the current public path on a fresh history with the given hands dealt.
+     */
+    private AbstractHistory replayDeal(Card[][] dealt) {
+        AbstractHistory history = root.copy();
+        game.dealHands(history, dealt);
+        for (int i = 0; i < pathLength; i++) applyEvent(game, history, path[i]);
+        return history;
+    }
+
+    /**
+     * Fills the leaf's values for every pair of hands that conflict neither with each other
+     * nor with the board.
+     */
+    private void evaluateLeaf(int node) {
+        long key = pathKey();
+        double[] values = leafCache.get(key);
+        if (values != null) {
+            leafValues[node] = values;
+            return;
+        }
+
+        values = new double[numHands * numHands];
+        int[] board = pathCards(0);
+        for (int h0 = 0; h0 < numHands; h0++) {
+            if (conflicts(h0, board)) continue;
+            for (int h1 = 0; h1 < numHands; h1++) {
+                if (conflicts(h1, board) || conflicts(h1, handCards[h0])) continue;
+                AbstractHistory history = replayDeal(new Card[][] { hands[h0], hands[h1] });
+                double value = leafEvaluator.applyAsDouble(history);
+                if (Double.isNaN(value) || outOfTime.getAsBoolean()) throw OUT_OF_TIME;
+                values[h0 * numHands + h1] = value;
+            }
+        }
+        leafValues[node] = values;
+        leafCache.put(key, values);
+    }
+
+    /**
+     * 64-bit key of the current path. Distinct paths collide with negligible probability, as
+     * infoset keys do.
+     */
+    private long pathKey() {
+        long h = pathLength;
+        for (int i = 0; i < pathLength; i++) h = (h + path[i] + 1) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * Returns the first hand after the given one that shares no card with hand, or -1.
+     */
+    private int compatibleHand(int hand, int after) {
+        for (int other = after + 1; other < numHands; other++) {
+            if (!conflicts(other, handCards[hand])) return other;
+        }
+        return -1;
+    }
+
+    boolean holds(int hand, int card) {
+        for (int c : handCards[hand]) {
+            if (c == card) return true;
+        }
+        return false;
+    }
+
+    private boolean conflicts(int hand, int[] cards) {
+        for (int c : handCards[hand]) {
+            for (int other : cards) {
+                if (c == other) return true;
+            }
+        }
+        return false;
+    }
+
+    private void rankHands(AbstractHistory history, int node) {
+        HandEval eval = game.getHandEval();
+        ArrayList<Card> board = game.getBoard(history);
+
+        ArrayList<ArrayList<Card>> showdownHands = new ArrayList<>();
+        for (Card[] hand : hands) {
+            ArrayList<Card> cards = new ArrayList<>(Arrays.asList(hand));
+            cards.addAll(board);
+            showdownHands.add(cards);
+        }
+
+        Integer[] order = new Integer[numHands];
+        for (int h = 0; h < numHands; h++) order[h] = h;
+        Comparator<Integer> byStrength = (a, b) -> eval.compareHands(showdownHands.get(a), showdownHands.get(b));
+        Arrays.sort(order, byStrength);
+
+        showdownOrder[node] = new int[numHands];
+        showdownRank[node] = new int[numHands];
+        int rank = 0;
+        for (int i = 0; i < numHands; i++) {
+            if (i > 0 && byStrength.compare(order[i - 1], order[i]) != 0) rank++;
+            showdownOrder[node][i] = order[i];
+            showdownRank[node][order[i]] = rank;
+        }
+    }
+
+    private int allocate(int count) {
+        int first = size;
+        size += count;
+        if (size > type.length) {
+            int oldCapacity = type.length;
+            int newCapacity = Math.max(size, oldCapacity * 2);
+            type = Arrays.copyOf(type, newCapacity);
+            player = Arrays.copyOf(player, newCapacity);
+            depth = Arrays.copyOf(depth, newCapacity);
+            firstChild = Arrays.copyOf(firstChild, newCapacity);
+            numChildren = Arrays.copyOf(numChildren, newCapacity);
+            handInfoSets = Arrays.copyOf(handInfoSets, newCapacity);
+            dealtCard = Arrays.copyOf(dealtCard, newCapacity);
+            Arrays.fill(dealtCard, oldCapacity, newCapacity, -1);
+            chanceWeight = Arrays.copyOf(chanceWeight, newCapacity);
+            contribution0 = Arrays.copyOf(contribution0, newCapacity);
+            contribution1 = Arrays.copyOf(contribution1, newCapacity);
+            foldingPlayer = Arrays.copyOf(foldingPlayer, newCapacity);
+            showdownOrder = Arrays.copyOf(showdownOrder, newCapacity);
+            showdownRank = Arrays.copyOf(showdownRank, newCapacity);
+            leafValues = Arrays.copyOf(leafValues, newCapacity);
+        }
+        return first;
+    }
+}
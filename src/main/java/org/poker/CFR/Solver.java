@@ -0,0 +1,383 @@
+package org.poker.CFR;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.GameSim.GameSim;
+import org.poker.logging.WandBLogger;
+
+/**
+ * Base class of every CFR engine. Engines differ only in how one iteration walks the
+ * tree; they all read and write the same {@link InfoSetTable}, so a table trained by
+ * one engine can be continued or evaluated by another.
+ */
+public abstract class Solver {
+    protected final GameSim game;
+    protected final int numPlayers;
+    protected final InfoSetTable infoSets;
+
+    // Scratch buffers indexed by decision depth so traversal does not allocate per node
+    protected double[][] strategyBuffers;
+    protected double[][] valueBuffers;
+    protected int[][] actionBuffers;
+    protected final int maxActions;
+
+    protected UpdateRule updateRule;
+    // The update rule's scaling, deferred per infoset for engines that ask for it; null otherwise
+    private DeferredScaling deferredScaling;
+    // Number of iterations run so far, across calls to train
+    protected int iteration;
+    // Weight of the current iteration's contribution to the strategy sums
+    protected double strategyWeight;
+
+    // Optional exact convergence metric logged alongside the regrets
+    protected ExploitabilityEvaluator evaluator;
+    // Optional hot-path counters, null when disabled
+    protected SolverStats stats;
+    // Subtrees the traversal may skip, for the engines that support it
+    protected Pruning pruning;
+    // Whether the current iteration skips actions by regret, see Pruning
+    protected boolean pruneByRegret;
+
+    // Optional periodic checkpoints, written on a background thread
+    private Path checkpointPath;
+    private int checkpointEvery;
+    private ExecutorService checkpointWriter;
+    private Future<?> pendingCheckpoint;
+
+    private double iterationsPerSecond;
+
+    // Traversal copy of the last root trained from, reused across passes
+    private AbstractHistory workingRoot;
+    private AbstractHistory workingHistory;
+
+    protected Solver(GameSim game, InfoSetTable infoSets) {
+        this.game = game;
+        this.numPlayers = game.numPlayers();
+        this.infoSets = infoSets;
+        this.strategyBuffers = new double[0][];
+        this.valueBuffers = new double[0][];
+        this.actionBuffers = new int[0][];
+        this.maxActions = game.maxActions();
+        this.updateRule = UpdateRule.VANILLA;
+        this.pruning = Pruning.NONE;
+        this.strategyWeight = 1.0;
+    }
+
+    /**
+     * Runs a single iteration of the engine starting from the given root history.
+     */
+    protected abstract void iterate(AbstractHistory initialHistory);
+
+    public void train(int iterations, AbstractHistory initialHistory, WandBLogger logger, int logFrequency) {
+        HashMap<String,Double> metrics = logger != null ? new HashMap<String,Double>() : null;
+
+        double totalRegret;
+        long start = System.nanoTime();
+        long lastLogTime = start;
+        int lastLogIteration = 0;
+        if (deferredScaling == null && defersScaling()) deferredScaling = new DeferredScaling(infoSets);
+
+        for (int i = 0; i < iterations; i++) {
+            iteration++;
+            strategyWeight = updateRule.strategyWeight(iteration);
+            if (stats != null) {
+                long iterationStart = System.nanoTime();
+                iterate(initialHistory);
+                stats.iterationCompleted(System.nanoTime() - iterationStart);
+            } else {
+                iterate(initialHistory);
+            }
+            if (deferredScaling != null) {
+                updateRule.afterIteration(deferredScaling, iteration);
+            } else {
+                updateRule.afterIteration(infoSets, iteration);
+            }
+            if (checkpointPath != null && iteration % checkpointEvery == 0) {
+                catchUpScaling();
+                checkpoint();
+            }
+            // Steps count iterations over the solver's lifetime, so runs trained in several calls log one series
+            if (logger != null && (iteration - 1) % logFrequency == 0) {
+                long now = System.nanoTime();
+                double rate = (i + 1 - lastLogIteration) / ((now - lastLogTime) / 1e9);
+                lastLogTime = now;
+                lastLogIteration = i + 1;
+                catchUpScaling();
+
+                // Log the regrets
+                totalRegret = infoSets.getTotalRegret();
+                metrics.put("Cumulative Regret", totalRegret);
+                metrics.put("Iterations Per Second", rate);
+                if (evaluator != null) {
+                    metrics.put("Exploitability (mbb per hand)", evaluator.exploitabilityMbb(infoSets));
+                }
+                if (stats != null) stats.addTo(metrics);
+
+                logger.log(metrics, iteration - 1);
+            }
+        }
+
+        catchUpScaling();
+        iterationsPerSecond = iterations / ((System.nanoTime() - start) / 1e9);
+        awaitCheckpoint();
+    }
+
+    /**
+     * Writes a checkpoint of the table to path every given number of iterations. Training
+     * only pauses to copy the table; the file is written in the background, and a checkpoint
+     * that falls due while the previous one is still being written is skipped.
+     */
+    public void setCheckpointing(Path path, int everyIterations) {
+        this.checkpointPath = path;
+        this.checkpointEvery = everyIterations;
+        if (checkpointWriter == null) {
+            checkpointWriter = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "checkpoint-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void checkpoint() {
+        if (pendingCheckpoint != null && !pendingCheckpoint.isDone()) return;
+        awaitCheckpoint();
+
+        Checkpoint snapshot = Checkpoint.capture(this);
+        Path path = checkpointPath;
+        pendingCheckpoint = checkpointWriter.submit(() -> {
+            snapshot.write(path);
+            return null;
+        });
+    }
+
+    /**
+     * Waits for the checkpoint being written, if any, and rethrows its failure.
+     */
+    public void awaitCheckpoint() {
+        if (pendingCheckpoint == null) return;
+        try {
+            pendingCheckpoint.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw new UncheckedIOException("Checkpoint failed", io);
+            throw new RuntimeException("Checkpoint failed", cause);
+        } finally {
+            pendingCheckpoint = null;
+        }
+    }
+
+    /**
+     * Called by engines once a traverser's pass has updated the regrets.
+     */
+    protected void endPass() {
+        if (deferredScaling != null) {
+            updateRule.afterPass(deferredScaling);
+        } else {
+            updateRule.afterPass(infoSets);
+        }
+    }
+
+    /**
+     * Whether the update rule's scaling is deferred per infoset (see {@link DeferredScaling})
+     * instead of swept over the whole table after every pass and iteration. The sampling
+     * engines, which reach a small part of the table per pass, do; the full traversals,
+     * which reach all of it, do not.
+     */
+    protected boolean defersScaling() {
+        return false;
+    }
+
+    private void catchUpScaling() {
+        if (deferredScaling != null) deferredScaling.catchUpAll();
+    }
+
+    public void setUpdateRule(UpdateRule updateRule) {
+        this.updateRule = updateRule;
+    }
+
+    public UpdateRule getUpdateRule() {
+        return updateRule;
+    }
+
+    /**
+     * Logs exploitability of the average strategy at every log step of train.
+     */
+    public void setExploitabilityEvaluator(ExploitabilityEvaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Attaches hot-path counters to this solver, or detaches them with null.
+     */
+    public void setStats(SolverStats stats) {
+        this.stats = stats;
+    }
+
+    public SolverStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Lets the traversal skip subtrees; only the full-traversal engines support it.
+     */
+    public void setPruning(Pruning pruning) {
+        if (pruning.isEnabled() && !supportsPruning()) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support pruning");
+        }
+        this.pruning = pruning;
+    }
+
+    public Pruning getPruning() {
+        return pruning;
+    }
+
+    protected boolean supportsPruning() {
+        return false;
+    }
+
+    /**
+     * The player whose strategy sums an engine that prunes accumulates on the given
+     * traverser's pass: every player's on exactly one pass per iteration, the opponent's
+     * when there are two players.
+     */
+    protected int strategySumPlayer(int targetPlayer) {
+        return targetPlayer + 1 == numPlayers ? 0 : targetPlayer + 1;
+    }
+
+    /**
+     * Whether a full traversal skips the subtree below the action, as {@link Pruning}
+     * describes: everyone but the traverser reaches it with probability zero, and so does
+     * the player whose strategy sums this pass accumulates, or the traverser's action is
+     * pruned by regret this iteration.
+     *
+     * @param playerReach the acting player's reach of the node itself
+     * @param childCounterfactualReach reach of everyone but the traverser below the action
+     */
+    protected boolean skipsAction(int infoSet, int action, double[] strategy, int currentPlayer, int targetPlayer,
+                                  double[] reach, double playerReach, double childCounterfactualReach) {
+        if (!pruning.isEnabled()) return false;
+        if (childCounterfactualReach == 0.0) {
+            int summedPlayer = strategySumPlayer(targetPlayer);
+            double summedReach = currentPlayer == summedPlayer ? playerReach * strategy[action] : reach[summedPlayer];
+            if (summedReach == 0.0) return true;
+        }
+        return currentPlayer == targetPlayer && pruneByRegret && belowRegretThreshold(infoSet, action, strategy);
+    }
+
+    /**
+     * Factor of the traverser's regret update for the action: 0 while it is pruned by
+     * regret, fullTraversalInterval on the full traversals that catch it up, 1 otherwise.
+     */
+    protected double regretWeight(int infoSet, int action, double[] strategy) {
+        if (!pruning.usesRegret() || !belowRegretThreshold(infoSet, action, strategy)) return 1.0;
+        return pruneByRegret ? 0.0 : pruning.getFullTraversalInterval();
+    }
+
+    /**
+     * Whether regret-based pruning applies to the traverser's action. Its infoset does not
+     * recur below itself, so the answer holds until the node updates its regrets.
+     */
+    protected boolean belowRegretThreshold(int infoSet, int action, double[] strategy) {
+        return strategy[action] == 0.0 && infoSets.getRegret(infoSet, action) < pruning.getRegretThreshold();
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    /**
+     * Sets the iteration count, e.g. to the one stored in a checkpoint being resumed, so
+     * iteration-dependent update rules continue where they left off.
+     */
+    public void setIteration(int iteration) {
+        this.iteration = iteration;
+    }
+
+    /**
+     * Iterations per second over the most recent call to train.
+     */
+    public double getIterationsPerSecond() {
+        return iterationsPerSecond;
+    }
+
+    protected int getInfoSet(AbstractHistory history, int player, int[] actions, int numActions) {
+        int id = infoSets.getOrCreate(history, player, actions, numActions, stats);
+        if (deferredScaling != null) deferredScaling.catchUp(id);
+        return id;
+    }
+
+    /**
+     * A copy of the root to traverse in place. Traversals undo every event they apply, so
+     * the copy made for a root is rewound and reused by later passes from the same root.
+     */
+    protected AbstractHistory workingCopy(AbstractHistory initialHistory) {
+        if (workingRoot != initialHistory || workingHistory.length() < initialHistory.length()) {
+            workingRoot = initialHistory;
+            workingHistory = initialHistory.copy();
+        } else {
+            workingHistory.undoTo(initialHistory.length());
+        }
+        return workingHistory;
+    }
+
+    protected void ensureBuffers(int depth, int numActions) {
+        if (depth >= strategyBuffers.length) {
+            int newLength = Math.max(depth + 1, strategyBuffers.length * 2);
+            strategyBuffers = Arrays.copyOf(strategyBuffers, newLength);
+            valueBuffers = Arrays.copyOf(valueBuffers, newLength);
+            actionBuffers = Arrays.copyOf(actionBuffers, newLength);
+        }
+        if (strategyBuffers[depth] == null || strategyBuffers[depth].length < numActions) {
+            // Sized for the widest decision up front, so a depth never needs a second buffer
+            int length = Math.max(numActions, maxActions);
+            strategyBuffers[depth] = new double[length];
+            valueBuffers[depth] = new double[length];
+            actionBuffers[depth] = new int[length];
+        }
+    }
+
+    /**
+     * Samples an index from the first n entries of a probability vector.
+     */
+    protected static int sample(double[] probabilities, int n, SplittableRandom random) {
+        double r = random.nextDouble();
+        double cumulative = 0.0;
+        for (int a = 0; a < n - 1; a++) {
+            cumulative += probabilities[a];
+            if (r < cumulative) return a;
+        }
+        return n - 1;
+    }
+
+    /**
+     * Materializes a view of every infoset reachable from root, keyed by its string key,
+     * which is recovered by replaying the game (see {@link InfoSetLabels}).
+     * Intended for printing and export only.
+     */
+    public Map<String, InfoSet> getInfoSets(AbstractHistory root) {
+        InfoSetLabels labels = InfoSetLabels.replay(game, root, infoSets);
+        Map<String, InfoSet> views = new LinkedHashMap<>();
+        for (int id = 0; id < infoSets.size(); id++) {
+            if (labels.getKey(id) != null) views.put(labels.getKey(id), new InfoSet(infoSets, id, labels));
+        }
+        return views;
+    }
+
+    public InfoSetTable getInfoSetTable() {
+        return infoSets;
+    }
+}
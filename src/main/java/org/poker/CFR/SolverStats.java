@@ -0,0 +1,175 @@
+package org.poker.CFR;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Hot-path counters for a {@link Solver}: nodes visited, terminal evaluations, infoset
+ * lookups split into hits and creations, subtrees skipped by {@link Pruning}, and a
+ * histogram of iteration wall time.
+ *
+ * Counters are {@link LongAdder}s, which stripe increments across cells under contention,
+ * so parallel workers can share one instance. Engines only touch the counters when a
+ * stats object is attached, so a solver without one pays a single null check per node.
+ *
+ * Values can be read directly, published as an MXBean with {@link #register}, or added to
+ * the metrics a solver logs through {@link #addTo}.
+ */
+public class SolverStats implements SolverStatsMXBean {
+    // Iteration times bucketed by floor(log2(nanos))
+    private static final int BUCKETS = 64;
+
+    private final LongAdder nodesVisited;
+    private final LongAdder terminalEvaluations;
+    private final LongAdder infoSetHits;
+    private final LongAdder infoSetCreations;
+    private final LongAdder subtreesPruned;
+    private final LongAdder iterations;
+    private final LongAdder iterationNanos;
+    private final LongAdder[] iterationHistogram;
+
+    public SolverStats() {
+        nodesVisited = new LongAdder();
+        terminalEvaluations = new LongAdder();
+        infoSetHits = new LongAdder();
+        infoSetCreations = new LongAdder();
+        subtreesPruned = new LongAdder();
+        iterations = new LongAdder();
+        iterationNanos = new LongAdder();
+        iterationHistogram = new LongAdder[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) iterationHistogram[i] = new LongAdder();
+    }
+
+    public void nodeVisited() {
+        nodesVisited.increment();
+    }
+
+    public void terminalEvaluated() {
+        terminalEvaluations.increment();
+    }
+
+    public void infoSetLookup(boolean created) {
+        if (created) {
+            infoSetCreations.increment();
+        } else {
+            infoSetHits.increment();
+        }
+    }
+
+    public void subtreePruned() {
+        subtreesPruned.increment();
+    }
+
+    public void iterationCompleted(long nanos) {
+        iterations.increment();
+        iterationNanos.add(nanos);
+        iterationHistogram[63 - Long.numberOfLeadingZeros(Math.max(nanos, 1))].increment();
+    }
+
+    @Override
+    public long getNodesVisited() {
+        return nodesVisited.sum();
+    }
+
+    @Override
+    public long getTerminalEvaluations() {
+        return terminalEvaluations.sum();
+    }
+
+    @Override
+    public long getInfoSetHits() {
+        return infoSetHits.sum();
+    }
+
+    @Override
+    public long getInfoSetCreations() {
+        return infoSetCreations.sum();
+    }
+
+    @Override
+    public long getSubtreesPruned() {
+        return subtreesPruned.sum();
+    }
+
+    @Override
+    public long getIterations() {
+        return iterations.sum();
+    }
+
+    @Override
+    public double getMeanIterationMillis() {
+        long n = iterations.sum();
+        return n == 0 ? 0.0 : iterationNanos.sum() / 1e6 / n;
+    }
+
+    @Override
+    public double getIterationMillisP50() {
+        return iterationMillisPercentile(0.50);
+    }
+
+    @Override
+    public double getIterationMillisP99() {
+        return iterationMillisPercentile(0.99);
+    }
+
+    /**
+     * Upper bound of the histogram bucket holding the given quantile of iteration times,
+     * so accurate to within a factor of two.
+     */
+    public double iterationMillisPercentile(double quantile) {
+        long total = iterations.sum();
+        if (total == 0) return 0.0;
+
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += iterationHistogram[i].sum();
+            if (seen >= rank) return Math.pow(2, i + 1) / 1e6;
+        }
+        return Math.pow(2, BUCKETS) / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        nodesVisited.reset();
+        terminalEvaluations.reset();
+        infoSetHits.reset();
+        infoSetCreations.reset();
+        subtreesPruned.reset();
+        iterations.reset();
+        iterationNanos.reset();
+        for (LongAdder bucket : iterationHistogram) bucket.reset();
+    }
+
+    /**
+     * Adds every counter to a metrics map, e.g. the one a solver hands to its logger.
+     */
+    public void addTo(Map<String, Double> metrics) {
+        metrics.put("Nodes Visited", (double) getNodesVisited());
+        metrics.put("Terminal Evaluations", (double) getTerminalEvaluations());
+        metrics.put("InfoSet Hits", (double) getInfoSetHits());
+        metrics.put("InfoSet Creations", (double) getInfoSetCreations());
+        metrics.put("Subtrees Pruned", (double) getSubtreesPruned());
+        metrics.put("Iteration ms p50", getIterationMillisP50());
+        metrics.put("Iteration ms p99", getIterationMillisP99());
+    }
+
+    /**
+     * Publishes these stats on the platform MBean server as org.poker:type=SolverStats,name=...
+     */
+    public ObjectName register(String name) {
+        try {
+            ObjectName objectName = new ObjectName("org.poker:type=SolverStats,name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+            server.registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register solver stats " + name, e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.poker.CFR;
+
+/**
+ * JMX view of a {@link SolverStats}.
+ */
+public interface SolverStatsMXBean {
+    long getNodesVisited();
+    long getTerminalEvaluations();
+    long getInfoSetHits();
+    long getInfoSetCreations();
+    long getSubtreesPruned();
+    long getIterations();
+    double getMeanIterationMillis();
+    double getIterationMillisP50();
+    double getIterationMillisP99();
+    void reset();
+}
@@ -0,0 +1,33 @@
+package org.poker.CFR;
+
+import org.poker.GameSim.GameSim;
+import org.poker.GameSim.RangeGameSim;
+
+/**
+ * The selectable CFR engines. Every engine is created over a caller-supplied
+ * infoset table so runs can share or hand over their infosets.
+ */
+public enum SolverType {
+    VANILLA,
+    COMPILED,
+    CHANCE_SAMPLING,
+    EXTERNAL_SAMPLING,
+    OUTCOME_SAMPLING,
+    VECTORIZED;
+
+    public Solver create(GameSim game, InfoSetTable infoSets, long seed) {
+        return switch (this) {
+            case VANILLA -> new CFR(game, infoSets);
+            case COMPILED -> new CompiledCFR(game, infoSets);
+            case CHANCE_SAMPLING -> new ChanceSamplingCFR(game, infoSets, seed);
+            case EXTERNAL_SAMPLING -> new ExternalSamplingCFR(game, infoSets, seed);
+            case OUTCOME_SAMPLING -> new OutcomeSamplingCFR(game, infoSets, seed);
+            case VECTORIZED -> {
+                if (!(game instanceof RangeGameSim rangeGame)) {
+                    throw new IllegalArgumentException("VECTORIZED needs a RangeGameSim");
+                }
+                yield new VectorizedCFR(rangeGame, infoSets);
+            }
+        };
+    }
+}
@@ -0,0 +1,403 @@
+package org.poker.CFR;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import org.poker.Card;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.GameSim.RangeGameSim;
+
+/**
+ * Re-solves the subgame at a decision during play, on top of a {@link Blueprint}.
+ *
+ * The public tree is built from the current decision down to a depth limit counted in
+ * public events (actions and public cards). Nodes at the limit are valued by letting both
+ * players follow the blueprint to the end of the hand, for every pair of hands; the values
+ * are kept for later solves that reach the same public state. CFR then runs over the tree
+ * with {@link VectorizedCFR}, starting from the players' ranges, until the iteration cap
+ * or the time budget runs out, and the acting hand's average strategy is returned. The
+ * budget bounds building the tree and valuing its leaves as well.
+ *
+ * The infoset table is kept across the decisions of one hand, so each solve starts from
+ * the regrets and strategy sums the previous one left for the infosets it shares with it.
+ * Every solve counts its iterations from 1 again: the leaves move with the root, and the
+ * heavy early discounting of the default rule (DCFR) lets the carried-over values fade as
+ * the new subgame's own iterations come in. Call {@link #newHand()} between hands.
+ * Two-player {@link RangeGameSim}s only.
+ */
+public class SubgameSolver {
+    private static final int CLOCK_MASK = 63;
+    // Iterations stop this fraction of the budget early: a thread descheduled or paused
+    // in the middle of an iteration overruns by the length of the stall, which no clock
+    // check can cut short
+    private static final double RESERVE = 0.25;
+
+    private final RangeGameSim game;
+    private final Blueprint blueprint;
+    private final int depthLimit;
+    private final int maxIterations;
+    private UpdateRule updateRule;
+
+    private InfoSetTable infoSets;
+    // Blueprint values of every leaf evaluated so far, by the key of the leaf's public path
+    private final HashMap<Long, double[]> leafValues;
+    // Per-depth action codes and strategies of the leaf evaluation
+    private int[][] actionBuffers;
+    private double[][] strategyBuffers;
+
+    // Clock of the solve in progress
+    private long solveStart;
+    private long solveBudget;
+    private int nodesSinceClock;
+    // Time per tree node of the last solve's fastest iteration, to tell whether a first
+    // iteration still fits
+    private double nanosPerNode;
+
+    // Figures from the last solve
+    private int iterations;
+    private int reusedInfoSets;
+
+    /**
+     * @param depthLimit    public events below the decision before the blueprint takes over,
+     *                      or Integer.MAX_VALUE to solve to the end of the hand
+     * @param maxIterations cap on the CFR iterations of one solve
+     */
+    public SubgameSolver(RangeGameSim game, Blueprint blueprint, int depthLimit, int maxIterations) {
+        if (game.numPlayers() != 2) {
+            throw new IllegalArgumentException("SubgameSolver supports two players only");
+        }
+        this.game = game;
+        this.blueprint = blueprint;
+        this.depthLimit = depthLimit;
+        this.maxIterations = maxIterations;
+        this.updateRule = UpdateRule.DCFR;
+        this.infoSets = new InfoSetTable();
+        this.leafValues = new HashMap<>();
+        this.actionBuffers = new int[0][];
+        this.strategyBuffers = new double[0][];
+    }
+
+    public void setUpdateRule(UpdateRule updateRule) {
+        this.updateRule = updateRule;
+    }
+
+    /**
+     * Drops the regrets carried over from earlier decisions.
+     */
+    public void newHand() {
+        infoSets = new InfoSetTable();
+    }
+
+    /**
+     * Re-solves the decision at history within the budget, ranges included, and writes the
+     * acting player's strategy for the hand they hold into out. Returns the number of actions.
+     */
+    public int solve(AbstractHistory history, long budgetNanos, double[] out) {
+        long start = System.nanoTime();
+        return solve(history, ranges(history), start, budgetNanos, out);
+    }
+
+    /**
+     * Re-solves the decision at history and writes the acting player's strategy for the hand
+     * they hold into out. ranges[p][h] is the probability that player p reaches the decision
+     * holding private hand h, as {@link #ranges} computes it. Returns the number of actions.
+     *
+     * The budget covers building the tree and valuing its leaves as well. If it runs out
+     * before the tree is built, or leaves no time for a single iteration, the strategy the
+     * table carries over from earlier decisions is returned, or the blueprint's for a cold start.
+     */
+    public int solve(AbstractHistory history, double[][] ranges, long budgetNanos, double[] out) {
+        return solve(history, ranges, System.nanoTime(), budgetNanos, out);
+    }
+
+    private int solve(AbstractHistory history, double[][] ranges, long start, long budgetNanos, double[] out) {
+        if (game.isTerminal(history) || game.isChanceNode(history)) {
+            throw new IllegalArgumentException("Subgames are re-solved at decisions only");
+        }
+        int player = game.currentPlayer(history);
+        int hand = handIndex(history.getHand(player));
+        iterations = 0;
+        reusedInfoSets = 0;
+        solveStart = start;
+        solveBudget = budgetNanos;
+
+        int sizeBefore = infoSets.size();
+        PublicTree tree = PublicTree.build(game, infoSets, initialHistory(history), publicPath(history),
+                depthLimit, this::blueprintValue, leafValues, this::outOfTime);
+        if (tree == null) return fallback(history, player, out);
+        reusedInfoSets = countReused(tree, sizeBefore);
+
+        VectorizedCFR solver = new VectorizedCFR(game, infoSets, tree, ranges);
+        solver.setUpdateRule(updateRule);
+        // Until this tree has been timed, guess from the previous solve's time per node
+        long iterationTime = (long) (nanosPerNode * tree.size);
+        long fastest = Long.MAX_VALUE;
+        // Stop when the next iteration, taking as long as the last, would run into the reserve
+        long iterationBudget = budgetNanos - (long) (budgetNanos * RESERVE);
+        while (iterations < maxIterations && System.nanoTime() - start + iterationTime < iterationBudget) {
+            long iterationStart = System.nanoTime();
+            solver.train(1, history, null, Integer.MAX_VALUE);
+            iterationTime = System.nanoTime() - iterationStart;
+            fastest = Math.min(fastest, iterationTime);
+            iterations++;
+        }
+
+        if (iterations == 0) {
+            // The guess may come from a stalled iteration; halve it so it cannot lock out every
+            // later solve
+            nanosPerNode /= 2;
+            return fallback(history, player, out);
+        }
+        nanosPerNode = (double) fastest / tree.size;
+        infoSets.getAverageStrategy(tree.handInfoSets[0][hand], out);
+        return tree.numChildren[0];
+    }
+
+    /**
+     * The strategy played at a decision that could not be re-solved in time.
+     */
+    private int fallback(AbstractHistory history, int player, double[] out) {
+        int numActions = game.legalActions(history, actionBuffer(0));
+        double[] strategy = playedStrategy(history, player, numActions);
+        // The blueprint's probabilities are floats, so renormalize them
+        double sum = 0;
+        for (int a = 0; a < numActions; a++) sum += strategy[a];
+        for (int a = 0; a < numActions; a++) out[a] = strategy[a] / sum;
+        return numActions;
+    }
+
+    private boolean outOfTime() {
+        return System.nanoTime() - solveStart >= solveBudget;
+    }
+
+    /**
+     * Probability that each player reaches the history with each private hand, 0 for hands
+     * that meet the board. Earlier decisions of the hand are taken to follow the strategies
+     * re-solved for them where the table holds one, and the blueprint otherwise.
+     */
+    public double[][] ranges(AbstractHistory history) {
+        Card[][] hands = game.privateHands();
+        AbstractHistory initial = initialHistory(history);
+        int[] path = publicPath(history);
+        Card[] board = game.getBoard(history).toArray(new Card[0]);
+        double[][] ranges = new double[2][hands.length];
+        int[] actions = actionBuffer(0);
+
+        for (int p = 0; p < 2; p++) {
+            for (int h = 0; h < hands.length; h++) {
+                int opponentHand = compatibleHand(hands, h, board);
+                if (shareCard(hands[h], board) || opponentHand < 0) continue;
+                Card[][] dealt = new Card[2][];
+                dealt[p] = hands[h];
+                dealt[1 - p] = hands[opponentHand];
+                AbstractHistory replay = initial.copy();
+                game.dealHands(replay, dealt);
+
+                double reach = 1.0;
+                for (int event : path) {
+                    if (event >= 0 && AbstractHistory.playerOf(event) == p) {
+                        int numActions = game.legalActions(replay, actions);
+                        int action = 0;
+                        while (actions[action] != AbstractHistory.actionOf(event)) action++;
+                        reach *= playedStrategy(replay, p, numActions)[action];
+                    }
+                    PublicTree.applyEvent(game, replay, event);
+                }
+                ranges[p][h] = reach;
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Value for player 0 when both players follow the blueprint from the history to the end
+     * of the hand. Infosets missing from the blueprint play uniformly at random. Returns NaN
+     * once the solve is out of time.
+     */
+    private double blueprintValue(AbstractHistory history) {
+        return blueprintValue(history, 0);
+    }
+
+    private double blueprintValue(AbstractHistory history, int depth) {
+        if (game.isTerminal(history)) return game.terminalUtility(history, 0);
+        // The clock is read every few nodes only; a leaf's subtree is small but reached often
+        if ((++nodesSinceClock & CLOCK_MASK) == 0 && outOfTime()) return Double.NaN;
+
+        int mark = history.length();
+        double value = 0.0;
+        if (game.isChanceNode(history)) {
+            for (int i = 0; i < game.numChanceOutcomes(history); i++) {
+                double probability = game.chanceProbability(history, i);
+                game.applyChanceOutcome(history, i);
+                double outcomeValue = blueprintValue(history, depth);
+                history.undoTo(mark);
+                if (Double.isNaN(outcomeValue)) return outcomeValue;
+                value += probability * outcomeValue;
+            }
+            return value;
+        }
+
+        int player = game.currentPlayer(history);
+        int[] actions = actionBuffer(depth);
+        int numActions = game.legalActions(history, actions);
+        double[] strategy = blueprintStrategy(history, player, numActions, strategyBuffer(depth));
+        for (int a = 0; a < numActions; a++) {
+            if (strategy[a] == 0.0) continue;
+            history.addAction(player, actions[a]);
+            double actionValue = blueprintValue(history, depth + 1);
+            history.undoTo(mark);
+            if (Double.isNaN(actionValue)) return actionValue;
+            value += strategy[a] * actionValue;
+        }
+        return value;
+    }
+
+    /**
+     * The average strategy the table holds for the player at the history, or the blueprint's
+     * where the table has none yet.
+     */
+    private double[] playedStrategy(AbstractHistory history, int player, int numActions) {
+        double[] out = strategyBuffer(0);
+        int id = infoSets.find(history.infoSetHash(player));
+        double total = 0.0;
+        if (id >= 0) {
+            for (int a = 0; a < numActions; a++) total += infoSets.getStrategySum(id, a);
+        }
+        // Infosets created by a build that ran out of time have not been trained yet
+        if (total == 0.0) return blueprintStrategy(history, player, numActions, out);
+        infoSets.getAverageStrategy(id, out);
+        return out;
+    }
+
+    private double[] blueprintStrategy(AbstractHistory history, int player, int numActions, double[] out) {
+        if (blueprint.getStrategy(history, player, out) != numActions) {
+            Arrays.fill(out, 0, numActions, 1.0 / numActions);
+        }
+        return out;
+    }
+
+    private int[] actionBuffer(int depth) {
+        ensureBuffers(depth);
+        return actionBuffers[depth];
+    }
+
+    private double[] strategyBuffer(int depth) {
+        ensureBuffers(depth);
+        return strategyBuffers[depth];
+    }
+
+    private void ensureBuffers(int depth) {
+        if (depth < actionBuffers.length) return;
+        int length = Math.max(depth + 1, actionBuffers.length * 2);
+        int oldLength = actionBuffers.length;
+        actionBuffers = Arrays.copyOf(actionBuffers, length);
+        strategyBuffers = Arrays.copyOf(strategyBuffers, length);
+        for (int d = oldLength; d < length; d++) {
+            actionBuffers[d] = new int[game.maxActions()];
+            strategyBuffers[d] = new double[game.maxActions()];
+        }
+    }
+
+    /**
+     * The history's public events as a public tree path: its player actions as they are, and
+     * each board card as the index of that card among the public chance cards.
+     */
+    private int[] publicPath(AbstractHistory history) {
+        // Board events encode the rank only, so the cards come from the board in deal order
+        ArrayList<Card> board = game.getBoard(history);
+        AbstractHistory replay = initialHistory(history);
+        Card[][] hands = game.privateHands();
+        game.dealHands(replay, new Card[][] { hands[handIndex(history.getHand(0))], hands[handIndex(history.getHand(1))] });
+
+        int[] path = new int[history.length()];
+        int length = 0;
+        int dealt = 0;
+        for (int i = 0; i < history.length(); i++) {
+            int code = history.actionAt(i);
+            if (AbstractHistory.isBoardDeal(code)) {
+                Card card = board.get(dealt++);
+                ArrayList<Card> cards = game.publicChanceCards(replay);
+                int index = 0;
+                while (game.cardIndex(cards.get(index)) != game.cardIndex(card)) index++;
+                path[length] = PublicTree.publicCard(index);
+            } else if (!AbstractHistory.isDeal(code)) {
+                path[length] = code;
+            } else {
+                continue;
+            }
+            PublicTree.applyEvent(game, replay, path[length++]);
+        }
+        return Arrays.copyOf(path, length);
+    }
+
+    private static AbstractHistory initialHistory(AbstractHistory history) {
+        AbstractHistory initial = history.copy();
+        initial.undoTo(0);
+        return initial;
+    }
+
+    private int handIndex(ArrayList<Card> cards) {
+        Card[][] hands = game.privateHands();
+        for (int h = 0; h < hands.length; h++) {
+            if (hands[h].length != cards.size()) continue;
+            boolean same = true;
+            for (int c = 0; c < cards.size(); c++) {
+                same &= game.cardIndex(hands[h][c]) == game.cardIndex(cards.get(c));
+            }
+            if (same) return h;
+        }
+        throw new IllegalArgumentException("Unknown private hand " + cards);
+    }
+
+    private int compatibleHand(Card[][] hands, int hand, Card[] board) {
+        for (int other = 0; other < hands.length; other++) {
+            if (!shareCard(hands[hand], hands[other]) && !shareCard(hands[other], board)) return other;
+        }
+        return -1;
+    }
+
+    private boolean shareCard(Card[] a, Card[] b) {
+        for (Card x : a) {
+            for (Card y : b) {
+                if (game.cardIndex(x) == game.cardIndex(y)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Distinct infosets of the tree that the table held before it was built; table ids are
+     * handed out in order.
+     */
+    private static int countReused(PublicTree tree, int sizeBefore) {
+        boolean[] seen = new boolean[sizeBefore];
+        int count = 0;
+        for (int node = 0; node < tree.size; node++) {
+            if (tree.type[node] != PublicTree.DECISION) continue;
+            for (int id : tree.handInfoSets[node]) {
+                if (id < 0 || id >= sizeBefore || seen[id]) continue;
+                seen[id] = true;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * CFR iterations the last solve completed.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Infosets of the last solve's tree that were already in the table from earlier decisions.
+     */
+    public int getReusedInfoSets() {
+        return reusedInfoSets;
+    }
+
+    public InfoSetTable getInfoSetTable() {
+        return infoSets;
+    }
+}
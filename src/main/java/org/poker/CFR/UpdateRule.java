@@ -0,0 +1,124 @@
+package org.poker.CFR;
+
+/**
+ * How regrets and strategy sums evolve between iterations.
+ *
+ * Vanilla CFR just accumulates. CFR+ floors cumulative regrets at zero after every
+ * traverser pass and averages linearly. Discounted CFR (Brown and Sandholm 2019)
+ * multiplies positive regrets by t^alpha / (t^alpha + 1), negative regrets by
+ * t^beta / (t^beta + 1) and the strategy sums by (t / (t + 1))^gamma after iteration t.
+ * Independently of discounting, iteration t's strategy contribution can be weighted
+ * by t^averagingPower (0 uniform, 1 linear, 2 quadratic).
+ */
+public class UpdateRule {
+    public static final UpdateRule VANILLA = new UpdateRule("vanilla", false, false, 0, 0, 0, 0);
+    public static final UpdateRule CFR_PLUS = new UpdateRule("cfr+", true, false, 0, 0, 0, 1);
+    public static final UpdateRule LINEAR_CFR = discounted(1, 1, 1);
+    public static final UpdateRule DCFR = discounted(1.5, 0, 2);
+
+    private final String name;
+    private final boolean floorRegrets;
+    private final boolean discounting;
+    private final double alpha;
+    private final double beta;
+    private final double gamma;
+    private final int averagingPower;
+
+    private UpdateRule(String name, boolean floorRegrets, boolean discounting,
+                       double alpha, double beta, double gamma, int averagingPower) {
+        this.name = name;
+        this.floorRegrets = floorRegrets;
+        this.discounting = discounting;
+        this.alpha = alpha;
+        this.beta = beta;
+        this.gamma = gamma;
+        this.averagingPower = averagingPower;
+    }
+
+    public static UpdateRule discounted(double alpha, double beta, double gamma) {
+        return new UpdateRule("dcfr(" + alpha + "," + beta + "," + gamma + ")", false, true, alpha, beta, gamma, 0);
+    }
+
+    /**
+     * Returns a copy of this rule that weights iteration t's strategy by t^power.
+     */
+    public UpdateRule withAveraging(int power) {
+        String suffix = power == 0 ? "" : power == 1 ? "+linear" : power == 2 ? "+quadratic" : "+t^" + power;
+        return new UpdateRule(name + suffix, floorRegrets, discounting, alpha, beta, gamma, power);
+    }
+
+    /**
+     * Parses "vanilla", "cfr+", "linear", "dcfr" or "dcfr:alpha,beta,gamma".
+     */
+    public static UpdateRule parse(String spec) {
+        String lower = spec.trim().toLowerCase();
+        if (lower.equals("vanilla")) return VANILLA;
+        if (lower.equals("cfr+") || lower.equals("cfrplus")) return CFR_PLUS;
+        if (lower.equals("linear")) return LINEAR_CFR;
+        if (lower.equals("dcfr")) return DCFR;
+        if (lower.startsWith("dcfr:")) {
+            String[] parts = lower.substring(5).split(",");
+            if (parts.length != 3) throw new IllegalArgumentException("Expected dcfr:alpha,beta,gamma but got " + spec);
+            return discounted(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+        }
+        throw new IllegalArgumentException("Unknown update rule: " + spec);
+    }
+
+    /**
+     * Weight of iteration t's (1-based) contribution to the strategy sums.
+     */
+    public double strategyWeight(int t) {
+        return averagingPower == 0 ? 1.0 : Math.pow(t, averagingPower);
+    }
+
+    /**
+     * Applied after each traverser's pass has updated the regrets.
+     */
+    public void afterPass(InfoSetTable infoSets) {
+        if (floorRegrets) infoSets.scaleRegrets(1.0, 0.0);
+    }
+
+    /**
+     * Same as {@link #afterPass(InfoSetTable)}, deferred per infoset.
+     */
+    void afterPass(DeferredScaling deferred) {
+        if (floorRegrets) deferred.floorRegrets();
+    }
+
+    /**
+     * Applied after iteration t (1-based) has finished.
+     */
+    public void afterIteration(InfoSetTable infoSets, int t) {
+        if (!discounting) return;
+        infoSets.scaleRegrets(positiveFactor(t), negativeFactor(t));
+        infoSets.scaleStrategySums(strategyFactor(t));
+    }
+
+    /**
+     * Same as {@link #afterIteration(InfoSetTable, int)}, deferred per infoset.
+     */
+    void afterIteration(DeferredScaling deferred, int t) {
+        if (discounting) deferred.scale(positiveFactor(t), negativeFactor(t), strategyFactor(t));
+    }
+
+    private double positiveFactor(int t) {
+        return Math.pow(t, alpha) / (Math.pow(t, alpha) + 1);
+    }
+
+    private double negativeFactor(int t) {
+        return Math.pow(t, beta) / (Math.pow(t, beta) + 1);
+    }
+
+    private double strategyFactor(int t) {
+        return Math.pow((double) t / (t + 1), gamma);
+    }
+
+    public boolean isVanilla() {
+        return !floorRegrets && !discounting && averagingPower == 0;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,328 @@
+package org.poker.CFR;
+
+import java.util.Arrays;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.GameSim.RangeGameSim;
+
+/**
+ * Vanilla CFR over the public tree, carrying a reach probability and a counterfactual
+ * value per private hand instead of walking every deal separately.
+ *
+ * Each public node is visited once per pass. Terminal values are computed for all hands
+ * at once: folds from the total compatible opponent reach, showdowns with one ascending
+ * and one descending sweep over the hands sorted by strength. Card removal is handled by
+ * keeping per-card reach totals and subtracting the ones a hand blocks, which is exact
+ * for hands of one or two cards.
+ *
+ * All of a pass's regret updates at a public node happen together, so results match
+ * {@link CFR} closely but not bit for bit. Two players only.
+ *
+ * {@link SubgameSolver} runs it on a prebuilt depth-limited tree, starting from the
+ * players' ranges instead of reach 1 for every hand.
+ */
+public class VectorizedCFR extends Solver {
+    private final RangeGameSim rangeGame;
+    private PublicTree tree;
+    // Reach of every hand at the root, or null for 1
+    private final double[][] rootReach;
+
+    private final int numHands;
+
+    // Per depth: child values [action][hand], strategies [hand * maxActions + action] and child reach
+    private double[][][] childValues;
+    private double[][] strategies;
+    private double[][] childReach;
+    private double[][][] chanceReach;
+
+    // Per-card reach totals used for card removal
+    private final double[] cardReach;
+    private double[] strategyBuffer;
+    // Root reach and values of a pass
+    private final double[][] passReach;
+    private final double[] passValues;
+
+    public VectorizedCFR(RangeGameSim game) {
+        this(game, new InfoSetTable());
+    }
+
+    public VectorizedCFR(RangeGameSim game, InfoSetTable infoSets) {
+        super(game, infoSets);
+        if (game.numPlayers() != 2) {
+            throw new IllegalArgumentException("VectorizedCFR supports two players only");
+        }
+        this.rangeGame = game;
+        this.numHands = game.privateHands().length;
+        this.cardReach = new double[game.numCards()];
+        this.passReach = new double[2][numHands];
+        this.passValues = new double[numHands];
+        this.rootReach = null;
+    }
+
+    /**
+     * Solver over a tree that is already built, starting every pass from the given reach.
+     */
+    VectorizedCFR(RangeGameSim game, InfoSetTable infoSets, PublicTree tree, double[][] rootReach) {
+        super(game, infoSets);
+        this.rangeGame = game;
+        this.numHands = game.privateHands().length;
+        this.cardReach = new double[game.numCards()];
+        this.passReach = new double[2][numHands];
+        this.passValues = new double[numHands];
+        this.rootReach = rootReach;
+        useTree(tree);
+    }
+
+    /**
+     * Runs one iteration: a pass over the public tree for each player in turn.
+     * The tree is built on the first call.
+     */
+    @Override
+    protected void iterate(AbstractHistory initialHistory) {
+        if (tree == null) buildTree(initialHistory);
+
+        double[][] reach = passReach;
+        double[] values = passValues;
+        for (int p = 0; p < numPlayers; p++) {
+            if (rootReach == null) {
+                Arrays.fill(reach[0], 1.0);
+                Arrays.fill(reach[1], 1.0);
+            } else {
+                System.arraycopy(rootReach[0], 0, reach[0], 0, numHands);
+                System.arraycopy(rootReach[1], 0, reach[1], 0, numHands);
+            }
+            cfr(0, p, reach, values);
+            endPass();
+        }
+    }
+
+    private void buildTree(AbstractHistory root) {
+        useTree(PublicTree.build(rangeGame, infoSets, root));
+    }
+
+    private void useTree(PublicTree tree) {
+        this.tree = tree;
+        int depths = tree.maxDepth + 1;
+        int width = Math.max(tree.maxActions, 1);
+        childValues = new double[depths][width][numHands];
+        strategies = new double[depths][width * numHands];
+        childReach = new double[depths][numHands];
+        chanceReach = new double[depths][2][numHands];
+        strategyBuffer = new double[width];
+    }
+
+    /**
+     * Writes the traverser's counterfactual value of every hand at the node into out.
+     * reach[p][h] is the probability that player p holding hand h plays to this node.
+     */
+    private void cfr(int node, int traverser, double[][] reach, double[] out) {
+        if (stats != null) {
+            stats.nodeVisited();
+            if (tree.type[node] <= PublicTree.SHOWDOWN) stats.terminalEvaluated();
+        }
+        switch (tree.type[node]) {
+            case PublicTree.FOLD -> foldValues(node, traverser, reach[1 - traverser], out);
+            case PublicTree.SHOWDOWN -> showdownValues(node, traverser, reach[1 - traverser], out);
+            case PublicTree.CHANCE -> chanceValues(node, traverser, reach, out);
+            case PublicTree.LEAF -> leafValues(node, traverser, reach[1 - traverser], out);
+            default -> decisionValues(node, traverser, reach, out);
+        }
+    }
+
+    private void decisionValues(int node, int traverser, double[][] reach, double[] out) {
+        int depth = tree.depth[node];
+        int player = tree.player[node];
+        int first = tree.firstChild[node];
+        int numActions = tree.numChildren[node];
+        int[] ids = tree.handInfoSets[node];
+        double[] strategy = strategies[depth];
+        double[] ownReach = reach[player];
+        double[] nextReach = childReach[depth];
+        double[][] values = childValues[depth];
+
+        for (int h = 0; h < numHands; h++) {
+            int base = h * numActions;
+            if (ids[h] < 0) {
+                Arrays.fill(strategy, base, base + numActions, 0.0);
+                continue;
+            }
+            infoSets.getStrategy(ids[h], strategyBuffer);
+            System.arraycopy(strategyBuffer, 0, strategy, base, numActions);
+        }
+
+        // Swap in the child reach for the acting player while recursing
+        reach[player] = nextReach;
+        for (int a = 0; a < numActions; a++) {
+            for (int h = 0; h < numHands; h++) {
+                nextReach[h] = ownReach[h] * strategy[h * numActions + a];
+            }
+            cfr(first + a, traverser, reach, values[a]);
+        }
+        reach[player] = ownReach;
+
+        if (player == traverser) {
+            for (int h = 0; h < numHands; h++) {
+                double value = 0.0;
+                for (int a = 0; a < numActions; a++) value += strategy[h * numActions + a] * values[a][h];
+                out[h] = value;
+                if (ids[h] < 0) continue;
+                for (int a = 0; a < numActions; a++) {
+                    infoSets.addToRegretSum(ids[h], a, values[a][h] - value);
+                }
+            }
+        } else {
+            Arrays.fill(out, 0.0);
+            for (int a = 0; a < numActions; a++) {
+                for (int h = 0; h < numHands; h++) out[h] += values[a][h];
+            }
+        }
+
+        for (int h = 0; h < numHands; h++) {
+            if (ids[h] < 0 || ownReach[h] == 0.0) continue;
+            for (int a = 0; a < numActions; a++) {
+                infoSets.addToStrategySum(ids[h], a, strategyWeight * ownReach[h] * strategy[h * numActions + a]);
+            }
+        }
+    }
+
+    private void chanceValues(int node, int traverser, double[][] reach, double[] out) {
+        int depth = tree.depth[node];
+        int first = tree.firstChild[node];
+        double weight = tree.chanceWeight[node];
+        double[] reach0 = reach[0];
+        double[] reach1 = reach[1];
+        double[] values = childValues[depth][0];
+        double[][] masked = chanceReach[depth];
+
+        Arrays.fill(out, 0.0);
+        for (int c = 0; c < tree.numChildren[node]; c++) {
+            int card = tree.dealtCard[first + c];
+            for (int h = 0; h < numHands; h++) {
+                boolean blocked = tree.holds(h, card);
+                masked[0][h] = blocked ? 0.0 : reach0[h];
+                masked[1][h] = blocked ? 0.0 : reach1[h];
+            }
+            cfr(first + c, traverser, masked, values);
+            for (int h = 0; h < numHands; h++) {
+                if (!tree.holds(h, card)) out[h] += weight * values[h];
+            }
+        }
+    }
+
+    private void foldValues(int node, int traverser, double[] opponentReach, double[] out) {
+        int folder = tree.foldingPlayer[node];
+        double payoff = folder == traverser
+                ? -contribution(node, folder)
+                : contribution(node, folder);
+
+        double total = sumByCard(opponentReach);
+        for (int h = 0; h < numHands; h++) {
+            out[h] = payoff * compatibleMass(h, total, opponentReach);
+        }
+    }
+
+    private void showdownValues(int node, int traverser, double[] opponentReach, double[] out) {
+        int[] order = tree.showdownOrder[node];
+        int[] rank = tree.showdownRank[node];
+        double win = contribution(node, 1 - traverser);
+        double lose = -contribution(node, traverser);
+        double tie = (tree.contribution0[node] + tree.contribution1[node]) / 2.0 - contribution(node, traverser);
+
+        // Ties are everything compatible that is neither weaker nor stronger
+        double total = sumByCard(opponentReach);
+        for (int h = 0; h < numHands; h++) out[h] = tie * compatibleMass(h, total, opponentReach);
+        Arrays.fill(cardReach, 0.0);
+
+        // Ascending sweep: mass of strictly weaker opponent hands
+        double weaker = 0.0;
+        int i = 0;
+        while (i < numHands) {
+            int end = groupEnd(order, rank, i);
+            for (int k = i; k < end; k++) {
+                int h = order[k];
+                out[h] += (win - tie) * blockedFrom(h, weaker);
+            }
+            for (int k = i; k < end; k++) weaker += addToCards(order[k], opponentReach[order[k]]);
+            i = end;
+        }
+
+        // Descending sweep: mass of strictly stronger opponent hands
+        Arrays.fill(cardReach, 0.0);
+        double stronger = 0.0;
+        i = numHands - 1;
+        while (i >= 0) {
+            int start = groupStart(order, rank, i);
+            for (int k = i; k > start; k--) {
+                int h = order[k];
+                out[h] += (lose - tie) * blockedFrom(h, stronger);
+            }
+            for (int k = i; k > start; k--) stronger += addToCards(order[k], opponentReach[order[k]]);
+            i = start;
+        }
+    }
+
+    private void leafValues(int node, int traverser, double[] opponentReach, double[] out) {
+        double[] values = tree.leafValues[node];
+        // Pairs that conflict hold 0, so no card removal is needed
+        for (int h = 0; h < numHands; h++) {
+            double value = 0.0;
+            for (int o = 0; o < numHands; o++) {
+                value += traverser == 0
+                        ? values[h * numHands + o] * opponentReach[o]
+                        : -values[o * numHands + h] * opponentReach[o];
+            }
+            out[h] = value;
+        }
+    }
+
+    private int groupEnd(int[] order, int[] rank, int i) {
+        int end = i + 1;
+        while (end < numHands && rank[order[end]] == rank[order[i]]) end++;
+        return end;
+    }
+
+    private int groupStart(int[] order, int[] rank, int i) {
+        int start = i - 1;
+        while (start >= 0 && rank[order[start]] == rank[order[i]]) start--;
+        return start;
+    }
+
+    /**
+     * Fills the per-card totals from a reach vector and returns the overall total.
+     */
+    private double sumByCard(double[] opponentReach) {
+        Arrays.fill(cardReach, 0.0);
+        double total = 0.0;
+        for (int h = 0; h < numHands; h++) total += addToCards(h, opponentReach[h]);
+        return total;
+    }
+
+    private double addToCards(int hand, double mass) {
+        for (int c : tree.handCards[hand]) cardReach[c] += mass;
+        return mass;
+    }
+
+    /**
+     * Opponent reach compatible with the hand, given the per-card totals of a reach
+     * vector that includes the hand itself.
+     */
+    private double compatibleMass(int hand, double total, double[] opponentReach) {
+        double mass = blockedFrom(hand, total);
+        // A two-card hand subtracts itself twice
+        if (tree.handCards[hand].length == 2) mass += opponentReach[hand];
+        return mass;
+    }
+
+    /**
+     * Opponent reach compatible with the hand, given per-card totals of a reach vector
+     * that does not include the hand itself.
+     */
+    private double blockedFrom(int hand, double total) {
+        double mass = total;
+        for (int c : tree.handCards[hand]) mass -= cardReach[c];
+        return mass;
+    }
+
+    private double contribution(int node, int player) {
+        return player == 0 ? tree.contribution0[node] : tree.contribution1[node];
+    }
+}
@@ -2,15 +2,87 @@ package org.poker.GameSim;
 
 import org.poker.CFR.History.AbstractHistory;
 import java.util.ArrayList;
+import java.util.SplittableRandom;
 
 public abstract class GameSim {
     public abstract int currentPlayer(AbstractHistory history);
-    public abstract ArrayList<String> getAvailableActions(AbstractHistory history);
+
+    /**
+     * Writes the legal actions at a decision into out as the history's action codes (see
+     * {@link AbstractHistory#encodeAction}) and returns how many there are; none at terminal
+     * and chance nodes. out needs room for {@link #maxActions()} codes. Allocates nothing,
+     * so engines call it with a buffer per depth.
+     */
+    public abstract int legalActions(AbstractHistory history, int[] out);
+
+    /**
+     * Most legal actions any decision of the game has.
+     */
+    public abstract int maxActions();
+
+    /**
+     * Names of the legal actions, in the order of {@link #legalActions}, for code off the
+     * traversal hot paths.
+     */
+    public ArrayList<String> getAvailableActions(AbstractHistory history) {
+        int[] codes = new int[maxActions()];
+        int n = legalActions(history, codes);
+        ArrayList<String> names = new ArrayList<>(n);
+        for (int a = 0; a < n; a++) names.add(history.actionName(codes[a]));
+        return names;
+    }
+
     public abstract void dealInitialCards(AbstractHistory history);
     public abstract boolean isTerminal(AbstractHistory history);
     public abstract double[] terminalUtility(AbstractHistory history);
+    public abstract double terminalUtility(AbstractHistory history, int player);
     public abstract int numPlayers();
 
+    // Chip value of one big blind, used to report results in mbb/hand
+    public double bigBlind() {
+        return 1.0;
+    }
+
+    // Chance nodes are expanded in place: apply an outcome, recurse, then undo it
+    public abstract boolean isChanceNode(AbstractHistory history);
+    public abstract int numChanceOutcomes(AbstractHistory history);
+    public abstract void applyChanceOutcome(AbstractHistory history, int outcome);
+
+    /**
+     * Number of equally likely raw outcomes a chance outcome stands for. Games that merge
+     * suit-isomorphic outcomes into one representative (see {@link SuitIsomorphism}) report
+     * the size of its class; otherwise every outcome stands for itself.
+     */
+    public int chanceMultiplicity(AbstractHistory history, int outcome) {
+        return 1;
+    }
+
+    /**
+     * Sum of the multiplicities of a chance node's outcomes.
+     */
+    public int rawChanceOutcomes(AbstractHistory history) {
+        return numChanceOutcomes(history);
+    }
+
+    public double chanceProbability(AbstractHistory history, int outcome) {
+        return (double) chanceMultiplicity(history, outcome) / rawChanceOutcomes(history);
+    }
+
+    /**
+     * Draws a chance outcome with its probability. Uniform nodes take a single nextInt, so
+     * games without merged outcomes see the same random stream as before.
+     */
+    public int sampleChanceOutcome(AbstractHistory history, SplittableRandom random) {
+        int outcomes = numChanceOutcomes(history);
+        int raw = rawChanceOutcomes(history);
+        if (raw == outcomes) return random.nextInt(outcomes);
+
+        int r = random.nextInt(raw);
+        int outcome = 0;
+        while ((r -= chanceMultiplicity(history, outcome)) >= 0) outcome++;
+        return outcome;
+    }
+
     // NEW: generate all possible initial deals
     public abstract ArrayList<AbstractHistory> generateAllDeals(AbstractHistory history);
 
@@ -0,0 +1,213 @@
+package org.poker.GameSim;
+
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import org.poker.Abstraction.HandAbstraction;
+import org.poker.Card;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.CFR.History.HoldemHistory;
+
+/**
+ * Heads-up hold'em, limit or no-limit, under a card abstraction and a bet-size abstraction.
+ *
+ * The root chance node deals both hands: outcome i * 1225 + j gives player 0 the i-th of
+ * the 1326 two-card combinations and player 1 the j-th combination of the 50 cards left.
+ * Later chance nodes deal the flop as one of the combinations of three remaining cards,
+ * then the turn and the river. The game is far too large to enumerate, so it is meant for
+ * the sampling engines and {@link #generateAllDeals} is not supported.
+ */
+public class HoldemGameSim extends GameSim {
+    private static final char[] SUITS = { 'S', 'H', 'D', 'C' };
+    private static final int DECK_SIZE = 52;
+    private static final int HOLE_COMBOS = 1326;
+    private static final int REMAINING_HOLE_COMBOS = 1225;
+
+    // Card with bit index i of the BitmaskHandEval layout
+    private static final Card[] DECK = new Card[DECK_SIZE];
+    private static final int[][] BINOMIAL = new int[DECK_SIZE + 1][4];
+
+    static {
+        for (int s = 0; s < SUITS.length; s++) {
+            for (int r = 0; r < 13; r++) {
+                DECK[s * 13 + r] = new Card(r + 2, SUITS[s]);
+            }
+        }
+        for (int n = 0; n <= DECK_SIZE; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k < 4; k++) {
+                BINOMIAL[n][k] = n == 0 ? 0 : BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+            }
+        }
+    }
+
+    private final HoldemRules rules;
+    private final HandAbstraction abstraction;
+
+    public HoldemGameSim(HoldemRules rules, HandAbstraction abstraction) {
+        this.rules = rules;
+        this.abstraction = abstraction;
+    }
+
+    /**
+     * Empty root history of this game.
+     */
+    public HoldemHistory newHistory() {
+        return new HoldemHistory(rules, abstraction);
+    }
+
+    @Override
+    public int currentPlayer(AbstractHistory history) {
+        return history.getCurrentPlayer();
+    }
+
+    @Override
+    public int legalActions(AbstractHistory history, int[] out) {
+        HoldemHistory hh = (HoldemHistory) history;
+        if (hh.isTerminal() || isChanceNode(hh)) return 0;
+
+        int n = 0;
+        int player = hh.getCurrentPlayer();
+        int toCall = hh.toCall(player);
+        if (toCall > 0) out[n++] = HoldemHistory.FOLD;
+        out[n++] = toCall > 0 ? HoldemHistory.CALL : HoldemHistory.CHECK;
+        if (hh.getBets() >= rules.getMaxBets()) return n;
+
+        int remaining = hh.remaining(player);
+        int previousChips = 0;
+        for (int i = 0; i < rules.numBetSizes(); i++) {
+            int chips = hh.chipsFor(player, HoldemHistory.BET + i);
+            // Sizes that would put the player all-in are covered by AllIn; skip duplicates
+            if (chips >= remaining || chips == previousChips) continue;
+            out[n++] = HoldemHistory.BET + i;
+            previousChips = chips;
+        }
+        if (!rules.isLimit() && remaining > toCall) out[n++] = HoldemHistory.ALL_IN;
+        return n;
+    }
+
+    @Override
+    public int maxActions() {
+        // Fold, check or call, every bet size and all-in
+        return 3 + rules.numBetSizes();
+    }
+
+    @Override
+    public void dealInitialCards(AbstractHistory history) {
+        applyChanceOutcome(history, ThreadLocalRandom.current().nextInt(numChanceOutcomes(history)));
+    }
+
+    @Override
+    public boolean isTerminal(AbstractHistory history) {
+        return history.isTerminal();
+    }
+
+    @Override
+    public double[] terminalUtility(AbstractHistory history) {
+        double[] result = new double[numPlayers()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = history.terminalUtility(i);
+        }
+        return result;
+    }
+
+    @Override
+    public double terminalUtility(AbstractHistory history, int player) {
+        return history.terminalUtility(player);
+    }
+
+    @Override
+    public int numPlayers() {
+        return 2;
+    }
+
+    @Override
+    public double bigBlind() {
+        return rules.getBigBlind();
+    }
+
+    @Override
+    public boolean isChanceNode(AbstractHistory history) {
+        return history.getHand(1).size() < 2 || ((HoldemHistory) history).isAwaitingBoard();
+    }
+
+    @Override
+    public int numChanceOutcomes(AbstractHistory history) {
+        if (history.getHand(1).size() < 2) return HOLE_COMBOS * REMAINING_HOLE_COMBOS;
+        int boardSize = ((HoldemHistory) history).getBoard().size();
+        int left = DECK_SIZE - 4 - boardSize;
+        return BINOMIAL[left][boardSize == 0 ? 3 : 1];
+    }
+
+    @Override
+    public void applyChanceOutcome(AbstractHistory history, int outcome) {
+        HoldemHistory hh = (HoldemHistory) history;
+        if (hh.getHand(1).size() < 2) {
+            dealHole(hh, 0, unrank(outcome / REMAINING_HOLE_COMBOS, 2, 0L));
+            dealHole(hh, 1, unrank(outcome % REMAINING_HOLE_COMBOS, 2, hh.getHoleMask(0)));
+            hh.setCurrentPlayer(0);
+            return;
+        }
+
+        int count = hh.getBoard().isEmpty() ? 3 : 1;
+        long cards = unrank(outcome, count, hh.getHoleMask(0) | hh.getHoleMask(1) | hh.getBoardMask());
+        while (cards != 0) {
+            int card = 63 - Long.numberOfLeadingZeros(cards);
+            hh.dealBoard(DECK[card]);
+            cards &= ~(1L << card);
+        }
+        // The big blind acts first after the flop
+        hh.setCurrentPlayer(1);
+    }
+
+    // Deals the two cards of the mask, highest first
+    private static void dealHole(HoldemHistory history, int player, long cards) {
+        int high = 63 - Long.numberOfLeadingZeros(cards);
+        history.deal(player, DECK[high]);
+        history.deal(player, DECK[Long.numberOfTrailingZeros(cards)]);
+    }
+
+    /**
+     * Mask of the cards of the given combination of count cards not in used, using the
+     * combinatorial number system over the unused cards in deck order.
+     */
+    private static long unrank(int index, int count, long used) {
+        long unused = ~used & ((1L << DECK_SIZE) - 1);
+        int n = Long.bitCount(unused);
+        long cards = 0L;
+        for (int k = count; k >= 1; k--) {
+            int position = k - 1;
+            while (position + 1 < n && BINOMIAL[position + 1][k] <= index) position++;
+            index -= BINOMIAL[position][k];
+            cards |= 1L << nthCard(unused, position);
+            n = position;
+        }
+        return cards;
+    }
+
+    // Bit index of the set bit of mask at the given position, counting from the lowest
+    private static int nthCard(long mask, int position) {
+        for (int i = 0; i < position; i++) mask &= mask - 1;
+        return Long.numberOfTrailingZeros(mask);
+    }
+
+    @Override
+    public AbstractHistory randomDeal(AbstractHistory history) {
+        AbstractHistory copy = history.copy();
+        dealInitialCards(copy);
+        return copy;
+    }
+
+    @Override
+    public ArrayList<AbstractHistory> generateAllDeals(AbstractHistory history) {
+        throw new UnsupportedOperationException("Hold'em has " + HOLE_COMBOS * REMAINING_HOLE_COMBOS
+                + " deals; use a sampling engine");
+    }
+
+    public HoldemRules getRules() {
+        return rules;
+    }
+
+    public HandAbstraction getAbstraction() {
+        return abstraction;
+    }
+}
@@ -0,0 +1,74 @@
+package org.poker.GameSim;
+
+/**
+ * Betting structure and action abstraction of a heads-up hold'em game.
+ *
+ * Player 0 is the button: they post the small blind and act first preflop, player 1 acts
+ * first on every later street. Both players start with the same stack.
+ *
+ * In limit games every bet or raise is one small bet (the big blind) preflop and on the
+ * flop and one big bet (two big blinds) on the turn and river. In no-limit games bets and
+ * raises are restricted to the given fractions of the pot after calling, at least one big
+ * blind, plus going all-in. Either way a street allows at most maxBets bets, the big blind
+ * counting as the first preflop.
+ */
+public class HoldemRules {
+    final int smallBlind;
+    final int bigBlind;
+    final int stack;
+    final boolean limit;
+    final double[] betSizes;
+    final int maxBets;
+
+    private HoldemRules(int smallBlind, int bigBlind, int stack, boolean limit, double[] betSizes, int maxBets) {
+        this.smallBlind = smallBlind;
+        this.bigBlind = bigBlind;
+        this.stack = stack;
+        this.limit = limit;
+        this.betSizes = betSizes;
+        this.maxBets = maxBets;
+    }
+
+    /**
+     * Fixed-limit hold'em with the usual cap of four bets per street.
+     */
+    public static HoldemRules limit(int smallBlind, int bigBlind) {
+        // Deep enough that capped betting on every street never runs out of chips
+        return new HoldemRules(smallBlind, bigBlind, 24 * bigBlind, true, new double[] { 0 }, 4);
+    }
+
+    /**
+     * No-limit hold'em restricted to the given pot fractions and all-in.
+     */
+    public static HoldemRules noLimit(int smallBlind, int bigBlind, int stack, double[] potFractions, int maxBets) {
+        return new HoldemRules(smallBlind, bigBlind, stack, false, potFractions.clone(), maxBets);
+    }
+
+    public int getSmallBlind() {
+        return smallBlind;
+    }
+
+    public int getBigBlind() {
+        return bigBlind;
+    }
+
+    public int getStack() {
+        return stack;
+    }
+
+    public boolean isLimit() {
+        return limit;
+    }
+
+    public int numBetSizes() {
+        return betSizes.length;
+    }
+
+    public double getBetSize(int index) {
+        return betSizes[index];
+    }
+
+    public int getMaxBets() {
+        return maxBets;
+    }
+}
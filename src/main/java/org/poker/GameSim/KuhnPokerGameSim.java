@@ -5,19 +5,68 @@ import java.util.Collections;
 import org.poker.Card;
 import org.poker.CFR.History.AbstractHistory;
 import org.poker.CFR.History.KuhnPokerHistory;
+import org.poker.HandEval.HandEval;
 import org.poker.HandEval.KuhnPokerHandEval;
 
-public class KuhnPokerGameSim extends GameSim {
+/**
+ * Kuhn poker for two or more players, see {@link KuhnPokerHistory} for the rules. The
+ * deck holds one card more than there are players, ranked 1 (Jack) upwards.
+ *
+ * The range-based engines only support the two-player game.
+ */
+public class KuhnPokerGameSim extends RangeGameSim {
 
+    private final int numPlayers;
     private final ArrayList<Card> deck;
     private final KuhnPokerHandEval handEval;
 
+    // Ordered deals, one card per player, in the same order as generateAllDeals
+    private final Card[][] deals;
+    // One single-card hand per card, in deck order (the deck itself gets shuffled)
+    private final Card[][] privateHands;
+
     public KuhnPokerGameSim() {
+        this(2);
+    }
+
+    public KuhnPokerGameSim(int numPlayers) {
+        if (numPlayers < 2) throw new IllegalArgumentException("Kuhn poker needs at least two players");
+        this.numPlayers = numPlayers;
         deck = new ArrayList<>();
-        deck.add(new Card("1", 'H')); // Jack
-        deck.add(new Card("2", 'H')); // Queen
-        deck.add(new Card("3", 'H')); // King
+        for (int rank = 1; rank <= numPlayers + 1; rank++) {
+            deck.add(new Card(rank, 'H')); // Jack, Queen, King, Ace, ...
+        }
         handEval = new KuhnPokerHandEval();
+
+        ArrayList<Card[]> ordered = new ArrayList<>();
+        addDeals(new Card[numPlayers], 0, new boolean[deck.size()], ordered);
+        deals = ordered.toArray(new Card[0][]);
+
+        privateHands = new Card[deck.size()][];
+        for (int i = 0; i < deck.size(); i++) {
+            privateHands[i] = new Card[] { deck.get(i) };
+        }
+    }
+
+    private void addDeals(Card[] deal, int player, boolean[] used, ArrayList<Card[]> result) {
+        if (player == deal.length) {
+            result.add(deal.clone());
+            return;
+        }
+        for (int i = 0; i < deck.size(); i++) {
+            if (used[i]) continue;
+            used[i] = true;
+            deal[player] = deck.get(i);
+            addDeals(deal, player + 1, used, result);
+            used[i] = false;
+        }
+    }
+
+    /**
+     * Empty history for this number of players.
+     */
+    public KuhnPokerHistory newHistory() {
+        return new KuhnPokerHistory(numPlayers);
     }
 
     @Override
@@ -26,46 +75,32 @@ public class KuhnPokerGameSim extends GameSim {
     }
 
     @Override
-    public ArrayList<String> getAvailableActions(AbstractHistory history) {
+    public int legalActions(AbstractHistory history, int[] out) {
         KuhnPokerHistory kh = (KuhnPokerHistory) history;
-        ArrayList<String> acts = kh.getActions();
-        ArrayList<String> available = new ArrayList<>();
-        if (isTerminal(kh)) return available;
-
-        // Find the last non-Deal action
-        String last = null;
-        for (int i = acts.size() - 1; i >= 0; i--) {
-            String action = acts.get(i);
-            if (!action.startsWith("Deal")) {
-                last = action;
-                break;
-            }
-        }
+        if (kh.isTerminal()) return 0;
 
-        if (last == null || last.endsWith("Check")) {
-            // First action or after a check - can check or bet
-            available.add("Check");
-            available.add("Bet");
-        } else if (last.endsWith("Bet")) {
+        if (kh.facingBet()) {
             // After a bet - can call or fold
-            available.add("Call");
-            available.add("Fold");
+            out[0] = KuhnPokerHistory.CALL;
+            out[1] = KuhnPokerHistory.FOLD;
         } else {
-            // Default: can check or bet
-            available.add("Check");
-            available.add("Bet");
+            // First action or after a check - can check or bet
+            out[0] = KuhnPokerHistory.CHECK;
+            out[1] = KuhnPokerHistory.BET;
         }
-        return available;
+        return 2;
+    }
+
+    @Override
+    public int maxActions() {
+        return 2;
     }
 
     @Override
     public void dealInitialCards(AbstractHistory history) {
         KuhnPokerHistory kh = (KuhnPokerHistory) history;
         Collections.shuffle(deck);
-        kh.addCard(0, deck.get(0));
-        kh.addCard(1, deck.get(1));
-        kh.addAction("Deal P0:" + deck.get(0).getRank());
-        kh.addAction("Deal P1:" + deck.get(1).getRank());
+        for (int p = 0; p < numPlayers; p++) kh.deal(p, deck.get(p));
         kh.setCurrentPlayer(0); // ensure player 0 starts
     }
 
@@ -76,17 +111,63 @@ public class KuhnPokerGameSim extends GameSim {
 
     @Override
     public double[] terminalUtility(AbstractHistory history) {
-        ArrayList<Double> utils = handEval.utilityFromHistory(history);
-        double[] result = new double[utils.size()];
-        for (int i = 0; i < utils.size(); i++) {
-            result[i] = utils.get(i);
+        double[] result = new double[numPlayers()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = handEval.utility(history, i);
         }
         return result;
     }
 
+    @Override
+    public double terminalUtility(AbstractHistory history, int player) {
+        return handEval.utility(history, player);
+    }
+
     @Override
     public int numPlayers() {
-        return 2;
+        return numPlayers;
+    }
+
+    @Override
+    public boolean isChanceNode(AbstractHistory history) {
+        return history.getHand(0).isEmpty();
+    }
+
+    @Override
+    public int numChanceOutcomes(AbstractHistory history) {
+        return deals.length;
+    }
+
+    @Override
+    public void applyChanceOutcome(AbstractHistory history, int outcome) {
+        for (int p = 0; p < numPlayers; p++) history.deal(p, deals[outcome][p]);
+        history.setCurrentPlayer(0);
+    }
+
+    @Override
+    public Card[][] privateHands() {
+        return privateHands;
+    }
+
+    @Override
+    public int numCards() {
+        return deck.size();
+    }
+
+    @Override
+    public int cardIndex(Card card) {
+        return card.getRank() - 1;
+    }
+
+    @Override
+    public void dealHands(AbstractHistory history, Card[][] hands) {
+        for (int p = 0; p < numPlayers; p++) history.deal(p, hands[p][0]);
+        history.setCurrentPlayer(0);
+    }
+
+    @Override
+    public HandEval getHandEval() {
+        return handEval;
     }
 
     @Override
@@ -98,20 +179,12 @@ public class KuhnPokerGameSim extends GameSim {
 
     @Override
     public ArrayList<AbstractHistory> generateAllDeals(AbstractHistory history) {
-        ArrayList<AbstractHistory> deals = new ArrayList<>();
-        Card[] cards = { new Card("1",'H'), new Card("2",'H'), new Card("3",'H') };
-        for (int i = 0; i < cards.length; i++) {
-            for (int j = 0; j < cards.length; j++) {
-                if (i == j) continue;
-                KuhnPokerHistory kh = new KuhnPokerHistory();
-                kh.addCard(0, cards[i]);
-                kh.addCard(1, cards[j]);
-                kh.addAction("Deal P0:" + cards[i].getRank());
-                kh.addAction("Deal P1:" + cards[j].getRank());
-                kh.setCurrentPlayer(0);
-                deals.add(kh);
-            }
+        ArrayList<AbstractHistory> result = new ArrayList<>();
+        for (int d = 0; d < deals.length; d++) {
+            KuhnPokerHistory kh = new KuhnPokerHistory(numPlayers);
+            applyChanceOutcome(kh, d);
+            result.add(kh);
         }
-        return deals;
+        return result;
     }
 }
@@ -0,0 +1,247 @@
+package org.poker.GameSim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.SplittableRandom;
+import org.poker.Card;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.CFR.History.LeducHistory;
+import org.poker.HandEval.HandEval;
+import org.poker.HandEval.LeducHandEval;
+
+/**
+ * Leduc Hold'em, see {@link LeducHistory} for the rules.
+ *
+ * The root chance node deals the 30 ordered pairs of private cards and the chance node
+ * between the rounds deals one of the four cards left as the board. Folding is only
+ * offered when facing a bet.
+ *
+ * With suit isomorphism on, the root deals only the 15 pairs whose first card is a heart,
+ * each standing for itself and its suit-swapped twin (see {@link SuitIsomorphism}). The
+ * first card fixes both suits, so nothing below the root merges. Infosets are unaffected:
+ * {@link LeducHistory} keys cards by rank alone. Sampling draws a raw deal and maps it to
+ * its pair, so it costs one draw either way.
+ */
+public class LeducGameSim extends RangeGameSim {
+    private static final char[] SUITS = { 'H', 'S' };
+
+    // Fixed deck order, used for card indices and chance outcomes
+    private final Card[] cards;
+    private final ArrayList<Card> deck;
+    private final LeducHandEval handEval;
+
+    // Ordered (P0 card, P1 card) deals, in the same order as generateAllDeals
+    private final Card[][] deals;
+    private final Card[][] privateHands;
+    // Merged root deals, or null to deal all 30
+    private final SuitIsomorphism rootIsomorphism;
+
+    public LeducGameSim() {
+        this(false);
+    }
+
+    public LeducGameSim(boolean suitIsomorphic) {
+        cards = new Card[6];
+        for (int rank = 1; rank <= 3; rank++) {
+            for (int s = 0; s < SUITS.length; s++) {
+                cards[(rank - 1) * 2 + s] = new Card(rank, SUITS[s]); // Jack, Queen, King
+            }
+        }
+        deck = new ArrayList<>();
+        Collections.addAll(deck, cards);
+        handEval = new LeducHandEval();
+
+        deals = new Card[30][];
+        int d = 0;
+        for (int i = 0; i < cards.length; i++) {
+            for (int j = 0; j < cards.length; j++) {
+                if (i == j) continue;
+                deals[d++] = new Card[] { cards[i], cards[j] };
+            }
+        }
+
+        privateHands = new Card[cards.length][];
+        for (int i = 0; i < cards.length; i++) {
+            privateHands[i] = new Card[] { cards[i] };
+        }
+        rootIsomorphism = suitIsomorphic ? new SuitIsomorphism(deals, SUITS) : null;
+    }
+
+    @Override
+    public int currentPlayer(AbstractHistory history) {
+        return history.getCurrentPlayer();
+    }
+
+    @Override
+    public int legalActions(AbstractHistory history, int[] out) {
+        LeducHistory lh = (LeducHistory) history;
+        if (lh.isTerminal() || isChanceNode(lh)) return 0;
+
+        int n = 0;
+        boolean canRaise = lh.getRaises() < LeducHistory.MAX_RAISES;
+        if (lh.facingBet()) {
+            out[n++] = LeducHistory.CALL;
+            if (canRaise) out[n++] = LeducHistory.RAISE;
+            out[n++] = LeducHistory.FOLD;
+        } else {
+            out[n++] = LeducHistory.CHECK;
+            if (canRaise) out[n++] = LeducHistory.BET;
+        }
+        return n;
+    }
+
+    @Override
+    public int maxActions() {
+        return 3;
+    }
+
+    @Override
+    public void dealInitialCards(AbstractHistory history) {
+        Collections.shuffle(deck);
+        history.deal(0, deck.get(0));
+        history.deal(1, deck.get(1));
+        history.setCurrentPlayer(0); // ensure player 0 starts
+    }
+
+    @Override
+    public boolean isTerminal(AbstractHistory history) {
+        return history.isTerminal();
+    }
+
+    @Override
+    public double[] terminalUtility(AbstractHistory history) {
+        double[] result = new double[numPlayers()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = handEval.utility(history, i);
+        }
+        return result;
+    }
+
+    @Override
+    public double terminalUtility(AbstractHistory history, int player) {
+        return handEval.utility(history, player);
+    }
+
+    @Override
+    public int numPlayers() {
+        return 2;
+    }
+
+    @Override
+    public boolean isChanceNode(AbstractHistory history) {
+        return history.getHand(0).isEmpty() || ((LeducHistory) history).isAwaitingBoard();
+    }
+
+    @Override
+    public int numChanceOutcomes(AbstractHistory history) {
+        if (history.getHand(0).isEmpty() && rootIsomorphism != null) return rootIsomorphism.size();
+        return rawChanceOutcomes(history);
+    }
+
+    @Override
+    public int rawChanceOutcomes(AbstractHistory history) {
+        // Private deals, or any card the players do not hold
+        return history.getHand(0).isEmpty() ? deals.length : cards.length - 2;
+    }
+
+    @Override
+    public int chanceMultiplicity(AbstractHistory history, int outcome) {
+        if (history.getHand(0).isEmpty() && rootIsomorphism != null) return rootIsomorphism.multiplicity(outcome);
+        return 1;
+    }
+
+    @Override
+    public int sampleChanceOutcome(AbstractHistory history, SplittableRandom random) {
+        if (history.getHand(0).isEmpty() && rootIsomorphism != null) {
+            return rootIsomorphism.classOf(random.nextInt(deals.length));
+        }
+        return super.sampleChanceOutcome(history, random);
+    }
+
+    @Override
+    public void applyChanceOutcome(AbstractHistory history, int outcome) {
+        if (history.getHand(0).isEmpty()) {
+            if (rootIsomorphism != null) outcome = rootIsomorphism.representative(outcome);
+            history.deal(0, deals[outcome][0]);
+            history.deal(1, deals[outcome][1]);
+        } else {
+            Card held0 = history.getHand(0).get(0);
+            Card held1 = history.getHand(1).get(0);
+            for (Card card : cards) {
+                if (card == held0 || card == held1) continue;
+                if (outcome-- == 0) {
+                    history.dealBoard(card);
+                    break;
+                }
+            }
+        }
+        history.setCurrentPlayer(0);
+    }
+
+    @Override
+    public Card[][] privateHands() {
+        return privateHands;
+    }
+
+    @Override
+    public int numCards() {
+        return cards.length;
+    }
+
+    @Override
+    public int cardIndex(Card card) {
+        return (card.getRank() - 1) * 2 + (card.getSuite() == SUITS[0] ? 0 : 1);
+    }
+
+    @Override
+    public void dealHands(AbstractHistory history, Card[][] hands) {
+        history.deal(0, hands[0][0]);
+        history.deal(1, hands[1][0]);
+        history.setCurrentPlayer(0);
+    }
+
+    @Override
+    public ArrayList<Card> publicChanceCards(AbstractHistory history) {
+        ArrayList<Card> result = new ArrayList<>(cards.length);
+        Collections.addAll(result, cards);
+        return result;
+    }
+
+    @Override
+    public void dealPublicCard(AbstractHistory history, Card card) {
+        history.dealBoard(card);
+        history.setCurrentPlayer(0);
+    }
+
+    @Override
+    public ArrayList<Card> getBoard(AbstractHistory history) {
+        return new ArrayList<>(((LeducHistory) history).getBoard());
+    }
+
+    @Override
+    public HandEval getHandEval() {
+        return handEval;
+    }
+
+    @Override
+    public AbstractHistory randomDeal(AbstractHistory history) {
+        AbstractHistory copy = history.copy();
+        dealInitialCards(copy);
+        return copy;
+    }
+
+    public boolean isSuitIsomorphic() {
+        return rootIsomorphism != null;
+    }
+
+    @Override
+    public ArrayList<AbstractHistory> generateAllDeals(AbstractHistory history) {
+        ArrayList<AbstractHistory> result = new ArrayList<>();
+        for (int d = 0; d < numChanceOutcomes(history); d++) {
+            AbstractHistory deal = history.copy();
+            applyChanceOutcome(deal, d);
+            result.add(deal);
+        }
+        return result;
+    }
+}
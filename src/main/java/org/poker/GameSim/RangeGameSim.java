@@ -0,0 +1,50 @@
+package org.poker.GameSim;
+
+import java.util.ArrayList;
+import org.poker.Card;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.HandEval.HandEval;
+
+/**
+ * A two-player game whose root chance node deals every player one hand from a shared list
+ * of private hands, and whose remaining chance nodes deal public cards. Exposing this
+ * structure lets solvers walk the public tree once with per-hand ranges instead of once
+ * per deal.
+ */
+public abstract class RangeGameSim extends GameSim {
+    /**
+     * Every private hand a player can be dealt; the same list for every player.
+     */
+    public abstract Card[][] privateHands();
+
+    /**
+     * Number of distinct cards in the deck; {@link #cardIndex} maps cards into [0, numCards).
+     */
+    public abstract int numCards();
+    public abstract int cardIndex(Card card);
+
+    /**
+     * Replaces the root chance node: deals hands[p] to player p.
+     */
+    public abstract void dealHands(AbstractHistory history, Card[][] hands);
+
+    /**
+     * Every card a public chance node can deal, ignoring cards held by the players.
+     */
+    public ArrayList<Card> publicChanceCards(AbstractHistory history) {
+        return new ArrayList<>();
+    }
+
+    public void dealPublicCard(AbstractHistory history, Card card) {
+        throw new UnsupportedOperationException("Game has no public cards");
+    }
+
+    /**
+     * Public cards dealt so far, combined with each private hand at showdown.
+     */
+    public ArrayList<Card> getBoard(AbstractHistory history) {
+        return new ArrayList<>();
+    }
+
+    public abstract HandEval getHandEval();
+}
@@ -0,0 +1,112 @@
+package org.poker.GameSim;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.poker.Card;
+
+/**
+ * Merges the outcomes of a chance node that differ only by a permutation of the free suits,
+ * the suits no card dealt before the node uses.
+ *
+ * Permuting free suits leaves everything dealt so far in place and maps every continuation
+ * to an equivalent one, so one representative per class is enough as long as it carries the
+ * size of its class as a weight. The representative of a class relabels its free suits in
+ * order of first appearance to the free suits in the given order: with no card dealt yet, the
+ * first card of every representative has the first suit.
+ */
+public final class SuitIsomorphism {
+    private final int[] representatives;
+    private final int[] multiplicities;
+    // Merged outcome of every raw outcome, so that sampling takes one draw
+    private final int[] classes;
+    private final int rawOutcomes;
+
+    /**
+     * @param outcomes  every raw outcome of the node, each as the cards it deals in order
+     * @param freeSuits the suits that may be permuted
+     */
+    public SuitIsomorphism(Card[][] outcomes, char[] freeSuits) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < outcomes.length; i++) index.put(key(outcomes[i]), i);
+
+        int[] canonicals = new int[outcomes.length];
+        int[] count = new int[outcomes.length];
+        for (int i = 0; i < outcomes.length; i++) {
+            Integer canonical = index.get(key(canonical(outcomes[i], freeSuits)));
+            if (canonical == null) throw new IllegalArgumentException("Outcomes are not closed under suit permutations");
+            canonicals[i] = canonical;
+            count[canonical]++;
+        }
+
+        int size = 0;
+        for (int c : count) if (c > 0) size++;
+        representatives = new int[size];
+        multiplicities = new int[size];
+        int[] merged = new int[outcomes.length];
+        int n = 0;
+        for (int i = 0; i < outcomes.length; i++) {
+            if (count[i] == 0) continue;
+            merged[i] = n;
+            representatives[n] = i;
+            multiplicities[n++] = count[i];
+        }
+        classes = new int[outcomes.length];
+        for (int i = 0; i < outcomes.length; i++) classes[i] = merged[canonicals[i]];
+        rawOutcomes = outcomes.length;
+    }
+
+    private static Card[] canonical(Card[] outcome, char[] freeSuits) {
+        char[] from = new char[freeSuits.length];
+        int assigned = 0;
+        Card[] result = new Card[outcome.length];
+        for (int c = 0; c < outcome.length; c++) {
+            char suit = outcome[c].getSuite();
+            if (new String(freeSuits).indexOf(suit) >= 0) {
+                int label = new String(from, 0, assigned).indexOf(suit);
+                if (label < 0) {
+                    label = assigned;
+                    from[assigned++] = suit;
+                }
+                suit = freeSuits[label];
+            }
+            result[c] = new Card(outcome[c].getRank(), suit);
+        }
+        return result;
+    }
+
+    private static String key(Card[] cards) {
+        StringBuilder key = new StringBuilder();
+        for (Card card : cards) key.append(card.getRank()).append(card.getSuite()).append(' ');
+        return key.toString();
+    }
+
+    /**
+     * Number of merged outcomes.
+     */
+    public int size() {
+        return representatives.length;
+    }
+
+    /**
+     * Raw index of the i-th merged outcome.
+     */
+    public int representative(int i) {
+        return representatives[i];
+    }
+
+    public int multiplicity(int i) {
+        return multiplicities[i];
+    }
+
+    /**
+     * The merged outcome standing for the given raw one. Mapping a uniformly drawn raw
+     * outcome draws each merged outcome with its multiplicity.
+     */
+    public int classOf(int raw) {
+        return classes[raw];
+    }
+
+    public int rawOutcomes() {
+        return rawOutcomes;
+    }
+}
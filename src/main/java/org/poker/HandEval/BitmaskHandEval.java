@@ -1,19 +1,158 @@
 package org.poker.HandEval;
 
-import org.poker.CFR.History.AbstractHistory;
 import org.poker.Card;
 
 import java.util.ArrayList;
 
+/**
+ * Hold'em evaluator for 5 to 7 cards working on 52-bit card masks.
+ *
+ * The mask is split into one 13-bit rank mask per suit. Rank multiplicities come from
+ * bitwise ands of the suit masks, straights and kickers from two 8192-entry tables built
+ * once, so an evaluation is a few dozen bit operations and never allocates.
+ *
+ * {@link #evaluate} returns a strength where a larger value is a better hand and equal
+ * values tie: the category (0 = high card ... 8 = straight flush) sits in bits 20-23 and
+ * the ranks deciding ties within the category are packed as 4-bit nibbles below it.
+ */
 public class BitmaskHandEval extends HandEval {
+    public static final int HIGH_CARD = 0;
+    public static final int PAIR = 1;
+    public static final int TWO_PAIR = 2;
+    public static final int TRIPS = 3;
+    public static final int STRAIGHT = 4;
+    public static final int FLUSH = 5;
+    public static final int FULL_HOUSE = 6;
+    public static final int QUADS = 7;
+    public static final int STRAIGHT_FLUSH = 8;
+
+    private static final int CATEGORY_SHIFT = 20;
+    private static final int RANK_MASK = 0x1FFF;
+
+    // Rank index (0 = deuce ... 12 = ace) of the top card of the best straight, plus one; 0 if none
+    private static final byte[] STRAIGHT_TOP = new byte[1 << 13];
+    // Up to five highest ranks of a rank mask packed as nibbles, highest in bits 16-19
+    private static final int[] TOP_FIVE = new int[1 << 13];
+
+    static {
+        for (int mask = 0; mask < (1 << 13); mask++) {
+            for (int top = 12; top >= 3; top--) {
+                int run = 0x1F << (top - 4);
+                // The wheel A-2-3-4-5 uses the ace as the low card
+                if (top == 3) run = 0xF | (1 << 12);
+                if ((mask & run) == run) {
+                    STRAIGHT_TOP[mask] = (byte) (top + 1);
+                    break;
+                }
+            }
+
+            int packed = 0;
+            int remaining = mask;
+            for (int i = 0; i < 5; i++) {
+                packed <<= 4;
+                if (remaining != 0) {
+                    int top = highest(remaining);
+                    packed |= top;
+                    remaining &= ~(1 << top);
+                }
+            }
+            TOP_FIVE[mask] = packed;
+        }
+    }
+
     @Override
     public int compareHands(ArrayList<Card> a, ArrayList<Card> b) {
+        return Integer.compare(evaluate(handToBitmask(a)), evaluate(handToBitmask(b)));
+    }
+
+    /**
+     * Strength of the best five-card hand within a mask of 5 to 7 cards.
+     */
+    public int evaluate(long cards) {
+        int spades = (int) cards & RANK_MASK;
+        int hearts = (int) (cards >>> 13) & RANK_MASK;
+        int diamonds = (int) (cards >>> 26) & RANK_MASK;
+        int clubs = (int) (cards >>> 39) & RANK_MASK;
+
+        int flushSuit = flushRanks(spades, hearts, diamonds, clubs);
+        if (flushSuit != 0) {
+            int straightTop = STRAIGHT_TOP[flushSuit];
+            if (straightTop != 0) return value(STRAIGHT_FLUSH, straightTop - 1);
+        }
+
+        int ranks = spades | hearts | diamonds | clubs;
+        int twoOrMore = (spades & hearts) | (spades & diamonds) | (spades & clubs)
+                | (hearts & diamonds) | (hearts & clubs) | (diamonds & clubs);
+        int threeOrMore = (spades & hearts & diamonds) | (spades & hearts & clubs)
+                | (spades & diamonds & clubs) | (hearts & diamonds & clubs);
+        int four = spades & hearts & diamonds & clubs;
+
+        if (four != 0) {
+            int quad = highest(four);
+            return value(QUADS, quad << 4 | highest(ranks & ~(1 << quad)));
+        }
+
+        if (threeOrMore != 0) {
+            int trips = highest(threeOrMore);
+            int pairs = twoOrMore & ~(1 << trips);
+            if (pairs != 0) return value(FULL_HOUSE, trips << 4 | highest(pairs));
+        }
+
+        if (flushSuit != 0) return value(FLUSH, TOP_FIVE[flushSuit]);
+
+        int straightTop = STRAIGHT_TOP[ranks];
+        if (straightTop != 0) return value(STRAIGHT, straightTop - 1);
+
+        if (threeOrMore != 0) {
+            int trips = highest(threeOrMore);
+            return value(TRIPS, trips << 8 | kickers(ranks & ~(1 << trips), 2));
+        }
+
+        if (twoOrMore != 0) {
+            int high = highest(twoOrMore);
+            int rest = twoOrMore & ~(1 << high);
+            if (rest != 0) {
+                int low = highest(rest);
+                int kicker = highest(ranks & ~(1 << high) & ~(1 << low));
+                return value(TWO_PAIR, high << 8 | low << 4 | kicker);
+            }
+            return value(PAIR, high << 12 | kickers(ranks & ~(1 << high), 3));
+        }
+
+        return value(HIGH_CARD, TOP_FIVE[ranks]);
+    }
+
+    /**
+     * Evaluates every hole-card mask together with one board into out.
+     */
+    public void evaluateAll(long board, long[] holeCards, int[] out) {
+        for (int i = 0; i < holeCards.length; i++) {
+            out[i] = evaluate(board | holeCards[i]);
+        }
+    }
+
+    public static int category(int strength) {
+        return strength >>> CATEGORY_SHIFT;
+    }
+
+    private static int flushRanks(int spades, int hearts, int diamonds, int clubs) {
+        if (Integer.bitCount(spades) >= 5) return spades;
+        if (Integer.bitCount(hearts) >= 5) return hearts;
+        if (Integer.bitCount(diamonds) >= 5) return diamonds;
+        if (Integer.bitCount(clubs) >= 5) return clubs;
         return 0;
     }
 
-    @Override
-    public ArrayList<Double> utilityFromHistory(AbstractHistory history) {
-        return null;
+    private static int kickers(int ranks, int count) {
+        return TOP_FIVE[ranks] >>> (4 * (5 - count));
+    }
+
+    private static int value(int category, int ranks) {
+        return category << CATEGORY_SHIFT | ranks;
+    }
+
+    private static int highest(int mask) {
+        return 31 - Integer.numberOfLeadingZeros(mask);
     }
 
     /**
@@ -31,17 +170,20 @@ public class BitmaskHandEval extends HandEval {
      * @param hand Array of cards, presumably 7
      * @return Bitset represented as long
      */
-    private long handToBitmask(ArrayList<Card> hand) {
+    public static long handToBitmask(ArrayList<Card> hand) {
         long result = 0;
         for (Card card : hand) {
-            //assuming Ace is rank 14
-            long mask = 1L << 13 * suitToNumber(card.getSuite()) + card.getRank() - 2;
-            result |= mask;
+            result |= cardToBitmask(card);
         }
         return result;
     }
 
-    private int suitToNumber(char suit) {
+    public static long cardToBitmask(Card card) {
+        //assuming Ace is rank 14
+        return 1L << 13 * suitToNumber(card.getSuite()) + card.getRank() - 2;
+    }
+
+    private static int suitToNumber(char suit) {
         return switch (suit) {
             case 'S' -> 0;
             case 'H' -> 1;
@@ -56,40 +56,85 @@ public abstract class HandEval {
 
     public abstract int compareHands(ArrayList<Card> a, ArrayList<Card> b);
 
-    public ArrayList<Double> utilityFromHistory(AbstractHistory history) {
-
-        ArrayList<ArrayList<Card>> hands = new ArrayList<>();
-        hands.add(history.getHand(0));
-        hands.add(history.getHand(1));
-
-        // Base contributions: antes
-        ArrayList<Double> contributions = new ArrayList<>();
-        contributions.add(1.0);
-        contributions.add(1.0);
+    /**
+     * Returns the utility of one player at a terminal history, read directly from
+     * the history's incremental contributions without allocating.
+     *
+     * The pot is split into side pots at every distinct contribution level. Each side pot
+     * goes to the best hands among the players who matched it and have not folded, ties
+     * splitting it evenly. Once everyone but one player has folded, that player takes the
+     * whole pot without a showdown. A side pot no remaining player matched goes to the
+     * winners of the pot below it.
+     */
+    public double utility(AbstractHistory history, int player) {
+        int[] contributions = history.getContributions();
+        int numPlayers = contributions.length;
+        int live = ~history.getFolded() & ((1 << numPlayers) - 1);
+
+        if (Integer.bitCount(live) == 1) {
+            int pot = 0;
+            for (int contribution : contributions) pot += contribution;
+            return (live & (1 << player)) != 0 ? pot - contributions[player] : -contributions[player];
+        }
 
-        // Track additional bets/calls
-        for (String action : history.getActions()) {
-            if (action.endsWith("Bet") || action.endsWith("Call")) {
-                int p = action.startsWith("P0:") ? 0 : 1;
-                contributions.set(p, contributions.get(p) + 1.0);
+        double won = 0.0;
+        int level = 0;
+        int winners = 0;
+        while (true) {
+            int next = Integer.MAX_VALUE;
+            for (int contribution : contributions) {
+                if (contribution > level && contribution < next) next = contribution;
+            }
+            if (next == Integer.MAX_VALUE) break;
+
+            int matched = 0;
+            int eligible = 0;
+            for (int p = 0; p < numPlayers; p++) {
+                if (contributions[p] < next) continue;
+                matched++;
+                if ((live & (1 << p)) != 0) eligible |= 1 << p;
+            }
+            if (eligible != 0) winners = bestHands(history, eligible);
+            if ((winners & (1 << player)) != 0) {
+                won += (double) (next - level) * matched / Integer.bitCount(winners);
             }
+            level = next;
         }
+        return won - contributions[player];
+    }
 
-        // Handle folding
-        for (String action : history.getActions()) {
-            if (action.endsWith("Fold")) {
-                ArrayList<Double> utils = new ArrayList<>();
-                utils.add(0.0);
-                utils.add(0.0);
-                int foldingPlayer = action.startsWith("P0:") ? 0 : 1;
-                int winner = 1 - foldingPlayer;
-                utils.set(winner, contributions.get(foldingPlayer));
-                utils.set(foldingPlayer, -contributions.get(foldingPlayer));
-                return utils;
+    /**
+     * Bit mask of the strongest hands among the given players.
+     */
+    private int bestHands(AbstractHistory history, int players) {
+        int best = Integer.numberOfTrailingZeros(players);
+        int winners = 1 << best;
+        for (int rest = players & (players - 1); rest != 0; rest &= rest - 1) {
+            int p = Integer.numberOfTrailingZeros(rest);
+            int comparison = compareAtShowdown(history, p, best);
+            if (comparison > 0) {
+                best = p;
+                winners = 1 << p;
+            } else if (comparison == 0) {
+                winners |= 1 << p;
             }
         }
+        return winners;
+    }
 
-        // Showdown
-        return utility(contributions, hands);
+    /**
+     * Compares two players' hands at a showdown of the given history. Evaluators that can
+     * read hands more cheaply than through {@link #compareHands} override it.
+     */
+    protected int compareAtShowdown(AbstractHistory history, int a, int b) {
+        return compareHands(history.getHand(a), history.getHand(b));
+    }
+
+    public ArrayList<Double> utilityFromHistory(AbstractHistory history) {
+        ArrayList<Double> utils = new ArrayList<>();
+        for (int p = 0; p < history.numPlayers(); p++) {
+            utils.add(utility(history, p));
+        }
+        return utils;
     }
 }
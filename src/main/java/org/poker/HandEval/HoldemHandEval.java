@@ -0,0 +1,19 @@
+package org.poker.HandEval;
+
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.CFR.History.HoldemHistory;
+
+/**
+ * Hold'em hand evaluator reading showdowns straight from the card masks of a
+ * {@link HoldemHistory}.
+ */
+public class HoldemHandEval extends BitmaskHandEval {
+
+    @Override
+    protected int compareAtShowdown(AbstractHistory history, int a, int b) {
+        HoldemHistory hh = (HoldemHistory) history;
+        return Integer.compare(
+                evaluate(hh.getHoleMask(a) | hh.getBoardMask()),
+                evaluate(hh.getHoleMask(b) | hh.getBoardMask()));
+    }
+}
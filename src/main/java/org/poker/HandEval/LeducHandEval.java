@@ -0,0 +1,47 @@
+package org.poker.HandEval;
+
+import java.util.ArrayList;
+import org.poker.Card;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.CFR.History.LeducHistory;
+
+/**
+ * Leduc Hold'em hand evaluator: a private card pairing the board beats any unpaired card,
+ * otherwise the higher private card wins.
+ *
+ * Hands are compared as lists of the private card followed by the board card, if any.
+ */
+public class LeducHandEval extends HandEval {
+
+    @Override
+    public int compareHands(ArrayList<Card> a, ArrayList<Card> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            throw new IllegalArgumentException("Hands must each contain a private card.");
+        }
+        return Integer.compare(strength(a), strength(b));
+    }
+
+    private static int strength(ArrayList<Card> hand) {
+        int boardRank = hand.size() > 1 ? hand.get(1).getRank() : 0;
+        return strength(hand.get(0).getRank(), boardRank);
+    }
+
+    /**
+     * Strength of a private card against the board rank (0 before the board is dealt).
+     * Larger is better and equal values tie.
+     */
+    public static int strength(int rank, int boardRank) {
+        // Ranks are 1 to 3, so any pair outranks any high card
+        return rank == boardRank ? 4 + rank : rank;
+    }
+
+    @Override
+    protected int compareAtShowdown(AbstractHistory history, int a, int b) {
+        // Read from the history without building hand lists
+        ArrayList<Card> board = ((LeducHistory) history).getBoard();
+        int boardRank = board.isEmpty() ? 0 : board.get(0).getRank();
+        return Integer.compare(
+                strength(history.getHand(a).get(0).getRank(), boardRank),
+                strength(history.getHand(b).get(0).getRank(), boardRank));
+    }
+}
@@ -2,16 +2,39 @@ package org.poker;
 
 import org.poker.GameSim.KuhnPokerGameSim;
 import org.poker.CFR.CFR;
+import org.poker.CFR.ExploitabilityEvaluator;
 import org.poker.CFR.History.KuhnPokerHistory;
 import org.poker.CFR.InfoSet;
+import org.poker.CFR.SolverStats;
+import org.poker.Runner.RunConfig;
+import org.poker.Runner.RunResult;
+import org.poker.Runner.Sweep;
 import org.poker.logging.WandBLogger;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 
+/**
+ * With no arguments, asks for the settings of a Kuhn poker run logged to MLflow. With
+ * arguments, runs headless from .properties files and key=value settings (see
+ * {@link RunConfig}), e.g.
+ *
+ *   Main game=leduc engine=COMPILED rule=dcfr iterations=5000 summary=run.csv
+ *   Main sweep.properties sweep.rule="vanilla;dcfr" parallelism=4
+ *
+ * Exits with status 1 if any run failed.
+ */
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0) {
+            runHeadless(RunConfig.fromArgs(args));
+            return;
+        }
+
         Scanner sc = new Scanner(System.in);
 
         System.out.println("Enter number of iterations:");
@@ -35,13 +58,36 @@ public class Main {
 
         WandBLogger logger = new WandBLogger(params,url,exp);
         CFR trainer = new CFR(game);
+        trainer.setExploitabilityEvaluator(new ExploitabilityEvaluator(game, initial));
+        SolverStats stats = new SolverStats();
+        stats.register(exp);
+        trainer.setStats(stats);
         trainer.train(iterations, initial, logger,freq);
-        printStrategies(trainer.getInfoSets());
+        printStrategies(trainer.getInfoSets(initial));
 
         sc.close();
         logger.finish();
     }
 
+    private static void runHeadless(RunConfig config) throws IOException, InterruptedException {
+        List<RunConfig> runs = config.expand();
+        System.out.println(runs.size() + (runs.size() == 1 ? " run" : " runs"));
+        List<RunResult> results = Sweep.run(runs, config.getInt("parallelism", 1), result -> {
+            synchronized (System.out) {
+                System.out.println(result);
+            }
+        });
+
+        if (config.has("summary")) {
+            Path summary = Path.of(config.get("summary", ""));
+            RunResult.writeSummary(results, summary);
+            System.out.println("Summary written to " + summary);
+        }
+        for (RunResult result : results) {
+            if (result.getError() != null) System.exit(1);
+        }
+    }
+
     private static void printStrategies(Map<String, InfoSet> infoSets) {
         System.out.println("Average strategies:");
         for (InfoSet iset : infoSets.values()) {
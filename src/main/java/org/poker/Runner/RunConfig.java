@@ -0,0 +1,187 @@
+package org.poker.Runner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Settings of a headless training run, read from properties files and key=value arguments.
+ *
+ * Keys:
+ *   game             kuhn, leduc, leduc-iso, holdem-limit or holdem-nolimit (kuhn)
+ *   players          players in Kuhn poker (2)
+ *   engine           a {@link org.poker.CFR.SolverType} name, or parallel (vanilla)
+ *   rule             update rule as {@link org.poker.CFR.UpdateRule#parse} reads it (vanilla)
+ *   pruning          as {@link org.poker.CFR.Pruning#parse} reads it; full-traversal engines only (none)
+ *   threads          worker threads of the parallel engine (available processors)
+ *   deterministic    parallel engine sums in a fixed order, same tables for any thread count (false)
+ *   iterations       iterations to train (1000)
+ *   seconds          wall-clock limit, 0 for none; the run stops at whichever limit comes first (0)
+ *   seed             seed of the sampling engines (0)
+ *   evaluate         report exploitability at the end; not available for hold'em (true)
+ *   checkpoint       checkpoint file, with {run} replaced by the run's index in a sweep (none)
+ *   checkpointEvery  iterations between checkpoints (10000)
+ *   mlflow.url       MLflow tracking server; no logging without it
+ *   mlflow.experiment, logFrequency   experiment name (cfr) and iterations between log steps (1000)
+ *   abstraction      directory caching the hold'em abstraction (abstraction)
+ *   abstraction.kind equity buckets postflop hands by enumerated hand strength, clustered looks
+ *                    flop and turn buckets up in k-means tables built once under the directory (equity)
+ *   abstraction.buckets  buckets preflop, flop, turn and river, comma separated (169,20,20,20)
+ *   abstraction.runouts, abstraction.samples   next-street cards per hand and rollouts per card
+ *                    of the clustered tables (16, 32)
+ *   summary          CSV or JSON file for the results, by extension (none)
+ *   parallelism      runs of a sweep trained at once (1)
+ *
+ * Any key prefixed with "sweep." holds values separated by ';' and is expanded into one
+ * run per combination, e.g. sweep.rule=vanilla;cfr+;dcfr with sweep.engine=VANILLA;COMPILED
+ * gives six runs.
+ */
+public class RunConfig {
+    public static final String SWEEP_PREFIX = "sweep.";
+
+    private final LinkedHashMap<String, String> values;
+    // The swept keys this run fixed, in order, for labelling results
+    private final LinkedHashMap<String, String> swept;
+
+    public RunConfig() {
+        this(new LinkedHashMap<>(), new LinkedHashMap<>());
+    }
+
+    private RunConfig(LinkedHashMap<String, String> values, LinkedHashMap<String, String> swept) {
+        this.values = values;
+        this.swept = swept;
+    }
+
+    /**
+     * Reads every argument ending in .properties as a file, in order, then applies the
+     * key=value arguments on top, wherever they appear among the files.
+     */
+    public static RunConfig fromArgs(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        LinkedHashMap<String, String> overrides = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                overrides.put(arg.substring(0, separator).trim(), arg.substring(separator + 1).trim());
+            } else if (arg.endsWith(".properties")) {
+                files.add(Path.of(arg));
+            } else {
+                throw new IllegalArgumentException("Expected a .properties file or key=value but got " + arg);
+            }
+        }
+
+        RunConfig config = new RunConfig();
+        for (Path file : files) config.load(file);
+        for (Map.Entry<String, String> override : overrides.entrySet()) config.set(override.getKey(), override.getValue());
+        return config;
+    }
+
+    public void load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+        for (String key : properties.stringPropertyNames()) set(key, properties.getProperty(key).trim());
+    }
+
+    public void set(String key, String value) {
+        values.put(key, value);
+    }
+
+    public boolean isSweep() {
+        for (String key : values.keySet()) {
+            if (key.startsWith(SWEEP_PREFIX)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * One config per combination of the swept values, in order with the last swept key
+     * varying fastest. A config without sweep keys expands to itself.
+     */
+    public List<RunConfig> expand() {
+        List<RunConfig> runs = new ArrayList<>();
+        LinkedHashMap<String, String> base = new LinkedHashMap<>();
+        List<String> keys = new ArrayList<>();
+        List<String[]> options = new ArrayList<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (entry.getKey().startsWith(SWEEP_PREFIX)) {
+                keys.add(entry.getKey().substring(SWEEP_PREFIX.length()));
+                options.add(entry.getValue().split(";"));
+            } else {
+                base.put(entry.getKey(), entry.getValue());
+            }
+        }
+        expand(base, new LinkedHashMap<>(), keys, options, 0, runs);
+        return runs;
+    }
+
+    private static void expand(LinkedHashMap<String, String> base, LinkedHashMap<String, String> fixed,
+                               List<String> keys, List<String[]> options, int k, List<RunConfig> runs) {
+        if (k == keys.size()) {
+            LinkedHashMap<String, String> values = new LinkedHashMap<>(base);
+            values.putAll(fixed);
+            runs.add(new RunConfig(values, new LinkedHashMap<>(fixed)));
+            return;
+        }
+        for (String option : options.get(k)) {
+            fixed.put(keys.get(k), option.trim());
+            expand(base, fixed, keys, options, k + 1, runs);
+        }
+        fixed.remove(keys.get(k));
+    }
+
+    /**
+     * The swept settings of this run, such as "rule=dcfr engine=COMPILED", or "run" if none.
+     */
+    public String label() {
+        if (swept.isEmpty()) return "run";
+        StringBuilder label = new StringBuilder();
+        for (Map.Entry<String, String> entry : swept.entrySet()) {
+            if (label.length() > 0) label.append(' ');
+            label.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return label.toString();
+    }
+
+    public String get(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    public boolean has(String key) {
+        return values.containsKey(key);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Every setting, for logging as run parameters.
+     */
+    public Map<String, String> asMap() {
+        return new LinkedHashMap<>(values);
+    }
+}
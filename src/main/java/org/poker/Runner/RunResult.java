@@ -0,0 +1,138 @@
+package org.poker.Runner;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Outcome of one training run, and the CSV and JSON summaries of a list of them.
+ * Exploitability is NaN when it was not evaluated; error is null unless the run failed.
+ */
+public class RunResult {
+    private static final String[] COLUMNS = {
+            "index", "label", "game", "engine", "rule", "threads", "iterations", "seconds",
+            "iterationsPerSecond", "infoSets", "exploitability", "exploitabilityMbb", "error"
+    };
+
+    int index;
+    String label;
+    String game;
+    String engine;
+    String rule;
+    int threads;
+    int iterations;
+    double seconds;
+    int infoSets;
+    double exploitability = Double.NaN;
+    double exploitabilityMbb = Double.NaN;
+    String error;
+
+    public double iterationsPerSecond() {
+        return seconds > 0 ? iterations / seconds : 0.0;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public int getInfoSets() {
+        return infoSets;
+    }
+
+    public double getExploitability() {
+        return exploitability;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    private Object[] fields() {
+        return new Object[] {
+                index, label, game, engine, rule, threads, iterations, seconds,
+                iterationsPerSecond(), infoSets, exploitability, exploitabilityMbb, error
+        };
+    }
+
+    @Override
+    public String toString() {
+        if (error != null) return String.format("#%d %s failed: %s", index, label, error);
+        return String.format(Locale.ROOT, "#%d %s: %d iterations in %.1f s (%.0f it/s), %d infosets, exploitability %.6f",
+                index, label, iterations, seconds, iterationsPerSecond(), infoSets, exploitability);
+    }
+
+    /**
+     * Writes the results as CSV, or as a JSON array if the file name ends in .json.
+     */
+    public static void writeSummary(List<RunResult> results, Path path) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+            if (path.toString().endsWith(".json")) {
+                writeJson(results, out);
+            } else {
+                writeCsv(results, out);
+            }
+        }
+    }
+
+    private static void writeCsv(List<RunResult> results, PrintWriter out) {
+        out.println(String.join(",", COLUMNS));
+        for (RunResult result : results) {
+            Object[] fields = result.fields();
+            StringBuilder row = new StringBuilder();
+            for (int f = 0; f < fields.length; f++) {
+                if (f > 0) row.append(',');
+                row.append(csvField(fields[f]));
+            }
+            out.println(row);
+        }
+    }
+
+    private static String csvField(Object value) {
+        if (value == null) return "";
+        String text = format(value);
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) return text;
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private static void writeJson(List<RunResult> results, PrintWriter out) {
+        out.println("[");
+        for (int r = 0; r < results.size(); r++) {
+            Object[] fields = results.get(r).fields();
+            StringBuilder object = new StringBuilder("  {");
+            for (int f = 0; f < fields.length; f++) {
+                if (f > 0) object.append(", ");
+                object.append('"').append(COLUMNS[f]).append("\": ").append(jsonField(fields[f]));
+            }
+            object.append(r + 1 < results.size() ? "}," : "}");
+            out.println(object);
+        }
+        out.println("]");
+    }
+
+    private static String jsonField(Object value) {
+        if (value == null) return "null";
+        if (value instanceof String text) {
+            return '"' + text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + '"';
+        }
+        // JSON has no NaN
+        if (value instanceof Double number && number.isNaN()) return "null";
+        return format(value);
+    }
+
+    private static String format(Object value) {
+        if (value instanceof Double number) return number.isNaN() ? "" : String.format(Locale.ROOT, "%.6g", number);
+        return value.toString();
+    }
+}
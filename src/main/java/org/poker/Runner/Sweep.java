@@ -0,0 +1,58 @@
+package org.poker.Runner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Trains many configurations on one shared fixed-size executor. Runs start in order and
+ * finish in any order; results come back in the order of the configurations.
+ *
+ * Parallelism is the number of runs in flight, independent of the worker threads a
+ * parallel engine starts inside a run, so the two multiply.
+ */
+public class Sweep {
+    private Sweep() {
+    }
+
+    /**
+     * @param onFinished called with each result as its run finishes, from the run's thread
+     */
+    public static List<RunResult> run(List<RunConfig> configs, int parallelism, Consumer<RunResult> onFinished)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "sweep-run");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<RunResult>> futures = new ArrayList<>();
+            for (int i = 0; i < configs.size(); i++) {
+                RunConfig config = configs.get(i);
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    RunResult result = TrainingRun.run(config, index);
+                    onFinished.accept(result);
+                    return result;
+                }));
+            }
+
+            List<RunResult> results = new ArrayList<>();
+            for (Future<RunResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // TrainingRun reports its own failures, so this is a bug in the callback
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package org.poker.Runner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.poker.Abstraction.BucketTableBuilder;
+import org.poker.Abstraction.ClusteredAbstraction;
+import org.poker.Abstraction.EquityAbstraction;
+import org.poker.Abstraction.HandAbstraction;
+import org.poker.Abstraction.PreflopEquityTable;
+import org.poker.CFR.ExploitabilityEvaluator;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.CFR.History.LeducHistory;
+import org.poker.CFR.InfoSetTable;
+import org.poker.CFR.ParallelCFR;
+import org.poker.CFR.Pruning;
+import org.poker.CFR.Solver;
+import org.poker.CFR.SolverType;
+import org.poker.CFR.UpdateRule;
+import org.poker.GameSim.GameSim;
+import org.poker.GameSim.HoldemGameSim;
+import org.poker.GameSim.HoldemRules;
+import org.poker.GameSim.KuhnPokerGameSim;
+import org.poker.GameSim.LeducGameSim;
+import org.poker.logging.WandBLogger;
+
+/**
+ * Trains one {@link RunConfig} without any interaction: builds the game and the engine,
+ * trains to the iteration or time limit, and reports throughput and exploitability.
+ */
+public class TrainingRun {
+    private static final String HOLDEM_BUCKETS = "169,20,20,20";
+    private static final int PREFLOP_SAMPLES = 100000;
+    // Histogram bins and k-means iterations of the clustered flop and turn tables
+    private static final int CLUSTER_BINS = 10;
+    private static final int CLUSTER_ITERATIONS = 30;
+
+    // Preflop equities by cache file, shared by the hold'em runs of a sweep
+    private static final Map<Path, PreflopEquityTable> EQUITIES = new HashMap<>();
+    // Abstractions by their settings, so the runs of a sweep map or build each bucket table once
+    private static final Map<String, EquityAbstraction> ABSTRACTIONS = new HashMap<>();
+
+    private TrainingRun() {
+    }
+
+    /**
+     * Runs the config; index numbers the run within a sweep. Failures are reported in the
+     * result rather than thrown, so one bad configuration does not end a sweep.
+     */
+    public static RunResult run(RunConfig config, int index) {
+        RunResult result = new RunResult();
+        result.index = index;
+        result.label = config.label();
+        result.game = config.get("game", "kuhn");
+        result.engine = config.get("engine", "vanilla");
+        result.rule = config.get("rule", "vanilla");
+        try {
+            train(config, result);
+        } catch (Exception | OutOfMemoryError e) {
+            result.error = e.toString();
+        }
+        return result;
+    }
+
+    private static void train(RunConfig config, RunResult result) throws IOException {
+        GameSim game = createGame(result.game, config);
+        AbstractHistory initial = initialHistory(game);
+        boolean holdem = game instanceof HoldemGameSim;
+
+        int threads = config.getInt("threads", Runtime.getRuntime().availableProcessors());
+        Solver solver;
+        if (result.engine.equalsIgnoreCase("parallel")) {
+            solver = new ParallelCFR(game, threads, config.getBoolean("deterministic", false));
+        } else {
+            solver = SolverType.valueOf(result.engine.toUpperCase(Locale.ROOT))
+                    .create(game, new InfoSetTable(), config.getLong("seed", 0));
+            threads = 1;
+        }
+        result.threads = threads;
+        solver.setUpdateRule(UpdateRule.parse(result.rule));
+        solver.setPruning(Pruning.parse(config.get("pruning", "none")));
+
+        if (config.has("checkpoint")) {
+            Path path = Path.of(config.get("checkpoint", "").replace("{run}", String.valueOf(result.index)));
+            solver.setCheckpointing(path, config.getInt("checkpointEvery", 10000));
+        }
+
+        boolean evaluate = config.getBoolean("evaluate", true) && !holdem;
+        ExploitabilityEvaluator evaluator = evaluate ? new ExploitabilityEvaluator(game, initial) : null;
+        WandBLogger logger = null;
+        int logFrequency = config.getInt("logFrequency", 1000);
+        if (config.has("mlflow.url")) {
+            HashMap<String, String> params = new HashMap<>(config.asMap());
+            logger = new WandBLogger(params, config.get("mlflow.url", ""), config.get("mlflow.experiment", "cfr"));
+            solver.setExploitabilityEvaluator(evaluator);
+        }
+
+        int iterations = config.getInt("iterations", 1000);
+        double seconds = config.getDouble("seconds", 0);
+        long start = System.nanoTime();
+        try {
+            if (seconds <= 0) {
+                solver.train(iterations, initial, logger, logFrequency);
+                result.iterations = iterations;
+            } else {
+                // Doubling batches keep the clock checks cheap without overshooting much
+                long deadline = start + (long) (seconds * 1e9);
+                int batch = 1;
+                while (result.iterations < iterations && System.nanoTime() < deadline) {
+                    int n = Math.min(batch, iterations - result.iterations);
+                    solver.train(n, initial, logger, logFrequency);
+                    result.iterations += n;
+                    batch = Math.min(batch * 2, 1 << 14);
+                }
+            }
+            result.seconds = (System.nanoTime() - start) / 1e9;
+        } finally {
+            if (solver instanceof ParallelCFR parallel) parallel.shutdown();
+            if (logger != null) logger.finish();
+        }
+
+        result.infoSets = solver.getInfoSetTable().size();
+        if (evaluator != null) {
+            result.exploitability = evaluator.exploitability(solver.getInfoSetTable());
+            result.exploitabilityMbb = evaluator.exploitabilityMbb(solver.getInfoSetTable());
+        }
+    }
+
+    public static GameSim createGame(String name, RunConfig config) throws IOException {
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "kuhn" -> new KuhnPokerGameSim(config.getInt("players", 2));
+            case "leduc" -> new LeducGameSim(false);
+            case "leduc-iso" -> new LeducGameSim(true);
+            case "holdem-limit" -> new HoldemGameSim(HoldemRules.limit(1, 2), holdemAbstraction(config));
+            case "holdem-nolimit" -> new HoldemGameSim(
+                    HoldemRules.noLimit(1, 2, 200, new double[] { 0.5, 1.0 }, 3), holdemAbstraction(config));
+            default -> throw new IllegalArgumentException("Unknown game: " + name);
+        };
+    }
+
+    public static AbstractHistory initialHistory(GameSim game) {
+        if (game instanceof KuhnPokerGameSim kuhn) return kuhn.newHistory();
+        if (game instanceof HoldemGameSim holdem) return holdem.newHistory();
+        return new LeducHistory();
+    }
+
+    private static EquityAbstraction holdemAbstraction(RunConfig config) throws IOException {
+        Path directory = Path.of(config.get("abstraction", "abstraction"));
+        String kind = config.get("abstraction.kind", "equity").toLowerCase(Locale.ROOT);
+        int[] buckets = parseBuckets(config.get("abstraction.buckets", HOLDEM_BUCKETS));
+        int runouts = config.getInt("abstraction.runouts", 16);
+        int samples = config.getInt("abstraction.samples", 32);
+        String settings = directory + " " + kind + " " + Arrays.toString(buckets)
+                + (kind.equals("clustered") ? " " + runouts + " " + samples : "");
+
+        synchronized (ABSTRACTIONS) {
+            EquityAbstraction abstraction = ABSTRACTIONS.get(settings);
+            if (abstraction != null) return abstraction;
+            PreflopEquityTable equities = preflopEquities(directory.resolve("preflop-equity.bin"));
+            abstraction = switch (kind) {
+                case "equity" -> new EquityAbstraction(equities, buckets);
+                // The tables are built or mapped on first use, under the same directory
+                case "clustered" -> new ClusteredAbstraction(equities, buckets[HandAbstraction.PREFLOP],
+                        new BucketTableBuilder(HandAbstraction.FLOP, buckets[HandAbstraction.FLOP], runouts, samples,
+                                CLUSTER_BINS, CLUSTER_ITERATIONS, 0),
+                        new BucketTableBuilder(HandAbstraction.TURN, buckets[HandAbstraction.TURN], runouts, samples,
+                                CLUSTER_BINS, CLUSTER_ITERATIONS, 0),
+                        buckets[HandAbstraction.RIVER], directory);
+                default -> throw new IllegalArgumentException("Unknown abstraction kind: " + kind);
+            };
+            ABSTRACTIONS.put(settings, abstraction);
+            return abstraction;
+        }
+    }
+
+    private static PreflopEquityTable preflopEquities(Path cache) throws IOException {
+        // Concurrent runs must not compute or write the same cache file twice
+        synchronized (EQUITIES) {
+            PreflopEquityTable equities = EQUITIES.get(cache);
+            if (equities == null) {
+                equities = PreflopEquityTable.loadOrCompute(cache, PREFLOP_SAMPLES, 0);
+                EQUITIES.put(cache, equities);
+            }
+            return equities;
+        }
+    }
+
+    private static int[] parseBuckets(String value) {
+        String[] parts = value.split(",");
+        if (parts.length != 4) throw new IllegalArgumentException("abstraction.buckets needs 4 counts: " + value);
+        int[] buckets = new int[4];
+        for (int street = 0; street < 4; street++) buckets[street] = Integer.parseInt(parts[street].trim());
+        return buckets;
+    }
+}
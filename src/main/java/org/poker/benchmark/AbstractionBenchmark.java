@@ -0,0 +1,213 @@
+package org.poker.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import org.poker.Abstraction.BucketTable;
+import org.poker.Abstraction.BucketTableBuilder;
+import org.poker.Abstraction.CanonicalHands;
+import org.poker.Abstraction.EquityAbstraction;
+import org.poker.Abstraction.HandAbstraction;
+
+/**
+ * Runs the bucket table pipeline for one street phase by phase and reports the time of
+ * each: canonical hand enumeration, equity histograms, k-means and writing the table.
+ * Then checks that suit-isomorphic hands share a bucket, that buckets are ordered by hand
+ * strength, and compares a table lookup with bucketing by enumerated hand strength. Last,
+ * clusters a slice of the hands with more runouts than a signed byte can count, and checks
+ * that every histogram holds all of them and that every hand is nearest to its own bucket.
+ *
+ * Usage: AbstractionBenchmark [flop|turn] [buckets] [runouts] [samplesPerRunout] [directory]
+ */
+public class AbstractionBenchmark {
+    private static final int BINS = 10;
+    private static final int KMEANS_ITERATIONS = 30;
+    private static final int LOOKUPS = 200000;
+    // Enough for single bins to pass 127
+    private static final int WIDE_RUNOUTS = 200;
+    private static final int WIDE_SLICE = 1000;
+    // Enough for k-means to settle on the slice
+    private static final int WIDE_KMEANS_ITERATIONS = 1000;
+
+    public static void main(String[] args) throws IOException {
+        int street = args.length > 0 && args[0].equals("turn") ? HandAbstraction.TURN : HandAbstraction.FLOP;
+        int buckets = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int runouts = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int samples = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+        Path directory = Path.of(args.length > 4 ? args[4] : "abstraction");
+        int boardCards = street + 2;
+
+        BucketTableBuilder builder = new BucketTableBuilder(street, buckets, runouts, samples, BINS,
+                KMEANS_ITERATIONS, 0);
+        System.out.printf("%d threads%n", Runtime.getRuntime().availableProcessors());
+
+        long start = System.nanoTime();
+        long[] keys = CanonicalHands.enumerate(boardCards);
+        System.out.printf("Enumerated %d canonical hands in %.1f s%n", keys.length, seconds(start));
+
+        start = System.nanoTime();
+        byte[] histograms = builder.histograms(keys);
+        double histogramSeconds = seconds(start);
+        System.out.printf("Histograms in %.1f s (%.1fM evaluations/s)%n", histogramSeconds,
+                2.0 * keys.length * runouts * samples / histogramSeconds / 1e6);
+
+        start = System.nanoTime();
+        byte[] assignment = builder.cluster(histograms);
+        System.out.printf("k-means into %d buckets in %.1f s%n", buckets, seconds(start));
+
+        Path path = directory.resolve(street == HandAbstraction.FLOP ? "flop.bin" : "turn.bin");
+        start = System.nanoTime();
+        // Tagged with the builder's parameters, so later runs of loadOrBuild reuse the file
+        builder.write(path, keys, assignment);
+        BucketTable table = BucketTable.open(path);
+        System.out.printf("Table of %.1f MB written and mapped in %.1f s%n", Files.size(path) / 1e6, seconds(start));
+
+        boolean ok = table.size() == keys.length && assignment.length == keys.length;
+        SplittableRandom random = new SplittableRandom(1);
+        long[] holes = new long[LOOKUPS];
+        long[] boards = new long[LOOKUPS];
+        double[] strengthSum = new double[buckets];
+        int[] count = new int[buckets];
+        for (int i = 0; i < LOOKUPS; i++) {
+            long used = 0;
+            for (int c = 0; c < 2 + boardCards; c++) {
+                long card = randomCard(random, used);
+                if (c < 2) holes[i] |= card;
+                else boards[i] |= card;
+                used |= card;
+            }
+            int bucket = table.bucket(holes[i], boards[i]);
+            if (i < 20000) {
+                strengthSum[bucket] += EquityAbstraction.handStrength(holes[i], boards[i]);
+                count[bucket]++;
+            }
+        }
+
+        int isomorphicMismatches = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            int[] permutation = randomPermutation(random);
+            if (table.bucket(holes[i], boards[i])
+                    != table.bucket(permute(holes[i], permutation), permute(boards[i], permutation))) {
+                isomorphicMismatches++;
+            }
+        }
+        System.out.printf("Suit-permuted hands in another bucket: %d of %d%n", isomorphicMismatches, LOOKUPS);
+        ok &= isomorphicMismatches == 0;
+
+        System.out.print("Mean hand strength by bucket:");
+        double previous = -1;
+        int inversions = 0;
+        for (int b = 0; b < buckets; b++) {
+            if (count[b] == 0) continue;
+            double mean = strengthSum[b] / count[b];
+            if (mean < previous) inversions++;
+            previous = mean;
+            if (b % Math.max(1, buckets / 10) == 0) System.out.printf(" %d:%.2f", b, mean);
+        }
+        System.out.printf("%nBuckets out of strength order: %d%n", inversions);
+
+        start = System.nanoTime();
+        long sink = 0;
+        for (int i = 0; i < LOOKUPS; i++) sink += table.bucket(holes[i], boards[i]);
+        double lookupNanos = (System.nanoTime() - start) / (double) LOOKUPS;
+        start = System.nanoTime();
+        int strengthLookups = LOOKUPS / 20;
+        for (int i = 0; i < strengthLookups; i++) sink += (long) (EquityAbstraction.handStrength(holes[i], boards[i]) * 100);
+        double strengthNanos = (System.nanoTime() - start) / (double) strengthLookups;
+        System.out.printf("Table lookup %.0f ns, enumerated hand strength %.0f ns (%d)%n",
+                lookupNanos, strengthNanos, sink % 2);
+
+        ok &= wideHistograms(street, keys);
+
+        System.out.println(ok ? "OK" : "MISMATCH");
+        if (!ok) System.exit(1);
+    }
+
+    /**
+     * Builds histograms of every WIDE_SLICE-th hand with WIDE_RUNOUTS runouts and clusters
+     * them until k-means settles. Every hand must then be nearest to the mean histogram of
+     * its own bucket, which fails if counts past 127 were read as negative.
+     */
+    private static boolean wideHistograms(int street, long[] keys) {
+        long[] slice = new long[(keys.length + WIDE_SLICE - 1) / WIDE_SLICE];
+        for (int i = 0; i < slice.length; i++) slice[i] = keys[i * WIDE_SLICE];
+        int buckets = 8;
+        BucketTableBuilder builder = new BucketTableBuilder(street, buckets, WIDE_RUNOUTS, 2, BINS,
+                WIDE_KMEANS_ITERATIONS, 0);
+        byte[] histograms = builder.histograms(slice);
+        byte[] assignment = builder.cluster(histograms);
+
+        boolean complete = true;
+        int largest = 0;
+        double[] means = new double[buckets * BINS];
+        int[] count = new int[buckets];
+        for (int h = 0; h < slice.length; h++) {
+            int total = 0;
+            for (int b = 0; b < BINS; b++) {
+                int binCount = histograms[h * BINS + b] & 0xFF;
+                total += binCount;
+                largest = Math.max(largest, binCount);
+                means[assignment[h] * BINS + b] += binCount;
+            }
+            complete &= total == WIDE_RUNOUTS;
+            count[assignment[h]]++;
+        }
+        for (int c = 0; c < buckets; c++) {
+            for (int b = 0; b < BINS; b++) means[c * BINS + b] /= Math.max(1, count[c]);
+        }
+
+        int misplaced = 0;
+        for (int h = 0; h < slice.length; h++) {
+            double own = distance(histograms, h, means, assignment[h]);
+            for (int c = 0; c < buckets; c++) {
+                if (count[c] > 0 && distance(histograms, h, means, c) < own - 1e-9) {
+                    misplaced++;
+                    break;
+                }
+            }
+        }
+        System.out.printf("%d runouts over %d hands: largest bin %d, hands nearer another bucket %d%n",
+                WIDE_RUNOUTS, slice.length, largest, misplaced);
+        return complete && largest > Byte.MAX_VALUE && misplaced == 0;
+    }
+
+    private static double distance(byte[] histograms, int hand, double[] means, int bucket) {
+        double sum = 0;
+        for (int b = 0; b < BINS; b++) {
+            double diff = (histograms[hand * BINS + b] & 0xFF) - means[bucket * BINS + b];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private static long randomCard(SplittableRandom random, long used) {
+        while (true) {
+            long card = 1L << random.nextInt(52);
+            if ((used & card) == 0) return card;
+        }
+    }
+
+    private static int[] randomPermutation(SplittableRandom random) {
+        int[] permutation = { 0, 1, 2, 3 };
+        for (int i = 3; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = t;
+        }
+        return permutation;
+    }
+
+    private static long permute(long cards, int[] permutation) {
+        long result = 0;
+        for (int s = 0; s < 4; s++) {
+            result |= ((cards >>> (13 * s)) & 0x1FFF) << (13 * permutation[s]);
+        }
+        return result;
+    }
+
+    private static double seconds(long start) {
+        return (System.nanoTime() - start) / 1e9;
+    }
+}
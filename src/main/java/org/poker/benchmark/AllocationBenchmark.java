@@ -0,0 +1,84 @@
+package org.poker.benchmark;
+
+import java.lang.management.ManagementFactory;
+import org.poker.Abstraction.EquityAbstraction;
+import org.poker.Abstraction.PreflopEquityTable;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.CFR.History.LeducHistory;
+import org.poker.CFR.InfoSetTable;
+import org.poker.CFR.Solver;
+import org.poker.CFR.SolverType;
+import org.poker.GameSim.GameSim;
+import org.poker.GameSim.HoldemGameSim;
+import org.poker.GameSim.HoldemRules;
+import org.poker.GameSim.KuhnPokerGameSim;
+import org.poker.GameSim.LeducGameSim;
+
+/**
+ * Checks that traversal allocates nothing once the infosets it visits exist.
+ *
+ * Every engine trains one iteration at a time after a warm-up, and the bytes the thread
+ * allocated are read around each call. Iterations that created an infoset are left out,
+ * since creating one may grow the table's arrays. Of the rest, at most one in a
+ * hundred may allocate at all, which leaves room for the odd deoptimization; a hot path
+ * that allocates does so on every iteration.
+ *
+ * Usage: AllocationBenchmark [iterations]
+ */
+public class AllocationBenchmark {
+    private static final int[] HOLDEM_BUCKETS = { 169, 20, 20, 20 };
+    // The equities only choose buckets, so a coarse table is enough here
+    private static final int PREFLOP_SAMPLES = 2000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+        boolean ok = true;
+        LeducGameSim leduc = new LeducGameSim();
+        for (SolverType type : SolverType.values()) {
+            ok &= check("Leduc", leduc, new LeducHistory(), type, iterations);
+        }
+        KuhnPokerGameSim kuhn = new KuhnPokerGameSim(3);
+        for (SolverType type : SolverType.values()) {
+            if (type == SolverType.VECTORIZED) continue;
+            ok &= check("3-player Kuhn", kuhn, kuhn.newHistory(), type, iterations);
+        }
+        HoldemGameSim holdem = new HoldemGameSim(HoldemRules.limit(1, 2),
+                new EquityAbstraction(PreflopEquityTable.compute(PREFLOP_SAMPLES, 0), HOLDEM_BUCKETS));
+        // External sampling keeps finding new hold'em infosets on almost every iteration
+        ok &= check("Limit hold'em", holdem, holdem.newHistory(), SolverType.OUTCOME_SAMPLING, iterations);
+
+        System.out.println(ok ? "OK" : "MISMATCH");
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean check(String name, GameSim game, AbstractHistory root, SolverType type, int iterations) {
+        Solver solver = type.create(game, new InfoSetTable(), 42);
+        // Full-tree engines visit every infoset in one iteration; the sampling ones need more
+        int sampled = type.name().endsWith("SAMPLING") ? iterations : Math.max(1, iterations / 10);
+        solver.train(sampled, root, null, Integer.MAX_VALUE);
+
+        long thread = Thread.currentThread().getId();
+        int steady = 0;
+        int allocating = 0;
+        long bytes = 0;
+        for (int i = 0; i < sampled; i++) {
+            int size = solver.getInfoSetTable().size();
+            long before = THREADS.getThreadAllocatedBytes(thread);
+            solver.train(1, root, null, Integer.MAX_VALUE);
+            long allocated = THREADS.getThreadAllocatedBytes(thread) - before;
+            if (solver.getInfoSetTable().size() != size) continue;
+            steady++;
+            bytes += allocated;
+            if (allocated > 0) allocating++;
+        }
+
+        boolean ok = steady > 0 && allocating * 100 <= steady;
+        System.out.printf("%-14s %-18s %6d steady iterations, %4d allocating, %8.1f bytes/iteration %s%n",
+                name, type, steady, allocating, steady > 0 ? (double) bytes / steady : 0.0, ok ? "" : "<-- allocates");
+        return ok;
+    }
+}
@@ -0,0 +1,89 @@
+package org.poker.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.poker.CFR.Blueprint;
+import org.poker.CFR.CFR;
+import org.poker.CFR.History.KuhnPokerHistory;
+import org.poker.CFR.InfoSet;
+import org.poker.CFR.InfoSetLabels;
+import org.poker.CFR.InfoSetTable;
+import org.poker.GameSim.KuhnPokerGameSim;
+
+/**
+ * Compares serving the average strategy from a memory-mapped {@link Blueprint} with the
+ * on-heap {@link InfoSet} view, and checks both give the same probabilities. Also exports
+ * and opens the blueprint through mappings of a few bytes each, so chunk boundaries fall
+ * inside the slots and probabilities, and checks the file and every lookup come out the same.
+ *
+ * Usage: BlueprintBenchmark [lookups]
+ */
+public class BlueprintBenchmark {
+    private static final int SMALL_CHUNK_BITS = 4;
+
+    public static void main(String[] args) throws IOException {
+        int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+
+        KuhnPokerGameSim game = new KuhnPokerGameSim();
+        KuhnPokerHistory root = new KuhnPokerHistory();
+        CFR trainer = new CFR(game);
+        trainer.train(20000, root, null, Integer.MAX_VALUE);
+        InfoSetTable table = trainer.getInfoSetTable();
+        InfoSetLabels labels = InfoSetLabels.replay(game, root, table);
+
+        Path file = Files.createTempFile("cfr", ".blueprint");
+        Path chunked = Files.createTempFile("cfr", ".blueprint");
+        try {
+            Blueprint.export(table, file);
+            Blueprint blueprint = Blueprint.open(file);
+            System.out.printf("%d infosets, %d bytes%n", blueprint.size(), Files.size(file));
+
+            long[] hashes = new long[table.size()];
+            for (int id = 0; id < hashes.length; id++) hashes[id] = table.getHash(id);
+
+            double maxError = 0.0;
+            double[] out = new double[8];
+            double[] expected = new double[8];
+            for (int id = 0; id < hashes.length; id++) {
+                int n = blueprint.getStrategy(hashes[id], out);
+                table.getAverageStrategy(id, expected);
+                for (int a = 0; a < n; a++) maxError = Math.max(maxError, Math.abs(out[a] - expected[a]));
+            }
+            System.out.printf("Max difference from the table: %g%n", maxError);
+
+            Blueprint.export(table, chunked, SMALL_CHUNK_BITS);
+            Blueprint small = Blueprint.open(chunked, SMALL_CHUNK_BITS + 1);
+            boolean chunksOk = Arrays.equals(Files.readAllBytes(chunked), Files.readAllBytes(file));
+            for (long hash : hashes) {
+                int n = blueprint.getStrategy(hash, expected);
+                chunksOk &= small.getStrategy(hash, out) == n && Arrays.equals(out, 0, n, expected, 0, n);
+            }
+            System.out.println(chunksOk ? "Chunked mapping OK" : "Chunked mapping MISMATCH");
+            if (!chunksOk) System.exit(1);
+
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                double sink = 0;
+                for (int i = 0; i < lookups; i++) {
+                    blueprint.getStrategy(hashes[i % hashes.length], out);
+                    sink += out[0];
+                }
+                double blueprintNs = (System.nanoTime() - start) / (double) lookups;
+
+                int viewLookups = lookups / 10;
+                start = System.nanoTime();
+                for (int i = 0; i < viewLookups; i++) {
+                    sink += new InfoSet(table, i % hashes.length, labels).getAverageStrategy().size();
+                }
+                double viewNs = (System.nanoTime() - start) / (double) viewLookups;
+                System.out.printf("blueprint %.1f ns/lookup, InfoSet view %.1f ns/lookup (%s)%n",
+                        blueprintNs, viewNs, sink > 0 ? "ok" : "");
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(chunked);
+        }
+    }
+}
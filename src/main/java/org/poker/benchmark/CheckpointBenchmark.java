@@ -0,0 +1,78 @@
+package org.poker.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.poker.CFR.CFR;
+import org.poker.CFR.Checkpoint;
+import org.poker.CFR.History.KuhnPokerHistory;
+import org.poker.GameSim.KuhnPokerGameSim;
+
+/**
+ * Measures checkpoint size, capture, write and read times on a trained Kuhn table,
+ * checks the file round-trips bit for bit, and compares resuming from it with retraining.
+ * Also writes and reads it through mappings of a few bytes each, so chunk boundaries fall
+ * inside the header, the records and the sums, and checks the file comes out the same.
+ *
+ * Usage: CheckpointBenchmark [iterations] [repetitions]
+ */
+public class CheckpointBenchmark {
+    private static final int SMALL_CHUNK_BITS = 4;
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        KuhnPokerGameSim game = new KuhnPokerGameSim();
+        KuhnPokerHistory initial = new KuhnPokerHistory();
+
+        long start = System.nanoTime();
+        CFR trainer = new CFR(game);
+        trainer.train(iterations, initial, null, Integer.MAX_VALUE);
+        double trainMs = (System.nanoTime() - start) / 1e6;
+
+        Path file = Files.createTempFile("cfr", ".ckpt");
+        Path chunked = Files.createTempFile("cfr", ".ckpt");
+        try {
+            Checkpoint original = null;
+            Checkpoint loaded = null;
+            double captureMs = 0, writeMs = 0, readMs = 0;
+            for (int r = 0; r < repetitions; r++) {
+                long t0 = System.nanoTime();
+                original = Checkpoint.capture(trainer);
+                long t1 = System.nanoTime();
+                original.write(file);
+                long t2 = System.nanoTime();
+                loaded = Checkpoint.read(file);
+                long t3 = System.nanoTime();
+                // Keep the best of the repetitions, the first ones include class loading
+                captureMs = r == 0 ? (t1 - t0) / 1e6 : Math.min(captureMs, (t1 - t0) / 1e6);
+                writeMs = r == 0 ? (t2 - t1) / 1e6 : Math.min(writeMs, (t2 - t1) / 1e6);
+                readMs = r == 0 ? (t3 - t2) / 1e6 : Math.min(readMs, (t3 - t2) / 1e6);
+            }
+
+            start = System.nanoTime();
+            CFR resumed = new CFR(game, loaded.toTable());
+            resumed.setIteration(loaded.getIteration());
+            double resumeMs = (System.nanoTime() - start) / 1e6;
+
+            System.out.printf("%d infosets, %d bytes%n", original.size(), Files.size(file));
+            System.out.printf("capture %.3f ms, write %.3f ms, read %.3f ms%n", captureMs, writeMs, readMs);
+            System.out.printf("resume %.3f ms vs retraining %d iterations %.1f ms%n", resumeMs, iterations, trainMs);
+
+            boolean ok = original.sameContents(loaded)
+                    && Checkpoint.capture(resumed).sameContents(original);
+            System.out.println(ok ? "Round trip OK" : "Round trip MISMATCH");
+
+            original.write(chunked, SMALL_CHUNK_BITS);
+            boolean chunksOk = Arrays.equals(Files.readAllBytes(chunked), Files.readAllBytes(file))
+                    && Checkpoint.read(chunked, SMALL_CHUNK_BITS + 1).sameContents(original);
+            System.out.println(chunksOk ? "Chunked mapping OK" : "Chunked mapping MISMATCH");
+            if (!ok || !chunksOk) System.exit(1);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(chunked);
+        }
+    }
+}
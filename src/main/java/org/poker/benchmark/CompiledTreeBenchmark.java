@@ -0,0 +1,85 @@
+package org.poker.benchmark;
+
+import org.poker.CFR.CFR;
+import org.poker.CFR.CompiledCFR;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.CFR.History.KuhnPokerHistory;
+import org.poker.CFR.Solver;
+import org.poker.GameSim.KuhnPokerGameSim;
+
+/**
+ * Compares iteration throughput of vanilla CFR walking the game dynamically against
+ * the same algorithm over a precompiled flat tree, and checks both end with the same
+ * average strategy. Then trains both on from a root with the cards already dealt and checks
+ * the compiled engine rebuilds its tree for it rather than walking the old one.
+ *
+ * Usage: CompiledTreeBenchmark [iterations] [rounds]
+ */
+public class CompiledTreeBenchmark {
+    // Both engines add the same values in the same order
+    private static final double TOLERANCE = 1e-12;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        KuhnPokerGameSim game = new KuhnPokerGameSim();
+        KuhnPokerHistory initial = new KuhnPokerHistory();
+
+        CFR dynamic = new CFR(game);
+        CompiledCFR compiled = new CompiledCFR(game);
+
+        // Warm up, and let the compiled engine build its tree outside the timed runs
+        dynamic.train(iterations, initial, null, Integer.MAX_VALUE);
+        compiled.train(iterations, initial, null, Integer.MAX_VALUE);
+
+        System.out.printf("Tree: %d nodes, %d infosets%n",
+                compiled.getTree().size(), compiled.getTree().numInfoSets());
+        for (int r = 0; r < rounds; r++) {
+            double dynamicRate = run(dynamic, initial, iterations);
+            double compiledRate = run(compiled, initial, iterations);
+            System.out.printf("dynamic %10.0f it/s  compiled %10.0f it/s  speedup %.2fx%n",
+                    dynamicRate, compiledRate, compiledRate / dynamicRate);
+        }
+
+        double maxDifference = maxDifference(dynamic, compiled);
+        System.out.printf("Max average strategy difference: %g%n", maxDifference);
+        boolean ok = check(maxDifference < TOLERANCE, "same average strategy from the initial root");
+
+        AbstractHistory dealt = initial.copy();
+        game.applyChanceOutcome(dealt, 0);
+        int fullTree = compiled.getTree().size();
+        dynamic.train(iterations, dealt, null, Integer.MAX_VALUE);
+        compiled.train(iterations, dealt, null, Integer.MAX_VALUE);
+        maxDifference = maxDifference(dynamic, compiled);
+        System.out.printf("Dealt root: %d nodes, max average strategy difference: %g%n",
+                compiled.getTree().size(), maxDifference);
+        ok &= check(compiled.getTree().size() < fullTree, "tree recompiled for the dealt root");
+        ok &= check(maxDifference < TOLERANCE, "same average strategy after training from the dealt root");
+
+        System.out.println(ok ? "OK" : "MISMATCH");
+        if (!ok) System.exit(1);
+    }
+
+    private static double maxDifference(Solver dynamic, Solver compiled) {
+        double maxDifference = 0.0;
+        double[] a = new double[2];
+        double[] b = new double[2];
+        for (int id = 0; id < dynamic.getInfoSetTable().size(); id++) {
+            dynamic.getInfoSetTable().getAverageStrategy(id, a);
+            compiled.getInfoSetTable().getAverageStrategy(id, b);
+            for (int i = 0; i < a.length; i++) maxDifference = Math.max(maxDifference, Math.abs(a[i] - b[i]));
+        }
+        return maxDifference;
+    }
+
+    private static boolean check(boolean passed, String what) {
+        if (!passed) System.out.println("    failed: " + what);
+        return passed;
+    }
+
+    private static double run(Solver solver, AbstractHistory initial, int iterations) {
+        solver.train(iterations, initial, null, Integer.MAX_VALUE);
+        return solver.getIterationsPerSecond();
+    }
+}
@@ -0,0 +1,152 @@
+package org.poker.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.poker.CFR.Checkpoint;
+import org.poker.CFR.Distributed.Coordinator;
+import org.poker.CFR.ExploitabilityEvaluator;
+import org.poker.CFR.History.LeducHistory;
+import org.poker.CFR.InfoSetTable;
+import org.poker.CFR.Solver;
+import org.poker.CFR.SolverType;
+import org.poker.GameSim.LeducGameSim;
+import org.poker.Runner.RunConfig;
+
+/**
+ * Distributed external sampling on Leduc Hold'em with 1, 2, 4, ... worker JVMs on this
+ * machine, all started by the benchmark.
+ *
+ * Every run does the same total number of traversals per epoch, split over its workers,
+ * and reports traversals per second after a warm-up, relative to one worker. Checks that
+ * the shards together hold every infoset of the game exactly once, that each run is as
+ * converged as the one-worker run, that two runs with the same seed end up with
+ * bit-identical tables, and that resuming from shard checkpoints restores the tables, while
+ * resuming them with another number of workers is refused.
+ *
+ * Usage: DistributedBenchmark [epochs] [traversalsPerEpoch] [maxWorkers]
+ */
+public class DistributedBenchmark {
+    private static final int WARMUP_EPOCHS = 20;
+    // Exploitability a run with more workers may reach relative to the one-worker run
+    private static final double EXPLOITABILITY_SLACK = 1.5;
+
+    public static void main(String[] args) throws IOException {
+        int epochs = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int traversals = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        int maxWorkers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        LeducGameSim game = new LeducGameSim();
+        LeducHistory root = new LeducHistory();
+        ExploitabilityEvaluator evaluator = new ExploitabilityEvaluator(game, root);
+        // One full-tree iteration creates every infoset of the game
+        Solver full = SolverType.COMPILED.create(game, new InfoSetTable(), 0);
+        full.train(1, root, null, Integer.MAX_VALUE);
+        int gameInfoSets = full.getInfoSetTable().size();
+
+        boolean ok = true;
+        double baseRate = 0;
+        double baseExploitability = 0;
+        System.out.printf("Leduc, %d epochs of %d traversals, %d processors%n",
+                epochs, traversals, Runtime.getRuntime().availableProcessors());
+        for (int workers = 1; workers <= maxWorkers; workers *= 2) {
+            try (Coordinator coordinator = start(workers, null)) {
+                coordinator.train(WARMUP_EPOCHS, traversals / workers);
+                long traversalsBefore = coordinator.getTraversals();
+                double secondsBefore = coordinator.getSeconds();
+                coordinator.train(epochs, traversals / workers);
+                double seconds = coordinator.getSeconds() - secondsBefore;
+                double rate = (coordinator.getTraversals() - traversalsBefore) / seconds;
+
+                InfoSetTable table = coordinator.collect();
+                double exploitability = evaluator.exploitability(table);
+                int sharded = 0;
+                for (int size : coordinator.getShardSizes()) sharded += size;
+                if (workers == 1) {
+                    baseRate = rate;
+                    baseExploitability = exploitability;
+                }
+                System.out.printf("  workers=%d %9.0f traversals/s (%.2fx)  exploitability %.6f%n",
+                        workers, rate, rate / baseRate, exploitability);
+                System.out.println("    " + coordinator.report());
+
+                ok &= check(sharded == gameInfoSets && table.size() == gameInfoSets, "every infoset in one shard");
+                ok &= check(exploitability <= baseExploitability * EXPLOITABILITY_SLACK, "as converged as one worker");
+            }
+        }
+
+        ok &= check(reproducible(Math.min(2, maxWorkers), traversals), "same seed, same tables");
+        ok &= check(resumes(Math.min(2, maxWorkers), traversals), "resumed shards match");
+        System.out.println(ok ? "OK" : "MISMATCH");
+        if (!ok) System.exit(1);
+    }
+
+    private static Coordinator start(int workers, Path resume) throws IOException {
+        RunConfig config = new RunConfig();
+        config.set("game", "leduc");
+        config.set("workers", String.valueOf(workers));
+        config.set("port", "0");
+        if (resume != null) config.set("resume", resume.toString());
+        Coordinator coordinator = new Coordinator(config);
+        try {
+            coordinator.spawnLocalWorkers();
+            coordinator.awaitWorkers();
+        } catch (IOException e) {
+            coordinator.close();
+            throw e;
+        }
+        return coordinator;
+    }
+
+    private static boolean check(boolean passed, String what) {
+        if (!passed) System.out.println("    failed: " + what);
+        return passed;
+    }
+
+    private static boolean reproducible(int workers, int traversals) throws IOException {
+        Checkpoint[] runs = new Checkpoint[2];
+        for (int i = 0; i < runs.length; i++) {
+            try (Coordinator coordinator = start(workers, null)) {
+                coordinator.train(WARMUP_EPOCHS, traversals / workers);
+                runs[i] = Checkpoint.capture(coordinator.collect(), coordinator.getEpoch());
+            }
+        }
+        return runs[0].sameContents(runs[1]);
+    }
+
+    private static boolean resumes(int workers, int traversals) throws IOException {
+        Path base = Files.createTempDirectory("distributed").resolve("leduc.ckpt");
+        try {
+            Checkpoint saved;
+            try (Coordinator coordinator = start(workers, null)) {
+                coordinator.train(WARMUP_EPOCHS, traversals / workers);
+                coordinator.checkpoint(base);
+                saved = Checkpoint.capture(coordinator.collect(), coordinator.getEpoch());
+            }
+            boolean ok;
+            try (Coordinator coordinator = start(workers, base)) {
+                Checkpoint resumed = Checkpoint.capture(coordinator.collect(), coordinator.getEpoch());
+                ok = coordinator.getEpoch() == WARMUP_EPOCHS && resumed.sameContents(saved);
+            }
+            ok &= check(refused(workers - 1, base), "resuming with fewer workers refused");
+            ok &= check(refused(workers + 1, base), "resuming with more workers refused");
+            Files.delete(Coordinator.shardPath(base, workers - 1));
+            ok &= check(refused(workers, base), "resuming with a shard missing refused");
+            return ok;
+        } finally {
+            for (int rank = 0; rank < workers; rank++) Files.deleteIfExists(Coordinator.shardPath(base, rank));
+            Files.deleteIfExists(base.getParent());
+        }
+    }
+
+    private static boolean refused(int workers, Path base) {
+        if (workers < 1) return true;
+        try {
+            start(workers, base).close();
+            return false;
+        } catch (IOException e) {
+            System.out.println("    resuming " + workers + " workers: " + e.getMessage());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.poker.benchmark;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.poker.HandEval.BitmaskHandEval;
+
+/**
+ * Checks {@link BitmaskHandEval} exhaustively and measures its throughput.
+ *
+ * Every 5-card hand must fall into the 7462 known equivalence classes, and the category
+ * counts over all 133,784,560 7-card hands must match the published totals. The 7-card
+ * enumeration doubles as the throughput measurement.
+ *
+ * The order itself is checked against {@link #naive}, a sort-and-count evaluator: for every
+ * pair of 5-card hands, and every pair among sampled 7-card hands, the two evaluators must
+ * compare the hands the same way.
+ *
+ * Usage: HandEvalBenchmark [sevenCardSamples]
+ */
+public class HandEvalBenchmark {
+    private static final long[] SEVEN_CARD_COUNTS = {
+            23294460, 58627800, 31433400, 6461620, 6180020, 4047644, 3473184, 224848, 41584
+    };
+    private static final String[] CATEGORIES = {
+            "High card", "Pair", "Two pair", "Trips", "Straight", "Flush", "Full house", "Quads", "Straight flush"
+    };
+
+    public static void main(String[] args) {
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        BitmaskHandEval eval = new BitmaskHandEval();
+
+        Set<Integer> classes = new HashSet<>();
+        for (int a = 0; a < 52; a++)
+            for (int b = a + 1; b < 52; b++)
+                for (int c = b + 1; c < 52; c++)
+                    for (int d = c + 1; d < 52; d++)
+                        for (int e = d + 1; e < 52; e++)
+                            classes.add(eval.evaluate(1L << a | 1L << b | 1L << c | 1L << d | 1L << e));
+        System.out.printf("5-card equivalence classes: %d (expected 7462)%n", classes.size());
+
+        long[] fives = new long[2_598_960];
+        int n = 0;
+        for (int a = 0; a < 52; a++)
+            for (int b = a + 1; b < 52; b++)
+                for (int c = b + 1; c < 52; c++)
+                    for (int d = c + 1; d < 52; d++)
+                        for (int e = d + 1; e < 52; e++)
+                            fives[n++] = 1L << a | 1L << b | 1L << c | 1L << d | 1L << e;
+        boolean fiveOrdered = sameOrder(eval, fives);
+        System.out.printf("Order of all %d 5-card hands against the naive evaluator: %s%n",
+                fives.length, fiveOrdered ? "same" : "differs");
+
+        SplittableRandom random = new SplittableRandom(1);
+        long[] sevens = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            long hand = 0;
+            while (Long.bitCount(hand) < 7) hand |= 1L << random.nextInt(52);
+            sevens[i] = hand;
+        }
+        boolean sevenOrdered = sameOrder(eval, sevens);
+        System.out.printf("Order of %d sampled 7-card hands against the naive evaluator: %s%n",
+                samples, sevenOrdered ? "same" : "differs");
+
+        long[] counts = new long[CATEGORIES.length];
+        long hands = 0;
+        long start = System.nanoTime();
+        for (int a = 0; a < 52; a++)
+            for (int b = a + 1; b < 52; b++)
+                for (int c = b + 1; c < 52; c++)
+                    for (int d = c + 1; d < 52; d++)
+                        for (int e = d + 1; e < 52; e++) {
+                            long five = 1L << a | 1L << b | 1L << c | 1L << d | 1L << e;
+                            for (int f = e + 1; f < 52; f++)
+                                for (int g = f + 1; g < 52; g++) {
+                                    counts[BitmaskHandEval.category(eval.evaluate(five | 1L << f | 1L << g))]++;
+                                    hands++;
+                                }
+                        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        boolean ok = classes.size() == 7462 && fiveOrdered && sevenOrdered;
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            ok &= counts[i] == SEVEN_CARD_COUNTS[i];
+            System.out.printf("%-15s %10d (expected %d)%n", CATEGORIES[i], counts[i], SEVEN_CARD_COUNTS[i]);
+        }
+        System.out.printf("%d 7-card hands in %.2f s: %.1f M hands/s%n", hands, seconds, hands / seconds / 1e6);
+        System.out.println(ok ? "OK" : "MISMATCH");
+        if (!ok) System.exit(1);
+    }
+
+    /**
+     * Whether the evaluator and {@link #naive} compare every pair of the hands the same way.
+     * Sorting by the naive strength and checking neighbours covers all pairs: the evaluator
+     * must then be non-decreasing along the order and tie exactly where the naive one does.
+     */
+    private static boolean sameOrder(BitmaskHandEval eval, long[] hands) {
+        long[] keys = new long[hands.length];
+        for (int i = 0; i < hands.length; i++) {
+            keys[i] = (long) naive(hands[i]) << 32 | eval.evaluate(hands[i]);
+        }
+        Arrays.sort(keys);
+        for (int i = 1; i < keys.length; i++) {
+            int naiveOrder = Integer.signum(Integer.compare((int) (keys[i - 1] >>> 32), (int) (keys[i] >>> 32)));
+            int evalOrder = Integer.signum(Integer.compare((int) keys[i - 1], (int) keys[i]));
+            if (naiveOrder != evalOrder) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reference strength of the best 5-card hand within a mask of 5 to 7 cards, trying every
+     * 5-card subset. Only comparisons between its values mean anything.
+     */
+    private static int naive(long cards) {
+        int[] all = new int[Long.bitCount(cards)];
+        int n = 0;
+        for (int card = 0; card < 52; card++) {
+            if ((cards >>> card & 1) != 0) all[n++] = card;
+        }
+        int best = -1;
+        int[] five = new int[5];
+        for (int subset = 0; subset < 1 << n; subset++) {
+            if (Integer.bitCount(subset) != 5) continue;
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                if ((subset >>> i & 1) != 0) five[k++] = all[i];
+            }
+            best = Math.max(best, naiveFive(five));
+        }
+        return best;
+    }
+
+    /**
+     * Category, then the ranks deciding ties: grouped by how often they occur, most often
+     * first and higher first within a group, or just the top card of a straight.
+     */
+    private static int naiveFive(int[] cards) {
+        int[] counts = new int[13];
+        boolean flush = true;
+        for (int card : cards) {
+            counts[card % 13]++;
+            flush &= card / 13 == cards[0] / 13;
+        }
+
+        int[] groups = new int[5];
+        int[] sizes = new int[5];
+        int distinct = 0;
+        for (int size = 4; size >= 1; size--) {
+            for (int rank = 12; rank >= 0; rank--) {
+                if (counts[rank] == size) {
+                    groups[distinct] = rank;
+                    sizes[distinct++] = size;
+                }
+            }
+        }
+
+        int straightTop = -1;
+        if (distinct == 5) {
+            if (groups[0] - groups[4] == 4) straightTop = groups[0];
+            // A-5-4-3-2 counts as five high
+            if (groups[0] == 12 && groups[1] == 3) straightTop = 3;
+        }
+
+        int category;
+        if (straightTop >= 0 && flush) category = 8;
+        else if (sizes[0] == 4) category = 7;
+        else if (sizes[0] == 3 && sizes[1] == 2) category = 6;
+        else if (flush) category = 5;
+        else if (straightTop >= 0) category = 4;
+        else if (sizes[0] == 3) category = 3;
+        else if (sizes[0] == 2 && sizes[1] == 2) category = 2;
+        else if (sizes[0] == 2) category = 1;
+        else category = 0;
+
+        int ranks = 0;
+        if (straightTop >= 0) {
+            ranks = straightTop;
+        } else {
+            for (int i = 0; i < distinct; i++) ranks = ranks << 4 | groups[i];
+        }
+        return category << 20 | ranks;
+    }
+}
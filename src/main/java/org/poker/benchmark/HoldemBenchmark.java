@@ -0,0 +1,131 @@
+package org.poker.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import org.poker.Abstraction.BucketTableBuilder;
+import org.poker.Abstraction.ClusteredAbstraction;
+import org.poker.Abstraction.EquityAbstraction;
+import org.poker.Abstraction.HandAbstraction;
+import org.poker.Abstraction.PreflopEquityTable;
+import org.poker.CFR.InfoSetTable;
+import org.poker.CFR.Solver;
+import org.poker.CFR.SolverType;
+import org.poker.GameSim.HoldemGameSim;
+import org.poker.GameSim.HoldemRules;
+
+/**
+ * Builds the hold'em abstraction, timing the parallel preflop equity computation against
+ * loading it from the disk cache, then trains the sampling engines on limit and no-limit
+ * hold'em and reports iterations per second and infoset counts.
+ *
+ * The equity abstraction buckets postflop hands by enumerated hand strength; the clustered
+ * one looks flop and turn buckets up in tables under the cache directory, building them on
+ * first use, and enumerates only on the river. Enumerating opponent holdings dominates
+ * traversal time, so its cost is reported per street, enumerating every hand against
+ * reusing each board's holding values for the second hand on it, which is checked to give
+ * the same buckets; in equity mode limit hold'em is also trained enumerating every hand.
+ *
+ * Usage: HoldemBenchmark [secondsPerEngine] [cacheDirectory] [equity|clustered]
+ */
+public class HoldemBenchmark {
+    private static final int[] BUCKETS = { 169, 20, 20, 20 };
+    private static final int BUCKETED_HANDS = 20000;
+    private static final SolverType[] ENGINES = {
+            SolverType.EXTERNAL_SAMPLING, SolverType.OUTCOME_SAMPLING
+    };
+
+    public static void main(String[] args) throws IOException {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 10.0;
+        Path directory = Path.of(args.length > 1 ? args[1] : "abstraction");
+        boolean clustered = args.length > 2 && args[2].equals("clustered");
+        Path cache = directory.resolve("preflop-equity.bin");
+        int samples = 100000;
+
+        long start = System.nanoTime();
+        PreflopEquityTable.compute(samples, 0);
+        System.out.printf("Preflop equities computed in %.0f ms on %d threads%n",
+                (System.nanoTime() - start) / 1e6, Runtime.getRuntime().availableProcessors());
+        start = System.nanoTime();
+        PreflopEquityTable equities = PreflopEquityTable.loadOrCompute(cache, samples, 0);
+        System.out.printf("Preflop equities from %s in %.0f ms%n", cache, (System.nanoTime() - start) / 1e6);
+        EquityAbstraction abstraction = clustered
+                ? new ClusteredAbstraction(equities, BUCKETS[0],
+                        new BucketTableBuilder(HandAbstraction.FLOP, BUCKETS[1], 16, 32, 10, 30, 0),
+                        new BucketTableBuilder(HandAbstraction.TURN, BUCKETS[2], 16, 32, 10, 30, 0),
+                        BUCKETS[3], directory)
+                : new EquityAbstraction(equities, BUCKETS);
+        EquityAbstraction perHand = new EquityAbstraction(equities, BUCKETS, false);
+        boolean ok = bucketing(abstraction, perHand);
+
+        run("limit", new HoldemGameSim(HoldemRules.limit(1, 2), abstraction), seconds);
+        if (!clustered) run("per-hand", new HoldemGameSim(HoldemRules.limit(1, 2), perHand), seconds);
+        run("no-limit", new HoldemGameSim(HoldemRules.noLimit(1, 2, 200, new double[] { 0.5, 1.0 }, 3),
+                abstraction), seconds);
+        System.out.println(ok ? "OK" : "MISMATCH");
+        if (!ok) System.exit(1);
+    }
+
+    /**
+     * Buckets random pairs of hands sharing a board, as both players' hands do in training, on
+     * every postflop street, enumerating each hand and reusing the board's holding values, and
+     * checks both give the same buckets.
+     */
+    private static boolean bucketing(EquityAbstraction abstraction, EquityAbstraction perHand) {
+        boolean ok = true;
+        SplittableRandom random = new SplittableRandom(0);
+        for (int street = HandAbstraction.FLOP; street <= HandAbstraction.RIVER; street++) {
+            long[] holes = new long[BUCKETED_HANDS];
+            long[] boards = new long[BUCKETED_HANDS];
+            for (int i = 0; i < BUCKETED_HANDS; i += 2) {
+                long used = 0;
+                while (Long.bitCount(used) < 2) used |= 1L << random.nextInt(52);
+                holes[i] = used;
+                while (Long.bitCount(used) < 4) used |= 1L << random.nextInt(52);
+                holes[i + 1] = used & ~holes[i];
+                while (Long.bitCount(used) < 6 + street) used |= 1L << random.nextInt(52);
+                boards[i] = used & ~holes[i] & ~holes[i + 1];
+                boards[i + 1] = boards[i];
+            }
+
+            int[] expected = new int[BUCKETED_HANDS];
+            long start = System.nanoTime();
+            for (int i = 0; i < BUCKETED_HANDS; i++) expected[i] = perHand.bucket(street, holes[i], boards[i]);
+            double perHandNs = (System.nanoTime() - start) / (double) BUCKETED_HANDS;
+
+            int mismatches = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < BUCKETED_HANDS; i++) {
+                if (abstraction.bucket(street, holes[i], boards[i]) != expected[i]) mismatches++;
+            }
+            double reusedNs = (System.nanoTime() - start) / (double) BUCKETED_HANDS;
+            System.out.printf("street %d bucket: %.1f us/hand enumerating each hand, %.1f us/hand reusing the board%n",
+                    street, perHandNs / 1000, reusedNs / 1000);
+            ok &= check(mismatches == 0, "buckets of street " + street + " match");
+        }
+        return ok;
+    }
+
+    private static boolean check(boolean passed, String what) {
+        if (!passed) System.out.println("    failed: " + what);
+        return passed;
+    }
+
+    private static void run(String name, HoldemGameSim game, double seconds) {
+        for (SolverType type : ENGINES) {
+            Solver solver = type.create(game, new InfoSetTable(), 42);
+            int iterations = 0;
+            int batch = 1;
+            long start = System.nanoTime();
+            long deadline = start + (long) (seconds * 1e9);
+            while (System.nanoTime() < deadline) {
+                solver.train(batch, game.newHistory(), null, Integer.MAX_VALUE);
+                iterations += batch;
+                batch = Math.min(batch * 2, 1 << 14);
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-8s %-18s %9.0f it/s  %9d iterations  %8d infosets%n",
+                    name, type, iterations / elapsed, iterations, solver.getInfoSetTable().size());
+        }
+    }
+}
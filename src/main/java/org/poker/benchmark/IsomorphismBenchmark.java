@@ -0,0 +1,138 @@
+package org.poker.benchmark;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import org.poker.Card;
+import org.poker.CFR.ExploitabilityEvaluator;
+import org.poker.CFR.History.LeducHistory;
+import org.poker.CFR.InfoSetTable;
+import org.poker.CFR.ParallelCFR;
+import org.poker.CFR.Solver;
+import org.poker.CFR.SolverType;
+import org.poker.GameSim.LeducGameSim;
+
+/**
+ * Compares Leduc Hold'em with all 30 root deals against the suit-isomorphic game that deals
+ * 15 weighted representatives.
+ *
+ * Reports the tree sizes, the infosets a literal (suit-aware) key would give against the
+ * rank-only ones, and the time every engine needs for the same number of iterations in both
+ * games. Merging saves the full-traversal engines half the tree; the sampling engines visit
+ * one deal per iteration either way, so they should run at the same speed, and are timed
+ * over more iterations since each is short. Both trees must give the same NashConv for the uniform strategy, and CFR with
+ * updates deferred to the end of each pass (single-threaded {@link ParallelCFR}) must reach
+ * the same exploitability in both, or the run fails. The other engines update regrets
+ * while they traverse, so visiting one deal of a pair instead of both shifts their
+ * trajectory slightly.
+ *
+ * Usage: IsomorphismBenchmark [iterations]
+ */
+public class IsomorphismBenchmark {
+    // Summing one doubled regret instead of two equal ones rounds differently, and regret
+    // matching amplifies that over long runs, so the check stops early
+    private static final int CHECK_ITERATIONS = 200;
+    // Iterations of a sampling engine per iteration of a full-traversal one
+    private static final int SAMPLING_SCALE = 100;
+    private static final EnumSet<SolverType> SAMPLING = EnumSet.of(
+            SolverType.CHANCE_SAMPLING, SolverType.EXTERNAL_SAMPLING, SolverType.OUTCOME_SAMPLING);
+    private static final SolverType[] ENGINES = {
+            SolverType.VANILLA, SolverType.COMPILED, SolverType.CHANCE_SAMPLING,
+            SolverType.EXTERNAL_SAMPLING, SolverType.OUTCOME_SAMPLING
+    };
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+
+        LeducGameSim literal = new LeducGameSim(false);
+        LeducGameSim isomorphic = new LeducGameSim(true);
+        LeducHistory initial = new LeducHistory();
+        ExploitabilityEvaluator literalEvaluator = new ExploitabilityEvaluator(literal, initial);
+        ExploitabilityEvaluator isomorphicEvaluator = new ExploitabilityEvaluator(isomorphic, initial);
+
+        int literalNodes = literalEvaluator.getTree().size();
+        int isomorphicNodes = isomorphicEvaluator.getTree().size();
+        System.out.printf("Root deals: %d -> %d%n", literal.numChanceOutcomes(initial),
+                isomorphic.numChanceOutcomes(initial));
+        System.out.printf("Tree nodes: %d -> %d (%.2fx smaller)%n", literalNodes, isomorphicNodes,
+                (double) literalNodes / isomorphicNodes);
+        Set<String> literalInfoSets = new HashSet<>();
+        collectLiteralInfoSets(literal, (LeducHistory) initial.copy(), literalInfoSets);
+        System.out.printf("Infosets: %d with suits -> %d by rank%n", literalInfoSets.size(),
+                isomorphicEvaluator.getTree().numInfoSets());
+
+        boolean ok = isomorphicEvaluator.getTree().numInfoSets() == literalEvaluator.getTree().numInfoSets();
+        double literalNashConv = 2 * literalEvaluator.exploitability(new InfoSetTable());
+        double isomorphicNashConv = 2 * isomorphicEvaluator.exploitability(new InfoSetTable());
+        System.out.printf("Uniform NashConv: %.9f -> %.9f%n", literalNashConv, isomorphicNashConv);
+        ok &= Math.abs(literalNashConv - isomorphicNashConv) < 1e-9;
+
+        ParallelCFR fullDeferred = new ParallelCFR(literal, 1, true);
+        fullDeferred.train(CHECK_ITERATIONS, initial, null, Integer.MAX_VALUE);
+        ParallelCFR mergedDeferred = new ParallelCFR(isomorphic, 1, true);
+        mergedDeferred.train(CHECK_ITERATIONS, initial, null, Integer.MAX_VALUE);
+        fullDeferred.shutdown();
+        mergedDeferred.shutdown();
+        double fullDeferredExploitability = literalEvaluator.exploitability(fullDeferred.getInfoSetTable());
+        double mergedDeferredExploitability = literalEvaluator.exploitability(mergedDeferred.getInfoSetTable());
+        System.out.printf("Deferred-update CFR exploitability after %d iterations: %.9f -> %.9f%n",
+                CHECK_ITERATIONS, fullDeferredExploitability, mergedDeferredExploitability);
+        ok &= Math.abs(fullDeferredExploitability - mergedDeferredExploitability) < 1e-9;
+
+        for (SolverType type : ENGINES) {
+            int runIterations = SAMPLING.contains(type) ? iterations * SAMPLING_SCALE : iterations;
+            // Warm up both games first, so neither side is timed while it is being compiled
+            type.create(literal, new InfoSetTable(), 0).train(runIterations, initial, null, Integer.MAX_VALUE);
+            type.create(isomorphic, new InfoSetTable(), 0).train(runIterations, initial, null, Integer.MAX_VALUE);
+
+            Solver full = type.create(literal, new InfoSetTable(), 7);
+            long start = System.nanoTime();
+            full.train(runIterations, initial, null, Integer.MAX_VALUE);
+            double fullSeconds = (System.nanoTime() - start) / 1e9;
+
+            Solver merged = type.create(isomorphic, new InfoSetTable(), 7);
+            start = System.nanoTime();
+            merged.train(runIterations, initial, null, Integer.MAX_VALUE);
+            double mergedSeconds = (System.nanoTime() - start) / 1e9;
+
+            // Both tables are scored on the full tree
+            double fullExploitability = literalEvaluator.exploitability(full.getInfoSetTable());
+            double mergedExploitability = literalEvaluator.exploitability(merged.getInfoSetTable());
+            System.out.printf("%-18s %8.0f -> %8.0f it/s (%.2fx)  exploitability %.6f -> %.6f%n", type,
+                    runIterations / fullSeconds, runIterations / mergedSeconds, fullSeconds / mergedSeconds,
+                    fullExploitability, mergedExploitability);
+        }
+
+        System.out.println(ok ? "OK" : "MISMATCH");
+        if (!ok) System.exit(1);
+    }
+
+    /**
+     * Keys every decision node by the acting player's cards with their suits and the public
+     * actions, as an infoset table without rank-only card codes would.
+     */
+    private static void collectLiteralInfoSets(LeducGameSim game, LeducHistory history, Set<String> keys) {
+        if (game.isTerminal(history)) return;
+        int mark = history.length();
+        if (game.isChanceNode(history)) {
+            for (int i = 0; i < game.numChanceOutcomes(history); i++) {
+                game.applyChanceOutcome(history, i);
+                collectLiteralInfoSets(game, history, keys);
+                history.undoTo(mark);
+            }
+            return;
+        }
+
+        int player = game.currentPlayer(history);
+        StringBuilder key = new StringBuilder().append(player).append(history.getPublicHash());
+        for (Card card : history.getHand(player)) key.append(card.getRank()).append(card.getSuite());
+        for (Card card : history.getBoard()) key.append(card.getRank()).append(card.getSuite());
+        keys.add(key.toString());
+
+        for (String action : game.getAvailableActions(history)) {
+            history.addAction("P" + player + ":" + action);
+            collectLiteralInfoSets(game, history, keys);
+            history.undoTo(mark);
+        }
+    }
+}
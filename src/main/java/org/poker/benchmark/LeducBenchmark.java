@@ -0,0 +1,72 @@
+package org.poker.benchmark;
+
+import org.poker.CFR.ExploitabilityEvaluator;
+import org.poker.CFR.History.LeducHistory;
+import org.poker.CFR.InfoSetTable;
+import org.poker.CFR.Solver;
+import org.poker.CFR.SolverType;
+import org.poker.GameSim.LeducGameSim;
+
+/**
+ * Regression check and engine throughput on Leduc Hold'em.
+ *
+ * The check compares the game against known values: the NashConv of the uniform random
+ * strategy (4.747222, as published with OpenSpiel), the infoset count, and the
+ * exploitability vanilla CFR reaches after a fixed number of iterations. It then trains
+ * every engine for the given time budget and reports iterations per second and the
+ * exploitability reached.
+ *
+ * Usage: LeducBenchmark [secondsPerEngine]
+ */
+public class LeducBenchmark {
+    private static final double UNIFORM_NASH_CONV = 4.747222;
+    private static final int INFOSETS = 288;
+    private static final int REGRESSION_ITERATIONS = 1000;
+    private static final double REGRESSION_EXPLOITABILITY = 0.0107783;
+    // Value of the game for the first player at equilibrium
+    private static final double GAME_VALUE = -0.0856;
+
+    public static void main(String[] args) {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 5.0;
+
+        LeducGameSim game = new LeducGameSim();
+        LeducHistory initial = new LeducHistory();
+        ExploitabilityEvaluator evaluator = new ExploitabilityEvaluator(game, initial);
+
+        boolean ok = true;
+        double nashConv = 2 * evaluator.exploitability(new InfoSetTable());
+        System.out.printf("Tree: %d nodes, %d infosets%n",
+                evaluator.getTree().size(), evaluator.getTree().numInfoSets());
+        System.out.printf("Uniform NashConv: %.6f (expected %.6f)%n", nashConv, UNIFORM_NASH_CONV);
+        ok &= Math.abs(nashConv - UNIFORM_NASH_CONV) < 1e-6;
+        ok &= evaluator.getTree().numInfoSets() == INFOSETS;
+
+        Solver vanilla = SolverType.VANILLA.create(game, new InfoSetTable(), 0);
+        vanilla.train(REGRESSION_ITERATIONS, initial, null, Integer.MAX_VALUE);
+        double exploitability = evaluator.exploitability(vanilla.getInfoSetTable());
+        System.out.printf("CFR exploitability after %d iterations: %.7f (expected %.7f)%n",
+                REGRESSION_ITERATIONS, exploitability, REGRESSION_EXPLOITABILITY);
+        System.out.printf("Game value for P0: %.4f (equilibrium %.4f)%n",
+                evaluator.gameValue(vanilla.getInfoSetTable(), 0), GAME_VALUE);
+        ok &= Math.abs(exploitability - REGRESSION_EXPLOITABILITY) < 1e-6;
+
+        System.out.println(ok ? "OK" : "MISMATCH");
+        if (!ok) System.exit(1);
+
+        for (SolverType type : SolverType.values()) {
+            Solver solver = type.create(game, new InfoSetTable(), 42);
+            int iterations = 0;
+            int batch = 1;
+            long start = System.nanoTime();
+            long deadline = start + (long) (seconds * 1e9);
+            while (System.nanoTime() < deadline) {
+                solver.train(batch, initial, null, Integer.MAX_VALUE);
+                iterations += batch;
+                batch = Math.min(batch * 2, 1 << 16);
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-18s %10.0f it/s  %9d iterations  exploitability %.6f%n",
+                    type, iterations / elapsed, iterations, evaluator.exploitability(solver.getInfoSetTable()));
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package org.poker.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.mlflow.api.proto.Service.Metric;
+import org.mlflow.api.proto.Service.Param;
+import org.mlflow.api.proto.Service.RunTag;
+import org.mlflow.tracking.MlflowClient;
+import org.poker.logging.AsyncMetricsWriter;
+import org.poker.logging.WandBLogger;
+
+/**
+ * {@link WandBLogger} and its {@link AsyncMetricsWriter} against an in-process HTTP stand-in
+ * for the MLflow tracking server, whose runs/log-batch takes batchMillis per request. The
+ * writer talks to it through a real {@link MlflowClient}, so batches go over HTTP.
+ *
+ * Logs points far faster than the stub takes them and checks that log() never waits on the
+ * server, that logBatch is never called on the logging thread, that the writer drops points
+ * once its buffer is full, and that finish() delivers every point that was not dropped, in
+ * order, before the run is marked finished. Then checks that a run that fits in the buffer
+ * loses nothing, that a server rejecting every batch cannot hold up finish(), and that
+ * several threads logging at once neither block nor lose a point they were told was kept.
+ *
+ * Usage: MetricsWriterBenchmark [points] [batchMillis]
+ */
+public class MetricsWriterBenchmark {
+    private static final String[] KEYS = { "exploitability", "regret", "nodes", "seconds" };
+    private static final int SMALL_CAPACITY = 1 << 10;
+    private static final int LARGE_CAPACITY = 1 << 14;
+    private static final long FLUSH_INTERVAL_MILLIS = 10;
+    private static final int PRODUCERS = 4;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int points = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        long batchMillis = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        // A log() call that waited for the server would take about a batch
+        long blockedNanos = batchMillis * 1_000_000L / 2;
+
+        boolean ok = true;
+        StubServer slow = new StubServer(batchMillis, false);
+        CheckedClient client = new CheckedClient(slow.url());
+        WandBLogger logger = new WandBLogger(new HashMap<>(), client, "stub", SMALL_CAPACITY, FLUSH_INTERVAL_MILLIS);
+        long[] latencies = logPoints(logger, client, points);
+        long start = System.nanoTime();
+        logger.finish();
+        double finishSeconds = (System.nanoTime() - start) / 1e9;
+        slow.stop();
+        AsyncMetricsWriter writer = logger.getWriter();
+        long offered = (long) latencies.length * KEYS.length;
+        System.out.printf("Backpressure: %d points into a buffer of %d, logBatch %d ms: log() median %.2f us, "
+                        + "max %.2f ms; %d dropped, %d delivered, finish %.2f s%n",
+                offered, SMALL_CAPACITY, batchMillis, latencies[latencies.length / 2] / 1e3,
+                latencies[latencies.length - 1] / 1e6, writer.getDropped(), slow.received().size(), finishSeconds);
+        ok &= check(latencies[latencies.length - 1] < blockedNanos, "log() never blocks");
+        ok &= check(!client.calledOnLoggingThread, "logBatch never called on the logging thread");
+        ok &= check(writer.getDropped() > 0, "points dropped once the buffer is full");
+        ok &= check(delivered(writer, slow, offered), "finish() delivers every point kept, in order");
+
+        StubServer fitting = new StubServer(batchMillis, false);
+        client = new CheckedClient(fitting.url());
+        logger = new WandBLogger(new HashMap<>(), client, "stub", LARGE_CAPACITY, FLUSH_INTERVAL_MILLIS);
+        latencies = logPoints(logger, client, LARGE_CAPACITY / 2);
+        logger.finish();
+        fitting.stop();
+        writer = logger.getWriter();
+        offered = (long) latencies.length * KEYS.length;
+        System.out.printf("Within capacity: %d points, %d dropped, %d delivered%n",
+                offered, writer.getDropped(), fitting.received().size());
+        ok &= check(writer.getDropped() == 0, "nothing dropped within capacity");
+        ok &= check(delivered(writer, fitting, offered), "finish() delivers every point, in order");
+
+        StubServer failing = new StubServer(batchMillis / 4, true);
+        client = new CheckedClient(failing.url());
+        logger = new WandBLogger(new HashMap<>(), client, "stub", LARGE_CAPACITY, FLUSH_INTERVAL_MILLIS);
+        logPoints(logger, client, LARGE_CAPACITY / 2);
+        start = System.nanoTime();
+        logger.finish();
+        finishSeconds = (System.nanoTime() - start) / 1e9;
+        failing.stop();
+        writer = logger.getWriter();
+        System.out.printf("Failing server: %d batches failed, finish %.2f s%n", writer.getFailedBatches(), finishSeconds);
+        ok &= check(writer.getFailedBatches() > 0 && writer.getSent() == 0 && writer.pending() == 0,
+                "failed batches counted and discarded");
+        ok &= check(failing.terminatedWith() == 0, "run finished despite the failures");
+
+        ok &= concurrentProducers(points, batchMillis, blockedNanos);
+
+        System.out.println(ok ? "OK" : "MISMATCH");
+        if (!ok) System.exit(1);
+    }
+
+    /**
+     * Several threads offer points to one writer at once, each under its own key, and
+     * checks that none of them waits and that every point accepted reaches the server in
+     * the order its thread offered it.
+     */
+    private static boolean concurrentProducers(int points, long batchMillis, long blockedNanos)
+            throws IOException, InterruptedException {
+        StubServer server = new StubServer(batchMillis, false);
+        MlflowClient client = new MlflowClient(server.url());
+        AsyncMetricsWriter writer = new AsyncMetricsWriter(client, "stub", SMALL_CAPACITY, FLUSH_INTERVAL_MILLIS);
+        int perThread = points / PRODUCERS;
+        long[] accepted = new long[PRODUCERS];
+        long[] maxLatency = new long[PRODUCERS];
+        Thread[] threads = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            threads[p] = new Thread(() -> {
+                String key = "producer" + producer;
+                for (int i = 0; i < perThread; i++) {
+                    long start = System.nanoTime();
+                    if (writer.offer(key, i, start, i)) accepted[producer]++;
+                    maxLatency[producer] = Math.max(maxLatency[producer], System.nanoTime() - start);
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) thread.join();
+        writer.close();
+        server.stop();
+
+        long kept = Arrays.stream(accepted).sum();
+        long maxNanos = Arrays.stream(maxLatency).max().getAsLong();
+        List<Point> received = server.received();
+        System.out.printf("Concurrent producers: %d threads, %d points, offer() max %.2f ms; %d dropped, %d delivered%n",
+                PRODUCERS, (long) perThread * PRODUCERS, maxNanos / 1e6, writer.getDropped(), received.size());
+
+        boolean ok = check(maxNanos < blockedNanos, "offer() never blocks with several producers");
+        ok &= check(kept + writer.getDropped() == (long) perThread * PRODUCERS && received.size() == kept,
+                "every point accepted is delivered");
+        HashMap<String, Long> last = new HashMap<>();
+        boolean ordered = true;
+        for (Point point : received) {
+            Long previous = last.put(point.key, point.step);
+            if (previous != null && point.step <= previous) ordered = false;
+        }
+        ok &= check(ordered, "each producer's points arrive in the order offered");
+        return ok;
+    }
+
+    /**
+     * Logs at least the given number of points, one of each key per iteration, and returns
+     * the sorted latencies of the log() calls.
+     */
+    private static long[] logPoints(WandBLogger logger, CheckedClient client, int points) {
+        client.loggingThread = Thread.currentThread();
+        int iterations = (points + KEYS.length - 1) / KEYS.length;
+        long[] latencies = new long[iterations];
+        HashMap<String, Double> metrics = new HashMap<>();
+        for (int i = 0; i < iterations; i++) {
+            for (int k = 0; k < KEYS.length; k++) metrics.put(KEYS[k], (double) i * k);
+            long start = System.nanoTime();
+            logger.log(metrics, i);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    /**
+     * Whether, after finish(), the server got every point the writer did not drop, with
+     * steps in the order they were logged, and all of them before the run was marked finished.
+     */
+    private static boolean delivered(AsyncMetricsWriter writer, StubServer server, long offered) {
+        List<Point> received = server.received();
+        if (writer.pending() != 0 || writer.getFailedBatches() != 0) return false;
+        if (received.size() != writer.getSent() || writer.getSent() + writer.getDropped() != offered) return false;
+        if (server.terminatedWith() != received.size()) return false;
+        for (int i = 1; i < received.size(); i++) {
+            if (received.get(i).step < received.get(i - 1).step) return false;
+        }
+        return true;
+    }
+
+    private static boolean check(boolean passed, String what) {
+        if (!passed) System.out.println("    failed: " + what);
+        return passed;
+    }
+
+    /**
+     * The real client, noting whether logBatch was ever called on the logging thread.
+     */
+    private static final class CheckedClient extends MlflowClient {
+        private static final long serialVersionUID = 1L;
+
+        transient volatile Thread loggingThread;
+        volatile boolean calledOnLoggingThread;
+
+        CheckedClient(String url) {
+            super(url);
+        }
+
+        @Override
+        public void logBatch(String runId, Iterable<Metric> metrics, Iterable<Param> params, Iterable<RunTag> tags) {
+            if (Thread.currentThread() == loggingThread) calledOnLoggingThread = true;
+            super.logBatch(runId, metrics, params, tags);
+        }
+    }
+
+    private static final class Point {
+        final String key;
+        final long step;
+
+        Point(String key, long step) {
+            this.key = key;
+            this.step = step;
+        }
+    }
+
+    /**
+     * Tracking server stand-in on a local port: answers the REST calls a run makes, keeps
+     * the metrics posted to runs/log-batch taking batchMillis per request, or rejects
+     * every batch.
+     */
+    private static final class StubServer {
+        private static final String API = "/api/2.0/mlflow/";
+        // Int64 fields such as step are quoted in protobuf JSON
+        private static final Pattern METRIC = Pattern.compile(
+                "\\{[^}]*\"key\"\\s*:\\s*\"([^\"]*)\"[^}]*\"step\"\\s*:\\s*\"?(-?\\d+)");
+
+        private final HttpServer server;
+        private final long batchMillis;
+        private final boolean failing;
+        private final List<Point> received = new ArrayList<>();
+        // Points received when the run was marked finished
+        private int terminatedWith = -1;
+
+        StubServer(long batchMillis, boolean failing) throws IOException {
+            this.batchMillis = batchMillis;
+            this.failing = failing;
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.createContext(API, this::handle);
+            server.start();
+        }
+
+        String url() {
+            return "http://localhost:" + server.getAddress().getPort();
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        synchronized List<Point> received() {
+            return new ArrayList<>(received);
+        }
+
+        synchronized int terminatedWith() {
+            return terminatedWith;
+        }
+
+        private void handle(HttpExchange exchange) {
+            try (exchange) {
+                String path = exchange.getRequestURI().getPath().substring(API.length());
+                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                int status = 200;
+                String response = "{}";
+                switch (path) {
+                    case "experiments/get-by-name" ->
+                            response = "{\"experiment\": {\"experiment_id\": \"0\", \"name\": \"stub\"}}";
+                    case "runs/create" ->
+                            response = "{\"run\": {\"info\": {\"run_id\": \"stub\", \"experiment_id\": \"0\"}}}";
+                    case "runs/log-batch" -> {
+                        sleep(batchMillis);
+                        if (failing) {
+                            status = 400;
+                            response = "{\"error_code\": \"INVALID_PARAMETER_VALUE\", \"message\": \"stub rejects batches\"}";
+                        } else {
+                            logBatch(body);
+                        }
+                    }
+                    case "runs/update" -> terminate();
+                    default -> {
+                        // log-parameter and the like need no answer
+                    }
+                }
+                byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private synchronized void logBatch(String body) {
+            Matcher metric = METRIC.matcher(body);
+            while (metric.find()) received.add(new Point(metric.group(1), Long.parseLong(metric.group(2))));
+        }
+
+        private synchronized void terminate() {
+            terminatedWith = received.size();
+        }
+
+        private static void sleep(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.poker.benchmark;
+
+import org.poker.CFR.ExploitabilityEvaluator;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.CFR.History.KuhnPokerHistory;
+import org.poker.CFR.InfoSetTable;
+import org.poker.CFR.Solver;
+import org.poker.CFR.SolverType;
+import org.poker.GameSim.KuhnPokerGameSim;
+
+/**
+ * Scaling check on Kuhn poker from two players upwards.
+ *
+ * For every player count the game tree is checked first: every terminal must be zero-sum,
+ * and the two- and three-player games must have their known infoset counts (12 and 48).
+ * Then every engine that supports more than two players trains for a fixed number of
+ * iterations and reports iterations per second and the NashConv reached. CFR carries no
+ * convergence guarantee beyond two players, but NashConv should still fall well below
+ * that of the uniform strategy.
+ *
+ * Usage: MultiplayerBenchmark [iterations] [maxPlayers]
+ */
+public class MultiplayerBenchmark {
+    private static final int[] KNOWN_INFOSETS = { 0, 0, 12, 48 };
+    private static final SolverType[] ENGINES = {
+            SolverType.VANILLA, SolverType.COMPILED, SolverType.CHANCE_SAMPLING,
+            SolverType.EXTERNAL_SAMPLING, SolverType.OUTCOME_SAMPLING
+    };
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int maxPlayers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        boolean ok = true;
+        for (int n = 2; n <= maxPlayers; n++) {
+            KuhnPokerGameSim game = new KuhnPokerGameSim(n);
+            KuhnPokerHistory initial = game.newHistory();
+            ExploitabilityEvaluator evaluator = new ExploitabilityEvaluator(game, initial);
+
+            int infoSets = evaluator.getTree().numInfoSets();
+            double uniformNashConv = n * evaluator.exploitability(new InfoSetTable());
+            boolean zeroSum = isZeroSum(game, initial.copy());
+            System.out.printf("%d players: %d deals, %d nodes, %d infosets, zero-sum %s, uniform NashConv %.4f%n",
+                    n, game.numChanceOutcomes(initial), evaluator.getTree().size(), infoSets, zeroSum,
+                    uniformNashConv);
+            ok &= zeroSum;
+            if (n < KNOWN_INFOSETS.length) ok &= infoSets == KNOWN_INFOSETS[n];
+
+            for (SolverType type : ENGINES) {
+                Solver solver = type.create(game, new InfoSetTable(), 42);
+                long start = System.nanoTime();
+                solver.train(iterations, initial, null, Integer.MAX_VALUE);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                double nashConv = n * evaluator.exploitability(solver.getInfoSetTable());
+                System.out.printf("  %-18s %9.0f it/s  NashConv %.6f%n", type, iterations / seconds, nashConv);
+                if (type == SolverType.VANILLA) ok &= nashConv < uniformNashConv / 10;
+            }
+        }
+
+        System.out.println(ok ? "OK" : "MISMATCH");
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean isZeroSum(KuhnPokerGameSim game, AbstractHistory history) {
+        if (game.isTerminal(history)) {
+            double sum = 0;
+            for (double u : game.terminalUtility(history)) sum += u;
+            return Math.abs(sum) < 1e-12;
+        }
+        int mark = history.length();
+        boolean zeroSum = true;
+        if (game.isChanceNode(history)) {
+            for (int i = 0; i < game.numChanceOutcomes(history); i++) {
+                game.applyChanceOutcome(history, i);
+                zeroSum &= isZeroSum(game, history);
+                history.undoTo(mark);
+            }
+            return zeroSum;
+        }
+        int player = game.currentPlayer(history);
+        for (String action : game.getAvailableActions(history)) {
+            history.addAction("P" + player + ":" + action);
+            zeroSum &= isZeroSum(game, history);
+            history.undoTo(mark);
+        }
+        return zeroSum;
+    }
+}
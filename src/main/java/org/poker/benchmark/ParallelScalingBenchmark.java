@@ -0,0 +1,102 @@
+package org.poker.benchmark;
+
+import org.poker.CFR.CFR;
+import org.poker.CFR.Checkpoint;
+import org.poker.CFR.History.LeducHistory;
+import org.poker.CFR.ParallelCFR;
+import org.poker.CFR.SolverStats;
+import org.poker.GameSim.LeducGameSim;
+
+/**
+ * Measures CFR iterations per second on Leduc Hold'em for 1..N threads against sequential
+ * CFR. Passes are split by root deal, and Leduc's 30 give the workers something to share.
+ *
+ * One thread does the same traversal as the sequential engine plus handing the pass to the
+ * pool and merging its deltas into the table, so its ratio to sequential is reported as
+ * the single-thread overhead. Also checks that, at every thread count, the first iteration
+ * counts each infoset as created exactly once and makes as many lookups as sequential CFR,
+ * and that deterministic mode trains the same table bit for bit when run twice and at
+ * every thread count.
+ *
+ * Usage: ParallelScalingBenchmark [iterations] [maxThreads]
+ */
+public class ParallelScalingBenchmark {
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        LeducGameSim game = new LeducGameSim();
+        LeducHistory initial = new LeducHistory();
+        System.out.printf("Leduc, %d root deals, %d iterations, %d processors%n",
+                game.numChanceOutcomes(initial), iterations, Runtime.getRuntime().availableProcessors());
+
+        SolverStats expected = firstIterationStats(new CFR(game), initial);
+        // Warm up both engines first, so neither is timed while the other's code is compiled
+        warmUp(new CFR(game), initial, iterations);
+        ParallelCFR warm = new ParallelCFR(game, 1, false);
+        warmUp(warm, initial, iterations);
+        warm.shutdown();
+        double sequential = run(new CFR(game), initial, iterations);
+        System.out.printf("sequential: %.0f it/s%n", sequential);
+
+        boolean ok = true;
+        Checkpoint reference = null;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ParallelCFR trainer = new ParallelCFR(game, threads, false);
+            double rate = run(trainer, initial, iterations);
+            trainer.shutdown();
+            System.out.printf("threads=%d: %.0f it/s (%.2fx)%n", threads, rate, rate / sequential);
+            if (threads == 1) {
+                System.out.printf("single-thread overhead: %.1f%%%n", 100 * (sequential / rate - 1));
+            }
+
+            ParallelCFR counted = new ParallelCFR(game, threads, false);
+            SolverStats stats = firstIterationStats(counted, initial);
+            counted.shutdown();
+            ok &= check(stats.getInfoSetCreations() == counted.getInfoSetTable().size()
+                    && stats.getInfoSetCreations() == expected.getInfoSetCreations()
+                    && stats.getInfoSetHits() == expected.getInfoSetHits(), "infoset lookups counted exactly");
+
+            Checkpoint first = deterministicRun(game, initial, threads, iterations);
+            Checkpoint second = deterministicRun(game, initial, threads, iterations);
+            ok &= check(first.sameContents(second), "deterministic mode reproducible with " + threads + " threads");
+            if (reference == null) reference = first;
+            ok &= check(first.sameContents(reference), "deterministic mode with " + threads + " threads matches one thread");
+        }
+
+        System.out.println(ok ? "OK" : "MISMATCH");
+        if (!ok) System.exit(1);
+    }
+
+    private static void warmUp(CFR trainer, LeducHistory initial, int iterations) {
+        trainer.train(iterations / 2, initial, null, Integer.MAX_VALUE);
+    }
+
+    private static double run(CFR trainer, LeducHistory initial, int iterations) {
+        // Untimed iterations first, so that the timed ones find every infoset created
+        trainer.train(iterations / 10, initial, null, Integer.MAX_VALUE);
+
+        long start = System.nanoTime();
+        trainer.train(iterations, initial, null, Integer.MAX_VALUE);
+        return iterations / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static Checkpoint deterministicRun(LeducGameSim game, LeducHistory initial, int threads, int iterations) {
+        ParallelCFR trainer = new ParallelCFR(game, threads, true);
+        trainer.train(iterations / 10, initial, null, Integer.MAX_VALUE);
+        trainer.shutdown();
+        return Checkpoint.capture(trainer);
+    }
+
+    private static SolverStats firstIterationStats(CFR trainer, LeducHistory initial) {
+        SolverStats stats = new SolverStats();
+        trainer.setStats(stats);
+        trainer.train(1, initial, null, Integer.MAX_VALUE);
+        return stats;
+    }
+
+    private static boolean check(boolean passed, String what) {
+        if (!passed) System.out.println("    failed: " + what);
+        return passed;
+    }
+}
@@ -0,0 +1,213 @@
+package org.poker.benchmark;
+
+import java.util.Arrays;
+import org.poker.CFR.CFR;
+import org.poker.CFR.ExploitabilityEvaluator;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.CFR.History.LeducHistory;
+import org.poker.CFR.InfoSetTable;
+import org.poker.CFR.Pruning;
+import org.poker.CFR.Solver;
+import org.poker.CFR.SolverStats;
+import org.poker.CFR.SolverType;
+import org.poker.GameSim.GameSim;
+import org.poker.GameSim.KuhnPokerGameSim;
+import org.poker.GameSim.LeducGameSim;
+
+/**
+ * Pruning on Kuhn poker, three-player Kuhn poker and Leduc Hold'em.
+ *
+ * Trains the compiled engine without pruning, with zero-reach pruning and with regret-based
+ * pruning, and reports the nodes visited, subtrees skipped, time and exploitability of each.
+ * Checks that zero-reach pruning leaves every cumulative regret exactly as it was and every
+ * strategy sum as an unpruned run accumulating on the same passes has it, that the recursive
+ * and compiled engines prune identically, that pruning visits fewer nodes, that the pruned
+ * strategies are converged as far as the unpruned ones and have the same game value, and,
+ * in the two-player games, that this is the equilibrium's.
+ *
+ * Usage: PruningBenchmark [iterations] [regretThreshold] [fullTraversalInterval]
+ */
+public class PruningBenchmark {
+    private static final double KUHN_VALUE = -1.0 / 18;
+    private static final double LEDUC_VALUE = -0.0856;
+    // Exploitability a pruned run may reach relative to the unpruned one
+    private static final double EXPLOITABILITY_SLACK = 1.5;
+    private static final double VALUE_TOLERANCE = 0.005;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        double threshold = args.length > 1 ? Double.parseDouble(args[1]) : -300;
+        int interval = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        Pruning[] modes = { Pruning.NONE, Pruning.ZERO_REACH, Pruning.regretBased(threshold, interval) };
+
+        boolean ok = true;
+        KuhnPokerGameSim kuhn = new KuhnPokerGameSim();
+        ok &= run("Kuhn", kuhn, kuhn.newHistory(), modes, iterations * 5, KUHN_VALUE);
+        KuhnPokerGameSim kuhn3 = new KuhnPokerGameSim(3);
+        ok &= run("3-player Kuhn", kuhn3, kuhn3.newHistory(), modes, iterations, Double.NaN);
+        ok &= run("Leduc", new LeducGameSim(), new LeducHistory(), modes, iterations, LEDUC_VALUE);
+
+        System.out.println(ok ? "OK" : "MISMATCH");
+        if (!ok) System.exit(1);
+    }
+
+    /**
+     * Trains every mode and checks it; gameValue is NaN for games beyond two players, whose
+     * equilibria differ in value.
+     */
+    private static boolean run(String name, GameSim game, AbstractHistory root, Pruning[] modes,
+                               int iterations, double gameValue) {
+        ExploitabilityEvaluator evaluator = new ExploitabilityEvaluator(game, root);
+        System.out.printf("%s, %d iterations%n", name, iterations);
+
+        boolean ok = true;
+        InfoSetTable unpruned = null;
+        long unprunedNodes = 0;
+        double unprunedExploitability = 0;
+        double unprunedValue = 0;
+        for (Pruning pruning : modes) {
+            Solver solver = SolverType.COMPILED.create(game, new InfoSetTable(), 0);
+            solver.setPruning(pruning);
+            SolverStats stats = new SolverStats();
+            solver.setStats(stats);
+            long start = System.nanoTime();
+            solver.train(iterations, root, null, Integer.MAX_VALUE);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            InfoSetTable table = solver.getInfoSetTable();
+            double exploitability = evaluator.exploitability(table);
+            double value = evaluator.gameValue(table, 0);
+            System.out.printf("  %-16s %12d nodes %10d pruned %7.2f s  exploitability %.6f  value %.4f%n",
+                    pruning, stats.getNodesVisited(), stats.getSubtreesPruned(), seconds, exploitability, value);
+
+            if (pruning == Pruning.NONE) {
+                unpruned = table;
+                unprunedNodes = stats.getNodesVisited();
+                unprunedExploitability = exploitability;
+                unprunedValue = value;
+                continue;
+            }
+            ok &= check(stats.getNodesVisited() < unprunedNodes, "fewer nodes visited");
+            ok &= check(sameAsRecursive(game, root, pruning, table, iterations / 10 + 1, iterations),
+                    "recursive and compiled engines agree");
+            if (pruning == Pruning.ZERO_REACH) {
+                ok &= check(sameRegrets(unpruned, table), "regrets unchanged");
+                ok &= check(sameAsOnePass(game, root, iterations / 10 + 1), "strategy sums unbiased");
+            }
+            ok &= check(exploitability <= unprunedExploitability * EXPLOITABILITY_SLACK, "as converged as unpruned");
+            ok &= check(Math.abs(value - unprunedValue) < VALUE_TOLERANCE, "unpruned game value");
+            if (!Double.isNaN(gameValue)) {
+                ok &= check(Math.abs(value - gameValue) < VALUE_TOLERANCE, "equilibrium game value");
+            }
+        }
+        return ok;
+    }
+
+    private static boolean check(boolean passed, String what) {
+        if (!passed) System.out.println("    failed: " + what);
+        return passed;
+    }
+
+    /**
+     * Whether the recursive engine, pruning the same way, ends up with the same sums as the
+     * compiled table. The recursive engine is slow, so after a longer training both are
+     * compared over the first iterations only, with a fresh compiled solver.
+     */
+    private static boolean sameAsRecursive(GameSim game, AbstractHistory root, Pruning pruning,
+                                           InfoSetTable compiledTable, int iterations, int trained) {
+        InfoSetTable expected = compiledTable;
+        if (iterations != trained) {
+            Solver compiled = SolverType.COMPILED.create(game, new InfoSetTable(), 0);
+            compiled.setPruning(pruning);
+            compiled.train(iterations, root, null, Integer.MAX_VALUE);
+            expected = compiled.getInfoSetTable();
+        }
+        Solver recursive = SolverType.VANILLA.create(game, new InfoSetTable(), 0);
+        recursive.setPruning(pruning);
+        recursive.train(iterations, root, null, Integer.MAX_VALUE);
+        InfoSetTable actual = recursive.getInfoSetTable();
+
+        if (actual.size() != expected.size()) return false;
+        double[] x = new double[expected.dataSize()];
+        double[] y = new double[expected.dataSize()];
+        for (int id = 0; id < expected.size(); id++) {
+            int other = actual.find(expected.getHash(id));
+            if (other < 0) return false;
+            expected.getAverageStrategy(id, x);
+            actual.getAverageStrategy(other, y);
+            for (int a = 0; a < expected.getNumActions(id); a++) {
+                if (x[a] != y[a] || expected.getRegret(id, a) != actual.getRegret(other, a)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether zero-reach pruning ends up with exactly the regrets and strategy sums of an
+     * unpruned run that accumulates the strategy sums on the passes a pruning engine does.
+     */
+    private static boolean sameAsOnePass(GameSim game, AbstractHistory root, int iterations) {
+        Solver pruned = SolverType.COMPILED.create(game, new InfoSetTable(), 0);
+        pruned.setPruning(Pruning.ZERO_REACH);
+        pruned.train(iterations, root, null, Integer.MAX_VALUE);
+        InfoSetTable actual = pruned.getInfoSetTable();
+        OnePassCFR reference = new OnePassCFR(game);
+        reference.train(iterations, root, null, Integer.MAX_VALUE);
+        InfoSetTable expected = reference.getInfoSetTable();
+
+        if (actual.size() != expected.size()) return false;
+        for (int id = 0; id < expected.size(); id++) {
+            int other = actual.find(expected.getHash(id));
+            if (other < 0) return false;
+            for (int a = 0; a < expected.getNumActions(id); a++) {
+                if (expected.getRegret(id, a) != actual.getRegret(other, a)
+                        || expected.getStrategySum(id, a) != actual.getStrategySum(other, a)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Unpruned vanilla CFR that adds to each player's strategy sums on that player's
+     * {@link #strategySumPlayer} pass only, as the engines do when they prune.
+     */
+    private static final class OnePassCFR extends CFR {
+        private int[] players = new int[64];
+        private int summedPlayer;
+
+        OnePassCFR(GameSim game) {
+            super(game);
+        }
+
+        @Override
+        public double traverse(AbstractHistory history, double[] reach, int targetPlayer) {
+            summedPlayer = strategySumPlayer(targetPlayer);
+            return super.traverse(history, reach, targetPlayer);
+        }
+
+        @Override
+        protected int getInfoSet(AbstractHistory history, int player, int[] actions, int numActions) {
+            int id = super.getInfoSet(history, player, actions, numActions);
+            if (id >= players.length) players = Arrays.copyOf(players, id * 2);
+            players[id] = player;
+            return id;
+        }
+
+        @Override
+        protected void addToStrategySum(int infoSet, int action, double value) {
+            if (players[infoSet] == summedPlayer) super.addToStrategySum(infoSet, action, value);
+        }
+    }
+
+    private static boolean sameRegrets(InfoSetTable expected, InfoSetTable actual) {
+        if (actual.size() != expected.size()) return false;
+        for (int id = 0; id < expected.size(); id++) {
+            int other = actual.find(expected.getHash(id));
+            if (other < 0) return false;
+            for (int a = 0; a < expected.getNumActions(id); a++) {
+                if (expected.getRegret(id, a) != actual.getRegret(other, a)) return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,211 @@
+package org.poker.benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.poker.Card;
+import org.poker.CFR.Blueprint;
+import org.poker.CFR.ExploitabilityEvaluator;
+import org.poker.CFR.History.AbstractHistory;
+import org.poker.CFR.History.LeducHistory;
+import org.poker.CFR.InfoSetTable;
+import org.poker.CFR.Solver;
+import org.poker.CFR.SolverType;
+import org.poker.CFR.SubgameSolver;
+import org.poker.GameSim.LeducGameSim;
+
+/**
+ * Real-time subgame re-solving on Leduc Hold'em, on top of a deliberately weak blueprint.
+ *
+ * Checks that re-solving the whole game from the first decision gives a less exploitable
+ * strategy than the blueprint it starts from, and that carrying the regrets of the first
+ * decision into the second brings the second decision's strategy closer to a long reference
+ * solve than the same number of iterations from a cold start. Then plays hands with every
+ * decision re-solved to the depth limit within the time budget, ranges included, and checks
+ * that no decision takes more CPU time than the budget. Wall-clock latency also counts the
+ * time the thread spends descheduled, which the solver does not control, so its p99 is only
+ * checked against the budget with a margin and its maximum is reported but not checked.
+ *
+ * Usage: SubgameBenchmark [blueprintIterations] [budgetMillis] [hands] [depthLimit]
+ */
+public class SubgameBenchmark {
+    private static final int FULL_ITERATIONS = 1000;
+    private static final int WARM_ITERATIONS = 20;
+    private static final int REFERENCE_ITERATIONS = 5000;
+    // Wall-clock p99 latency allowed, relative to the budget
+    private static final double WALL_MARGIN = 1.5;
+
+    public static void main(String[] args) throws IOException {
+        int blueprintIterations = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        long budgetNanos = (args.length > 1 ? Long.parseLong(args[1]) : 20) * 1_000_000L;
+        int hands = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int depthLimit = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+
+        LeducGameSim game = new LeducGameSim();
+        LeducHistory initial = new LeducHistory();
+        ExploitabilityEvaluator evaluator = new ExploitabilityEvaluator(game, initial);
+
+        Solver trainer = SolverType.COMPILED.create(game, new InfoSetTable(), 0);
+        trainer.train(blueprintIterations, initial, null, Integer.MAX_VALUE);
+        double blueprintExploitability = evaluator.exploitability(trainer.getInfoSetTable());
+        Path file = Files.createTempFile("blueprint", ".bin");
+        file.toFile().deleteOnExit();
+        Blueprint.export(trainer.getInfoSetTable(), file);
+        Blueprint blueprint = Blueprint.open(file);
+        System.out.printf("Blueprint: %d iterations, %d infosets, exploitability %.6f%n",
+                blueprintIterations, blueprint.size(), blueprintExploitability);
+
+        // With no depth limit the subgame at the first decision is the whole game
+        AbstractHistory first = initial.copy();
+        game.applyChanceOutcome(first, 0);
+        SubgameSolver full = new SubgameSolver(game, blueprint, Integer.MAX_VALUE, FULL_ITERATIONS);
+        full.solve(first, full.ranges(first), Long.MAX_VALUE, new double[3]);
+        double resolvedExploitability = evaluator.exploitability(full.getInfoSetTable());
+        System.out.printf("Whole game re-solved from the first decision (%d iterations): exploitability %.6f%n",
+                FULL_ITERATIONS, resolvedExploitability);
+        boolean ok = resolvedExploitability < blueprintExploitability;
+
+        double[] distances = warmStartDistances(game, blueprint, depthLimit);
+        System.out.printf("Second decision after %d iterations, mean L1 distance to a %d-iteration solve: "
+                + "warm %.4f, cold %.4f%n", WARM_ITERATIONS, REFERENCE_ITERATIONS, distances[0], distances[1]);
+        ok &= distances[0] < distances[1];
+
+        // As many warm-up hands as timed ones, so that compilation is over before the timing
+        // starts; they also fill the solver's cache of leaf values
+        SubgameSolver solver = new SubgameSolver(game, blueprint, depthLimit, Integer.MAX_VALUE);
+        ok &= play(game, solver, budgetNanos, hands, new SplittableRandom(1), false);
+        ok &= play(game, solver, budgetNanos, hands, new SplittableRandom(7), true);
+
+        System.out.println(ok ? "OK" : "MISMATCH");
+        if (!ok) System.exit(1);
+    }
+
+    /**
+     * Mean L1 distance, over player 1's hands, between the strategy at player 1's first
+     * decision after a check and a long reference solve of the same subgame: once after
+     * re-solving the first decision and carrying its table over, and once from a cold start.
+     */
+    private static double[] warmStartDistances(LeducGameSim game, Blueprint blueprint, int depthLimit) {
+        AbstractHistory first = initial(game, 0, 1);
+        AbstractHistory second = first.copy();
+        second.addAction("P0:Check");
+
+        SubgameSolver warm = new SubgameSolver(game, blueprint, depthLimit, WARM_ITERATIONS);
+        warm.solve(first, warm.ranges(first), Long.MAX_VALUE, new double[3]);
+        // Player 0's range after the check follows the strategy the first solve found
+        double[][] ranges = warm.ranges(second);
+        warm.solve(second, ranges, Long.MAX_VALUE, new double[3]);
+
+        SubgameSolver cold = new SubgameSolver(game, blueprint, depthLimit, WARM_ITERATIONS);
+        cold.solve(second, ranges, Long.MAX_VALUE, new double[3]);
+        SubgameSolver reference = new SubgameSolver(game, blueprint, depthLimit, REFERENCE_ITERATIONS);
+        reference.solve(second, ranges, Long.MAX_VALUE, new double[3]);
+
+        double[] distances = new double[2];
+        Card[][] privateHands = game.privateHands();
+        double[] expected = new double[3];
+        double[] actual = new double[3];
+        for (int h = 0; h < privateHands.length; h++) {
+            AbstractHistory history = initial(game, h == 0 ? 1 : 0, h);
+            history.addAction("P0:Check");
+            long hash = history.infoSetHash(1);
+            InfoSetTable referenceTable = reference.getInfoSetTable();
+            referenceTable.getAverageStrategy(referenceTable.find(hash), expected);
+
+            SubgameSolver[] solvers = { warm, cold };
+            for (int s = 0; s < solvers.length; s++) {
+                InfoSetTable table = solvers[s].getInfoSetTable();
+                table.getAverageStrategy(table.find(hash), actual);
+                for (int a = 0; a < expected.length; a++) {
+                    distances[s] += Math.abs(expected[a] - actual[a]) / privateHands.length;
+                }
+            }
+        }
+        return distances;
+    }
+
+    private static AbstractHistory initial(LeducGameSim game, int hand0, int hand1) {
+        AbstractHistory history = new LeducHistory();
+        Card[][] privateHands = game.privateHands();
+        game.dealHands(history, new Card[][] { privateHands[hand0], privateHands[hand1] });
+        return history;
+    }
+
+    /**
+     * Plays hands with both seats re-solving every decision and sampling from the result.
+     * Returns whether every returned strategy was a distribution and, when reporting, whether
+     * the latencies kept to the budget.
+     */
+    private static boolean play(LeducGameSim game, SubgameSolver solver, long budgetNanos, int hands,
+                                SplittableRandom random, boolean report) {
+        double[] strategy = new double[game.maxActions()];
+        int[] actions = new int[game.maxActions()];
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long[] latencies = new long[hands * 8];
+        long maxCpu = 0;
+        int decisions = 0;
+        long totalIterations = 0;
+        int warmDecisions = 0;
+        boolean ok = true;
+
+        for (int hand = 0; hand < hands; hand++) {
+            solver.newHand();
+            AbstractHistory history = new LeducHistory();
+            while (!game.isTerminal(history)) {
+                if (game.isChanceNode(history)) {
+                    game.applyChanceOutcome(history, game.sampleChanceOutcome(history, random));
+                    continue;
+                }
+                long cpuStart = threads.getCurrentThreadCpuTime();
+                long start = System.nanoTime();
+                int n = solver.solve(history, budgetNanos, strategy);
+                if (decisions == latencies.length) latencies = Arrays.copyOf(latencies, decisions * 2);
+                latencies[decisions++] = System.nanoTime() - start;
+                maxCpu = Math.max(maxCpu, threads.getCurrentThreadCpuTime() - cpuStart);
+                totalIterations += solver.getIterations();
+                if (solver.getReusedInfoSets() > 0) warmDecisions++;
+
+                double sum = 0;
+                for (int a = 0; a < n; a++) sum += strategy[a];
+                ok &= Math.abs(sum - 1.0) < 1e-9;
+
+                int player = game.currentPlayer(history);
+                game.legalActions(history, actions);
+                history.addAction(player, actions[sample(strategy, n, random)]);
+            }
+        }
+
+        if (report) {
+            long[] sorted = Arrays.copyOf(latencies, decisions);
+            Arrays.sort(sorted);
+            long p99 = sorted[(int) (decisions * 0.99)];
+            long max = sorted[decisions - 1];
+            System.out.printf("%d hands, %d decisions with a %d ms budget: latency median %.2f ms, "
+                            + "p99 %.2f ms, max %.2f ms (CPU %.2f ms); %.0f iterations per decision; "
+                            + "%d decisions warm-started%n",
+                    hands, decisions, budgetNanos / 1_000_000, sorted[decisions / 2] / 1e6,
+                    p99 / 1e6, max / 1e6, maxCpu / 1e6, (double) totalIterations / decisions, warmDecisions);
+            ok &= check(maxCpu <= budgetNanos, "every decision within the budget of CPU time");
+            ok &= check(p99 <= budgetNanos * WALL_MARGIN, "p99 latency within the budget and margin");
+        }
+        return ok;
+    }
+
+    private static boolean check(boolean passed, String what) {
+        if (!passed) System.out.println("    failed: " + what);
+        return passed;
+    }
+
+    private static int sample(double[] strategy, int n, SplittableRandom random) {
+        double r = random.nextDouble();
+        for (int a = 0; a < n - 1; a++) {
+            r -= strategy[a];
+            if (r < 0) return a;
+        }
+        return n - 1;
+    }
+}
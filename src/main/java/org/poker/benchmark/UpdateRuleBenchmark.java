@@ -0,0 +1,158 @@
+package org.poker.benchmark;
+
+import org.poker.CFR.CFR;
+import org.poker.CFR.ChanceSamplingCFR;
+import org.poker.CFR.ExploitabilityEvaluator;
+import org.poker.CFR.ExternalSamplingCFR;
+import org.poker.CFR.History.KuhnPokerHistory;
+import org.poker.CFR.History.LeducHistory;
+import org.poker.CFR.InfoSetTable;
+import org.poker.CFR.OutcomeSamplingCFR;
+import org.poker.CFR.Solver;
+import org.poker.CFR.SolverType;
+import org.poker.CFR.UpdateRule;
+import org.poker.GameSim.KuhnPokerGameSim;
+import org.poker.GameSim.LeducGameSim;
+
+/**
+ * Compares convergence per unit of wall-clock time of the CFR update rules on Kuhn poker.
+ *
+ * Convergence is measured as exploitability of the average strategy in mbb/hand.
+ *
+ * Then trains the sampling engines on Leduc Hold'em with the rules that scale the table,
+ * once with the scaling deferred per infoset as they do by default and once swept over the
+ * whole table eagerly, and checks that both end with the same strategies.
+ *
+ * Usage: UpdateRuleBenchmark [millisPerRule] [reportEveryIterations] [samplingIterations]
+ */
+public class UpdateRuleBenchmark {
+    // Deferred scaling multiplies by products of factors rather than by each in turn
+    private static final double STRATEGY_TOLERANCE = 1e-9;
+
+    public static void main(String[] args) {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+        int reportEvery = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int samplingIterations = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+
+        UpdateRule[] rules = {
+                UpdateRule.VANILLA,
+                UpdateRule.VANILLA.withAveraging(1),
+                UpdateRule.CFR_PLUS,
+                UpdateRule.LINEAR_CFR,
+                UpdateRule.DCFR,
+                UpdateRule.DCFR.withAveraging(2),
+        };
+
+        KuhnPokerGameSim game = new KuhnPokerGameSim();
+        KuhnPokerHistory initial = new KuhnPokerHistory();
+        ExploitabilityEvaluator evaluator = new ExploitabilityEvaluator(game, initial);
+
+        for (UpdateRule rule : rules) {
+            CFR trainer = new CFR(game);
+            trainer.setUpdateRule(rule);
+
+            long start = System.nanoTime();
+            long deadline = start + millis * 1_000_000;
+            System.out.println(rule + ":");
+            while (System.nanoTime() < deadline) {
+                trainer.train(reportEvery, initial, null, Integer.MAX_VALUE);
+                double elapsedMs = (System.nanoTime() - start) / 1e6;
+                System.out.printf("  %8d it  %8.1f ms  exploitability %.4f mbb/hand%n",
+                        trainer.getIteration(), elapsedMs, evaluator.exploitabilityMbb(trainer.getInfoSetTable()));
+            }
+        }
+
+        boolean ok = true;
+        LeducGameSim leduc = new LeducGameSim();
+        LeducHistory root = new LeducHistory();
+        SolverType[] engines = { SolverType.CHANCE_SAMPLING, SolverType.EXTERNAL_SAMPLING, SolverType.OUTCOME_SAMPLING };
+        UpdateRule[] scaling = { UpdateRule.CFR_PLUS, UpdateRule.DCFR };
+        System.out.printf("Leduc, %d iterations, deferred against eager scaling:%n", samplingIterations);
+        // Warm up every engine both ways first, so that none is timed while it is being compiled
+        for (SolverType type : engines) {
+            for (UpdateRule rule : scaling) {
+                time(type.create(leduc, new InfoSetTable(), 0), rule, root, samplingIterations / 10);
+                time(eager(type, leduc, 0), rule, root, samplingIterations / 10);
+            }
+        }
+        for (SolverType type : engines) {
+            for (UpdateRule rule : scaling) {
+                Solver deferred = type.create(leduc, new InfoSetTable(), 3);
+                Solver eager = eager(type, leduc, 3);
+                double eagerRate = time(eager, rule, root, samplingIterations);
+                double deferredRate = time(deferred, rule, root, samplingIterations);
+                double difference = maxDifference(deferred.getInfoSetTable(), eager.getInfoSetTable());
+                System.out.printf("  %-18s %-8s %9.0f -> %9.0f it/s  max strategy difference %.2e%n",
+                        type, rule, eagerRate, deferredRate, difference);
+                if (difference > STRATEGY_TOLERANCE) {
+                    System.out.println("    failed: same strategies as eager scaling");
+                    ok = false;
+                }
+            }
+        }
+
+        System.out.println(ok ? "OK" : "MISMATCH");
+        if (!ok) System.exit(1);
+    }
+
+    /**
+     * The engine with the update rule's scaling swept over the whole table after every pass
+     * and iteration.
+     */
+    private static Solver eager(SolverType type, LeducGameSim game, long seed) {
+        switch (type) {
+            case CHANCE_SAMPLING:
+                return new ChanceSamplingCFR(game, new InfoSetTable(), seed) {
+                    @Override
+                    protected boolean defersScaling() {
+                        return false;
+                    }
+                };
+            case EXTERNAL_SAMPLING:
+                return new ExternalSamplingCFR(game, new InfoSetTable(), seed) {
+                    @Override
+                    protected boolean defersScaling() {
+                        return false;
+                    }
+                };
+            case OUTCOME_SAMPLING:
+                return new OutcomeSamplingCFR(game, new InfoSetTable(), seed) {
+                    @Override
+                    protected boolean defersScaling() {
+                        return false;
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Not a sampling engine: " + type);
+        }
+    }
+
+    private static double time(Solver solver, UpdateRule rule, LeducHistory root, int iterations) {
+        solver.setUpdateRule(rule);
+        long start = System.nanoTime();
+        solver.train(iterations, root, null, Integer.MAX_VALUE);
+        return iterations / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Largest difference between the current or average strategies of the same infoset.
+     */
+    private static double maxDifference(InfoSetTable expected, InfoSetTable actual) {
+        if (actual.size() != expected.size()) return Double.POSITIVE_INFINITY;
+        double[] x = new double[expected.dataSize()];
+        double[] y = new double[expected.dataSize()];
+        double max = 0;
+        for (int id = 0; id < expected.size(); id++) {
+            int other = actual.find(expected.getHash(id));
+            if (other < 0) return Double.POSITIVE_INFINITY;
+            int n = expected.getNumActions(id);
+            expected.getStrategy(id, x);
+            actual.getStrategy(other, y);
+            for (int a = 0; a < n; a++) max = Math.max(max, Math.abs(x[a] - y[a]));
+            expected.getAverageStrategy(id, x);
+            actual.getAverageStrategy(other, y);
+            for (int a = 0; a < n; a++) max = Math.max(max, Math.abs(x[a] - y[a]));
+        }
+        return max;
+    }
+}
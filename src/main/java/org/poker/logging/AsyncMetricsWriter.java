@@ -0,0 +1,200 @@
+package org.poker.logging;
+
+import org.mlflow.api.proto.Service.Metric;
+import org.mlflow.api.proto.Service.Param;
+import org.mlflow.api.proto.Service.RunTag;
+import org.mlflow.tracking.MlflowClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ships metric points to MLflow from a background thread so the trainer never waits on
+ * the tracking server.
+ *
+ * Points go into a bounded ring buffer of primitive slots; {@link #offer} takes no lock,
+ * claiming a slot with a CAS on the tail, and drops the point when the buffer is full. A
+ * per-slot sequence number tells the drainer which claimed slots are filled in. A daemon drainer thread wakes every flush
+ * interval (or as soon as the buffer is half full) and sends what it finds in
+ * {@code logBatch} calls of at most {@link #MAX_BATCH} metrics. Failed batches are
+ * counted and discarded rather than retried, so a dead server cannot back the buffer up.
+ */
+public class AsyncMetricsWriter {
+    // MLflow rejects batches of more than 1000 metrics
+    public static final int MAX_BATCH = 1000;
+
+    // Set in the tail by close(), so no slot can be claimed after the final drain starts
+    private static final long CLOSED = 1L << 62;
+
+    private static final List<Param> NO_PARAMS = List.of();
+    private static final List<RunTag> NO_TAGS = List.of();
+
+    private final MlflowClient client;
+    private final String runId;
+    private final long flushIntervalNanos;
+
+    private final int mask;
+    private final String[] keys;
+    private final double[] values;
+    private final long[] timestamps;
+    private final long[] steps;
+    // Slot i is free for position p when its sequence is p, and filled in when it is p + 1
+    private final AtomicLongArray sequences;
+
+    // head: next position to drain, only written by the drainer; tail: next position to claim
+    private final AtomicLong head;
+    private final AtomicLong tail;
+
+    private final AtomicLong dropped;
+    private final AtomicLong sent;
+    private final AtomicLong failedBatches;
+
+    private final Thread drainer;
+
+    /**
+     * @param capacity ring buffer size in points, rounded up to a power of two
+     */
+    public AsyncMetricsWriter(MlflowClient client, String runId, int capacity, long flushIntervalMillis) {
+        this.client = client;
+        this.runId = runId;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        keys = new String[size];
+        values = new double[size];
+        timestamps = new long[size];
+        steps = new long[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+
+        head = new AtomicLong();
+        tail = new AtomicLong();
+        dropped = new AtomicLong();
+        sent = new AtomicLong();
+        failedBatches = new AtomicLong();
+
+        drainer = new Thread(this::drainLoop, "mlflow-metrics-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Queues one point. Returns false if the buffer was full (or the writer closed) and the
+     * point was dropped. Safe to call from several threads, and never waits on them.
+     */
+    public boolean offer(String key, double value, long timestamp, long step) {
+        long t;
+        int slot;
+        while (true) {
+            t = tail.get();
+            if ((t & CLOSED) != 0) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            slot = (int) t & mask;
+            long sequence = sequences.get(slot);
+            if (sequence < t) {
+                // Still holds the point from one lap back
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (sequence == t && tail.compareAndSet(t, t + 1)) break;
+            // Another producer claimed position t first
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        timestamps[slot] = timestamp;
+        steps[slot] = step;
+        // Publishes the slot to the drainer
+        sequences.set(slot, t + 1);
+
+        if (t + 1 - head.get() > (mask + 1) / 2) LockSupport.unpark(drainer);
+        return true;
+    }
+
+    /**
+     * Stops accepting points, sends everything still buffered and stops the drainer.
+     */
+    public void close() {
+        tail.getAndUpdate(t -> t | CLOSED);
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        ArrayList<Metric> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            long t = tail.get();
+            while (drainBatch(batch) == MAX_BATCH) {
+                // Keep going while full batches are waiting
+            }
+            if ((t & CLOSED) != 0) {
+                // Positions claimed before close are published shortly
+                if (head.get() == (t & ~CLOSED)) return;
+                Thread.onSpinWait();
+                continue;
+            }
+            LockSupport.parkNanos(this, flushIntervalNanos);
+        }
+    }
+
+    /**
+     * Sends up to MAX_BATCH published points and returns how many were taken.
+     */
+    private int drainBatch(ArrayList<Metric> batch) {
+        long h = head.get();
+        batch.clear();
+        while (batch.size() < MAX_BATCH) {
+            int slot = (int) h & mask;
+            if (sequences.get(slot) != h + 1) break;
+            batch.add(Metric.newBuilder()
+                    .setKey(keys[slot])
+                    .setValue(values[slot])
+                    .setTimestamp(timestamps[slot])
+                    .setStep(steps[slot])
+                    .build());
+            keys[slot] = null;
+            // Slot is copied out, hand it back to the producers for the next lap
+            sequences.set(slot, h + mask + 1);
+            h++;
+        }
+        int count = batch.size();
+        if (count == 0) return 0;
+        head.set(h);
+
+        try {
+            client.logBatch(runId, batch, NO_PARAMS, NO_TAGS);
+            sent.addAndGet(count);
+        } catch (RuntimeException e) {
+            failedBatches.incrementAndGet();
+            System.err.println("Dropped batch of " + count + " metrics: " + e.getMessage());
+        }
+        return count;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    public int pending() {
+        return (int) ((tail.get() & ~CLOSED) - head.get());
+    }
+}
@@ -5,14 +5,33 @@ import org.mlflow.tracking.MlflowClient;
 import org.mlflow.api.proto.Service.Experiment;
 
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Logs a training run to MLflow. Metrics are handed to an {@link AsyncMetricsWriter}, so
+ * {@link #log} returns immediately regardless of tracking server latency; {@link #finish}
+ * flushes them before marking the run finished.
+ */
 public class WandBLogger {
+    private static final int DEFAULT_CAPACITY = 1 << 14;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
     private String runId;
     private MlflowClient client;
+    private AsyncMetricsWriter writer;
 
     public WandBLogger(HashMap<String,String> params, String url, String experimentName) {
-        client = new MlflowClient(url);
+        this(params, new MlflowClient(url), experimentName, DEFAULT_CAPACITY, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param client client for the tracking server, e.g. one pointed at a local stub
+     * @param capacity metric points buffered before new ones are dropped
+     */
+    public WandBLogger(HashMap<String,String> params, MlflowClient client, String experimentName,
+                       int capacity, long flushIntervalMillis) {
+        this.client = client;
 
         Optional<Experiment> experiment = client.getExperimentByName(experimentName);
         String experimentId;
@@ -29,15 +48,26 @@ public class WandBLogger {
             client.logParam(runId, key, params.get(key));
         }
 
+        writer = new AsyncMetricsWriter(client, runId, capacity, flushIntervalMillis);
     }
 
     public void log(HashMap<String,Double> metrics, int iteration) {
-        for (String key : metrics.keySet()) {
-            client.logMetric(runId,key,metrics.get(key), System.currentTimeMillis(), iteration);
+        long timestamp = System.currentTimeMillis();
+        for (Map.Entry<String,Double> metric : metrics.entrySet()) {
+            writer.offer(metric.getKey(), metric.getValue(), timestamp, iteration);
         }
     }
 
     public void finish() {
+        writer.close();
+        if (writer.getDropped() > 0 || writer.getFailedBatches() > 0) {
+            System.err.println("Metrics: " + writer.getDropped() + " points dropped, "
+                    + writer.getFailedBatches() + " batches failed");
+        }
         client.setTerminated(runId, Service.RunStatus.FINISHED, System.currentTimeMillis());
     }
+
+    public AsyncMetricsWriter getWriter() {
+        return writer;
+    }
 }